@@ -17,9 +17,16 @@
  *******************************************************************************/
 package staticContent.evaluation.simulator;
 
+import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import staticContent.evaluation.simulator.annotations.property.BoolSimulationProperty;
 import staticContent.evaluation.simulator.annotations.property.DoubleSimulationProperty;
@@ -27,8 +34,15 @@ import staticContent.evaluation.simulator.annotations.property.IntSimulationProp
 import staticContent.evaluation.simulator.annotations.property.StringSimulationProperty;
 import staticContent.evaluation.simulator.annotations.property.requirements.SimulationEndRealTimeEndRequirement;
 import staticContent.evaluation.simulator.core.ExperimentConfig;
+import staticContent.evaluation.simulator.core.SimulationContext;
 import staticContent.evaluation.simulator.core.binding.gMixBinding;
+import staticContent.evaluation.simulator.core.event.BinaryHeapEventQueue;
+import staticContent.evaluation.simulator.core.event.CalendarEventQueue;
 import staticContent.evaluation.simulator.core.event.Event;
+import staticContent.evaluation.simulator.core.event.EventExecutor;
+import staticContent.evaluation.simulator.core.event.EventPool;
+import staticContent.evaluation.simulator.core.event.EventQueue;
+import staticContent.evaluation.simulator.core.event.SimulationEvent;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
 import staticContent.evaluation.simulator.core.networkComponent.DistantProxy;
 import staticContent.evaluation.simulator.core.networkComponent.IdGenerator;
@@ -50,7 +64,8 @@ import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.Topology;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.TrafficSource;
 import userGeneratedContent.simulatorPlugIns.plugins.outputStrategy.OutputStrategyImpl;
-import gnu.trove.TDoubleArrayList;
+import userGeneratedContent.simulatorPlugIns.plugins.topology.TopologyScript;
+import userGeneratedContent.simulatorPlugIns.plugins.trafficSource.TrafficSourceImplementation;
 
 
 public class Simulator extends GMixTool implements Identifiable {
@@ -58,6 +73,7 @@ public class Simulator extends GMixTool implements Identifiable {
 	//private static Logger logger = Logger.getLogger(Simulator.class);
 
 	private final int numericIdentifier;
+	private final SimulationContext context; // per-run state (see SimulationContext)
 	public static Settings settings;
 	gMixBinding gmixbind = null;
 	
@@ -69,10 +85,10 @@ public class Simulator extends GMixTool implements Identifiable {
 			isStatic = true,
 			info = "If this option is enabled the simulator will generate debug output. Simulations with debug output may perform significantly longer!")
 	public static boolean DEBUG_ON = true;
-	private static long now = 0;
-	private static Simulator currentSimulator = null;
 	private static CommandLineParameters commandLineParameters;
-	private final PriorityQueue<Event> eventQueue = new PriorityQueue<Event>();
+	private EventQueue eventQueue;
+	private final EventPool eventPool = new EventPool();
+	private int canceledEventsInQueue = 0;
 	private HashMap<String, AbstractClient> clients;
 	private HashMap<String, Mix> mixes;
 	private HashMap<String, NetworkConnection> networkConnections;
@@ -118,9 +134,32 @@ public class Simulator extends GMixTool implements Identifiable {
 			isStatic = true)
 	private static String endCondition;
 	
-	public static Statistics trafficSourceStatistics;
-	private Topology topology;
-	private TrafficSource trafficSource;
+	@StringSimulationProperty( name = "Event queue",
+			key = "EVENT_QUEUE",
+			inject = "6:SIMULATION,Simulation",
+			possibleValues = "BINARY_HEAP,CALENDAR_QUEUE",
+			isStatic = true,
+			info = "Data structure used to store pending events. CALENDAR_QUEUE performs significantly better for simulations with many clients.")
+	private static String eventQueueType;
+	
+	@IntSimulationProperty( name = "Parallel runs",
+			key = "PARALLEL_RUNS",
+			inject = "7:SIMULATION,Simulation",
+			isStatic = true,
+			min = 0,
+			info = "Number of simulation runs performed concurrently (0: one per available processor).")
+	private static int parallelRuns;
+	
+	@StringSimulationProperty( name = "Random seed",
+			key = "RANDOM_SEED",
+			inject = "8:SIMULATION,Simulation",
+			isStatic = true,
+			info = "Seed for the random number generators of the simulation runs (RANDOM: new seed for each experiment).")
+	private static String randomSeed;
+	
+	public Statistics trafficSourceStatistics;
+	private TopologyScript topology;
+	private TrafficSourceImplementation trafficSource;
 	public ResultSet results;
 
 	public static void reset() {
@@ -135,7 +174,9 @@ public class Simulator extends GMixTool implements Identifiable {
 	
 	public Simulator(CommandLineParameters params) {
 		Simulator.commandLineParameters = params;
-		now = 0;
+		this.context = SimulationContext.get();
+		this.context.setNow(0);
+		this.context.setSimulator(this);
 		this.numericIdentifier = IdGenerator.getId();
 		this.results = null;
 		if (firstRun) {
@@ -144,18 +185,18 @@ public class Simulator extends GMixTool implements Identifiable {
 				Simulator.settings = new Settings(Paths.SIM_PROPERTY_FILE_PATH);
 				Simulator.settings.addProperties(commandLineParameters.passthroughParameters);
 				Simulator.DEBUG_ON = Simulator.settings.getPropertyAsBoolean("DEBUG_OUTPUT");
-				Simulator.currentSimulator = this;
+				this.eventQueue = createEventQueue();
 				Statistics.setSimulator(this);
-				Simulator.trafficSourceStatistics = new Statistics(this);
+				this.trafficSourceStatistics = new Statistics(this);
 				this.results = performExperimentReturnResults(Simulator.settings, settings.getProperty("EXPERIMENTS_TO_PERFORM"));
 			}/* else if (commandLineParameters.globalConfigFile != null) {
 				Simulator.settings = new Settings(Paths.SIM_PROPERTY_FILE_PATH);
 				Simulator.settings.addProperties(Paths.SIM_EXPERIMENT_DEFINITION_FOLDER_PATH +commandLineParameters.globalConfigFile);
 				Simulator.desiredExperiments = settings.getProperty("EXPERIMENTS_TO_PERFORM");
 				Simulator.DEBUG_ON = Simulator.settings.getPropertyAsBoolean("DEBUG_OUTPUT");
-				Simulator.currentSimulator = this;
+				this.eventQueue = createEventQueue();
 				Statistics.setSimulator(this);
-				Simulator.trafficSourceStatistics = new Statistics(this);
+				this.trafficSourceStatistics = new Statistics(this);
 				performExperiment(Simulator.settings, settings.getProperty("EXPERIMENTS_TO_PERFORM"));
 			}*/ else {
 				Simulator.settings = new Settings(Paths.SIM_PROPERTY_FILE_PATH);
@@ -168,25 +209,38 @@ public class Simulator extends GMixTool implements Identifiable {
 				for (String desiredExperiment: desiredExperiments.split(",")) {
 					Simulator.settings = new Settings(Paths.SIM_PROPERTY_FILE_PATH);
 					Simulator.settings.addProperties(Paths.SIM_EXPERIMENT_DEFINITION_FOLDER_PATH +desiredExperiment);
-					Simulator.currentSimulator = this;
+					this.eventQueue = createEventQueue();
 					Statistics.setSimulator(this);
-					Simulator.trafficSourceStatistics = new Statistics(this);
+					this.trafficSourceStatistics = new Statistics(this);
 					performExperiment(Simulator.settings, desiredExperiment);
 				}
 			}
 		} else {
+			this.eventQueue = createEventQueue();
 			Statistics.setSimulator(this);
-			Simulator.trafficSourceStatistics = new Statistics(this);
-			Simulator.currentSimulator = this;
+			this.trafficSourceStatistics = new Statistics(this);
 		}
 	}
 
+	private static EventQueue createEventQueue() {
+		String desiredEventQueue = !getSettings().isPropertyPresent("EVENT_QUEUE") ? "BINARY_HEAP" : getSettings().getProperty("EVENT_QUEUE");
+		if (desiredEventQueue.equalsIgnoreCase("BINARY_HEAP"))
+			return new BinaryHeapEventQueue();
+		else if (desiredEventQueue.equalsIgnoreCase("CALENDAR_QUEUE"))
+			return new CalendarEventQueue();
+		else
+			throw new RuntimeException("ERROR: no event queue with the name \"" +desiredEventQueue  
+					+"\" available (Key \"EVENT_QUEUE\" in experiment config file). Possible " +
+					"values: BINARY_HEAP, CALENDAR_QUEUE");
+	}
+	
+	
 	private void executeSimulationScript(String simulationScript) {
 		// init traffic source
-		this.trafficSource = TrafficSource.getTrafficSource();
+		this.trafficSource = TrafficSource.getTrafficSource().createImplementation();
 		this.clientByIdArray = this.trafficSource.createClientsArray();
 		// init topology
-		this.topology = Topology.getTopology();
+		this.topology = Topology.getTopology().createTopologyScript();
 		this.topology.constructor(this.clientByIdArray);
 		this.clients = this.topology.getClients();
 		this.mixes = this.topology.getMixes();
@@ -209,9 +263,9 @@ public class Simulator extends GMixTool implements Identifiable {
 			}
 		}
 		
-		Simulator.endCondition = Simulator.settings.getProperty("SIMULATION_END");
-		if (Simulator.endCondition.equals("REAL_TIME_END")) {
-			new StopSimulationTimer(this);
+		if (getSettings().getProperty("SIMULATION_END").equals("REAL_TIME_END")) {
+			int delay = (int) Math.round(getSettings().getPropertyAsDouble("REAL_TIME_LIMIT_IN_SEC") * 1000d);
+			new StopSimulationTimer(this, delay);
 		}
 	}
 
@@ -241,56 +295,106 @@ public class Simulator extends GMixTool implements Identifiable {
 					this.ts_recordStatisticsEnd = getNow();
 				}
 				return;
-			} else if (event.isCanceled()) {
-				continue;
+			}
+			event.setScheduled(false);
+			if (event.isCanceled()) {
+				this.canceledEventsInQueue--;
 			} else { // execute event
-				now = event.getExecutionTime();
+				this.context.setNow(event.getExecutionTime());
 				assert event.getTarget() != null;
 				event.setExecuted();
 				event.getTarget().executeEvent(event);
 			}
+			if (event.isPooled() && !event.isScheduled()) // not rescheduled by its target
+				this.eventPool.recycle(event);
 		}
 	}
 
+	private static final int MIN_CANCELED_EVENTS_TO_COMPACT = 1024;
 	private long sequenceCounter = 0;
 	// callingInstance = DEBUG
 	public void scheduleEvent(Event e, Object callingInstance) {
 		//System.out.println("Received ScheduleTask from " +callingInstance +" (now: " +e.getExecutionTime() +") " +e.getAttachment());
-		if (e.getExecutionTime() < now) {
-			throw new RuntimeException("ERROR: executionTime < now (" +e.getExecutionTime() +" < " +now);
+		if (e.getExecutionTime() < this.context.getNow()) {
+			throw new RuntimeException("ERROR: executionTime < now (" +e.getExecutionTime() +" < " +this.context.getNow());
 		} else {
-			if (this.sequenceCounter == Long.MAX_VALUE) {
-				System.out.println("RESETTING SEQUENCE_COUNTER");
-				this.sequenceCounter = this.eventQueue.size() + 1;
-				long diff = Long.MAX_VALUE - this.eventQueue.size();
-				for (Event event:this.eventQueue) {
-					event.setSequenceNumber(event.getSequenceNumber() - diff);
-				}
-
-			}
-			this.sequenceCounter++;
+			this.sequenceCounter++; // note: will not overflow (2^63 events)
 			e.setSequenceNumber(this.sequenceCounter);
+			e.setScheduled(true);
 			this.eventQueue.add(e);
 		}
 
 	}
+	
+	
+	/**
+	 * Returns an <code>Event</code> from this simulator's <code>EventPool
+	 * </code>. The event will be recycled after its execution, so the caller 
+	 * must not keep a reference to it after scheduling (use <code>new Event(...)
+	 * </code> for events that may be unscheduled later on).
+	 */
+	public Event getEventFromPool(EventExecutor target, long executionTime, SimulationEvent eventType) {
+		return this.eventPool.getEvent(target, executionTime, eventType, null);
+	}
+	
+	
+	/**
+	 * See <code>getEventFromPool(EventExecutor, long, SimulationEvent)</code>.
+	 */
+	public Event getEventFromPool(EventExecutor target, long executionTime, SimulationEvent eventType, Object attachment) {
+		return this.eventPool.getEvent(target, executionTime, eventType, attachment);
+	}
 
 
 	public void unscheduleEvent(Event e) {
+		if (e.isCanceled())
+			return;
 		e.cancel();
+		if (e.isScheduled()) {
+			this.canceledEventsInQueue++;
+			// remove canceled events as soon as they make up the larger part of the queue
+			if (this.canceledEventsInQueue > MIN_CANCELED_EVENTS_TO_COMPACT && this.canceledEventsInQueue > this.eventQueue.size() / 2) {
+				this.eventQueue.removeCanceledEvents();
+				this.canceledEventsInQueue = 0;
+			}
+		}
 	}
 
 
 	/**
-	 * @return the now
+	 * @return the now (of the simulation run executed by the calling thread)
 	 */
 	public static long getNow() {
-		return now;
+		return SimulationContext.get().getNow();
 	}
 
 
+	/**
+	 * @return the simulator of the simulation run executed by the calling thread
+	 */
 	public static Simulator getSimulator() {
-		return currentSimulator;
+		return SimulationContext.get().getSimulator();
+	}
+	
+	
+	/**
+	 * @return the settings of the simulation run executed by the calling 
+	 * thread (<code>Simulator.settings</code> if no run specific settings 
+	 * are available)
+	 */
+	public static Settings getSettings() {
+		Settings runSettings = SimulationContext.get().getSettings();
+		return runSettings != null ? runSettings : Simulator.settings;
+	}
+	
+	
+	/**
+	 * Returns the (seeded) random number generator of this simulation run. 
+	 * Plug-ins should draw all random numbers from this generator, so that 
+	 * runs are reproducible (see key RANDOM_SEED).
+	 */
+	public Random getRandom() {
+		return this.context.getRandom();
 	}
 
 
@@ -398,34 +502,124 @@ public class Simulator extends GMixTool implements Identifiable {
 
 
 	private static ResultSet generateResultSet(ExperimentConfig ep) {
-		Simulator simulator;
 		ResultSet resultSet = new ResultSet(ep);
-		TDoubleArrayList[][][] results = resultSet.results;
 		long startOfExperiment = System.currentTimeMillis();
+		long seed = getRandomSeed();
+		System.out.println("### random seed: " +seed);
 
-		// generate results and store them in ResultSet
+		// create a run for each value of the parameter(s) to vary and each validation run
+		List<SimulationRun> runs = new ArrayList<SimulationRun>(ep.values.length * ep.runs);
 		for (int i=0; i<ep.values.length; i++) { // for each value of the parameter(s) to vary
 			// set value(s) of the parameter(s) to vary
-			String value = ep.values[i];
-			settings.setProperty(ep.propertyToVary, value);
-			String secondValue = null;
-			if (ep.useSecondPropertyToVary) {
-				secondValue = ep.valuesForSecondProperty[i];
-				settings.setProperty(ep.secondPropertyToVary, secondValue);
+			settings.setProperty(ep.propertyToVary, ep.values[i]);
+			if (ep.useSecondPropertyToVary)
+				settings.setProperty(ep.secondPropertyToVary, ep.valuesForSecondProperty[i]);
+			for (int j=0; j<ep.runs; j++) { // for each validation run
+				Settings runSettings = new Settings();
+				runSettings.addProperties(settings.getPropertiesObject());
+				SimulationContext context = new SimulationContext(runSettings, deriveSeed(seed, i, j));
+				context.setRecordingModes(ep.recordingModes, ep.sketchRelativeAccuracy);
+				runs.add(new SimulationRun(ep, resultSet, i, j, context));
 			}
-
-			System.out.println();
-			if (!ep.useSecondPropertyToVary) {
-				System.out.println("### STARTING NEW RUN SERIES (" +(i+1) +"/" +(ep.values.length) +"): " +ep.propertyToVary +"=" +value);
-			} else {
-				System.out.println("### STARTING NEW RUN SERIES (" +(i+1) +"/" +(ep.values.length) +"): " +ep.propertyToVary +"=" +value +", " +ep.secondPropertyToVary +"=" +secondValue);
+		}
+		
+		// perform runs (results are stored in ResultSet)
+		int numberOfThreads = getNumberOfParallelRuns();
+		if (numberOfThreads == 1) {
+			for (SimulationRun run: runs)
+				run.call();
+		} else {
+			System.out.println("### performing " +runs.size() +" runs on " +numberOfThreads +" threads");
+			ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+			try {
+				for (Future<Void> run: pool.invokeAll(runs))
+					run.get(); // rethrows exceptions of failed runs
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
+				throw new RuntimeException("ERROR: simulation run failed: " +e.getMessage()); 
+			} finally {
+				pool.shutdownNow();
 			}
+		}
 
-			for (int j=0; j<ep.runs; j++) { // for each validation run
+		System.out.println("### total execution time of experiment: " +(System.currentTimeMillis() - startOfExperiment));
 
-				System.out.println("### STARTING RUN " +(j+1) +"/" +ep.runs);
+		return resultSet;
+
+	}
+	
+	
+	private static int getNumberOfParallelRuns() {
+		Simulator.parallelRuns = !settings.isPropertyPresent("PARALLEL_RUNS") ? 1 : settings.getPropertyAsInt("PARALLEL_RUNS");
+		if (Simulator.parallelRuns < 0)
+			throw new RuntimeException("ERROR: PARALLEL_RUNS must be >= 0 (0: one run per available processor)"); 
+		return Simulator.parallelRuns == 0 ? Runtime.getRuntime().availableProcessors() : Simulator.parallelRuns;
+	}
+	
+	
+	private static long getRandomSeed() {
+		Simulator.randomSeed = !settings.isPropertyPresent("RANDOM_SEED") ? "RANDOM" : settings.getProperty("RANDOM_SEED");
+		if (Simulator.randomSeed.equalsIgnoreCase("RANDOM"))
+			return new SecureRandom().nextLong();
+		try {
+			return Long.parseLong(Simulator.randomSeed);
+		} catch (NumberFormatException e) {
+			throw new RuntimeException("ERROR: RANDOM_SEED must be RANDOM or a number (found \"" +Simulator.randomSeed +"\")"); 
+		}
+	}
+	
+	
+	/**
+	 * Derives the seed of a single run from the seed of the experiment, so 
+	 * that the result of a run does not depend on the order (or thread) the 
+	 * runs are performed in (SplitMix64 finalizer).
+	 */
+	private static long deriveSeed(long seed, int valueIndex, int runIndex) {
+		long z = seed + 0x9E3779B97F4A7C15L * ((((long)valueIndex) << 32) + runIndex + 1);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	
+	/**
+	 * A single simulation run (one value of the parameter(s) to vary, one 
+	 * validation run). Each run is performed with its own 
+	 * <code>SimulationContext</code>, so runs can be performed concurrently.
+	 */
+	private static class SimulationRun implements Callable<Void> {
+		
+		private final ExperimentConfig ep;
+		private final ResultSet resultSet;
+		private final int i; // index of the value of the parameter(s) to vary
+		private final int j; // index of the validation run
+		private final SimulationContext context;
+		
+		
+		public SimulationRun(ExperimentConfig ep, ResultSet resultSet, int i, int j, SimulationContext context) {
+			this.ep = ep;
+			this.resultSet = resultSet;
+			this.i = i;
+			this.j = j;
+			this.context = context;
+		}
+		
+		
+		@Override
+		public Void call() {
+			SimulationContext.set(this.context);
+			try {
+				if (j == 0) {
+					System.out.println();
+					if (!ep.useSecondPropertyToVary) {
+						System.out.println("### STARTING NEW RUN SERIES (" +(i+1) +"/" +(ep.values.length) +"): " +ep.propertyToVary +"=" +ep.values[i]);
+					} else {
+						System.out.println("### STARTING NEW RUN SERIES (" +(i+1) +"/" +(ep.values.length) +"): " +ep.propertyToVary +"=" +ep.values[i] +", " +ep.secondPropertyToVary +"=" +ep.valuesForSecondProperty[i]);
+					}
+				}
+				System.out.println("### STARTING RUN " +(j+1) +"/" +ep.runs +" (series " +(i+1) +")");
 
-				simulator = new Simulator(commandLineParameters);
+				Simulator simulator = new Simulator(commandLineParameters);
 				simulator.executeSimulationScript(ep.simulationScript);
 
 				long start = System.currentTimeMillis();
@@ -435,22 +629,19 @@ public class Simulator extends GMixTool implements Identifiable {
 				resultSet.numberOfMixes[i] = simulator.mixes.size();
 				for (AbstractClient client: simulator.clients.values())
 					client.close();
-				System.out.println("### FINISHED RUN " +(j+1) +"/" +ep.runs +" (execution time: " +(System.currentTimeMillis() - start) +" ms, simulation time: " +resultSet.simulationTime[i][j] +"ms)");
+				simulator.trafficSource.close();
+				System.out.println("### FINISHED RUN " +(j+1) +"/" +ep.runs +" (series " +(i+1) +", execution time: " +(System.currentTimeMillis() - start) +" ms, simulation time: " +resultSet.simulationTime[i][j] +"ms)");
 
 				// calculate results
 				for (StatisticsType st: ep.desiredStatisticsTypes) {
-					results[i][st.ordinal()][j] = GeneralStatistics.getResult(st);
+					resultSet.results[i][st.ordinal()][j] = GeneralStatistics.getResult(st);
 				}
-				GeneralStatistics.reset();
-				AbstractClient.reset();
-			} // end for each validation run
-
-		} // end for each value of the parameter to vary
-
-		System.out.println("### total execution time of experiment: " +(System.currentTimeMillis() - startOfExperiment));
-
-		return resultSet;
-
+			} finally {
+				SimulationContext.remove();
+			}
+			return null;
+		}
+		
 	}
 
 
@@ -463,18 +654,19 @@ public class Simulator extends GMixTool implements Identifiable {
 	private class StopSimulationTimer extends Thread {
 
 		private final Simulator simulator;
+		private final int delay;
 		private long sleepUntil;
 
 
-		public StopSimulationTimer(Simulator simulator) {
+		public StopSimulationTimer(Simulator simulator, int delay) {
 			this.simulator = simulator;
+			this.delay = delay;
 			this.start();
 		}
 
 
 		@Override
 		public void run() {
-			int delay = (int) Math.round(Simulator.settings.getPropertyAsDouble("REAL_TIME_LIMIT_IN_SEC") * 1000d);
 			this.sleepUntil = System.currentTimeMillis() + delay;
 			while (System.currentTimeMillis() < this.sleepUntil) {
 				try {
@@ -17,14 +17,17 @@
  *******************************************************************************/
 package staticContent.evaluation.simulator.core;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Vector;
 
+import staticContent.evaluation.simulator.core.statistics.aggregator.QuantileSketch;
 import staticContent.framework.config.Settings;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.PlotType;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType;
+import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType.RecordingMode;
 
 
 public class ExperimentConfig {
@@ -46,6 +49,9 @@ public class ExperimentConfig {
 	public boolean isNumeric = true;
 	public HashMap<String, Double> propertyToVaryToId;
 	
+	public RecordingMode[] recordingModes; // one entry per StatisticsType (ordinal); see setRecordingModes()
+	public double sketchRelativeAccuracy = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+	
 	
 	// load experiment config from property file
 	public ExperimentConfig(Settings settings) {
@@ -69,6 +75,7 @@ public class ExperimentConfig {
 			if (this.desiredStatisticsTypes.length == 0)
 				throw new RuntimeException("unknown StatisticsType specified in config file (parameter DESIRED_EVALUATIONS): " +settings.getProperty("DESIRED_EVALUATIONS")); 		
 		}
+		setRecordingModes(settings);
 		HashSet<PlotType> tmpSet = new HashSet<PlotType>();
 		for (StatisticsType st: desiredStatisticsTypes) 
 			tmpSet.add(st.plotType);
@@ -135,6 +142,36 @@ public class ExperimentConfig {
 		
 	}
 	
+	// STATISTICS_RECORDING_MODE (default for all desired StatisticsTypes) and STATISTICS_RECORDING_MODE_<StatisticsType> (overrides the default for a single StatisticsType)
+	private void setRecordingModes(Settings settings) {
+		RecordingMode defaultMode = !settings.isPropertyPresent("STATISTICS_RECORDING_MODE") ? RecordingMode.EXACT : parseRecordingMode(settings.getProperty("STATISTICS_RECORDING_MODE"));
+		if (settings.isPropertyPresent("SKETCH_RELATIVE_ACCURACY"))
+			this.sketchRelativeAccuracy = settings.getPropertyAsDouble("SKETCH_RELATIVE_ACCURACY");
+		this.recordingModes = new RecordingMode[StatisticsType.values().length];
+		Arrays.fill(recordingModes, RecordingMode.EXACT);
+		for (StatisticsType st: desiredStatisticsTypes) {
+			String key = "STATISTICS_RECORDING_MODE_" +st.toString();
+			if (settings.isPropertyPresent(key)) {
+				RecordingMode mode = parseRecordingMode(settings.getProperty(key));
+				if (!st.supportsRecordingMode(mode))
+					throw new RuntimeException("ERROR: " +st +" does not support RecordingMode " +mode +" (" +key +"). SKETCH requires AVG, MIN, MAX or MEDIAN as sourceValueAggregator."); 
+				recordingModes[st.ordinal()] = mode;
+			} else { // types that need all values (e.g. for cumulative fraction plots) are always recorded exactly
+				recordingModes[st.ordinal()] = st.supportsRecordingMode(defaultMode) ? defaultMode : RecordingMode.EXACT;
+			}
+		}
+	}
+	
+	
+	private static RecordingMode parseRecordingMode(String mode) {
+		try {
+			return RecordingMode.valueOf(mode.trim());
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("ERROR: unknown RecordingMode: " +mode +" (supported: EXACT, SKETCH)"); 
+		}
+	}
+	
+	
 	public ExperimentConfig() {
 		
 	}
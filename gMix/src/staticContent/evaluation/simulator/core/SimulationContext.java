@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core;
+
+import java.util.Random;
+import java.util.Vector;
+
+import staticContent.evaluation.simulator.Simulator;
+import staticContent.evaluation.simulator.core.statistics.Statistics;
+import staticContent.evaluation.simulator.core.statistics.aggregator.QuantileSketch;
+import staticContent.framework.config.Settings;
+import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType;
+import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType.RecordingMode;
+
+
+/**
+ * State of a single simulation run (settings, simulated time, current 
+ * <code>Simulator</code>, registered <code>Statistics</code> objects, id 
+ * counters and random number generator). Each thread executing a simulation 
+ * run installs its own context (see <code>set(SimulationContext)</code>), so 
+ * several runs of an experiment can be performed concurrently. Threads that 
+ * have not installed a context share a common default context (e.g. the 
+ * testbed, which uses the simulator's statistics classes only).
+ */
+public class SimulationContext {
+
+	private static final SimulationContext defaultContext = new SimulationContext(null, System.nanoTime());
+	private static final ThreadLocal<SimulationContext> currentContext = new ThreadLocal<SimulationContext>();
+	
+	private final Settings settings;
+	private final Random random;
+	private Simulator simulator = null;
+	private long now = 0;
+	private boolean recordStatistics = false;
+	private Vector<Statistics> registeredStatisticsObjects = new Vector<Statistics>();
+	private int idCounter = 0;
+	private int clientIdCounter = 0;
+	private RecordingMode[] recordingModes = null; // one entry per StatisticsType (ordinal); null: all EXACT
+	private double sketchRelativeAccuracy = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+	
+	
+	/**
+	 * @param settings the settings of this run (<code>null</code>: use 
+	 * <code>Simulator.settings</code>)
+	 * @param seed seed for the random number generator of this run
+	 */
+	public SimulationContext(Settings settings, long seed) {
+		this.settings = settings;
+		this.random = new Random(seed);
+	}
+	
+	
+	/**
+	 * Returns the context of the calling thread (or the default context, if 
+	 * the calling thread has not installed a context).
+	 */
+	public static SimulationContext get() {
+		SimulationContext context = currentContext.get();
+		return context == null ? defaultContext : context;
+	}
+	
+	
+	public static void set(SimulationContext context) {
+		currentContext.set(context);
+	}
+	
+	
+	public static void remove() {
+		currentContext.remove();
+	}
+	
+	
+	public Settings getSettings() {
+		return this.settings;
+	}
+	
+	
+	public Random getRandom() {
+		return this.random;
+	}
+	
+	
+	public Simulator getSimulator() {
+		return this.simulator;
+	}
+	
+	
+	public void setSimulator(Simulator simulator) {
+		this.simulator = simulator;
+	}
+	
+	
+	public long getNow() {
+		return this.now;
+	}
+	
+	
+	public void setNow(long now) {
+		this.now = now;
+	}
+	
+	
+	public boolean isRecordStatistics() {
+		return this.recordStatistics;
+	}
+	
+	
+	public void setRecordStatistics(boolean recordStatistics) {
+		this.recordStatistics = recordStatistics;
+	}
+	
+	
+	public Vector<Statistics> getRegisteredStatisticsObjects() {
+		return this.registeredStatisticsObjects;
+	}
+	
+	
+	public void resetRegisteredStatisticsObjects() {
+		this.registeredStatisticsObjects = new Vector<Statistics>();
+	}
+	
+	
+	public int getNextId() {
+		return ++this.idCounter;
+	}
+	
+	
+	public int getNextClientId() {
+		return this.clientIdCounter++;
+	}
+	
+	
+	public void resetClientIds() {
+		this.clientIdCounter = 0;
+	}
+	
+	
+	/**
+	 * Sets the RecordingMode of each StatisticsType for this run (see 
+	 * <code>ExperimentConfig.recordingModes</code>).
+	 */
+	public void setRecordingModes(RecordingMode[] recordingModes, double sketchRelativeAccuracy) {
+		this.recordingModes = recordingModes;
+		this.sketchRelativeAccuracy = sketchRelativeAccuracy;
+	}
+	
+	
+	public RecordingMode getRecordingMode(StatisticsType statisticsType) {
+		return recordingModes == null ? RecordingMode.EXACT : recordingModes[statisticsType.ordinal()];
+	}
+	
+	
+	public double getSketchRelativeAccuracy() {
+		return this.sketchRelativeAccuracy;
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.event;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+
+/**
+ * <code>EventQueue</code> backed by a binary heap (<code>java.util.
+ * PriorityQueue</code>); O(log n) per <code>add()</code> and <code>poll()
+ * </code>.
+ */
+public class BinaryHeapEventQueue implements EventQueue {
+
+	private PriorityQueue<Event> heap = new PriorityQueue<Event>();
+	
+	
+	@Override
+	public void add(Event event) {
+		this.heap.add(event);
+	}
+
+	
+	@Override
+	public Event poll() {
+		return this.heap.poll();
+	}
+
+	
+	@Override
+	public int size() {
+		return this.heap.size();
+	}
+
+	
+	@Override
+	public boolean isEmpty() {
+		return this.heap.isEmpty();
+	}
+
+	
+	@Override
+	public void removeCanceledEvents() {
+		ArrayList<Event> remaining = new ArrayList<Event>(this.heap.size());
+		for (Event event: this.heap)
+			if (!event.isCanceled())
+				remaining.add(event);
+			else
+				event.setScheduled(false); // no longer stored in the queue
+		this.heap = new PriorityQueue<Event>(remaining); // heapify: O(n)
+	}
+	
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.event;
+
+
+/**
+ * <code>EventQueue</code> implemented as calendar queue (see R. Brown: 
+ * "Calendar Queues: A Fast O(1) Priority Queue Implementation for the 
+ * Simulation Event Set Problem", CACM 31(10), 1988).
+ * 
+ * <code>Event</code>s are sorted into "days" (buckets) of a "year" according 
+ * to their <code>executionTime</code>. Each bucket is an intrusive singly 
+ * linked list (see <code>Event.nextInQueue</code>), sorted by <code>
+ * executionTime</code> and <code>sequenceNumber</code>. The number of buckets 
+ * and the bucket width are adapted to the number of pending events and their 
+ * average separation, which yields amortized O(1) <code>add()</code> and 
+ * <code>poll()</code>.
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	private static final int MIN_NUMBER_OF_BUCKETS = 2;
+	private static final int SAMPLE_SIZE = 25; // number of events used to estimate the bucket width
+	
+	private Event[] heads;
+	private Event[] tails;
+	private Event[] lastInserted; // per bucket; speeds up inserting runs of events with the same executionTime
+	private int mask;
+	private long bucketWidth;
+	private int size = 0;
+	private int growThreshold;
+	private int shrinkThreshold;
+	private long lastTime = 0; // executionTime of the last event returned by poll()
+	private int lastBucket; // bucket of the last event returned by poll()
+	private long bucketTop; // (exclusive) upper bound of lastBucket in the current "year"
+	
+	
+	public CalendarEventQueue() {
+		init(MIN_NUMBER_OF_BUCKETS, 1);
+	}
+	
+	
+	private void init(int numberOfBuckets, long bucketWidth) {
+		this.heads = new Event[numberOfBuckets];
+		this.tails = new Event[numberOfBuckets];
+		this.lastInserted = new Event[numberOfBuckets];
+		this.mask = numberOfBuckets - 1;
+		this.bucketWidth = bucketWidth;
+		this.lastBucket = getBucket(this.lastTime);
+		this.bucketTop = (this.lastTime / bucketWidth + 1) * bucketWidth;
+		this.growThreshold = 2 * numberOfBuckets;
+		this.shrinkThreshold = (numberOfBuckets == MIN_NUMBER_OF_BUCKETS) ? -1 : numberOfBuckets / 2;
+	}
+	
+	
+	@Override
+	public void add(Event event) {
+		insert(event);
+		if (++this.size > this.growThreshold)
+			resize(this.heads.length * 2);
+	}
+
+	
+	@Override
+	public Event poll() {
+		if (this.size == 0)
+			return null;
+		Event event = removeFirst();
+		if (--this.size < this.shrinkThreshold)
+			resize(this.heads.length / 2);
+		return event;
+	}
+
+	
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	
+	@Override
+	public void removeCanceledEvents() {
+		for (int bucket=0; bucket<this.heads.length; bucket++) {
+			Event predecessor = null;
+			for (Event event = this.heads[bucket]; event != null; event = event.nextInQueue) {
+				if (!event.isCanceled()) {
+					predecessor = event;
+					continue;
+				}
+				if (predecessor == null)
+					this.heads[bucket] = event.nextInQueue;
+				else
+					predecessor.nextInQueue = event.nextInQueue;
+				event.setScheduled(false); // no longer stored in the queue
+				this.size--;
+			}
+			this.tails[bucket] = predecessor;
+			this.lastInserted[bucket] = null;
+		}
+		if (this.size < this.shrinkThreshold)
+			resize(Math.max(MIN_NUMBER_OF_BUCKETS, Integer.highestOneBit(Math.max(1, this.size))));
+	}
+	
+	
+	private int getBucket(long executionTime) {
+		return (int) ((executionTime / this.bucketWidth) & this.mask);
+	}
+	
+	
+	private void insert(Event event) {
+		int bucket = getBucket(event.getExecutionTime());
+		Event tail = this.tails[bucket];
+		if (tail == null) { // empty bucket
+			event.nextInQueue = null;
+			this.heads[bucket] = event;
+			this.tails[bucket] = event;
+		} else if (!isBefore(event, tail)) { // common case: append
+			event.nextInQueue = null;
+			tail.nextInQueue = event;
+			this.tails[bucket] = event;
+		} else if (isBefore(event, this.heads[bucket])) {
+			event.nextInQueue = this.heads[bucket];
+			this.heads[bucket] = event;
+		} else {
+			Event predecessor = this.lastInserted[bucket];
+			if (predecessor == null || isBefore(event, predecessor))
+				predecessor = this.heads[bucket];
+			while (!isBefore(event, predecessor.nextInQueue))
+				predecessor = predecessor.nextInQueue;
+			event.nextInQueue = predecessor.nextInQueue;
+			predecessor.nextInQueue = event;
+		}
+		this.lastInserted[bucket] = event;
+	}
+	
+	
+	private Event removeFirst() {
+		int bucket = this.lastBucket;
+		long top = this.bucketTop;
+		for (int i=0; i<this.heads.length; i++) {
+			Event head = this.heads[bucket];
+			if (head != null && head.getExecutionTime() < top)
+				return removeHead(bucket, top);
+			bucket = (bucket + 1) & this.mask;
+			top += this.bucketWidth;
+		}
+		// no event in the current "year" -> direct search for the earliest event
+		int earliest = -1;
+		for (int i=0; i<this.heads.length; i++)
+			if (this.heads[i] != null && (earliest == -1 || isBefore(this.heads[i], this.heads[earliest])))
+				earliest = i;
+		long executionTime = this.heads[earliest].getExecutionTime();
+		return removeHead(earliest, (executionTime / this.bucketWidth + 1) * this.bucketWidth);
+	}
+	
+	
+	private Event removeHead(int bucket, long top) {
+		Event event = this.heads[bucket];
+		this.heads[bucket] = event.nextInQueue;
+		if (event.nextInQueue == null)
+			this.tails[bucket] = null;
+		if (this.lastInserted[bucket] == event)
+			this.lastInserted[bucket] = null;
+		event.nextInQueue = null;
+		this.lastBucket = bucket;
+		this.bucketTop = top;
+		this.lastTime = event.getExecutionTime();
+		return event;
+	}
+	
+	
+	private void resize(int numberOfBuckets) {
+		// drain in order (the first events are used to estimate the new bucket width)
+		long lastTime = this.lastTime;
+		Event[] events = new Event[this.size];
+		for (int i=0; i<events.length; i++)
+			events[i] = removeFirst();
+		this.lastTime = lastTime;
+		init(numberOfBuckets, estimateBucketWidth(events));
+		for (Event event: events)
+			insert(event);
+	}
+	
+	
+	/**
+	 * Returns three times the average separation of the (first) <code>
+	 * SAMPLE_SIZE</code> events, ignoring separations larger than twice the 
+	 * average (as suggested by Brown).
+	 */
+	private long estimateBucketWidth(Event[] sortedEvents) {
+		int sampleSize = Math.min(sortedEvents.length, SAMPLE_SIZE);
+		if (sampleSize < 2)
+			return this.bucketWidth;
+		long totalSeparation = sortedEvents[sampleSize-1].getExecutionTime() - sortedEvents[0].getExecutionTime();
+		if (totalSeparation == 0)
+			return this.bucketWidth;
+		double averageSeparation = (double)totalSeparation / (double)(sampleSize-1);
+		long sum = 0;
+		int counter = 0;
+		for (int i=1; i<sampleSize; i++) {
+			long separation = sortedEvents[i].getExecutionTime() - sortedEvents[i-1].getExecutionTime();
+			if (separation <= 2d * averageSeparation) {
+				sum += separation;
+				counter++;
+			}
+		}
+		if (counter > 0)
+			averageSeparation = (double)sum / (double)counter;
+		return Math.max(1l, Math.round(3d * averageSeparation));
+	}
+	
+	
+	private static boolean isBefore(Event e1, Event e2) {
+		long t1 = e1.getExecutionTime();
+		long t2 = e2.getExecutionTime();
+		return t1 < t2 || (t1 == t2 && e1.getSequenceNumber() < e2.getSequenceNumber());
+	}
+	
+}
@@ -28,6 +28,9 @@ public class Event implements Comparable<Event> {
 	private Object attachment;
 	private boolean isCanceled = false;
 	private boolean wasExecuted = false;
+	private boolean isScheduled = false; // true while the event is stored in the simulator's event queue
+	boolean isPooled = false; // true if the event was taken from an EventPool
+	Event nextInQueue; // used by CalendarEventQueue (intrusive bucket list)
 	
 	
 	/*public Event(EventExecutor target, int executionTime, SimulationEvent eventType, NetworkMessage networkMessage, Object attachment) {
@@ -228,4 +231,37 @@ public class Event implements Comparable<Event> {
 		this.wasExecuted = true;
 	}
 	
+	
+	public boolean isScheduled() {
+		return isScheduled;
+	}
+	
+	
+	public void setScheduled(boolean isScheduled) {
+		this.isScheduled = isScheduled;
+	}
+	
+	
+	/**
+	 * @return true if this event was taken from an <code>EventPool</code> 
+	 * (and will be recycled after its execution)
+	 */
+	public boolean isPooled() {
+		return isPooled;
+	}
+	
+	
+	// used by EventPool (resets all fields except isPooled)
+	void clear() {
+		this.executionTime = 0;
+		this.sequenceNumber = 0;
+		this.target = null;
+		this.eventType = null;
+		this.attachment = null;
+		this.isCanceled = false;
+		this.wasExecuted = false;
+		this.isScheduled = false;
+		this.nextInQueue = null;
+	}
+	
 }
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.event;
+
+
+/**
+ * Pool of reusable <code>Event</code>s (one per <code>Simulator</code>). 
+ * Pooled events are returned to the pool by the <code>Simulator</code> after 
+ * their execution (unless the <code>EventExecutor</code> rescheduled them). 
+ * Hence, pooled events must only be used for "fire-and-forget" scheduling, 
+ * i.e. callers must not keep references to them (use <code>new Event(...)
+ * </code> for events that might be canceled later on).
+ */
+public class EventPool {
+
+	private static final int INITIAL_SIZE = 1024;
+	
+	private Event[] events = new Event[INITIAL_SIZE];
+	private int size = 0;
+	
+	
+	public Event getEvent(EventExecutor target, long executionTime, SimulationEvent eventType, Object attachment) {
+		if (this.size == 0) {
+			Event event = new Event(target, executionTime, eventType, attachment);
+			event.isPooled = true;
+			return event;
+		} else {
+			Event event = this.events[--this.size];
+			this.events[this.size] = null;
+			return event.reuse(target, executionTime, eventType, attachment);
+		}
+	}
+	
+	
+	public void recycle(Event event) {
+		assert event.isPooled;
+		event.clear();
+		if (this.size == this.events.length) {
+			Event[] tmp = new Event[this.events.length * 2];
+			System.arraycopy(this.events, 0, tmp, 0, this.size);
+			this.events = tmp;
+		}
+		this.events[this.size++] = event;
+	}
+	
+	
+	public int size() {
+		return this.size;
+	}
+	
+}
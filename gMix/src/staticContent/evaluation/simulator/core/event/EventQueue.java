@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.event;
+
+
+/**
+ * Pending event set of the discrete-event simulator. Implementations must 
+ * return <code>Event</code>s in ascending order of their <code>executionTime
+ * </code>. <code>Event</code>s with the same <code>executionTime</code> must 
+ * be returned in the order of their <code>sequenceNumber</code> (i.e. FIFO, 
+ * as the <code>Simulator</code> assigns ascending sequence numbers when 
+ * scheduling).
+ * 
+ * The implementation used for a simulation can be chosen with the key 
+ * <code>EVENT_QUEUE</code> in the experiment config.
+ */
+public interface EventQueue {
+	
+	public void add(Event event);
+	
+	/**
+	 * Retrieves and removes the next <code>Event</code> (or returns <code>null
+	 * </code> if the queue is empty).
+	 */
+	public Event poll();
+	
+	public int size();
+	
+	public boolean isEmpty();
+	
+	/**
+	 * Removes all canceled <code>Event</code>s from the queue.
+	 */
+	public void removeCanceledEvents();
+	
+}
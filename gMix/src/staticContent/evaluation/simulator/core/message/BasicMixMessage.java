@@ -71,12 +71,12 @@ public class BasicMixMessage extends MixMessage {
 			boolean isDummy) {
 
 		super(isRequest, source, destination, owner, creationTime, isDummy, null);
-		// this.maxPayloadSize = isRequest ? Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE") : Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
-		requestPlayloadSize = Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
-		replyPlayloadSize = Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+		// this.maxPayloadSize = isRequest ? Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE") : Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+		requestPlayloadSize = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
+		replyPlayloadSize = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
 		this.maxPayloadSize = isRequest ? requestPlayloadSize : replyPlayloadSize;
 		
-		this.headerSize = isRequest ? Simulator.settings.getPropertyAsInt("MIX_REQUEST_HEADER_SIZE") : Simulator.settings.getPropertyAsInt("MIX_REPLY_HEADER_SIZE");
+		this.headerSize = isRequest ? Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_HEADER_SIZE") : Simulator.getSettings().getPropertyAsInt("MIX_REPLY_HEADER_SIZE");
 		this.totalSize = this.maxPayloadSize + this.headerSize;
 		this.payloadObjectsContained = new Vector<PayloadObject>(10,10); // TODO calculate instead of fixed 10,10
 		super.setPayload(this.payloadObjectsContained);
@@ -44,12 +44,12 @@ public abstract class MixMessage extends NetworkMessage {
 			NetworkNode destination, AbstractClient owner, long creationTime,
 			boolean isDummy) {
 
-		type = Simulator.settings.getProperty("MESSAGE_FORMAT");
-		String outputStrategy = Simulator.settings.getProperty("OUTPUT_STRATEGY");
-		if (outputStrategy.equals("STOP_AND_GO") || type.equals("STOP_AND_GO_MESSAGE")) {
+		String messageFormat = Simulator.getSettings().getProperty("MESSAGE_FORMAT");
+		String outputStrategy = Simulator.getSettings().getProperty("OUTPUT_STRATEGY");
+		if (outputStrategy.equals("STOP_AND_GO") || messageFormat.equals("STOP_AND_GO_MESSAGE")) {
 			return new StopAndGoMessage(isRequest, source, destination, owner, creationTime, isDummy);
 		}
-		if (type.equals("BASIC_MIX_MESSAGE")) {
+		if (messageFormat.equals("BASIC_MIX_MESSAGE")) {
 			return new BasicMixMessage(isRequest, source, destination, owner, creationTime, isDummy);
 		} else {
 			throw new RuntimeException("ERROR: Unknown MESSAGE_FORMAT!");
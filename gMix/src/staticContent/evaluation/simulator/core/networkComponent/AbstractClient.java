@@ -19,6 +19,7 @@ package staticContent.evaluation.simulator.core.networkComponent;
 
 import staticContent.evaluation.simulator.Simulator;
 import staticContent.evaluation.simulator.annotations.plugin.PluginSuperclass;
+import staticContent.evaluation.simulator.core.SimulationContext;
 import staticContent.evaluation.simulator.core.event.ClientEvent;
 import staticContent.evaluation.simulator.core.event.DistantProxyEvent;
 import staticContent.evaluation.simulator.core.event.Event;
@@ -38,7 +39,6 @@ public abstract class AbstractClient extends NetworkNode {
 	private int messageCreationTime;
 	private int messageDecryptionTime;
 	protected int clientId;
-	private static int idCounter = 0;
 	protected final boolean simulateReplyChannel;
 	protected final boolean closedLoopSending;
 	public int latest;
@@ -47,11 +47,11 @@ public abstract class AbstractClient extends NetworkNode {
 	public AbstractClient(String identifier, Simulator simulator) {
 		super(identifier, simulator);
 		this.simulator = simulator;
-		this.messageCreationTime = Simulator.settings.getPropertyAsInt("MIX_REQUEST_CREATION_TIME"); // in ms
-		this.messageDecryptionTime = Simulator.settings.getPropertyAsInt("MIX_REPLY_DECRYPTION_TIME"); // in ms
-		this.clientId = idCounter++;
-		this.simulateReplyChannel = Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX");
-		this.closedLoopSending = Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_WITH_FEEDBACK");
+		this.messageCreationTime = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_CREATION_TIME"); // in ms
+		this.messageDecryptionTime = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_DECRYPTION_TIME"); // in ms
+		this.clientId = SimulationContext.get().getNextClientId();
+		this.simulateReplyChannel = Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX");
+		this.closedLoopSending = Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_WITH_FEEDBACK");
 	}
 	
 	
@@ -84,13 +84,13 @@ public abstract class AbstractClient extends NetworkNode {
 	 */
 	public TransportMessage sendMessage(EndToEndMessage message) {
 		TransportMessage toSend = new TransportMessage(true, this, simulator.getDistantProxy(), Simulator.getNow(), this, message.getPayload().getRequestSize(), message);
-		Simulator.trafficSourceStatistics.increment(1, StatisticsType.AVG_TRAFFICSOURCE_SENDING_RATE_PER_CLIENT);
+		simulator.trafficSourceStatistics.increment(1, StatisticsType.AVG_TRAFFICSOURCE_SENDING_RATE_PER_CLIENT);
 		statistics.addValue(toSend.getLength(), StatisticsType.ADU_SIZE_SEND);
 		statistics.addValue(toSend.getLength(), StatisticsType.ADU_SIZE_SENDANDRECEIVE);
 		statistics.addValue(toSend.getLength(), StatisticsType.CF_ADU_SIZE_SENDANDRECEIVE);
 		statistics.increment(toSend.getLength(), StatisticsType.CF_AVG_THROUGHPUT_PER_CLIENT_SEND);
 		statistics.increment(toSend.getLength(), StatisticsType.CF_AVG_THROUGHPUT_PER_CLIENT_SENDANDRECEIVE);
-		if (Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY")) {
+		if (Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY")) {
 			simulator.getDistantProxy().incomingRequest(toSend);
 		} else {
 			clientSendStyle.incomingRequestFromUser(toSend);
@@ -203,7 +203,7 @@ public abstract class AbstractClient extends NetworkNode {
 	public void sendRequest(NetworkMessage networkMessage) {
 		
 		if (networkMessage instanceof MixMessage) {
-			Simulator.trafficSourceStatistics.increment(1, StatisticsType.AVG_MIXMESSAGE_SENDING_RATE_PER_CLIENT);
+			simulator.trafficSourceStatistics.increment(1, StatisticsType.AVG_MIXMESSAGE_SENDING_RATE_PER_CLIENT);
 			sendToNextHop(networkMessage, getMixRequestEncryptionTime(), MixEvent.INCOMING_MIX_MESSAGE_OF_TYPE_REQUEST);
 		} else if (networkMessage instanceof TransportMessage) {
 			sendToNextHop(networkMessage, getMixRequestEncryptionTime(), DistantProxyEvent.INCOMING_REQUEST);
@@ -218,7 +218,7 @@ public abstract class AbstractClient extends NetworkNode {
 	
 	
 	public static void reset() {
-		idCounter = 0;
+		SimulationContext.get().resetClientIds();
 	}
 	
 	
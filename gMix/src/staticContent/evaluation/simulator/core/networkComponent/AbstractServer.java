@@ -47,8 +47,8 @@ public abstract class AbstractServer implements EventExecutor {
 	// TODO: update comments
 	protected AbstractServer(DistantProxy distantProxy) {
 		this.distantProxy = distantProxy;
-		this.SIMULATE_REPLY_CHANNEL = Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX");
-		this.UNLIMITED_BANDWIDTH = Simulator.settings.getProperty("TYPE_OF_DELAY_BOX").equals("NO_DELAY_BOX");
+		this.SIMULATE_REPLY_CHANNEL = Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX");
+		this.UNLIMITED_BANDWIDTH = Simulator.getSettings().getProperty("TYPE_OF_DELAY_BOX").equals("NO_DELAY_BOX");
 		this.simulator = Simulator.getSimulator();
 	}
 	
@@ -96,7 +96,7 @@ public abstract class AbstractServer implements EventExecutor {
 	 * @param message
 	 */
 	public void sendReplyIn(long delay, EndToEndMessage reply) {
-		Event sendReplyEvent = new Event(this, Simulator.getNow() + delay, ServerEvent.TIMEOUT, reply);
+		Event sendReplyEvent = simulator.getEventFromPool(this, Simulator.getNow() + delay, ServerEvent.TIMEOUT, reply);
 		//System.out.println("scheduling sendMessage() for transaction " +((EndToEndMessage)sendReplyEvent.getAttachment()).getPayload().getTransactionId() +" (now: " +Simulator.getNow() +")"); 
 		simulator.scheduleEvent(sendReplyEvent, this);
 	}
@@ -17,14 +17,13 @@
  *******************************************************************************/
 package staticContent.evaluation.simulator.core.networkComponent;
 
+import staticContent.evaluation.simulator.core.SimulationContext;
+
 public class IdGenerator {
 	
-	protected static int idCounter = 0;
-	
-	
 	public static int getId() {
 		
-		return ++idCounter;
+		return SimulationContext.get().getNextId(); // ids are unique per simulation run
 		
 	}
 	
@@ -50,17 +50,17 @@ public class Mix extends NetworkNode implements ReplyReceiver  {
 			inject = "0:RECODING_SCHEME,Recoding Scheme",
 			min = 0
 	)
-	private static double PROCESSING_TIME_FOR_1000_REQUESTS;
+	private double PROCESSING_TIME_FOR_1000_REQUESTS;
 	
 	@DoubleSimulationProperty(key = "PROCESSING_TIME_FOR_1000_REPLIES",
 			name="Processing time for 1000 replies (ms)",
 			inject = "0:RECODING_SCHEME,Recoding Scheme",
 			min = 0
 	)
-	private static double PROCESSING_TIME_FOR_1000_REPLIES;
+	private double PROCESSING_TIME_FOR_1000_REPLIES;
 	
-	private static int requestProcessingTime;
-	private static int replyProcessingTime;
+	private int requestProcessingTime;
+	private int replyProcessingTime;
 	
 	
 	public Mix(String identifier, Simulator simulator, boolean isFirstMix, boolean isLastMix) {
@@ -70,11 +70,11 @@ public class Mix extends NetworkNode implements ReplyReceiver  {
 		this.isLastMix = isLastMix;
 		this.simulator = simulator;
 		
-		PROCESSING_TIME_FOR_1000_REQUESTS = Simulator.settings.getPropertyAsDouble("PROCESSING_TIME_FOR_1000_REQUESTS"); // ms
-		PROCESSING_TIME_FOR_1000_REPLIES = Simulator.settings.getPropertyAsDouble("PROCESSING_TIME_FOR_1000_REPLIES"); // ms
+		PROCESSING_TIME_FOR_1000_REQUESTS = Simulator.getSettings().getPropertyAsDouble("PROCESSING_TIME_FOR_1000_REQUESTS"); // ms
+		PROCESSING_TIME_FOR_1000_REPLIES = Simulator.getSettings().getPropertyAsDouble("PROCESSING_TIME_FOR_1000_REPLIES"); // ms
 		requestProcessingTime = (int)Math.round(PROCESSING_TIME_FOR_1000_REQUESTS / 1000d);
 		replyProcessingTime = (int)Math.round(PROCESSING_TIME_FOR_1000_REPLIES / 1000d);
-		RECEIVER_SUPPORTS_DUMMY_TRAFFIC = Simulator.settings.getPropertyAsBoolean("RECEIVER_SUPPORTS_DUMMY_TRAFFIC");
+		RECEIVER_SUPPORTS_DUMMY_TRAFFIC = Simulator.getSettings().getPropertyAsBoolean("RECEIVER_SUPPORTS_DUMMY_TRAFFIC");
 	}
 	
 	
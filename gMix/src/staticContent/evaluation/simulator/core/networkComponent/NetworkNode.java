@@ -76,7 +76,7 @@ public abstract class NetworkNode implements EventExecutor, Identifiable {
 
 	public void sendToHop(NetworkConnection connectionToHop, NetworkMessage networkMessage, int delay, SimulationEvent simulationEvent) {
 		
-		Event event = new Event(connectionToHop, Simulator.getNow() + delay, simulationEvent, networkMessage);
+		Event event = simulator.getEventFromPool(connectionToHop, Simulator.getNow() + delay, simulationEvent, networkMessage);
 		simulator.scheduleEvent(event, this);
 		String destination = networkMessage.isRequest() ? connectionToHop.getDestination().toString() : connectionToHop.getSource().toString();
 		if (Simulator.DEBUG_ON)
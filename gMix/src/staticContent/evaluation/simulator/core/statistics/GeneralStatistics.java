@@ -19,6 +19,7 @@ package staticContent.evaluation.simulator.core.statistics;
 
 import java.util.Vector;
 
+import staticContent.evaluation.simulator.core.SimulationContext;
 import staticContent.evaluation.simulator.core.statistics.aggregator.Aggregator;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType;
 import gnu.trove.TDoubleArrayList;
@@ -26,21 +27,20 @@ import gnu.trove.TDoubleArrayList;
 
 public class GeneralStatistics {
 
-	private static Vector<Statistics> registeredStatisticsObjects = new Vector<Statistics>();
-	
-	
+	// note: the registered statistics objects are stored in the SimulationContext of the current run
 	public static void registerStatisticsObject(Statistics statisticsObject) {
-		registeredStatisticsObjects.add(statisticsObject);
+		SimulationContext.get().getRegisteredStatisticsObjects().add(statisticsObject);
 	}
 
 	
 	public static void reset() {
-		registeredStatisticsObjects.clear();
-		registeredStatisticsObjects = new Vector<Statistics>();
+		SimulationContext.get().getRegisteredStatisticsObjects().clear();
+		SimulationContext.get().resetRegisteredStatisticsObjects();
 	}
 	
 	
 	public static TDoubleArrayList getResult(StatisticsType st) {
+		Vector<Statistics> registeredStatisticsObjects = SimulationContext.get().getRegisteredStatisticsObjects();
 		if (st.sourceValueAggregator == Aggregator.NONE) { // no aggregation required -> just concatenate and return values
 			TDoubleArrayList result = new TDoubleArrayList(10000);
 			boolean isFirst = true;
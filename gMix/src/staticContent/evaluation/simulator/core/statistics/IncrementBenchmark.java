@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.statistics;
+
+import java.math.BigDecimal;
+
+import staticContent.evaluation.simulator.Simulator;
+import staticContent.evaluation.simulator.core.statistics.aggregator.ExactSum;
+import staticContent.framework.config.Paths;
+import staticContent.framework.config.Settings;
+import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType;
+
+
+/**
+ * Microbenchmark for Statistics.increment(double, StatisticsType): compares 
+ * the per-call cost of the former BigDecimal accumulation with ExactSum 
+ * (both directly and through Statistics.increment()) and checks that both 
+ * produce the same sum.
+ * 
+ * usage (from the gMix folder): IncrementBenchmark [calls per round (default: 10000000)] [rounds (default: 5)]
+ */
+public class IncrementBenchmark {
+
+	public static void main(String[] args) {
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		double[] values = new double[1024]; // typical message sizes
+		for (int i=0; i<values.length; i++)
+			values[i] = 64 + ((i * 7919) % 1460);
+		
+		Simulator.settings = new Settings(Paths.SIM_PROPERTY_FILE_PATH); // needed to load the plugin registry
+		Simulator.settings.addProperties(Paths.SIM_EXPERIMENT_DEFINITION_FOLDER_PATH +"default.cfg");
+		StatisticsType type = StatisticsType.SUM_CLIENT_DATAVOLUME_SEND;
+		type.isActivated = true;
+		Statistics.setRecordStatistics(true);
+		
+		for (int round=0; round<=rounds; round++) { // round 0: warm-up
+			long start = System.nanoTime();
+			BigDecimal bigDecimalSum = new BigDecimal(0);
+			for (int i=0; i<calls; i++)
+				bigDecimalSum = bigDecimalSum.add(new BigDecimal(values[i & 1023]));
+			long bigDecimalTime = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			ExactSum exactSum = new ExactSum();
+			for (int i=0; i<calls; i++)
+				exactSum.add(values[i & 1023]);
+			long exactSumTime = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			Statistics statistics = new Statistics(null);
+			for (int i=0; i<calls; i++)
+				statistics.increment(values[i & 1023], type);
+			long incrementTime = System.nanoTime() - start;
+			GeneralStatistics.reset();
+			
+			if (bigDecimalSum.compareTo(exactSum.getSum()) != 0 || bigDecimalSum.compareTo(statistics.getRecordedSum(type)) != 0)
+				throw new RuntimeException("ERROR: sums differ: " +bigDecimalSum +" vs. " +exactSum.getSum() +" vs. " +statistics.getRecordedSum(type)); 
+			
+			if (round == 0)
+				continue;
+			System.out.println("round " +round +": " 
+					+"BigDecimal: " +nsPerCall(bigDecimalTime, calls) +" ns/call, " 
+					+"ExactSum: " +nsPerCall(exactSumTime, calls) +" ns/call, " 
+					+"Statistics.increment(): " +nsPerCall(incrementTime, calls) +" ns/call"
+					); 
+		}
+	}
+	
+	
+	private static String nsPerCall(long time, int calls) {
+		return String.format("%.2f", (double)time / (double)calls);
+	}
+	
+}
@@ -19,6 +19,7 @@ package staticContent.evaluation.simulator.core.statistics;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Vector;
 
 import staticContent.evaluation.simulator.core.ExperimentConfig;
@@ -119,7 +120,7 @@ public class ResultSet {
 	
 	
 	public HashMap<Aggregator, TDoubleArrayList> getResultsForAllRuns(int varyingValueId, StatisticsType statisticsType) {
-		HashMap<Aggregator, TDoubleArrayList> result = new HashMap<Aggregator, TDoubleArrayList>(statisticsType.sourceAggregators.length * 2);
+		HashMap<Aggregator, TDoubleArrayList> result = new LinkedHashMap<Aggregator, TDoubleArrayList>(statisticsType.sourceAggregators.length * 2); // keep order of sourceAggregators (deterministic result files)
 		int runs = this.getNumberOfValidationRuns()+1;
 		for (Aggregator ag:statisticsType.sourceAggregators) {
 			TDoubleArrayList resultPerAggregator = new TDoubleArrayList(runs);
@@ -24,11 +24,15 @@ import java.math.BigDecimal;
 import staticContent.evaluation.simulator.Simulator;
 import staticContent.evaluation.simulator.annotations.property.IntSimulationProperty;
 import staticContent.evaluation.simulator.annotations.property.requirements.SimulationEndSimulationTimeEndRequirement;
+import staticContent.evaluation.simulator.core.SimulationContext;
 import staticContent.evaluation.simulator.core.event.Event;
 import staticContent.evaluation.simulator.core.event.EventExecutor;
 import staticContent.evaluation.simulator.core.networkComponent.Identifiable;
+import staticContent.evaluation.simulator.core.statistics.aggregator.ExactSum;
+import staticContent.evaluation.simulator.core.statistics.aggregator.OnlineAccumulator;
 import staticContent.evaluation.simulator.core.statistics.aggregator.Aggregator.InputDataType;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType;
+import userGeneratedContent.simulatorPlugIns.pluginRegistry.StatisticsType.RecordingMode;
 
 
 public class Statistics implements EventExecutor {
@@ -36,12 +40,12 @@ public class Statistics implements EventExecutor {
 	private static final int INITIAL_SIZE = 10000;
 
 	private TDoubleArrayList[] recordedDoubleValues; // two dimensions (0:StatisticsType, 1:valueList)
-	private BigDecimal[] summedUpValues; // one dimension (0:StatisticsType)
+	private OnlineAccumulator[] aggregatedDoubleValues; // one dimension (0:StatisticsType); used instead of recordedDoubleValues for RecordingMode.SKETCH
+	private ExactSum[] summedUpValues; // one dimension (0:StatisticsType)
 	private int[][] recordedBooleanValues; // three dimensions ([StatisticsType] [0:trueCtr, 1:falseCtr])
 	
 	//private Identifiable owner;
-	private static boolean recordStatistics = false;
-	private static Simulator simulator;
+	private final SimulationContext context = SimulationContext.get(); // run this object belongs to (recordStatistics is stored there)
 	
 	@IntSimulationProperty( name = "Simulation time limit (ms)",
 			key = "SIMULATION_TIME_LIMIT_IN_MS",
@@ -55,7 +59,8 @@ public class Statistics implements EventExecutor {
 		//this.owner = owner;
 		GeneralStatistics.registerStatisticsObject(this);
 		recordedDoubleValues = new TDoubleArrayList[StatisticsType.values().length];
-		summedUpValues = new BigDecimal[StatisticsType.values().length];
+		aggregatedDoubleValues = new OnlineAccumulator[StatisticsType.values().length];
+		summedUpValues = new ExactSum[StatisticsType.values().length];
 		recordedBooleanValues = new int[StatisticsType.values().length][];
 	}
 	
@@ -65,35 +70,34 @@ public class Statistics implements EventExecutor {
 	// DESIRED_EVALUATIONS
 	
 	public static void setSimulator(Simulator simulator) {
-		Statistics.simulator = simulator;
-		simulator.ts_recordStatisticsStart = Simulator.settings.getPropertyAsInt("START_RECORDING_STATISTICS_AT");
+		simulator.ts_recordStatisticsStart = Simulator.getSettings().getPropertyAsInt("START_RECORDING_STATISTICS_AT");
 		Statistics s = new Statistics(0);
 		// set start
 		if (simulator.ts_recordStatisticsStart == 0) {
-			recordStatistics = true;
+			s.context.setRecordStatistics(true);
 		} else {
-			simulator.scheduleEvent(new Event(s, simulator.ts_recordStatisticsStart, StatisticsEvent.START_RECORDING), s);
+			simulator.scheduleEvent(simulator.getEventFromPool(s, simulator.ts_recordStatisticsStart, StatisticsEvent.START_RECORDING), s);
 		}
 		// set fixed end (if specified)
-		if (Simulator.settings.getProperty("SIMULATION_END").equals("SIMULATION_TIME_END")) {
-			recordStatisticsEnd = Simulator.settings.getPropertyAsInt("SIMULATION_TIME_LIMIT_IN_MS");
-			simulator.scheduleEvent(new Event(s, recordStatisticsEnd, StatisticsEvent.STOP_RECORDING), s);
+		if (Simulator.getSettings().getProperty("SIMULATION_END").equals("SIMULATION_TIME_END")) {
+			int stopRecordingAt = Simulator.getSettings().getPropertyAsInt("SIMULATION_TIME_LIMIT_IN_MS");
+			simulator.scheduleEvent(simulator.getEventFromPool(s, stopRecordingAt, StatisticsEvent.STOP_RECORDING), s);
 		}
 	}
 	
 	
 	public void increment(double value, StatisticsType statisticsType) {
-		if (!statisticsType.isActivated || !recordStatistics)
+		if (!statisticsType.isActivated || !context.isRecordStatistics())
 			return;
 		checkIfDataTypeAllowed(statisticsType, InputDataType.BIG_DECIMAL);
 		if (summedUpValues[statisticsType.ordinal()] == null) // first call
-			summedUpValues[statisticsType.ordinal()] = new BigDecimal(0);
-		summedUpValues[statisticsType.ordinal()] = summedUpValues[statisticsType.ordinal()].add(new BigDecimal(value));
+			summedUpValues[statisticsType.ordinal()] = new ExactSum();
+		summedUpValues[statisticsType.ordinal()].add(value); // no BigDecimal allocated for integral values (see ExactSum)
 	}
 	
 	
 	public void addValue(boolean value, StatisticsType statisticsType) {
-		if (!statisticsType.isActivated || !recordStatistics)
+		if (!statisticsType.isActivated || !context.isRecordStatistics())
 			return;
 		checkIfDataTypeAllowed(statisticsType, InputDataType.BOOLEAN);
 		if (recordedBooleanValues[statisticsType.ordinal()] == null)
@@ -106,9 +110,15 @@ public class Statistics implements EventExecutor {
 
 	
 	public void addValue(double value, StatisticsType statisticsType) {
-		if (!statisticsType.isActivated || !recordStatistics)
+		if (!statisticsType.isActivated || !context.isRecordStatistics())
 			return;
 		checkIfDataTypeAllowed(statisticsType, InputDataType.DOUBLE);
+		if (context.getRecordingMode(statisticsType) == RecordingMode.SKETCH) {
+			if (aggregatedDoubleValues[statisticsType.ordinal()] == null)
+				aggregatedDoubleValues[statisticsType.ordinal()] = statisticsType.sourceValueAggregator.createOnlineAccumulator(context.getSketchRelativeAccuracy());
+			aggregatedDoubleValues[statisticsType.ordinal()].add(value);
+			return;
+		}
 		if (recordedDoubleValues[statisticsType.ordinal()] == null)
 			recordedDoubleValues[statisticsType.ordinal()] = new TDoubleArrayList(INITIAL_SIZE);
 		recordedDoubleValues[statisticsType.ordinal()].add(value);
@@ -117,10 +127,20 @@ public class Statistics implements EventExecutor {
 	
 	public TDoubleArrayList getRecordedDoubleValues(StatisticsType statisticsType) throws NullPointerException {
 		checkIfDataAvailable(statisticsType, InputDataType.DOUBLE);
+		if (recordedDoubleValues[statisticsType.ordinal()] == null)
+			throw new RuntimeException("ERROR: the values of " +statisticsType +" were not stored (RecordingMode.SKETCH). Use getAggregatedDoubleValues(StatisticsType) instead.");
 		return recordedDoubleValues[statisticsType.ordinal()];
 	}
 	
 	
+	public OnlineAccumulator getAggregatedDoubleValues(StatisticsType statisticsType) throws NullPointerException {
+		checkIfDataAvailable(statisticsType, InputDataType.DOUBLE);
+		if (aggregatedDoubleValues[statisticsType.ordinal()] == null)
+			throw new RuntimeException("ERROR: the values of " +statisticsType +" were not aggregated on the fly (RecordingMode.EXACT). Use getRecordedDoubleValues(StatisticsType) instead.");
+		return aggregatedDoubleValues[statisticsType.ordinal()];
+	}
+	
+	
 	public int[] getRecordedBooleanValues(StatisticsType statisticsType) throws NullPointerException {
 		checkIfDataAvailable(statisticsType, InputDataType.BOOLEAN);
 		return recordedBooleanValues[statisticsType.ordinal()];
@@ -129,12 +149,14 @@ public class Statistics implements EventExecutor {
 	
 	public BigDecimal getRecordedSum(StatisticsType statisticsType) throws NullPointerException {
 		checkIfDataAvailable(statisticsType, InputDataType.BIG_DECIMAL);
-		return summedUpValues[statisticsType.ordinal()];
+		return summedUpValues[statisticsType.ordinal()].getSum();
 	}
 	
 
 	public double getResult(StatisticsType statisticsType) throws NullPointerException {
 		if (containsDouble(statisticsType)) {
+			if (aggregatedDoubleValues[statisticsType.ordinal()] != null)
+				return statisticsType.sourceValueAggregator.aggregate(aggregatedDoubleValues[statisticsType.ordinal()]);
 			return statisticsType.sourceValueAggregator.aggregate(recordedDoubleValues[statisticsType.ordinal()]);
 		} else if (containsBigDecimal(statisticsType)) {
 			return summedUpValues[statisticsType.ordinal()].doubleValue();
@@ -176,7 +198,7 @@ public class Statistics implements EventExecutor {
 	
 	
 	public boolean containsDouble(StatisticsType statisticsType) {
-		return recordedDoubleValues[statisticsType.ordinal()] != null;
+		return recordedDoubleValues[statisticsType.ordinal()] != null || aggregatedDoubleValues[statisticsType.ordinal()] != null;
 	}
 
 
@@ -218,12 +240,12 @@ public class Statistics implements EventExecutor {
 	public void executeEvent(Event event) {
 		
 		if (event.getEventType() == StatisticsEvent.START_RECORDING) {
-			recordStatistics = true;
+			context.setRecordStatistics(true);
 			System.out.println("### START recording statistics"); 
 		} else if (event.getEventType() == StatisticsEvent.STOP_RECORDING) {
 			System.out.println("### STOP recording statistics"); 
-			recordStatistics = false; 
-			simulator.stopSimulation("simulation-time limit reached (variable SIMULATION_TIME_LIMIT_IN_MS in experiment config)");
+			context.setRecordStatistics(false); 
+			context.getSimulator().stopSimulation("simulation-time limit reached (variable SIMULATION_TIME_LIMIT_IN_MS in experiment config)");
 		} else {
 			throw new RuntimeException("ERROR! received unsupported event!" +event);
 		}
@@ -233,7 +255,7 @@ public class Statistics implements EventExecutor {
 	
 	// added by Stefan Rode
 	public static void setRecordStatistics(boolean recordStatistics) {
-		Statistics.recordStatistics = recordStatistics;
+		SimulationContext.get().setRecordStatistics(recordStatistics);
 	}
 	
 }
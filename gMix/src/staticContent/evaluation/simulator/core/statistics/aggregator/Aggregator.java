@@ -49,6 +49,31 @@ public enum Aggregator {
 	}
 	
 	
+	public double aggregate(OnlineAccumulator accumulator) {
+		return this.aggregator.aggregate(accumulator);
+	}
+	
+	
+	/**
+	 * Returns true if this aggregator can be used with RecordingMode.SKETCH 
+	 * (values are aggregated on the fly instead of being stored).
+	 */
+	public boolean supportsOnlineAggregation() {
+		return this.inputDataType == InputDataType.DOUBLE;
+	}
+	
+	
+	/**
+	 * Creates an OnlineAccumulator suitable for this aggregator.
+	 */
+	public OnlineAccumulator createOnlineAccumulator(double sketchRelativeAccuracy) {
+		if (this.aggregator.requiresQuantileSketch())
+			return new OnlineAccumulator(sketchRelativeAccuracy);
+		else
+			return new OnlineAccumulator();
+	}
+	
+	
 	public InputDataType getInputDataType() {
 		return this.inputDataType;
 	}	
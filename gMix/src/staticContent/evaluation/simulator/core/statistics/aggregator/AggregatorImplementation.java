@@ -33,4 +33,24 @@ public abstract class AggregatorImplementation {
 	 */
 	public abstract double aggregate(TDoubleArrayList recordedValues);
 	
+	
+	/**
+	 * Same as aggregate(TDoubleArrayList), but for values that were 
+	 * aggregated on the fly (RecordingMode.SKETCH, see Statistics). The 
+	 * result may be an approximation (e.g. for quantiles).
+	 * 
+	 * @param accumulator
+	 * @return
+	 */
+	public abstract double aggregate(OnlineAccumulator accumulator);
+	
+	
+	/**
+	 * Returns true if aggregate(OnlineAccumulator) needs an accumulator with 
+	 * quantile sketch (see OnlineAccumulator(double)).
+	 */
+	public boolean requiresQuantileSketch() {
+		return false;
+	}
+	
 }
\ No newline at end of file
@@ -18,24 +18,32 @@
 package staticContent.evaluation.simulator.core.statistics.aggregator;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 import gnu.trove.TDoubleArrayList;
 
 
 public class AvgAggregator extends AggregatorImplementation {
 
-	private GetSumHelper getSumHelper = new GetSumHelper();
-	
-	
 	@Override
 	public double aggregate(TDoubleArrayList recordedValues) {
 		if (recordedValues.size() == 0) { // avoid division by zero
 			System.err.println("WARNING: no data recorded (AvgAggregator)"); 
 			return 0d;
 		}
-		BigDecimal sum = getSumHelper.getSum(recordedValues);
-		BigDecimal avg = sum.divide(new BigDecimal(recordedValues.size()), 5, BigDecimal.ROUND_HALF_UP);
+		BigDecimal sum = new GetSumHelper().getSum(recordedValues);
+		BigDecimal avg = sum.divide(new BigDecimal(recordedValues.size()), 5, RoundingMode.HALF_UP);
 		return avg.doubleValue();
 	}
+	
+	
+	@Override
+	public double aggregate(OnlineAccumulator accumulator) {
+		if (accumulator.getCount() == 0) {
+			System.err.println("WARNING: no data recorded (AvgAggregator)"); 
+			return 0d;
+		}
+		return new BigDecimal(accumulator.getMean()).setScale(5, RoundingMode.HALF_UP).doubleValue(); // same scale as above
+	}
 		
 }
\ No newline at end of file
@@ -30,5 +30,11 @@ public class BernoulliAggregator extends AggregatorImplementation {
 			return 0d;
 		}return recordedValues.get(0)/(recordedValues.get(0)+recordedValues.get(1));
 	}
+	
+	
+	@Override
+	public double aggregate(OnlineAccumulator accumulator) {
+		throw new RuntimeException("ERROR: BernoulliAggregator requires boolean values (can't be used with RecordingMode.SKETCH)");
+	}
 		
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.statistics.aggregator;
+
+import java.math.BigDecimal;
+
+
+/**
+ * Exact sum of double values without allocating a BigDecimal per value: 
+ * integral values (the common case, e.g. bytes or messages sent) are summed 
+ * up in a long (fixed-point, no rounding errors); all other values (and 
+ * the long, before it would overflow) are added to a BigDecimal. The result 
+ * is identical to summing up "new BigDecimal(value)" for all values.
+ */
+public class ExactSum {
+
+	private static final double MAX_INTEGRAL_VALUE = (double)(1L << 62); // larger values may not fit in a long
+
+	private long integralSum = 0;
+	private BigDecimal remainder = null; // null if only integral values were added (without overflow)
+
+
+	public void add(double value) {
+		long integralValue = (long)value;
+		if (integralValue == value && value < MAX_INTEGRAL_VALUE && value > -MAX_INTEGRAL_VALUE) {
+			long result = integralSum + integralValue;
+			if (((integralSum ^ result) & (integralValue ^ result)) < 0) { // overflow
+				addToRemainder(new BigDecimal(integralSum));
+				integralSum = integralValue;
+			} else {
+				integralSum = result;
+			}
+		} else {
+			addToRemainder(new BigDecimal(value));
+		}
+	}
+
+
+	private void addToRemainder(BigDecimal value) {
+		remainder = remainder == null ? value : remainder.add(value);
+	}
+
+
+	public BigDecimal getSum() {
+		BigDecimal result = new BigDecimal(integralSum);
+		return remainder == null ? result : result.add(remainder);
+	}
+
+
+	public double doubleValue() {
+		return remainder == null ? (double)integralSum : getSum().doubleValue();
+	}
+
+}
@@ -30,5 +30,15 @@ public class MaxAggregator extends AggregatorImplementation {
 		}
 		return recordedValues.max();
 	}
+	
+	
+	@Override
+	public double aggregate(OnlineAccumulator accumulator) {
+		if (accumulator.getCount() == 0) {
+			System.err.println("WARNING: no data recorded (MaxAggregator)"); 
+			return 0d;
+		}
+		return accumulator.getMax();
+	}
 		
 }
\ No newline at end of file
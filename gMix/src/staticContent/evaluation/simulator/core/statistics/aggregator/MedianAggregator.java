@@ -36,5 +36,21 @@ public class MedianAggregator extends AggregatorImplementation {
 		else
 			return clone.get(mid-1);
 	}
+	
+	
+	@Override
+	public double aggregate(OnlineAccumulator accumulator) {
+		if (accumulator.getCount() == 0) {
+			System.err.println("WARNING: no data recorded (MedianAggregator)"); 
+			return 0d;
+		}
+		return accumulator.getQuantile(0.5d);
+	}
+	
+	
+	@Override
+	public boolean requiresQuantileSketch() {
+		return true;
+	}
 		
 }
\ No newline at end of file
@@ -30,5 +30,15 @@ public class MinAggregator extends AggregatorImplementation {
 		}
 		return recordedValues.min();
 	}
+	
+	
+	@Override
+	public double aggregate(OnlineAccumulator accumulator) {
+		if (accumulator.getCount() == 0) {
+			System.err.println("WARNING: no data recorded (MinAggregator)"); 
+			return 0d;
+		}
+		return accumulator.getMin();
+	}
 		
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.statistics.aggregator;
+
+
+/**
+ * Aggregates recorded values on the fly (without storing them): count, mean
+ * and variance (Welford's algorithm), min, max, sum (compensated summation,
+ * Neumaier) and, if requested, quantiles (see QuantileSketch). Needs constant
+ * memory, regardless of the number of recorded values (used by Statistics
+ * for StatisticsTypes in RecordingMode.SKETCH).
+ * 
+ * Accumulators can be merged (e.g. to combine the values recorded by several
+ * clients).
+ */
+public class OnlineAccumulator {
+
+	private long count = 0;
+	private double mean = 0d;
+	private double m2 = 0d; // sum of squared differences from the mean
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private double sum = 0d;
+	private double compensation = 0d; // low-order bits lost in "sum"
+	private QuantileSketch quantileSketch; // null if no quantiles are needed
+	
+	
+	public OnlineAccumulator() {
+		this.quantileSketch = null;
+	}
+	
+	
+	/**
+	 * @param sketchRelativeAccuracy accuracy of the quantiles (see 
+	 * QuantileSketch)
+	 */
+	public OnlineAccumulator(double sketchRelativeAccuracy) {
+		this.quantileSketch = new QuantileSketch(sketchRelativeAccuracy);
+	}
+	
+	
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / (double)count;
+		m2 += delta * (value - mean);
+		if (value < min)
+			min = value;
+		if (value > max)
+			max = value;
+		addToSum(value);
+		if (quantileSketch != null)
+			quantileSketch.add(value);
+	}
+	
+	
+	public void merge(OnlineAccumulator other) {
+		if (other.count == 0)
+			return;
+		if ((quantileSketch == null) != (other.quantileSketch == null))
+			throw new RuntimeException("ERROR: accumulators with and without quantile sketch can't be merged");
+		long newCount = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * ((double)other.count / (double)newCount);
+		m2 += other.m2 + delta * delta * ((double)count * (double)other.count / (double)newCount);
+		count = newCount;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		addToSum(other.sum);
+		compensation += other.compensation;
+		if (quantileSketch != null)
+			quantileSketch.merge(other.quantileSketch);
+	}
+	
+	
+	private void addToSum(double value) {
+		double t = sum + value;
+		if (Math.abs(sum) >= Math.abs(value))
+			compensation += (sum - t) + value;
+		else
+			compensation += (value - t) + sum;
+		sum = t;
+	}
+	
+	
+	public long getCount() {
+		return count;
+	}
+	
+	
+	public double getMean() {
+		return mean;
+	}
+	
+	
+	/**
+	 * Returns the sample variance (divisor count-1).
+	 */
+	public double getVariance() {
+		return count < 2 ? 0d : m2 / (double)(count - 1);
+	}
+	
+	
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+	
+	
+	public double getMin() {
+		return min;
+	}
+	
+	
+	public double getMax() {
+		return max;
+	}
+	
+	
+	public double getSum() {
+		return sum + compensation;
+	}
+	
+	
+	public boolean hasQuantileSketch() {
+		return quantileSketch != null;
+	}
+	
+	
+	public double getQuantile(double quantile) {
+		if (quantileSketch == null)
+			throw new RuntimeException("ERROR: no quantile sketch available. Use OnlineAccumulator(double) if quantiles are needed.");
+		return quantileSketch.getQuantile(quantile);
+	}
+	
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.simulator.core.statistics.aggregator;
+
+
+/**
+ * Mergeable quantile sketch (HDR-style histogram with logarithmic buckets).
+ * Values are counted in buckets whose width grows with the magnitude of the
+ * values, so each quantile is returned with a relative error of at most
+ * "relativeAccuracy" (e.g. 0.01 = 1%), while the memory needed depends only
+ * on the range of the recorded values (not on the number of values).
+ * Example: latencies between 1 ms and 1000 s need about 700 buckets for an
+ * accuracy of 1%.
+ *
+ * Values with an absolute value below MIN_INDEXABLE_VALUE are counted as
+ * zero.
+ */
+public class QuantileSketch {
+
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01d;
+	public static final double MIN_INDEXABLE_VALUE = 1.0E-9d;
+
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double logGamma;
+
+	private final Buckets positiveBuckets = new Buckets();
+	private final Buckets negativeBuckets = new Buckets(); // indexed by the absolute value
+	private long zeroCount = 0;
+	private long count = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+
+	public QuantileSketch() {
+		this(DEFAULT_RELATIVE_ACCURACY);
+	}
+
+
+	public QuantileSketch(double relativeAccuracy) {
+		if (relativeAccuracy <= 0d || relativeAccuracy >= 1d)
+			throw new RuntimeException("ERROR: the relative accuracy of a QuantileSketch must be > 0 and < 1 (" +relativeAccuracy +")");
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1d + relativeAccuracy) / (1d - relativeAccuracy);
+		this.logGamma = Math.log(gamma);
+	}
+
+
+	public void add(double value) {
+		if (Double.isNaN(value))
+			throw new RuntimeException("ERROR: NaN can't be added to a QuantileSketch");
+		if (value >= MIN_INDEXABLE_VALUE)
+			positiveBuckets.add(getIndex(value), 1);
+		else if (value <= -MIN_INDEXABLE_VALUE)
+			negativeBuckets.add(getIndex(-value), 1);
+		else
+			zeroCount++;
+		count++;
+		if (value < min)
+			min = value;
+		if (value > max)
+			max = value;
+	}
+
+
+	/**
+	 * Adds all values recorded by "other" to this sketch. Both sketches must
+	 * use the same relative accuracy.
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.relativeAccuracy != this.relativeAccuracy)
+			throw new RuntimeException("ERROR: only sketches with the same relative accuracy can be merged (" +this.relativeAccuracy +" vs. " +other.relativeAccuracy +")");
+		positiveBuckets.merge(other.positiveBuckets);
+		negativeBuckets.merge(other.negativeBuckets);
+		zeroCount += other.zeroCount;
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+
+	/**
+	 * Returns (an approximation of) the value at the given quantile (0 <=
+	 * quantile <= 1), i.e. the element with index ceil(quantile*count)-1 of
+	 * the sorted values (same definition as in MedianAggregator).
+	 */
+	public double getQuantile(double quantile) {
+		if (count == 0)
+			throw new RuntimeException("ERROR: no data!");
+		if (quantile < 0d || quantile > 1d)
+			throw new RuntimeException("ERROR: quantile must be between 0 and 1 (" +quantile +")");
+		long rank = Math.max(0L, (long)Math.ceil(quantile * (double)count) - 1L);
+		long seen = 0;
+		// negative values (largest absolute value first), zeros, positive values
+		for (int i=negativeBuckets.counts.length-1; i>=0; i--) {
+			seen += negativeBuckets.counts[i];
+			if (seen > rank)
+				return clamp(-getValue(i + negativeBuckets.offset));
+		}
+		seen += zeroCount;
+		if (seen > rank)
+			return clamp(0d);
+		for (int i=0; i<positiveBuckets.counts.length; i++) {
+			seen += positiveBuckets.counts[i];
+			if (seen > rank)
+				return clamp(getValue(i + positiveBuckets.offset));
+		}
+		return max;
+	}
+
+
+	public long getCount() {
+		return count;
+	}
+
+
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+
+	private int getIndex(double absoluteValue) {
+		return (int)Math.ceil(Math.log(absoluteValue) / logGamma);
+	}
+
+
+	// value with the lowest relative error for all values of the bucket (gamma^(index-1), gamma^index]
+	private double getValue(int index) {
+		return 2d * Math.pow(gamma, index) / (gamma + 1d);
+	}
+
+
+	// the exact min and max are known, so the approximation never leaves the recorded range
+	private double clamp(double value) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+
+	private static class Buckets {
+
+		private long[] counts = new long[0];
+		private int offset = 0; // bucket index of counts[0]
+
+
+		private void add(int index, long n) {
+			ensureCapacity(index, index);
+			counts[index - offset] += n;
+		}
+
+
+		private void merge(Buckets other) {
+			if (other.counts.length == 0)
+				return;
+			ensureCapacity(other.offset, other.offset + other.counts.length - 1);
+			for (int i=0; i<other.counts.length; i++)
+				counts[other.offset + i - offset] += other.counts[i];
+		}
+
+
+		private void ensureCapacity(int minIndex, int maxIndex) {
+			if (counts.length == 0) {
+				counts = new long[maxIndex - minIndex + 1];
+				offset = minIndex;
+			} else if (minIndex < offset || maxIndex >= offset + counts.length) {
+				// grow by at least half the current size (amortized O(1) for steadily increasing ranges)
+				int oldMax = offset + counts.length - 1;
+				int newOffset = minIndex < offset ? Math.min(minIndex, offset - counts.length/2) : offset;
+				int newMax = maxIndex > oldMax ? Math.max(maxIndex, oldMax + counts.length/2) : oldMax;
+				long[] newCounts = new long[newMax - newOffset + 1];
+				System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+				counts = newCounts;
+				offset = newOffset;
+			}
+		}
+
+	}
+
+}
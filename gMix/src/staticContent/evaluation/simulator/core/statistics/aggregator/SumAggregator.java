@@ -22,16 +22,23 @@ import gnu.trove.TDoubleArrayList;
 
 public class SumAggregator extends AggregatorImplementation {
 
-	private GetSumHelper getSumHelper = new GetSumHelper();
-	
-	
 	@Override
 	public double aggregate(TDoubleArrayList recordedValues) {
 		if (recordedValues.size() == 0) {
 			System.err.println("WARNING: no data recorded (SumAggregator)"); 
 			return 0d;
 		}
-		return getSumHelper.getSum(recordedValues).doubleValue();
+		return new GetSumHelper().getSum(recordedValues).doubleValue();
+	}
+	
+	
+	@Override
+	public double aggregate(OnlineAccumulator accumulator) {
+		if (accumulator.getCount() == 0) {
+			System.err.println("WARNING: no data recorded (SumAggregator)"); 
+			return 0d;
+		}
+		return accumulator.getSum();
 	}
 		
 }
\ No newline at end of file
@@ -42,7 +42,7 @@ public class PlotScript {
 		if (GuiLauncher.guiActive)
 			this.plotScript = Util.getFileContent(Paths.SIM_PLOTSCRIPT_FOLDER_PATH + "simguiPlotScript.txt");
 		else
-			this.plotScript = Util.getFileContent(Paths.SIM_PLOTSCRIPT_FOLDER_PATH + Simulator.settings.getProperty("NAME_OF_PLOT_SCRIPT"));
+			this.plotScript = Util.getFileContent(Paths.SIM_PLOTSCRIPT_FOLDER_PATH + Simulator.getSettings().getProperty("NAME_OF_PLOT_SCRIPT"));
 		this.resultFileName = resultSet.ep.experimentStart + "-" + plotName + "-results.txt";
 		this.plotScriptFileName = resultSet.ep.experimentStart + "-" + plotName + "-plotScript.txt";
 		this.resultDiagramFileName = resultSet.ep.experimentStart + "-" + plotName + "-diagram";
@@ -112,7 +112,7 @@ public class PlotScript {
 	}
 
 	public void writePlotScriptToDisk() {
-		String oParams = Simulator.settings.getProperty("OVERWRITABLE_PARAMETERS");
+		String oParams = Simulator.getSettings().getProperty("OVERWRITABLE_PARAMETERS");
 
 		if (oParams == null) {
 			oParams = "";
@@ -121,7 +121,7 @@ public class PlotScript {
 		if (!oParams.equals("")) {
 			this.setOverwritableParameter(oParams);
 		}
-		String noParams = Simulator.settings.getProperty("NONE_OVERWRITABLE_PARAMETERS");
+		String noParams = Simulator.getSettings().getProperty("NONE_OVERWRITABLE_PARAMETERS");
 		if (!noParams.equals("")) {
 			this.setNoneOverwritableParameter(noParams);
 		}
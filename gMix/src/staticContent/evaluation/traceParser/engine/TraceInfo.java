@@ -36,6 +36,9 @@ public class TraceInfo {
 	private long seed;
 	private String comment;
 	private String url;
+	private long sortMemoryBudget = Util.NOT_SET;
+	private int sortThreads = Util.NOT_SET;
+	private int conversionThreads = Util.NOT_SET;
 	
 	
 	public TraceInfo(String pathToTraceFolder) {
@@ -104,6 +107,20 @@ public class TraceInfo {
 		} catch (Exception e) {
 			// not mandatory -> do nothing 
 		}
+		try { // not mandatory (see getConversionThreads())
+			if (properties.getProperty("CONVERSION_THREADS") != null)
+				this.conversionThreads = Integer.parseInt(properties.getProperty("CONVERSION_THREADS").trim());
+		} catch (NumberFormatException e) {
+			System.err.println("WARNING: invalid CONVERSION_THREADS specified in " +(pathToTraceFolder +INFO_FILE_NAME) +"; will use the default");
+		}
+		try { // not mandatory (see getSortMemoryBudget() and getSortThreads())
+			if (properties.getProperty("SORT_MEMORY_BUDGET_MB") != null)
+				this.sortMemoryBudget = Long.parseLong(properties.getProperty("SORT_MEMORY_BUDGET_MB").trim()) * 1024L * 1024L;
+			if (properties.getProperty("SORT_THREADS") != null)
+				this.sortThreads = Integer.parseInt(properties.getProperty("SORT_THREADS").trim());
+		} catch (NumberFormatException e) {
+			System.err.println("WARNING: invalid SORT_MEMORY_BUDGET_MB or SORT_THREADS specified in " +(pathToTraceFolder +INFO_FILE_NAME) +"; will use the defaults");
+		}
 	}
 	
 	
@@ -191,4 +208,33 @@ public class TraceInfo {
 		return this.comment;
 	}
 	
+	
+	/**
+	 * memory (in bytes) the external sort of the flows (see 
+	 * ExternalFlowSorter) may use (key SORT_MEMORY_BUDGET_MB in 
+	 * traceInfo.txt). default: 1/4 of the max heap size.
+	 */
+	public long getSortMemoryBudget() {
+		return sortMemoryBudget > 0 ? sortMemoryBudget : Runtime.getRuntime().maxMemory() / 4L;
+	}
+	
+	
+	/**
+	 * number of threads used to create the sorted runs of the external sort 
+	 * (key SORT_THREADS in traceInfo.txt). default: number of cores.
+	 */
+	public int getSortThreads() {
+		return sortThreads > 0 ? sortThreads : Runtime.getRuntime().availableProcessors();
+	}
+	
+	
+	/**
+	 * number of worker threads used to convert the trace (see ToGMP and 
+	 * ParallelTCPFlowExtractor; key CONVERSION_THREADS in traceInfo.txt). 
+	 * default: number of cores.
+	 */
+	public int getConversionThreads() {
+		return conversionThreads > 0 ? conversionThreads : Runtime.getRuntime().availableProcessors();
+	}
+	
 }
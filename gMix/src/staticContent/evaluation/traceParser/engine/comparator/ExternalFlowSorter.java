@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.comparator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
+
+
+/**
+ * Bounded-memory external merge sort for flow traces (.gmf format; used by 
+ * Flow.sort()). Orders the flows by senderId (= hostId), then by start 
+ * of flow (flows with equal keys keep their order) and renumbers their 
+ * flowIds (0, 1, 2...). Flows are written in the format of 
+ * Flow.serialize().
+ * 
+ * phase 1: the source trace is read sequentially in chunks. Each chunk is 
+ *          sorted and written to a temporary run file by one of "threads" 
+ *          worker threads (at most threads+1 chunks are held in memory).
+ * phase 2: the runs are merged (k-way merge with sequential reads and 
+ *          writes only). If there are more than MAX_FAN_IN runs, 
+ *          intermediate merge passes are done first.
+ * 
+ * Run files are created in the folder of the result trace and deleted 
+ * afterwards.
+ */
+public class ExternalFlowSorter {
+
+	public final static int MAX_FAN_IN = 128;
+	private final static int MIN_CHUNK_SIZE = 1024 * 1024;
+	private final static int MIN_IO_BUFFER_SIZE = 64 * 1024;
+	private final static int MAX_IO_BUFFER_SIZE = 1024 * 1024;
+	
+	private final long memoryBudget;
+	private final int threads;
+	private final int chunkSize;
+	
+	
+	/**
+	 * @param memoryBudget	memory (in bytes) the sort may use (approx.)
+	 * @param threads	number of threads used to sort the chunks (phase 1)
+	 */
+	public ExternalFlowSorter(long memoryBudget, int threads) {
+		this.memoryBudget = memoryBudget;
+		this.threads = Math.max(1, threads);
+		// half of the budget for the data of the chunks, the rest for keys, index arrays and buffers:
+		long chunkSize = memoryBudget / 2L / (long)(this.threads + 1);
+		this.chunkSize = (int)Math.min(Integer.MAX_VALUE - 8, Math.max(MIN_CHUNK_SIZE, chunkSize));
+	}
+	
+	
+	public void sort(String inputFilePath, String outputFilePath) throws IOException {
+		File folderForRuns = new File(outputFilePath).getAbsoluteFile().getParentFile();
+		List<File> runs = createRuns(inputFilePath, folderForRuns);
+		try {
+			while (runs.size() > MAX_FAN_IN) { // intermediate merge pass(es)
+				List<File> mergedRuns = new ArrayList<File>(runs.size() / MAX_FAN_IN + 1);
+				for (int i=0; i<runs.size(); i+=MAX_FAN_IN) {
+					List<File> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+					File mergedRun = File.createTempFile("gMixSort", ".run", folderForRuns);
+					mergedRuns.add(mergedRun);
+					merge(group, mergedRun, false);
+					for (File run: group)
+						run.delete();
+				}
+				runs = mergedRuns;
+			}
+			merge(runs, new File(outputFilePath), true);
+		} finally {
+			for (File run: runs)
+				run.delete();
+		}
+	}
+	
+	
+	private List<File> createRuns(String inputFilePath, final File folderForRuns) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final Semaphore chunksInProgress = new Semaphore(threads);
+		List<Future<File>> runs = new ArrayList<Future<File>>();
+		LineSource source = new LineSource(new FileInputStream(inputFilePath));
+		boolean success = false;
+		try {
+			Chunk chunk = new Chunk(chunkSize);
+			while (source.nextLine()) {
+				if (source.lineLength == 0) // empty line
+					continue;
+				if (!chunk.add(source.line, source.lineLength)) { // chunk is full -> sort and write it
+					runs.add(submit(executor, chunksInProgress, chunk, folderForRuns));
+					chunk = new Chunk(chunkSize);
+					chunk.add(source.line, source.lineLength);
+				}
+			}
+			if (chunk.numberOfRecords > 0 || runs.size() == 0)
+				runs.add(submit(executor, chunksInProgress, chunk, folderForRuns));
+			List<File> result = new ArrayList<File>(runs.size());
+			for (Future<File> run: runs)
+				result.add(run.get());
+			success = true;
+			return result;
+		} catch (InterruptedException e) {
+			throw new IOException("interrupted while sorting " +inputFilePath);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			source.close();
+			executor.shutdown();
+			if (!success) // delete the runs that were already written
+				for (Future<File> run: runs)
+					try {
+						run.get().delete();
+					} catch (Exception e) {}
+		}
+	}
+	
+	
+	private static Future<File> submit(ExecutorService executor, final Semaphore chunksInProgress, final Chunk chunk, final File folderForRuns) throws InterruptedException {
+		chunksInProgress.acquire(); // limits the number of chunks in memory
+		return executor.submit(new Callable<File>() {
+			@Override
+			public File call() throws IOException {
+				try {
+					File run = File.createTempFile("gMixSort", ".run", folderForRuns);
+					chunk.sortAndWrite(run);
+					return run;
+				} finally {
+					chunksInProgress.release();
+				}
+			}
+		});
+	}
+	
+	
+	private void merge(List<File> runs, File destination, boolean isResultTrace) throws IOException {
+		int bufferSize = (int)Math.max(MIN_IO_BUFFER_SIZE, Math.min(MAX_IO_BUFFER_SIZE, memoryBudget / (runs.size() + 1)));
+		PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(runs.size(), RunReader.COMPARATOR);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(destination), bufferSize);
+		try {
+			for (int i=0; i<runs.size(); i++) {
+				RunReader reader = new RunReader(runs.get(i), i, bufferSize);
+				if (reader.next())
+					queue.add(reader);
+				else
+					reader.close();
+			}
+			DataOutputStream runOut = isResultTrace ? null : new DataOutputStream(out);
+			int flowId = 0;
+			while (!queue.isEmpty()) {
+				RunReader reader = queue.poll();
+				if (isResultTrace)
+					writeWithNewFlowId(reader.record, reader.length, flowId++, out);
+				else
+					writeRecord(runOut, reader.hostId, reader.start, reader.record, 0, reader.length);
+				if (reader.next())
+					queue.add(reader);
+				else
+					reader.close();
+			}
+		} finally {
+			for (RunReader reader: queue)
+				reader.close();
+			out.close();
+		}
+	}
+	
+	
+	private static void writeRecord(DataOutputStream out, int hostId, long start, byte[] data, int offset, int length) throws IOException {
+		out.writeInt(hostId);
+		out.writeLong(start);
+		out.writeInt(length);
+		out.write(data, offset, length);
+	}
+	
+	
+	/**
+	 * replaces the flowId (second column) of the bypassed (serialized) flow 
+	 * (see Flow.serialize())
+	 */
+	private static void writeWithNewFlowId(byte[] flow, int length, int flowId, OutputStream out) throws IOException {
+		int endOfFirstColumn = indexOf('#', flow, 0, length);
+		int endOfSecondColumn = indexOf('#', flow, endOfFirstColumn + 1, length);
+		if (endOfSecondColumn == -1)
+			throw new RuntimeException("unrecognized trace file format: " +new String(flow, 0, length, "ISO-8859-1"));
+		out.write(flow, 0, endOfFirstColumn + 1);
+		out.write(Integer.toString(flowId).getBytes("ISO-8859-1"));
+		out.write(flow, endOfSecondColumn, length - endOfSecondColumn);
+		out.write('\n');
+	}
+	
+	
+	private static int indexOf(char c, byte[] data, int from, int to) {
+		if (from < 0)
+			return -1;
+		for (int i=from; i<to; i++)
+			if (data[i] == c)
+				return i;
+		return -1;
+	}
+	
+	
+	/**
+	 * lines of the source trace (in the order they were read) + their keys
+	 */
+	private static class Chunk {
+		
+		private byte[] data;
+		private int used = 0;
+		private int[] offset = new int[1024];
+		private int[] length = new int[1024];
+		private int numberOfRecords = 0;
+		
+		
+		private Chunk(int size) {
+			this.data = new byte[size];
+		}
+		
+		
+		/**
+		 * returns false if the chunk is full
+		 */
+		private boolean add(byte[] line, int lineLength) {
+			if (used + lineLength > data.length) {
+				if (numberOfRecords > 0)
+					return false;
+				data = new byte[lineLength]; // single line larger than chunk
+			}
+			if (numberOfRecords == offset.length) {
+				offset = Arrays.copyOf(offset, numberOfRecords * 2);
+				length = Arrays.copyOf(length, numberOfRecords * 2);
+			}
+			System.arraycopy(line, 0, data, used, lineLength);
+			offset[numberOfRecords] = used;
+			length[numberOfRecords] = lineLength;
+			numberOfRecords++;
+			used += lineLength;
+			return true;
+		}
+		
+		
+		private void sortAndWrite(File run) throws IOException {
+			int[] hostId = new int[numberOfRecords];
+			long[] start = new long[numberOfRecords];
+			long[] value = new long[1];
+			for (int i=0; i<numberOfRecords; i++) { // parse keys (column 0: senderId, column 2: startOfFlow)
+				int end = offset[i] + length[i];
+				int position = parseColumn(offset[i], end, value, i);
+				hostId[i] = (int)value[0];
+				position = indexOf('#', data, position, end); // skip column 1 (flowId)
+				if (position == -1)
+					throw formatError(i);
+				parseColumn(position + 1, end, value, i);
+				start[i] = value[0];
+			}
+			int[] order = new int[numberOfRecords];
+			for (int i=0; i<numberOfRecords; i++)
+				order[i] = i;
+			mergeSort(order, new int[numberOfRecords], 0, numberOfRecords, hostId, start);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), MAX_IO_BUFFER_SIZE));
+			try {
+				StringBuffer serializedFlow = new StringBuffer(1024);
+				for (int i: order) { // restore and serialize the flow again (normalizes the format, like Flow.loadFlow() + Flow.serialize())
+					serializedFlow.setLength(0);
+					new Flow(new String(data, offset[i], length[i], "ISO-8859-1")).serialize(serializedFlow);
+					byte[] flow = serializedFlow.toString().getBytes("ISO-8859-1");
+					writeRecord(out, hostId[i], start[i], flow, 0, flow.length);
+				}
+			} finally {
+				out.close();
+			}
+		}
+		
+		
+		private int parseColumn(int position, int end, long[] result, int record) {
+			if (position >= end)
+				throw formatError(record);
+			boolean negative = data[position] == '-';
+			if (negative)
+				position++;
+			long value = 0;
+			int digits = 0;
+			while (position < end && data[position] >= '0' && data[position] <= '9') {
+				value = value * 10 + (data[position++] - '0');
+				digits++;
+			}
+			if (digits == 0 || position == end || data[position] != '#')
+				throw formatError(record);
+			result[0] = negative ? -value : value;
+			return position + 1;
+		}
+		
+		
+		private RuntimeException formatError(int record) {
+			try {
+				return new RuntimeException("unrecognized trace file format: " +new String(data, offset[record], length[record], "ISO-8859-1"));
+			} catch (IOException e) {
+				return new RuntimeException("unrecognized trace file format");
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * stable merge sort of "order" (by hostId, then start)
+	 */
+	private static void mergeSort(int[] order, int[] tmp, int from, int to, int[] hostId, long[] start) {
+		if (to - from < 2)
+			return;
+		int middle = (from + to) >>> 1;
+		mergeSort(order, tmp, from, middle, hostId, start);
+		mergeSort(order, tmp, middle, to, hostId, start);
+		if (compare(order[middle-1], order[middle], hostId, start) <= 0)
+			return; // already in order
+		System.arraycopy(order, from, tmp, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i=from; i<to; i++) {
+			if (right >= to || (left < middle && compare(tmp[left], tmp[right], hostId, start) <= 0))
+				order[i] = tmp[left++];
+			else
+				order[i] = tmp[right++];
+		}
+	}
+	
+	
+	private static int compare(int a, int b, int[] hostId, long[] start) {
+		if (hostId[a] != hostId[b])
+			return hostId[a] < hostId[b] ? -1 : 1;
+		return start[a] < start[b] ? -1 : (start[a] == start[b] ? 0 : 1);
+	}
+	
+	
+	private static class RunReader {
+		
+		private final static Comparator<RunReader> COMPARATOR = new Comparator<RunReader>() {
+			@Override
+			public int compare(RunReader a, RunReader b) {
+				if (a.hostId != b.hostId)
+					return a.hostId < b.hostId ? -1 : 1;
+				if (a.start != b.start)
+					return a.start < b.start ? -1 : 1;
+				return a.runNumber < b.runNumber ? -1 : (a.runNumber == b.runNumber ? 0 : 1); // keep order of equal keys
+			}
+		};
+		
+		private final DataInputStream in;
+		private final int runNumber;
+		private int hostId;
+		private long start;
+		private byte[] record = new byte[1024];
+		private int length;
+		
+		
+		private RunReader(File run, int runNumber, int bufferSize) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), bufferSize));
+			this.runNumber = runNumber;
+		}
+		
+		
+		private boolean next() throws IOException {
+			try {
+				this.hostId = in.readInt();
+			} catch (EOFException e) {
+				return false;
+			}
+			this.start = in.readLong();
+			this.length = in.readInt();
+			if (record.length < length)
+				record = new byte[Math.max(length, record.length * 2)];
+			in.readFully(record, 0, length);
+			return true;
+		}
+		
+		
+		private void close() {
+			try {
+				in.close();
+			} catch (IOException e) {}
+		}
+		
+	}
+	
+	
+	/**
+	 * reads lines (as bytes) from an InputStream. valid line terminators: 
+	 * ['\n'], ['\r'] and ['\r''\n'] (see CountingBufferedReader)
+	 */
+	private static class LineSource {
+		
+		private final InputStream in;
+		private byte[] buffer = new byte[MAX_IO_BUFFER_SIZE];
+		private int position = 0;
+		private int limit = 0;
+		private byte[] line = new byte[1024];
+		private int lineLength;
+		private boolean skipNextLineFeed = false;
+		
+		
+		private LineSource(InputStream in) {
+			this.in = in;
+		}
+		
+		
+		private boolean nextLine() throws IOException {
+			lineLength = 0;
+			boolean readSomething = false;
+			while (true) {
+				if (position == limit) {
+					limit = in.read(buffer, 0, buffer.length);
+					position = 0;
+					if (limit <= 0) {
+						limit = 0;
+						return readSomething;
+					}
+				}
+				byte b = buffer[position++];
+				if (skipNextLineFeed) {
+					skipNextLineFeed = false;
+					if (b == '\n')
+						continue;
+				}
+				readSomething = true;
+				if (b == '\n' || b == '\r') {
+					skipNextLineFeed = b == '\r';
+					return true;
+				}
+				if (lineLength == line.length)
+					line = Arrays.copyOf(line, lineLength * 2);
+				line[lineLength++] = b;
+			}
+		}
+		
+		
+		private void close() {
+			try {
+				in.close();
+			} catch (IOException e) {}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,732 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.converter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import staticContent.evaluation.traceParser.engine.Protocol;
+import staticContent.evaluation.traceParser.engine.dataStructure.ExtendedTransaction;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow.FlowDirection;
+import staticContent.evaluation.traceParser.engine.dataStructure.Packet;
+import staticContent.evaluation.traceParser.engine.dataStructure.Packet.TCPflags;
+import staticContent.evaluation.traceParser.engine.fileReader.PacketSource;
+import staticContent.evaluation.traceParser.engine.protocolHandler.TCPhandler.TCPhandshakeStatus;
+import staticContent.evaluation.traceParser.engine.protocolHandler.TCPhandler.TCPteardownStatus;
+import staticContent.framework.util.Util;
+
+
+/**
+ * Extracts the same flows as TCPFlowExtractor, but with a pipeline of 
+ * threads (see Pipeline):
+ * 
+ * 	- reader (calling thread): reads the packets from the PacketSource and 
+ * 	  distributes the TCP packets to the workers (partitioned by the hash of 
+ * 	  their flow, so all packets of a flow are handled by the same worker).
+ * 	  Host addresses are mapped to ints, so flows are identified by two longs 
+ * 	  (host and port of both endpoints) instead of a String.
+ * 	- workers: track the handshake and teardown of their flows (same rules 
+ * 	  as TCPFlowExtractor.handlePacket()). Instead of storing all packets of 
+ * 	  an open flow, the transactions are extracted while the packets arrive.
+ * 	- writer: writes the completed flows in the order they were completed 
+ * 	  (i.e. in the order TCPFlowExtractor would write them, so the client 
+ * 	  and server ids of AddressMapper are assigned in the same order).
+ * 
+ * Completed flows are written right away; only the state of open flows is 
+ * kept in memory.
+ */
+public class ParallelTCPFlowExtractor {
+
+	private enum TransactionStatus {NONE, REQUEST_PHASE, REPLY_PHASE};
+	private final static long UNKNOWN = -1l;
+	private final static int MULTIPART_REPLY_THRESHOLD = 5; // see TCPFlowExtractor
+	private final static int BATCH_SIZE = 8192; // packets read between two batches (per worker)
+	private final static int QUEUE_CAPACITY = 16; // batches
+	
+	private final int workers;
+	private Writer resultTrace;
+	private HashSet<String> flowIds;
+	private long startOfTrace = Util.NOT_SET;
+	private HashMap<String, Integer> hostIds = new HashMap<String, Integer>(10000); // used by the reader only
+	
+	
+	public ParallelTCPFlowExtractor(int workers) {
+		if (workers < 1)
+			throw new RuntimeException("ERROR: at least one worker required (" +workers +")"); 
+		this.workers = workers;
+	}
+	
+	
+	/**
+	 * flowIds: identifiers (see TCPflowFinder.getFlowIdentifier()) of the 
+	 * flows to extract. null: extract all (complete) flows.
+	 */
+	public void extractFlows(HashSet<String> flowIds, Writer resultTrace, final PacketSource packetSource) {
+		this.flowIds = flowIds;
+		this.resultTrace = resultTrace;
+		final Pipeline pipeline = new Pipeline("TCPFlowExtractor");
+		final ArrayBlockingQueue<WorkerOutput> writerQueue = new ArrayBlockingQueue<WorkerOutput>(workers * QUEUE_CAPACITY);
+		final List<ArrayBlockingQueue<Batch>> workerQueues = new ArrayList<ArrayBlockingQueue<Batch>>(workers);
+		for (int i=0; i<workers; i++) {
+			workerQueues.add(new ArrayBlockingQueue<Batch>(QUEUE_CAPACITY));
+			final Worker worker = new Worker(i, pipeline, workerQueues.get(i), writerQueue);
+			pipeline.start("worker" +i, new Pipeline.Stage() {
+				@Override
+				public void run() throws Exception {
+					worker.run();
+				}
+			});
+		}
+		pipeline.start("writer", new Pipeline.Stage() {
+			@Override
+			public void run() throws Exception {
+				writeFlows(pipeline, writerQueue);
+			}
+		});
+		pipeline.run(new Pipeline.Stage() {
+			@Override
+			public void run() throws Exception {
+				readPackets(pipeline, packetSource, workerQueues);
+			}
+		});
+		try {
+			pipeline.join();
+		} finally {
+			packetSource.close();
+		}
+	}
+	
+	
+	private void readPackets(Pipeline pipeline, PacketSource packetSource, List<ArrayBlockingQueue<Batch>> workerQueues) throws IOException, InterruptedException {
+		Batch[] batches = new Batch[workers];
+		for (int i=0; i<workers; i++)
+			batches[i] = new Batch();
+		Packet packet = new Packet();
+		FlowKey key = new FlowKey();
+		long sequenceNumber = 0;
+		while ((packet = packetSource.readPacket(packet)) != null) {
+			sequenceNumber++;
+			if (startOfTrace == Util.NOT_SET)
+				startOfTrace = packet.getTimestamp().getTimeInMillis();
+			if (isExtractable(packet)) {
+				int srcHost = getHostId(packet.getLayer2srcAddress());
+				int dstHost = getHostId(packet.getLayer2dstAddress());
+				int srcPort = Integer.parseInt(packet.getLayer3srcAddress());
+				int dstPort = Integer.parseInt(packet.getLayer3dstAddress());
+				key.set(srcHost, srcPort, dstHost, dstPort);
+				int worker = (key.hashCode() & 0x7fffffff) % workers;
+				batches[worker].add(sequenceNumber, packet, srcHost, srcPort, dstHost, dstPort);
+			}
+			if (sequenceNumber % BATCH_SIZE == 0) { // also sent if empty (progress information for the writer)
+				for (int i=0; i<workers; i++) {
+					batches[i].lastSequenceNumber = sequenceNumber;
+					batches[i].startOfTrace = startOfTrace;
+					pipeline.put(workerQueues.get(i), batches[i]);
+					batches[i] = new Batch();
+				}
+			}
+		}
+		for (int i=0; i<workers; i++) {
+			batches[i].lastSequenceNumber = Long.MAX_VALUE; // end of trace
+			batches[i].startOfTrace = startOfTrace;
+			pipeline.put(workerQueues.get(i), batches[i]);
+		}
+	}
+	
+	
+	// same checks as TCPFlowExtractor.handlePacket()
+	private boolean isExtractable(Packet packet) {
+		if (packet.getLayer3protocol() != Protocol.TCP) // this is a tcp flow extractor -> ignore other packets
+			return false;
+		if (packet.getLayer4length() == UNKNOWN) // we cannot replay packets with unknown size
+			return false;
+		if (!isPort(packet.getLayer3srcAddress()) || !isPort(packet.getLayer3dstAddress())) // tcp header truncated (no ports)
+			return false;
+		if (flowIds != null && !flowIds.contains(TCPflowFinder.getFlowIdentifier(packet)))
+			return false;
+		return true;
+	}
+	
+	
+	// missing ports are null (packet readers) or "null" (gmp files)
+	private static boolean isPort(String port) {
+		return port != null && !port.equals("null");
+	}
+	
+	
+	private int getHostId(String address) {
+		Integer id = hostIds.get(address);
+		if (id == null) {
+			id = hostIds.size();
+			hostIds.put(address, id);
+		}
+		return id;
+	}
+	
+	
+	// merges the completed flows of all workers (by the sequence number of the packet that completed the flow)
+	private void writeFlows(Pipeline pipeline, ArrayBlockingQueue<WorkerOutput> writerQueue) throws InterruptedException, IOException {
+		List<ArrayDeque<CompletedFlow>> pending = new ArrayList<ArrayDeque<CompletedFlow>>(workers);
+		long[] progress = new long[workers]; // all flows completed by packets up to this sequence number were received
+		for (int i=0; i<workers; i++)
+			pending.add(new ArrayDeque<CompletedFlow>());
+		int finishedWorkers = 0;
+		while (finishedWorkers < workers) {
+			WorkerOutput output = pipeline.take(writerQueue);
+			pending.get(output.worker).addAll(output.completedFlows);
+			progress[output.worker] = output.lastSequenceNumber;
+			if (output.lastSequenceNumber == Long.MAX_VALUE)
+				finishedWorkers++;
+			while (true) { // write all flows no other worker could complete earlier
+				int next = Util.NOT_SET;
+				for (int i=0; i<workers; i++)
+					if (!pending.get(i).isEmpty() && (next == Util.NOT_SET || pending.get(i).peek().sequenceNumber < pending.get(next).peek().sequenceNumber))
+						next = i;
+				if (next == Util.NOT_SET)
+					break;
+				long sequenceNumber = pending.get(next).peek().sequenceNumber;
+				boolean isNext = true;
+				for (int i=0; i<workers && isNext; i++)
+					if (pending.get(i).isEmpty() && progress[i] < sequenceNumber)
+						isNext = false;
+				if (!isNext)
+					break;
+				writeFlow(pending.get(next).poll());
+			}
+		}
+	}
+	
+	
+	// same as the end of TCPFlowExtractor.serializeFlow()
+	private void writeFlow(CompletedFlow flow) throws IOException {
+		Flow result = new Flow();
+		result.startOfFlow = flow.startOfFlow;
+		result.requestSize = flow.requestSize;
+		result.replySize = flow.replySize;
+		result.senderAddress = flow.info.clientAddress;
+		result.receiverAddress = flow.info.serverAddress;
+		result.senderId = AddressMapper.getClientId(result.senderAddress);
+		result.receiverID = AddressMapper.getServerId(result.receiverAddress);
+		result.senderPort = flow.info.clientPort;
+		result.receiverPort = flow.info.serverPort;
+		result.layer4protocol = flow.info.layer4protocol;
+		result.protocolAsString = flow.info.layer4protocol.toString();
+		result.flowDirection = flow.info.flowDirection;
+		for (TransactionRecord transaction: flow.transactions)
+			result.transactions.add(new ExtendedTransaction(
+					transaction.sendDelay,
+					transaction.startOfRequest,
+					transaction.endOfRequest,
+					transaction.requestSize,
+					result.receiverID,
+					transaction.startReplyOffsets,
+					transaction.endReplyOffsets,
+					transaction.replySizes
+				));
+		if (result.transactions.size() != 0) {
+			result.endOfFlow = flow.endOfFlow;
+			assert result.endOfFlow >= result.startOfFlow;
+			result.serialize(resultTrace);
+			resultTrace.write("\n");
+		}
+	}
+	
+	
+	private static class Worker {
+		
+		private final int id;
+		private final Pipeline pipeline;
+		private final ArrayBlockingQueue<Batch> input;
+		private final ArrayBlockingQueue<WorkerOutput> output;
+		private final HashMap<FlowKey, FlowState> openFlows = new HashMap<FlowKey, FlowState>(10000);
+		private final FlowKey probe = new FlowKey(); // reused for lookups
+		private ArrayList<CompletedFlow> completedFlows = new ArrayList<CompletedFlow>();
+		private long startOfTrace;
+		
+		
+		private Worker(int id, Pipeline pipeline, ArrayBlockingQueue<Batch> input, ArrayBlockingQueue<WorkerOutput> output) {
+			this.id = id;
+			this.pipeline = pipeline;
+			this.input = input;
+			this.output = output;
+		}
+		
+		
+		private void run() throws InterruptedException {
+			while (true) {
+				Batch batch = pipeline.take(input);
+				startOfTrace = batch.startOfTrace;
+				for (int i=0; i<batch.size; i++)
+					handlePacket(batch, i);
+				pipeline.put(output, new WorkerOutput(id, batch.lastSequenceNumber, completedFlows));
+				completedFlows = new ArrayList<CompletedFlow>();
+				if (batch.lastSequenceNumber == Long.MAX_VALUE) // end of trace; open flows are incomplete
+					return;
+			}
+		}
+		
+		
+		// same as TCPFlowExtractor.handlePacket() (the transactions are extracted by FlowState.addPacket())
+		private void handlePacket(Batch batch, int i) {
+			TCPflags flags = batch.flags[i];
+			probe.set(batch.srcHosts[i], batch.srcPorts[i], batch.dstHosts[i], batch.dstPorts[i]);
+			FlowState flow = openFlows.get(probe);
+			if (flow == null) { // we dont know this flow yet
+				if (flags != TCPflags.SYN) { // we haven't seen the start of this flow, so we ignore it (malformed packet, or start of flow not captured/not present in trace file)
+					return;
+				} else { // add new flow
+					flow = new FlowState(batch.flowInfos[i]);
+					openFlows.put(probe.copy(), flow);
+				}
+			}
+			flow.addPacket(batch.timestamps[i] - startOfTrace, batch.layer4lengths[i], batch.dstHosts[i] == flow.info.serverHost);
+			if (flow.handshakeStatus == null && flags == TCPflags.SYN) { // SYN flag set; first packet of the flow
+				flow.handshakeStatus = TCPhandshakeStatus.SYN_TRANSMITTED;
+			} else if (flow.handshakeStatus == null) { // no handshakeStatus and no syn flag -> we haven't seen the start of this flow, so we ignore it
+				openFlows.remove(probe);
+				return;
+			} else if (flow.handshakeStatus == TCPhandshakeStatus.SYN_TRANSMITTED) {
+				if (flags != TCPflags.SYN_ACK) { // corrupt flow -> discart it
+					openFlows.remove(probe);
+					return;
+				} else { // none-corrupt flow
+					flow.handshakeStatus = TCPhandshakeStatus.SYN_ACK_TRANSMITTED;
+				}
+			} else if (flow.handshakeStatus == TCPhandshakeStatus.SYN_ACK_TRANSMITTED) {
+				if (flags != TCPflags.ACK) { // corrupt flow -> discart it
+					openFlows.remove(probe);
+					return;
+				} else { // none-corrupt flow
+					flow.handshakeStatus = TCPhandshakeStatus.COMPLETE;
+				}
+			}
+			
+			if (flow.teardownStatus == null && (flags == TCPflags.FIN || flags == TCPflags.FIN_ACK)) {
+				flow.teardownStatus = TCPteardownStatus.FIN1_TRANSMITTED;
+			} else if (flow.teardownStatus == TCPteardownStatus.FIN1_TRANSMITTED && (flags == TCPflags.FIN || flags == TCPflags.FIN_ACK)) {
+				flow.teardownStatus = TCPteardownStatus.COMPLETE;
+				openFlows.remove(probe);
+				completedFlows.add(flow.finish(batch.sequenceNumbers[i]));
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * State of an open flow. Replaces the packet list of 
+	 * TCPFlowExtractor.TempFlow: the packets are passed to the state machine 
+	 * of TCPFlowExtractor.serializeFlow() as they arrive (only the first two 
+	 * packets are buffered, as the start of the flow is the timestamp of the 
+	 * third packet).
+	 */
+	private static class FlowState {
+		
+		private final FlowInfo info;
+		private TCPhandshakeStatus handshakeStatus;
+		private TCPteardownStatus teardownStatus;
+		private int packets = 0;
+		private final long[] bufferedTimes = new long[2];
+		private final int[] bufferedLengths = new int[2];
+		private final boolean[] bufferedDirections = new boolean[2];
+		
+		// see TCPFlowExtractor.serializeFlow():
+		private long startOfFlow;
+		private int requestSize = 0;
+		private int replySize = 0;
+		private ArrayList<TransactionRecord> transactions = new ArrayList<TransactionRecord>(4);
+		private TransactionStatus transactionStatus = TransactionStatus.NONE;
+		private long startOfRequest = UNKNOWN;
+		private long endOfRequest = UNKNOWN;
+		private Vector<Long> startReplyOffsets = new Vector<Long>();
+		private Vector<Long> endReplyOffsets = new Vector<Long>();
+		private Vector<Integer> replySizes = new Vector<Integer>();
+		private long startOfReply = UNKNOWN;
+		private long endOfReply = UNKNOWN;
+		private long lastActivity = UNKNOWN;
+		private long endOfLastTransaction;
+		private int transactionRequestSize = 0;
+		private int transactionReplySize = 0;
+		
+		
+		private FlowState(FlowInfo info) {
+			this.info = info;
+		}
+		
+		
+		// now: offset from start of trace
+		private void addPacket(long now, int layer4length, boolean isRequest) {
+			if (packets < 2) {
+				bufferedTimes[packets] = now;
+				bufferedLengths[packets] = layer4length;
+				bufferedDirections[packets] = isRequest;
+				packets++;
+				return;
+			}
+			if (packets == 2) { // ignore handshake packets -> start with 3rd packet
+				startOfFlow = now;
+				endOfLastTransaction = startOfFlow;
+				for (int i=0; i<2; i++)
+					handlePayload(bufferedTimes[i], bufferedLengths[i], bufferedDirections[i]);
+			}
+			packets++;
+			handlePayload(now, layer4length, isRequest);
+		}
+		
+		
+		private void handlePayload(long now, int layer4length, boolean isRequest) {
+			if (layer4length == 0 || layer4length == UNKNOWN) // ignore ack packages; we are interested in payload only
+				return;
+			if (isRequest) { // REQUEST (from client to server)
+				switch (transactionStatus) {
+					case NONE: // new transaction
+						transactionStatus = TransactionStatus.REQUEST_PHASE;
+						startOfRequest = now;
+						endOfRequest = now; // may be changed later
+						lastActivity = now;
+						transactionRequestSize += layer4length;
+						requestSize += layer4length;
+						break;
+					case REQUEST_PHASE: // REQUEST+REQUEST: packet might belong to the last request or a new one (decide by delay)
+						long timeSinceLastRequest = now - lastActivity;
+						if (timeSinceLastRequest <= 1) { // packet belongs to last request
+							lastActivity = now;
+							endOfRequest = now; // may be changed later
+							transactionRequestSize += layer4length;
+							requestSize += layer4length;
+						} else { // packet belongs to a new transaction
+							// finish current transaction (as a transaction without reply):
+							transactions.add(new TransactionRecord((int) (startOfRequest - endOfLastTransaction), startOfRequest, endOfRequest, transactionRequestSize, null, null, null));
+							endOfLastTransaction = endOfRequest;
+							startOfReply = UNKNOWN; // reset
+							endOfReply = UNKNOWN; // reset
+							transactionRequestSize = 0; // reset
+							transactionReplySize = 0; // reset
+							// start new transaction:
+							transactionStatus = TransactionStatus.REQUEST_PHASE;
+							startOfRequest = now;
+							endOfRequest = now; // may be changed later
+							lastActivity = now;
+							transactionRequestSize += layer4length;
+							requestSize += layer4length;
+						}
+						break;
+					case REPLY_PHASE: // REPLY+REQUEST: packet ends the current transaction and starts a new one
+						finishReplyPhase();
+						// start new transaction:
+						transactionStatus = TransactionStatus.REQUEST_PHASE;
+						startOfRequest = now;
+						endOfRequest = now; // may be changed later
+						lastActivity = now;
+						transactionRequestSize += layer4length;
+						requestSize += layer4length;
+						break;
+				}
+			} else { // REPLY (from server to client)
+				switch (transactionStatus) {
+					case NONE: // server sends the first message
+						transactionStatus = TransactionStatus.REPLY_PHASE;
+						startOfRequest = now;
+						endOfRequest = now;
+						lastActivity = now;
+						transactionRequestSize = 0;
+						requestSize = 0;
+						transactionReplySize = layer4length;
+						replySize += layer4length;
+						startOfReply = now;
+						endOfReply = now; // may be changed later
+						break;
+					case REQUEST_PHASE: // REQUEST+REPLY: switch from REQUEST_PHASE to REPLY_PHASE
+						transactionStatus = TransactionStatus.REPLY_PHASE;
+						startOfReply = now;
+						endOfReply = now; // may be changed later
+						lastActivity = now;
+						transactionReplySize += layer4length;
+						replySize += layer4length;
+						break;
+					case REPLY_PHASE: // REPLY+REPLY: packet should belong to the last reply or be a new reply (delay decides)
+						long timeSinceLastReply = now - lastActivity;
+						if (timeSinceLastReply < MULTIPART_REPLY_THRESHOLD) { // assume that packet belongs to current reply
+							lastActivity = now;
+							endOfReply = now;
+							transactionReplySize += layer4length;
+							replySize += layer4length;
+						} else { // assume that packet belongs to a new reply
+							// finish last reply:
+							startReplyOffsets.add(startOfReply);
+							endReplyOffsets.add(endOfReply);
+							replySizes.add(transactionReplySize);
+							startOfReply = now;
+							endOfReply = now; // may be changed later
+							lastActivity = now;
+							// add new Reply:
+							transactionReplySize = layer4length;
+							replySize += layer4length;
+						}
+						break;
+				}
+			}
+		}
+		
+		
+		// stores the current transaction (with replies) and resets the transaction state
+		private void finishReplyPhase() {
+			replySizes.add(transactionReplySize);
+			startReplyOffsets.add(startOfReply);
+			endReplyOffsets.add(endOfReply);
+			transactions.add(new TransactionRecord(
+					(int) (startOfRequest - endOfLastTransaction),
+					startOfRequest,
+					endOfRequest,
+					transactionRequestSize,
+					Util.toLongArray(startReplyOffsets),
+					Util.toLongArray(endReplyOffsets),
+					Util.toIntArray(replySizes)
+				));
+			endOfLastTransaction = endOfReply;
+			startOfReply = UNKNOWN; // reset
+			endOfReply = UNKNOWN; // reset
+			transactionRequestSize = 0; // reset
+			transactionReplySize = 0; // reset
+			startReplyOffsets.clear(); // reset
+			endReplyOffsets.clear(); // reset
+			replySizes.clear(); // reset
+		}
+		
+		
+		// handles open transactions (see TCPFlowExtractor.serializeFlow())
+		private CompletedFlow finish(long sequenceNumber) {
+			if (transactionStatus == TransactionStatus.REQUEST_PHASE && transactionRequestSize != 0) {
+				transactions.add(new TransactionRecord((int) (startOfRequest - endOfLastTransaction), startOfRequest, endOfRequest, transactionRequestSize, null, null, null));
+				endOfLastTransaction = endOfRequest;
+			} else if (transactionStatus == TransactionStatus.REPLY_PHASE) {
+				finishReplyPhase();
+			}
+			return new CompletedFlow(sequenceNumber, info, startOfFlow, lastActivity, requestSize, replySize, transactions);
+		}
+		
+	}
+	
+	
+	/**
+	 * (direction independent) identifier of a flow: host and port of both 
+	 * endpoints (same equivalence as TCPflowFinder.getFlowIdentifier(), 
+	 * including the case of identical host addresses).
+	 */
+	private static class FlowKey {
+		
+		private long a;
+		private long b;
+		
+		
+		private void set(int srcHost, int srcPort, int dstHost, int dstPort) {
+			long src = ((long)srcHost << 32) | (srcPort & 0xffffffffL);
+			long dst = ((long)dstHost << 32) | (dstPort & 0xffffffffL);
+			if (srcHost < dstHost) {
+				this.a = src;
+				this.b = dst;
+			} else { // same order as TCPflowFinder.getFlowIdentifier() for identical hosts
+				this.a = dst;
+				this.b = src;
+			}
+		}
+		
+		
+		private FlowKey copy() {
+			FlowKey copy = new FlowKey();
+			copy.a = a;
+			copy.b = b;
+			return copy;
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			long h = a * 0x9E3779B97F4A7C15L + b;
+			h ^= (h >>> 29);
+			return (int)(h ^ (h >>> 32));
+		}
+		
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof FlowKey))
+				return false;
+			FlowKey other = (FlowKey)o;
+			return other.a == a && other.b == b;
+		}
+		
+	}
+	
+	
+	/**
+	 * Packets read by the reader for one worker (one array per field).
+	 */
+	private static class Batch {
+		
+		private int size = 0;
+		private long lastSequenceNumber; // all packets up to this sequence number were read
+		private long startOfTrace;
+		private long[] sequenceNumbers = new long[64];
+		private long[] timestamps = new long[64];
+		private int[] layer4lengths = new int[64];
+		private TCPflags[] flags = new TCPflags[64];
+		private int[] srcHosts = new int[64];
+		private int[] srcPorts = new int[64];
+		private int[] dstHosts = new int[64];
+		private int[] dstPorts = new int[64];
+		private FlowInfo[] flowInfos = new FlowInfo[64]; // SYN packets only
+		
+		
+		private void add(long sequenceNumber, Packet packet, int srcHost, int srcPort, int dstHost, int dstPort) {
+			if (size == sequenceNumbers.length)
+				grow();
+			sequenceNumbers[size] = sequenceNumber;
+			timestamps[size] = packet.getTimestamp().getTimeInMillis();
+			layer4lengths[size] = packet.getLayer4length();
+			flags[size] = packet.getTCPflags();
+			srcHosts[size] = srcHost;
+			srcPorts[size] = srcPort;
+			dstHosts[size] = dstHost;
+			dstPorts[size] = dstPort;
+			if (packet.getTCPflags() == TCPflags.SYN) // may be the first packet of a flow
+				flowInfos[size] = new FlowInfo(packet, dstHost, srcPort, dstPort);
+			size++;
+		}
+		
+		
+		private void grow() {
+			int length = sequenceNumbers.length * 2;
+			sequenceNumbers = Arrays.copyOf(sequenceNumbers, length);
+			timestamps = Arrays.copyOf(timestamps, length);
+			layer4lengths = Arrays.copyOf(layer4lengths, length);
+			flags = Arrays.copyOf(flags, length);
+			srcHosts = Arrays.copyOf(srcHosts, length);
+			srcPorts = Arrays.copyOf(srcPorts, length);
+			dstHosts = Arrays.copyOf(dstHosts, length);
+			dstPorts = Arrays.copyOf(dstPorts, length);
+			flowInfos = Arrays.copyOf(flowInfos, length);
+		}
+		
+	}
+	
+	
+	/**
+	 * Information about a flow taken from its first (SYN) packet.
+	 */
+	private static class FlowInfo {
+		
+		private final FlowDirection flowDirection; // who inited this flow?
+		private final Protocol layer4protocol;
+		private final String clientAddress;
+		private final int clientPort;
+		private final String serverAddress;
+		private final int serverHost; // see getHostId()
+		private final int serverPort;
+		
+		
+		private FlowInfo(Packet synPacket, int serverHost, int clientPort, int serverPort) {
+			this.flowDirection = synPacket.getFlowDirection();
+			this.layer4protocol = synPacket.getLayer4protocol();
+			this.clientAddress = synPacket.getLayer2srcAddress();
+			this.clientPort = clientPort;
+			this.serverAddress = synPacket.getLayer2dstAddress();
+			this.serverHost = serverHost;
+			this.serverPort = serverPort;
+		}
+		
+	}
+	
+	
+	/**
+	 * Transaction of a completed flow (an ExtendedTransaction without server 
+	 * id; the ids are assigned by the writer).
+	 */
+	private static class TransactionRecord {
+		
+		private final int sendDelay;
+		private final long startOfRequest;
+		private final long endOfRequest;
+		private final int requestSize;
+		private final long[] startReplyOffsets;
+		private final long[] endReplyOffsets;
+		private final int[] replySizes;
+		
+		
+		private TransactionRecord(int sendDelay, long startOfRequest, long endOfRequest, int requestSize, long[] startReplyOffsets, long[] endReplyOffsets, int[] replySizes) {
+			this.sendDelay = sendDelay;
+			this.startOfRequest = startOfRequest;
+			this.endOfRequest = endOfRequest;
+			this.requestSize = requestSize;
+			this.startReplyOffsets = startReplyOffsets;
+			this.endReplyOffsets = endReplyOffsets;
+			this.replySizes = replySizes;
+		}
+		
+	}
+	
+	
+	private static class CompletedFlow {
+		
+		private final long sequenceNumber; // of the packet that completed the flow
+		private final FlowInfo info;
+		private final long startOfFlow;
+		private final long endOfFlow;
+		private final int requestSize;
+		private final int replySize;
+		private final ArrayList<TransactionRecord> transactions;
+		
+		
+		private CompletedFlow(long sequenceNumber, FlowInfo info, long startOfFlow, long endOfFlow, int requestSize, int replySize, ArrayList<TransactionRecord> transactions) {
+			this.sequenceNumber = sequenceNumber;
+			this.info = info;
+			this.startOfFlow = startOfFlow;
+			this.endOfFlow = endOfFlow;
+			this.requestSize = requestSize;
+			this.replySize = replySize;
+			this.transactions = transactions;
+		}
+		
+	}
+	
+	
+	private static class WorkerOutput {
+		
+		private final int worker;
+		private final long lastSequenceNumber; // all flows completed by packets up to this sequence number are included
+		private final ArrayList<CompletedFlow> completedFlows;
+		
+		
+		private WorkerOutput(int worker, long lastSequenceNumber, ArrayList<CompletedFlow> completedFlows) {
+			this.worker = worker;
+			this.lastSequenceNumber = lastSequenceNumber;
+			this.completedFlows = completedFlows;
+		}
+		
+	}
+	
+}
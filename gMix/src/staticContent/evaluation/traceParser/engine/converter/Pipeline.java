@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.converter;
+
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Threads of a (conversion) pipeline whose stages are connected by bounded 
+ * queues (ArrayBlockingQueues, i.e. ring buffers). If a stage fails, all 
+ * other stages stop at their next put() or take() (instead of blocking 
+ * forever on a queue no one reads from or writes to anymore) and join() 
+ * rethrows the failure on the thread that started the pipeline.
+ */
+class Pipeline {
+
+	private final static long POLL_INTERVAL = 100; // ms
+	
+	private final String name;
+	private final Vector<Thread> threads = new Vector<Thread>();
+	private volatile Throwable failure = null;
+	
+	
+	Pipeline(String name) {
+		this.name = name;
+	}
+	
+	
+	void start(String stageName, final Stage stage) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					stage.run();
+				} catch (Throwable t) {
+					fail(t);
+				}
+			}
+		}, name +"-" +stageName);
+		thread.setDaemon(true);
+		threads.add(thread);
+		thread.start();
+	}
+	
+	
+	/**
+	 * Runs the given stage on the calling thread (e.g. the reader stage).
+	 */
+	void run(Stage stage) {
+		try {
+			stage.run();
+		} catch (Throwable t) {
+			fail(t);
+		}
+	}
+	
+	
+	<T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+		while (!queue.offer(item, POLL_INTERVAL, TimeUnit.MILLISECONDS))
+			checkFailure();
+	}
+	
+	
+	<T> T take(BlockingQueue<T> queue) throws InterruptedException {
+		while (true) {
+			T item = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			if (item != null)
+				return item;
+			checkFailure();
+		}
+	}
+	
+	
+	void await(CountDownLatch latch) throws InterruptedException {
+		while (!latch.await(POLL_INTERVAL, TimeUnit.MILLISECONDS))
+			checkFailure();
+	}
+	
+	
+	/**
+	 * Waits for all stages to finish. Rethrows the first failure of any stage.
+	 */
+	void join() {
+		for (Thread thread: threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				fail(e);
+			}
+		}
+		if (failure != null) {
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException)failure;
+			throw new RuntimeException("ERROR: " +name +" failed", failure);
+		}
+	}
+	
+	
+	private void fail(Throwable t) {
+		synchronized (this) {
+			if (failure == null)
+				failure = t;
+		}
+	}
+	
+	
+	private void checkFailure() {
+		if (failure != null)
+			throw new PipelineAbortedException();
+	}
+	
+	
+	interface Stage {
+		void run() throws Exception;
+	}
+	
+	
+	// thrown in all other stages after one stage failed (only the original failure is reported)
+	private static class PipelineAbortedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+	
+}
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.converter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+import staticContent.evaluation.traceParser.engine.TraceInfo;
+import staticContent.evaluation.traceParser.engine.dataStructure.ExtendedTransaction;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
+import staticContent.evaluation.traceParser.engine.fileReader.BinaryFlowTrace;
+import staticContent.evaluation.traceParser.engine.fileReader.FlowReader;
+import staticContent.framework.util.Util;
+
+
+/**
+ * Converts a .gmf file (flows as text) to a .gbf file (flows in binary, 
+ * columnar form; see fileReader.BinaryFlowTrace for the file format).
+ * The result contains the same flows in the same order.
+ */
+public class ToGBF {
+
+	private String pathToResultTrace;
+	private FlowReader source;
+	private DataOutputStream resultTrace;
+	private long position = 0;
+	private int flowsPerBlock;
+	
+	// dictionary (strings -> index):
+	private HashMap<String, Integer> dictionary = new HashMap<String, Integer>(1024);
+	private String[] strings = new String[1024];
+	private int numberOfStrings = 1; // index 0 = null
+	
+	// block index:
+	private long[] offsetOfBlock = new long[1024];
+	private int[] senderIdOfBlock = new int[1024];
+	private int[] flowsInBlock = new int[1024];
+	private int numberOfBlocks = 0;
+	
+	// host index:
+	private boolean isOrderedByHost = true;
+	private int[] firstBlockOfHost = new int[1024];
+	private int numberOfHosts = 0;
+	
+	// current block:
+	private Column[] columns = new Column[BinaryFlowTrace.NUMBER_OF_COLUMNS];
+	private int flowsInCurrentBlock = 0;
+	private int senderIdOfCurrentBlock;
+	private int previousSenderId;
+	private int previousFlowId;
+	private long previousStartOfFlow;
+	private long numberOfFlows = 0;
+	
+	
+	public ToGBF(TraceInfo traceInfo) {
+		this(traceInfo, BinaryFlowTrace.DEFAULT_FLOWS_PER_BLOCK);
+	}
+	
+	
+	public ToGBF(TraceInfo traceInfo, int flowsPerBlock) {
+		this.pathToResultTrace = Util.removeFileExtension(traceInfo.getPathToTraceFile()) +".gbf";
+		this.flowsPerBlock = flowsPerBlock;
+		try {
+			this.source = new FlowReader(traceInfo, null, false);
+			this.resultTrace = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathToResultTrace), 65536));
+		} catch (IOException e) {
+			throw new RuntimeException("ERROR: could not open/create file "  +pathToResultTrace);
+		}
+		for (int i=0; i<columns.length; i++)
+			columns[i] = new Column();
+	}
+	
+	
+	public String convert() {
+		System.out.println("converting to .gbf"); 
+		long start = System.currentTimeMillis();
+		try {
+			resultTrace.writeInt(BinaryFlowTrace.MAGIC);
+			resultTrace.writeInt(BinaryFlowTrace.VERSION);
+			position += BinaryFlowTrace.HEADER_LENGTH;
+			while (source.hasNextFlow())
+				writeFlow(source.readFlow());
+			if (flowsInCurrentBlock > 0)
+				writeBlock();
+			writeFooter();
+			resultTrace.close();
+			source.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+			try {
+				resultTrace.close();
+				source.close();
+			} catch (IOException e1) {}
+			throw new RuntimeException("ERROR: could not write flow to trace file "  +pathToResultTrace);
+		}
+		System.out.println("finished converting to .gbf (" +numberOfFlows +" flows, duration: " +((float)(System.currentTimeMillis()-start)/1000f)+" seconds)"); 
+		return pathToResultTrace;
+	}
+	
+	
+	private void writeFlow(Flow flow) throws IOException {
+		if (flowsInCurrentBlock > 0 && (flowsInCurrentBlock == flowsPerBlock || (isOrderedByHost && flow.senderId != senderIdOfCurrentBlock)))
+			writeBlock(); // blocks of a trace that is ordered by host contain the flows of a single host only
+		if (flowsInCurrentBlock == 0) { // new block
+			senderIdOfCurrentBlock = flow.senderId;
+			previousSenderId = flow.senderId;
+			previousFlowId = 0;
+			previousStartOfFlow = 0;
+			updateHostIndex(flow.senderId);
+		}
+		columns[BinaryFlowTrace.COLUMN_SENDER_ID].writeSigned(flow.senderId - previousSenderId);
+		columns[BinaryFlowTrace.COLUMN_FLOW_ID].writeSigned(flow.flowId - previousFlowId);
+		columns[BinaryFlowTrace.COLUMN_START_OF_FLOW].writeSigned(flow.startOfFlow - previousStartOfFlow);
+		columns[BinaryFlowTrace.COLUMN_DURATION].writeSigned(flow.endOfFlow - flow.startOfFlow);
+		columns[BinaryFlowTrace.COLUMN_REQUEST_SIZE].writeSigned(flow.requestSize);
+		columns[BinaryFlowTrace.COLUMN_REPLY_SIZE].writeSigned(flow.replySize);
+		columns[BinaryFlowTrace.COLUMN_SENDER_ADDRESS].writeUnsigned(getIndex(flow.senderAddress));
+		columns[BinaryFlowTrace.COLUMN_RECEIVER_ADDRESS].writeUnsigned(getIndex(flow.receiverAddress));
+		columns[BinaryFlowTrace.COLUMN_RECEIVER_ID].writeSigned(flow.receiverID);
+		columns[BinaryFlowTrace.COLUMN_SENDER_PORT].writeSigned(flow.senderPort);
+		columns[BinaryFlowTrace.COLUMN_RECEIVER_PORT].writeSigned(flow.receiverPort);
+		columns[BinaryFlowTrace.COLUMN_LAYER4_PROTOCOL].writeUnsigned(flow.layer4protocol.ordinal());
+		columns[BinaryFlowTrace.COLUMN_PROTOCOL_AS_STRING].writeUnsigned(getIndex(flow.protocolAsString));
+		columns[BinaryFlowTrace.COLUMN_FLOW_DIRECTION].writeUnsigned(flow.flowDirection.ordinal());
+		columns[BinaryFlowTrace.COLUMN_NUMBER_OF_TRANSACTIONS].writeUnsigned(flow.transactions.size());
+		for (ExtendedTransaction transaction: flow.transactions)
+			writeTransaction(transaction, flow.startOfFlow);
+		previousSenderId = flow.senderId;
+		previousFlowId = flow.flowId;
+		previousStartOfFlow = flow.startOfFlow;
+		flowsInCurrentBlock++;
+		numberOfFlows++;
+	}
+	
+	
+	/**
+	 * timestamps are stored as delta to the previous timestamp of the flow 
+	 * (start of flow -> start of request -> end of request -> start of first 
+	 * reply -> end of first reply -> start of second reply...)
+	 */
+	private void writeTransaction(ExtendedTransaction transaction, long startOfFlow) {
+		Column c = columns[BinaryFlowTrace.COLUMN_TRANSACTIONS];
+		c.writeSigned(transaction.getSendDelay());
+		c.writeSigned(transaction.startOfRequest - startOfFlow);
+		c.writeSigned(transaction.endOfRequest - transaction.startOfRequest);
+		c.writeSigned(transaction.getRequestSize());
+		c.writeSigned(transaction.getServerId());
+		if (!transaction.containsReplies()) {
+			c.writeUnsigned(0);
+		} else {
+			int[] replySizes = transaction.getDistinctReplySizes();
+			c.writeUnsigned(replySizes.length);
+			long previous = transaction.endOfRequest;
+			for (int i=0; i<replySizes.length; i++) {
+				c.writeSigned(transaction.startsOfReplies[i] - previous);
+				c.writeSigned(transaction.endsOfReplies[i] - transaction.startsOfReplies[i]);
+				c.writeSigned(replySizes[i]);
+				previous = transaction.endsOfReplies[i];
+			}
+		}
+	}
+	
+	
+	private void updateHostIndex(int senderId) {
+		if (!isOrderedByHost)
+			return;
+		if (senderId == numberOfHosts) { // first block of next host
+			if (numberOfHosts == firstBlockOfHost.length)
+				firstBlockOfHost = Arrays.copyOf(firstBlockOfHost, numberOfHosts * 2);
+			firstBlockOfHost[numberOfHosts++] = numberOfBlocks;
+		} else if (senderId != numberOfHosts - 1) { // not ordered by host (any more)
+			isOrderedByHost = false;
+		}
+	}
+	
+	
+	private int getIndex(String string) {
+		if (string == null)
+			return 0;
+		Integer index = dictionary.get(string);
+		if (index == null) {
+			index = numberOfStrings;
+			if (numberOfStrings == strings.length)
+				strings = Arrays.copyOf(strings, numberOfStrings * 2);
+			strings[numberOfStrings++] = string;
+			dictionary.put(string, index);
+		}
+		return index;
+	}
+	
+	
+	private void writeBlock() throws IOException {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream(4096);
+		Column lengths = new Column();
+		for (Column column: columns) {
+			lengths.reset();
+			lengths.writeUnsigned(column.size());
+			lengths.writeTo(payload);
+			column.writeTo(payload);
+			column.reset();
+		}
+		byte[] data = payload.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		if (numberOfBlocks == offsetOfBlock.length) {
+			offsetOfBlock = Arrays.copyOf(offsetOfBlock, numberOfBlocks * 2);
+			senderIdOfBlock = Arrays.copyOf(senderIdOfBlock, numberOfBlocks * 2);
+			flowsInBlock = Arrays.copyOf(flowsInBlock, numberOfBlocks * 2);
+		}
+		offsetOfBlock[numberOfBlocks] = position;
+		senderIdOfBlock[numberOfBlocks] = senderIdOfCurrentBlock;
+		flowsInBlock[numberOfBlocks] = flowsInCurrentBlock;
+		numberOfBlocks++;
+		resultTrace.writeInt(senderIdOfCurrentBlock);
+		resultTrace.writeInt(flowsInCurrentBlock);
+		resultTrace.writeInt(data.length);
+		resultTrace.writeInt((int)crc.getValue());
+		resultTrace.write(data);
+		position += BinaryFlowTrace.BLOCK_HEADER_LENGTH + data.length;
+		flowsInCurrentBlock = 0;
+	}
+	
+	
+	private void writeFooter() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(65536);
+		DataOutputStream footer = new DataOutputStream(buffer);
+		footer.writeInt(numberOfStrings);
+		for (int i=1; i<numberOfStrings; i++)
+			footer.writeUTF(strings[i]);
+		footer.writeInt(numberOfBlocks);
+		for (int i=0; i<numberOfBlocks; i++) {
+			footer.writeLong(offsetOfBlock[i]);
+			footer.writeInt(senderIdOfBlock[i]);
+			footer.writeInt(flowsInBlock[i]);
+		}
+		if (isOrderedByHost) {
+			footer.writeInt(numberOfHosts);
+			for (int i=0; i<numberOfHosts; i++)
+				footer.writeInt(firstBlockOfHost[i]);
+		} else {
+			footer.writeInt(-1);
+		}
+		footer.close();
+		byte[] data = buffer.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		resultTrace.write(data);
+		// trailer:
+		resultTrace.writeLong(position);
+		resultTrace.writeLong(numberOfFlows);
+		resultTrace.writeInt((int)crc.getValue());
+		resultTrace.writeInt(BinaryFlowTrace.VERSION);
+		resultTrace.writeInt(BinaryFlowTrace.MAGIC);
+	}
+	
+	
+	private static class Column extends ByteArrayOutputStream {
+		
+		private Column() {
+			super(1024);
+		}
+		
+		
+		private void writeUnsigned(long value) {
+			while ((value & ~0x7FL) != 0) {
+				write((int)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			write((int)value);
+		}
+		
+		
+		/**
+		 * zigzag encoding (small negative numbers result in few bytes, too)
+		 */
+		private void writeSigned(long value) {
+			writeUnsigned((value << 1) ^ (value >> 63));
+		}
+		
+	}
+	
+	
+	/**
+	 * usage: ToGBF pathToTraceFolderOrGmfFile
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1)
+			throw new RuntimeException("usage: ToGBF pathToTraceFolderOrGmfFile"); 
+		new ToGBF(new TraceInfo(args[0])).convert();
+	}
+	
+}
@@ -24,7 +24,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.util.Arrays;
 import java.util.HashSet;
 
 import staticContent.evaluation.traceParser.engine.TraceInfo;
@@ -42,7 +41,6 @@ public class ToGMF {
 	private String pathToResultTrace;
 	private String pathToTempTrace;
 	private Writer resultTrace;
-	private final static int MAX_FLOWS_PER_RUN = 1000000;
 	
 	
 	public ToGMF(PacketSource packetSource, TraceInfo traceInfo) {
@@ -65,36 +63,26 @@ public class ToGMF {
 	
 
 	public void convert() {
-		System.out.println("searching for TCP flows in " +traceInfo.getNameOfTraceFile() +" (weak check)");
+		HashSet<String> flowIdentifiers = null; // null: extract all flows
+		if (filter != null) { // the filter decides which flows to extract
+			System.out.println("searching for TCP flows in " +traceInfo.getNameOfTraceFile() +" (weak check)");
+			long start = System.currentTimeMillis();
+			flowIdentifiers = TCPflowFinder.findFlows(packetSource, filter);
+			long dur = System.currentTimeMillis() - start;
+			System.out.println("found " +flowIdentifiers.size() +" potential flows");
+			System.out.println("scanning took " +((float)dur/1000f) +" seconds");
+		}
+		int threads = traceInfo.getConversionThreads();
+		System.out.println("extracting TCP flows from " +traceInfo.getNameOfTraceFile() +" (" +threads +" worker thread(s))");
 		long start = System.currentTimeMillis();
-		HashSet<String> flowIdentifiers = TCPflowFinder.findFlows(packetSource, filter);
-		long dur = System.currentTimeMillis() - start;
-		int flows = flowIdentifiers.size();
-		int runs = (flows / MAX_FLOWS_PER_RUN) + ((flows % MAX_FLOWS_PER_RUN) > 0 ? 1: 0);
-		System.out.println("found " +flows +" potential flows");
-		//System.out.println("length of trace file (unpacked): " +Util.humanReadableByteCount(packetSource.getTotalBytesRead(), false));
-		System.out.println("scanning took " +((float)dur/1000f) +" seconds");
-		System.out.println("will iterate over the trace " +runs +" time(s) to extract TCP flows");
-		
-		// split HashMap: // TODO: serialize not needed parts for better performance?
-		String[] flowIdentifiersArray = flowIdentifiers.toArray(new String[0]);
-		flowIdentifiers.clear();
-		flowIdentifiers = null;
-		String[][] chunks = Util.splitInChunks(MAX_FLOWS_PER_RUN, flowIdentifiersArray);
-		// extract flows:
-		TCPFlowExtractor extractor = new TCPFlowExtractor();
-		for (int i=0; i<chunks.length; i++) {
-			System.out.println("starting run " +(i+1));
-			HashSet<String> currentFlowIds = new HashSet<String>(Arrays.asList(chunks[i]));
-			chunks[i] = null;
-			try {
-				packetSource.reset();
-				extractor.extractFlows(currentFlowIds, resultTrace, packetSource);
-			} catch (IOException e) {
-				closeTrace();
-				throw new RuntimeException("could not write to file " +pathToTempTrace); 
-			}
+		try {
+			packetSource.reset();
+			new ParallelTCPFlowExtractor(threads).extractFlows(flowIdentifiers, resultTrace, packetSource);
+		} catch (RuntimeException e) {
+			closeTrace();
+			throw e;
 		}
+		System.out.println("extraction took " +((float)(System.currentTimeMillis() - start)/1000f) +" seconds");
 		sortTrace();
 		closeTrace();
 	}
@@ -104,7 +92,7 @@ public class ToGMF {
 		closeTrace();
 		System.out.println("sorting result trace"); 
 		try {
-			Flow.sort(pathToTempTrace, pathToResultTrace);
+			Flow.sort(pathToTempTrace, pathToResultTrace, traceInfo.getSortMemoryBudget(), traceInfo.getSortThreads());
 		} catch (IOException e) {
 			e.printStackTrace();
 			throw new RuntimeException("ERROR: could not write flow to trace file "  +pathToResultTrace);
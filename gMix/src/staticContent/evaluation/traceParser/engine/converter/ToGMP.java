@@ -17,21 +17,29 @@
  *******************************************************************************/
 package staticContent.evaluation.traceParser.engine.converter;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
-import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.zip.GZIPOutputStream;
 
 import staticContent.evaluation.traceParser.engine.Protocol;
 import staticContent.evaluation.traceParser.engine.TraceInfo;
 import staticContent.evaluation.traceParser.engine.dataStructure.Packet;
 import staticContent.evaluation.traceParser.engine.fileReader.DynamicPacketReader;
+import staticContent.evaluation.traceParser.engine.fileReader.MappedCaptureFile;
+import staticContent.evaluation.traceParser.engine.fileReader.MappedPacketReader;
+import staticContent.evaluation.traceParser.engine.fileReader.PacketReader;
+import staticContent.evaluation.traceParser.engine.fileReader.PacketView;
 import staticContent.evaluation.traceParser.engine.filter.PacketFilter;
 import staticContent.evaluation.traceParser.engine.protocolHeaderParser.PCAPpacket;
 import staticContent.framework.util.Util;
@@ -42,15 +50,34 @@ import staticContent.framework.util.Util;
  * evaluation.traceParser.Porotocol.java and package 
  * evaluation.traceParser.protocolHandler) to the gMix abstact packet format
  * (.gmp).
+ * 
+ * ERF traces and uncompressed PCAP traces are converted by a pipeline: the 
+ * calling thread reads chunks of (unparsed) records, 
+ * TraceInfo.getConversionThreads() workers parse them (and, if no filter is 
+ * set, serialize and compress each chunk to a gzip member of its own) and a 
+ * writer thread writes the chunks in their original order. The result is 
+ * the same as for the sequential conversion (concatenated gzip members are a 
+ * valid gzip file). Compressed PCAP traces are converted sequentially, as 
+ * PCAPpacket.readPCAPpacket() relies on static state.
  */
 public class ToGMP {
 
+	private final static int CHUNK_SIZE = 4096; // records
+	private final static Chunk END_OF_TRACE = new Chunk(0, 0);
+	
 	private String pathToInFile;
 	private String pathToOutFile;
 	private PacketFilter filter;
+	private Protocol traceFormat;
+	private int conversionThreads;
 	private InputStream sourceTrace;
-	private DynamicPacketReader source;
-	private Writer resultTrace;
+	private PacketReader source;
+	private DynamicPacketReader dynamicReader; // null for mapped pcap files
+	private MappedCaptureFile captureFile; // null if not a mapped pcap file
+	private MappedPacketReader mappedReader;
+	private OutputStream outputStream;
+	private Writer resultTrace; // gzip compressed; created on demand (see getResultTrace())
+	private boolean gzipMembersWritten = false; // by convertParallel() without filter
 	
 	
 	public ToGMP(String pathToInFile, String pathToOutFile, TraceInfo traceInfo) {
@@ -62,16 +89,25 @@ public class ToGMP {
 		this.pathToInFile = pathToInFile;
 		this.pathToOutFile = pathToOutFile;
 		this.filter = filter;
+		this.traceFormat = traceInfo.getTraceFormat();
+		this.conversionThreads = traceInfo.getConversionThreads();
 		try {
-			this.sourceTrace = Util.tryDetectCompressionMethod(pathToInFile);
-			if (traceInfo.getTraceFormat() == Protocol.PCAP) {
-				try { // read pcap header
-					PCAPpacket.readFileHeader(sourceTrace);
-				} catch (IOException e) {
-					throw new RuntimeException("ERROR: could not read PCAP file header from " +traceInfo.getPathToTraceFile()); 
+			if (traceInfo.getTraceFormat() == Protocol.PCAP && MappedCaptureFile.isMappable(pathToInFile)) { // uncompressed pcap file: read the packets straight from the mapped file (no copies, no static state)
+				this.captureFile = new MappedCaptureFile(pathToInFile);
+				this.mappedReader = new MappedPacketReader(captureFile, traceInfo);
+				this.source = mappedReader;
+			} else {
+				this.sourceTrace = Util.tryDetectCompressionMethod(pathToInFile);
+				if (traceInfo.getTraceFormat() == Protocol.PCAP) {
+					try { // read pcap header
+						PCAPpacket.readFileHeader(sourceTrace);
+					} catch (IOException e) {
+						throw new RuntimeException("ERROR: could not read PCAP file header from " +traceInfo.getPathToTraceFile()); 
+					}
 				}
+				this.dynamicReader = new DynamicPacketReader(sourceTrace, traceInfo);
+				this.source = dynamicReader;
 			}
-			this.source = new DynamicPacketReader(sourceTrace, traceInfo);
 		} catch (FileNotFoundException e) {
 			System.err.println("ERROR: trace file " +pathToInFile +" not found.");
 			System.err.println("possible reasons: ");
@@ -86,7 +122,7 @@ public class ToGMP {
 			throw new RuntimeException("ERROR: could not read trace file from " +pathToInFile);
 		}
 		try {
-			this.resultTrace = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new DataOutputStream(new FileOutputStream(pathToOutFile)), 8192)));
+			this.outputStream = new BufferedOutputStream(new FileOutputStream(pathToOutFile), 65536);
 		} catch (IOException e) {
 			throw new RuntimeException("ERROR: could not open/create file "  +pathToOutFile);
 		}
@@ -94,15 +130,21 @@ public class ToGMP {
 	
 	
 	public void convert() {
+		boolean statelessRecords = captureFile != null || traceFormat == Protocol.ERF; // see DynamicPacketReader.parsePacket()
+		if (conversionThreads > 1 && statelessRecords)
+			convertParallel();
+		else
+			convertSequential();
+	}
+	
+	
+	private void convertSequential() {
 		Packet packet = new Packet();
 		while (true) {
 			try {
 				packet = source.readPacket(packet);
 				if (packet == null) {
-					try {
-						resultTrace.close();
-						sourceTrace.close();
-					} catch (IOException e1) {}
+					close();
 					if (filter != null)
 						filter.finished();
 					break;
@@ -110,16 +152,206 @@ public class ToGMP {
 				if (filter != null) {
 					packet = filter.newRecord(packet);
 					if (packet != null)
-						packet.serialize(resultTrace);
+						packet.serialize(getResultTrace());
 				} else {
-					packet.serialize(resultTrace);
+					packet.serialize(getResultTrace());
 				}
 			} catch (IOException e) {
 				e.printStackTrace();
+				close();
 				new File(pathToOutFile).delete();
 				throw new RuntimeException("ERROR: could not read from file " +pathToInFile);
 			} 
 		}
 	}
 	
+	
+	private void convertParallel() {
+		final Pipeline pipeline = new Pipeline("ToGMP");
+		final ArrayBlockingQueue<Chunk> workQueue = new ArrayBlockingQueue<Chunk>(conversionThreads * 2);
+		final ArrayBlockingQueue<Chunk> orderQueue = new ArrayBlockingQueue<Chunk>(conversionThreads * 4); // chunks in the order they were read
+		for (int i=0; i<conversionThreads; i++) {
+			pipeline.start("worker" +i, new Pipeline.Stage() {
+				@Override
+				public void run() throws Exception {
+					Packet packet = new Packet();
+					while (true) {
+						Chunk chunk = pipeline.take(workQueue);
+						if (chunk == END_OF_TRACE)
+							return;
+						parseChunk(chunk, packet);
+						chunk.done.countDown();
+					}
+				}
+			});
+		}
+		pipeline.start("writer", new Pipeline.Stage() {
+			@Override
+			public void run() throws Exception {
+				while (true) {
+					Chunk chunk = pipeline.take(orderQueue);
+					if (chunk == END_OF_TRACE)
+						return;
+					pipeline.await(chunk.done);
+					writeChunk(chunk);
+				}
+			}
+		});
+		pipeline.run(new Pipeline.Stage() { // reader
+			@Override
+			public void run() throws Exception {
+				PacketView view = (captureFile == null) ? null : captureFile.createView();
+				long recordsRead = 0;
+				while (true) {
+					Chunk chunk = (captureFile == null) ? readChunk(recordsRead + 1) : readChunk(view, recordsRead + 1);
+					if (chunk == null)
+						break;
+					recordsRead += chunk.size;
+					pipeline.put(orderQueue, chunk); // before the work queue: the writer may wait for every chunk in the order queue
+					pipeline.put(workQueue, chunk);
+				}
+				for (int i=0; i<conversionThreads; i++)
+					pipeline.put(workQueue, END_OF_TRACE);
+				pipeline.put(orderQueue, END_OF_TRACE);
+			}
+		});
+		try {
+			pipeline.join();
+		} catch (RuntimeException e) {
+			close();
+			new File(pathToOutFile).delete();
+			throw e;
+		}
+		close();
+		if (filter != null)
+			filter.finished();
+	}
+	
+	
+	// reads the next CHUNK_SIZE erf records (see DynamicPacketReader.readRecord())
+	private Chunk readChunk(long firstSequenceNumber) throws IOException {
+		byte[][] records = new byte[CHUNK_SIZE][];
+		int size = 0;
+		while (size < CHUNK_SIZE && (records[size] = dynamicReader.readRecord()) != null)
+			size++;
+		if (size == 0)
+			return null;
+		Chunk chunk = new Chunk(firstSequenceNumber, size);
+		chunk.records = records;
+		return chunk;
+	}
+	
+	
+	// skips the next CHUNK_SIZE records of the mapped pcap file (only their record headers are read)
+	private Chunk readChunk(PacketView view, long firstSequenceNumber) {
+		long firstRecordPosition = -1;
+		int size = 0;
+		while (size < CHUNK_SIZE && captureFile.readNext(view)) {
+			if (size == 0)
+				firstRecordPosition = view.getPositionInFile();
+			size++;
+		}
+		if (size == 0)
+			return null;
+		Chunk chunk = new Chunk(firstSequenceNumber, size);
+		chunk.firstRecordPosition = firstRecordPosition;
+		return chunk;
+	}
+	
+	
+	// parses the records of the given chunk. without a filter, the packets are serialized to a gzip member right away (compression is the most expensive step)
+	private void parseChunk(Chunk chunk, Packet reusablePacket) throws IOException {
+		PacketView view = (captureFile == null) ? null : captureFile.createView(chunk.firstRecordPosition);
+		ByteArrayOutputStream gzipMember = null;
+		Writer writer = null;
+		if (filter == null) {
+			gzipMember = new ByteArrayOutputStream(chunk.size * 64);
+			writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(gzipMember, 8192)));
+		} else {
+			chunk.packets = new Packet[chunk.size];
+		}
+		for (int i=0; i<chunk.size; i++) {
+			Packet packet;
+			if (filter == null) {
+				packet = reusablePacket;
+				packet.reuse();
+			} else {
+				packet = new Packet();
+			}
+			if (captureFile != null) {
+				captureFile.readNext(view);
+				packet = mappedReader.parsePacket(view, chunk.firstSequenceNumber + i, packet);
+			} else {
+				packet = dynamicReader.parsePacket(chunk.records[i], chunk.firstSequenceNumber + i, packet);
+			}
+			if (packet == null) // malformed packet
+				continue;
+			if (filter == null)
+				packet.serialize(writer);
+			else
+				chunk.packets[i] = packet;
+		}
+		chunk.records = null;
+		if (writer != null) {
+			writer.close();
+			chunk.gzipMember = gzipMember.toByteArray();
+		}
+	}
+	
+	
+	private void writeChunk(Chunk chunk) throws IOException {
+		if (filter == null) {
+			outputStream.write(chunk.gzipMember);
+			gzipMembersWritten = true;
+		} else { // the filter is applied in the original order of the packets
+			for (Packet packet: chunk.packets) {
+				if (packet == null)
+					continue;
+				packet = filter.newRecord(packet);
+				if (packet != null)
+					packet.serialize(getResultTrace());
+			}
+		}
+	}
+	
+	
+	private Writer getResultTrace() throws IOException {
+		if (resultTrace == null)
+			resultTrace = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(outputStream, 8192)));
+		return resultTrace;
+	}
+	
+	
+	private void close() {
+		try {
+			if (resultTrace == null && !gzipMembersWritten)
+				getResultTrace(); // empty (or completely filtered) trace -> write an empty gzip member, so the result is still a valid gzip file
+			if (resultTrace != null)
+				resultTrace.close(); // closes the whole chain (including outputStream)
+			else
+				outputStream.close(); // all data written as gzip members
+			if (sourceTrace != null)
+				sourceTrace.close();
+		} catch (IOException e1) {}
+	}
+	
+	
+	private static class Chunk {
+		
+		final long firstSequenceNumber;
+		final int size;
+		final CountDownLatch done = new CountDownLatch(1);
+		byte[][] records; // unparsed records (erf)
+		long firstRecordPosition; // position of the first record in the mapped pcap file
+		Packet[] packets; // parsed packets (null for malformed packets); only used if a filter is set
+		byte[] gzipMember; // serialized packets; only used if no filter is set
+		
+		
+		Chunk(long firstSequenceNumber, int size) {
+			this.firstSequenceNumber = firstSequenceNumber;
+			this.size = size;
+		}
+		
+	}
+	
 }
@@ -100,6 +100,26 @@ public class ExtendedTransaction extends Transaction {
 	}
 	
 	
+	/**
+	 * Used by MappedFlowReader to create ExtendedTransactions that are decoded
+	 * directly from a memory mapped .gmf file. Assigns a new transactionId
+	 * (like ExtendedTransaction(String)).
+	 */
+	public static ExtendedTransaction createDecodedTransaction(	int sendDelay,
+																long startOfRequest,
+																long endOfRequest,
+																int requestSize,
+																int serverId,
+																long[] startReplyOffsets,
+																long[] endReplyOffsets,
+																int[] replySizes
+			) {
+		ExtendedTransaction result = new ExtendedTransaction(sendDelay, startOfRequest, endOfRequest, requestSize, serverId, startReplyOffsets, endReplyOffsets, replySizes);
+		result.transactionId = idCounter++;
+		return result;
+	}
+
+
 	/**
 	 * offset from start of trace, NOT start of flow
 	 */
@@ -18,21 +18,15 @@
 package staticContent.evaluation.traceParser.engine.dataStructure;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.DataOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
 import java.io.Writer;
 import java.nio.channels.Channels;
-import java.util.PriorityQueue;
 import java.util.Vector;
 
 import staticContent.evaluation.traceParser.engine.Protocol;
 import staticContent.evaluation.traceParser.engine.TraceInfo;
-import staticContent.evaluation.traceParser.engine.comparator.TraceEntry;
-import staticContent.evaluation.traceParser.engine.fileReader.CountingBufferedReader;
+import staticContent.evaluation.traceParser.engine.comparator.ExternalFlowSorter;
 import staticContent.framework.util.Util;
 
 
@@ -316,48 +310,23 @@ public class Flow {
 	}
 	
 	
+	/**
+	 * sorts the flows of the bypassed trace file by host and start of flow 
+	 * and renumbers their flowIds (see ExternalFlowSorter). uses 1/4 of the 
+	 * max heap size and one thread per core.
+	 */
 	public static void sort(String inputFilePath, String outputFilePath) throws IOException {
-		CountingBufferedReader in = null;
-		Writer resultTrace = null;
-		RandomAccessFile raf = null;
-		try {
-			// read and sort index:
-			in = new CountingBufferedReader(inputFilePath);
-			resultTrace = new BufferedWriter(new OutputStreamWriter(new DataOutputStream(new FileOutputStream(outputFilePath))));
-			PriorityQueue<TraceEntry> entries = new PriorityQueue<TraceEntry>(1000);
-			String currentLine;
-			while (true) {
-				currentLine = in.readLine();
-				if (currentLine == null)
-					break;
-				entries.add(new TraceEntry(currentLine, in.getPositionOfLastLine()));
-			}
-			in.close();
-			// write result trace (restore flows from source trace through index and write to dest. trace):
-			raf = new RandomAccessFile(inputFilePath, "r");
-			int flowCounter = 0;
-			while (true) {
-				TraceEntry currentEntry = entries.poll();
-				if (currentEntry == null)
-					break;
-				Flow af = loadFlow(raf, currentEntry.offset);
-				af.flowId = flowCounter++;
-				af.serialize(resultTrace);
-				resultTrace.write("\n");
-			}
-			raf.close();
-		} catch (IOException e) { // close reader + writer and forward exception
-			try {
-				if (in != null)
-					in.close(); 
-				if (raf != null)
-					raf.close(); 
-				if (resultTrace != null)
-					resultTrace.close();
-			} catch (Exception e1) {}
-			throw e;
-		}
-		resultTrace.close();
+		sort(inputFilePath, outputFilePath, Runtime.getRuntime().maxMemory() / 4L, Runtime.getRuntime().availableProcessors());
+	}
+	
+	
+	/**
+	 * sorts the flows of the bypassed trace file by host and start of flow 
+	 * and renumbers their flowIds (see ExternalFlowSorter). 
+	 * memoryBudget in bytes.
+	 */
+	public static void sort(String inputFilePath, String outputFilePath, long memoryBudget, int threads) throws IOException {
+		new ExternalFlowSorter(memoryBudget, threads).sort(inputFilePath, outputFilePath);
 	}
 
 	
@@ -29,6 +29,7 @@ import staticContent.evaluation.traceParser.engine.TraceInfo;
 import staticContent.evaluation.traceParser.engine.fileReader.FlowGroupReader;
 import staticContent.evaluation.traceParser.engine.fileReader.FlowIterator;
 import staticContent.evaluation.traceParser.engine.fileReader.FlowReader;
+import staticContent.evaluation.traceParser.engine.fileReader.HostIndex;
 import staticContent.evaluation.traceParser.engine.fileReader.HostIndexCreator;
 import staticContent.evaluation.traceParser.engine.fileReader.TransientFlowIterator;
 import staticContent.evaluation.traceParser.interfaces.FlowFilter;
@@ -329,5 +330,19 @@ public class Host implements Serializable {
 	public static Host[] getHostIndex(TraceInfo traceInfo, FlowFilter filter) {
 		return HostIndexCreator.getHostIndex(traceInfo, filter);
 	}
+	
+	
+	public static HostIndex openHostIndex(String pathToTraceFolder, FlowFilter filter) {
+		return openHostIndex(new TraceInfo(pathToTraceFolder), filter);
+	}
+	
+	
+	/**
+	 * Same as getHostIndex(), but the index is memory mapped and the hosts 
+	 * are created on demand (see HostIndex).
+	 */
+	public static HostIndex openHostIndex(TraceInfo traceInfo, FlowFilter filter) {
+		return HostIndexCreator.openHostIndex(traceInfo, filter);
+	}
 
 }
@@ -31,6 +31,7 @@ public class Packet {
 	
 	private long sequenceNumber;
 	private Calendar timestamp;
+	private Calendar reusableTimestamp; // see setTimestamp(long)
 	
 	private String layer3srcAddress; // port
 	private String layer3dstAddress;
@@ -203,6 +204,19 @@ public class Packet {
 	public void setTimestamp(Calendar timestamp) {
 		this.timestamp = timestamp;
 	}
+	
+	
+	/**
+	 * Sets the timestamp (unix time in ms) without creating a new Calendar 
+	 * for each packet: the Calendar returned by getTimestamp() is reused by 
+	 * the next call of this method.
+	 */
+	public void setTimestamp(long timestampInMillis) {
+		if (reusableTimestamp == null)
+			reusableTimestamp = Calendar.getInstance();
+		reusableTimestamp.setTimeInMillis(timestampInMillis);
+		this.timestamp = reusableTimestamp;
+	}
 
 
 	public String getLayer3srcAddress() {
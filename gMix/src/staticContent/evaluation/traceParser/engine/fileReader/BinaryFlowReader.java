@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import staticContent.evaluation.traceParser.engine.Protocol;
+import staticContent.evaluation.traceParser.engine.dataStructure.ExtendedTransaction;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow.FlowDirection;
+import staticContent.evaluation.traceParser.interfaces.FlowFilter;
+
+
+/**
+ * FlowReader for a range of blocks of a BinaryFlowTrace (see 
+ * BinaryFlowTrace.getFlowReader()). Blocks are read (and their checksum 
+ * verified) on demand; the flows of a block are decoded directly from the 
+ * columns of the block into the (primitive) fields of Flow and 
+ * ExtendedTransaction.
+ * 
+ * Note: getOffsetOfLastFlow() and getOffsetOfNextFlow() are not supported 
+ * (there are no text lines in a .gbf file).
+ */
+public class BinaryFlowReader extends FlowReader {
+
+	private final static Protocol[] PROTOCOLS = Protocol.values();
+	private final static FlowDirection[] FLOW_DIRECTIONS = FlowDirection.values();
+	
+	private final BinaryFlowTrace trace;
+	private final String[] dictionary;
+	private final int endBlock;
+	private int nextBlock;
+	
+	// current block:
+	private byte[] block = new byte[8192];
+	private int flowsInBlock = 0;
+	private int decodedFlows = 0;
+	private int[] cursor = new int[BinaryFlowTrace.NUMBER_OF_COLUMNS];
+	private int previousSenderId;
+	private int previousFlowId;
+	private long previousStartOfFlow;
+	private CRC32 crc = new CRC32();
+	
+	
+	protected BinaryFlowReader(BinaryFlowTrace trace, int startBlock, int endBlock, FlowFilter filter, boolean calculateRestrictions) {
+		super(filter, calculateRestrictions);
+		this.trace = trace;
+		this.dictionary = trace.getDictionary();
+		this.nextBlock = startBlock;
+		this.endBlock = endBlock;
+	}
+	
+	
+	@Override
+	protected Flow readNextFlowFromSource() throws IOException {
+		while (decodedFlows == flowsInBlock) { // need next block
+			if (nextBlock == endBlock)
+				return null;
+			readBlock(nextBlock++);
+		}
+		decodedFlows++;
+		Flow flow = new Flow();
+		flow.senderId = previousSenderId = previousSenderId + readInt(BinaryFlowTrace.COLUMN_SENDER_ID);
+		flow.flowId = previousFlowId = previousFlowId + readInt(BinaryFlowTrace.COLUMN_FLOW_ID);
+		flow.startOfFlow = previousStartOfFlow = previousStartOfFlow + readLong(BinaryFlowTrace.COLUMN_START_OF_FLOW);
+		flow.endOfFlow = flow.startOfFlow + readLong(BinaryFlowTrace.COLUMN_DURATION);
+		flow.requestSize = readInt(BinaryFlowTrace.COLUMN_REQUEST_SIZE);
+		flow.replySize = readInt(BinaryFlowTrace.COLUMN_REPLY_SIZE);
+		flow.senderAddress = dictionary[(int)readUnsigned(BinaryFlowTrace.COLUMN_SENDER_ADDRESS)];
+		flow.receiverAddress = dictionary[(int)readUnsigned(BinaryFlowTrace.COLUMN_RECEIVER_ADDRESS)];
+		flow.receiverID = readInt(BinaryFlowTrace.COLUMN_RECEIVER_ID);
+		flow.senderPort = readInt(BinaryFlowTrace.COLUMN_SENDER_PORT);
+		flow.receiverPort = readInt(BinaryFlowTrace.COLUMN_RECEIVER_PORT);
+		flow.layer4protocol = PROTOCOLS[(int)readUnsigned(BinaryFlowTrace.COLUMN_LAYER4_PROTOCOL)];
+		flow.protocolAsString = dictionary[(int)readUnsigned(BinaryFlowTrace.COLUMN_PROTOCOL_AS_STRING)];
+		flow.flowDirection = FLOW_DIRECTIONS[(int)readUnsigned(BinaryFlowTrace.COLUMN_FLOW_DIRECTION)];
+		int numberOfTransactions = (int)readUnsigned(BinaryFlowTrace.COLUMN_NUMBER_OF_TRANSACTIONS);
+		for (int i=0; i<numberOfTransactions; i++)
+			flow.transactions.add(readTransaction(flow.startOfFlow));
+		return flow;
+	}
+	
+	
+	/**
+	 * see converter.ToGBF.writeTransaction()
+	 */
+	private ExtendedTransaction readTransaction(long startOfFlow) {
+		final int c = BinaryFlowTrace.COLUMN_TRANSACTIONS;
+		int sendDelay = readInt(c);
+		long startOfRequest = startOfFlow + readLong(c);
+		long endOfRequest = startOfRequest + readLong(c);
+		int requestSize = readInt(c);
+		int serverId = readInt(c);
+		int replyRecords = (int)readUnsigned(c);
+		if (replyRecords == 0)
+			return ExtendedTransaction.createDecodedTransaction(sendDelay, startOfRequest, endOfRequest, requestSize, serverId, null, null, null);
+		long[] startsOfReplies = new long[replyRecords];
+		long[] endsOfReplies = new long[replyRecords];
+		int[] replySizes = new int[replyRecords];
+		long previous = endOfRequest;
+		for (int i=0; i<replyRecords; i++) {
+			startsOfReplies[i] = previous + readLong(c);
+			endsOfReplies[i] = previous = startsOfReplies[i] + readLong(c);
+			replySizes[i] = readInt(c);
+		}
+		return ExtendedTransaction.createDecodedTransaction(sendDelay, startOfRequest, endOfRequest, requestSize, serverId, startsOfReplies, endsOfReplies, replySizes);
+	}
+	
+	
+	private void readBlock(int blockNumber) throws IOException {
+		int length = trace.getLengthOfBlock(blockNumber);
+		if (block.length < length)
+			block = new byte[Math.max(length, block.length * 2)];
+		ByteBuffer buffer = ByteBuffer.wrap(block, 0, length);
+		trace.read(trace.getOffsetOfBlock(blockNumber), buffer);
+		buffer.flip();
+		int senderId = buffer.getInt();
+		this.flowsInBlock = buffer.getInt();
+		int lengthOfPayload = buffer.getInt();
+		int crcOfPayload = buffer.getInt();
+		if (lengthOfPayload != length - BinaryFlowTrace.BLOCK_HEADER_LENGTH)
+			throw corruptBlock(blockNumber, "length mismatch: " +lengthOfPayload +" bytes of payload in a block of " +length +" bytes");
+		if (senderId != trace.getSenderIdOfBlock(blockNumber))
+			throw corruptBlock(blockNumber, "senderId mismatch: " +senderId +" in block header, " +trace.getSenderIdOfBlock(blockNumber) +" in block index");
+		crc.reset();
+		crc.update(block, BinaryFlowTrace.BLOCK_HEADER_LENGTH, lengthOfPayload);
+		if ((int)crc.getValue() != crcOfPayload)
+			throw corruptBlock(blockNumber, "checksum mismatch");
+		// determine start of columns:
+		cursor[0] = BinaryFlowTrace.BLOCK_HEADER_LENGTH;
+		for (int i=0; i<BinaryFlowTrace.NUMBER_OF_COLUMNS; i++) {
+			int lengthOfColumn = (int)readUnsigned(i);
+			if (i+1 < BinaryFlowTrace.NUMBER_OF_COLUMNS)
+				cursor[i+1] = cursor[i] + lengthOfColumn;
+			else if (cursor[i] + lengthOfColumn != length)
+				throw corruptBlock(blockNumber, "column lengths do not match the length of the block");
+		}
+		this.decodedFlows = 0;
+		this.previousSenderId = senderId;
+		this.previousFlowId = 0;
+		this.previousStartOfFlow = 0;
+	}
+	
+	
+	private long readUnsigned(int column) {
+		int position = cursor[column];
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = block[position++];
+			result |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		cursor[column] = position;
+		return result;
+	}
+	
+	
+	private long readLong(int column) {
+		long zigZag = readUnsigned(column);
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+	
+	
+	private int readInt(int column) {
+		return (int)readLong(column);
+	}
+	
+	
+	private RuntimeException corruptBlock(int blockNumber, String reason) {
+		return new RuntimeException("ERROR: block " +blockNumber +" of " +trace.getPathToTrace() +" is corrupt (" +reason +")"); 
+	}
+	
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import staticContent.evaluation.traceParser.interfaces.FlowFilter;
+
+
+/**
+ * Binary flow trace (.gbf file, created from a .gmf file with 
+ * converter.ToGBF). Stores the same information as a .gmf file, but in 
+ * binary, columnar form:
+ * 
+ * file:    [header][block]*[footer][trailer]
+ * header:  int MAGIC, int VERSION
+ * block:   int senderId (of the first flow), int numberOfFlows, 
+ *          int lengthOfPayload, int crc32 (of the payload), payload
+ * payload: one column per field of a flow (see COLUMN_* constants); each 
+ *          column is stored as [varint length][values]. Numbers are stored
+ *          as (zigzag-) varints, most of them as delta to the previous flow 
+ *          or to a related timestamp of the same flow; strings (addresses,
+ *          protocol names) as index into the dictionary of the footer.
+ * footer:  int numberOfStrings, [UTF string]* (dictionary; index 0 = null), 
+ *          int numberOfBlocks, [long offset, int senderId, 
+ *          int numberOfFlows]* (block index; fixed width), 
+ *          int numberOfHosts (-1 if not ordered by host), [int firstBlock]* 
+ *          (host index; fixed width)
+ * trailer: long offsetOfFooter, long numberOfFlows, int crc32 (of the 
+ *          footer), int VERSION, int MAGIC (fixed width; read first)
+ * 
+ * If the flows of the source trace are ordered by senderId (0, 1, 2, ...), 
+ * each block contains the flows of a single host only and the host index is
+ * available (use getFlowReader(hostId)). All readers share the same 
+ * FileChannel (positional reads).
+ */
+public class BinaryFlowTrace implements IndexedFlowTrace {
+
+	public final static int MAGIC = 0x47424621; // "GBF!"
+	public final static int VERSION = 1;
+	public final static int DEFAULT_FLOWS_PER_BLOCK = 1024;
+	public final static int HEADER_LENGTH = 8;
+	public final static int BLOCK_HEADER_LENGTH = 16;
+	public final static int TRAILER_LENGTH = 28;
+	
+	public final static int COLUMN_SENDER_ID = 0;
+	public final static int COLUMN_FLOW_ID = 1;
+	public final static int COLUMN_START_OF_FLOW = 2;
+	public final static int COLUMN_DURATION = 3;
+	public final static int COLUMN_REQUEST_SIZE = 4;
+	public final static int COLUMN_REPLY_SIZE = 5;
+	public final static int COLUMN_SENDER_ADDRESS = 6;
+	public final static int COLUMN_RECEIVER_ADDRESS = 7;
+	public final static int COLUMN_RECEIVER_ID = 8;
+	public final static int COLUMN_SENDER_PORT = 9;
+	public final static int COLUMN_RECEIVER_PORT = 10;
+	public final static int COLUMN_LAYER4_PROTOCOL = 11;
+	public final static int COLUMN_PROTOCOL_AS_STRING = 12;
+	public final static int COLUMN_FLOW_DIRECTION = 13;
+	public final static int COLUMN_NUMBER_OF_TRANSACTIONS = 14;
+	public final static int COLUMN_TRANSACTIONS = 15;
+	public final static int NUMBER_OF_COLUMNS = 16;
+	
+	private final String pathToTrace;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private long numberOfFlows;
+	private long offsetOfFooter;
+	private String[] dictionary;
+	private long[] offsetOfBlock; // offsetOfBlock[numberOfBlocks] = offsetOfFooter
+	private int[] senderIdOfBlock;
+	private int[] flowsInBlock;
+	private int[] firstBlockOfHost; // firstBlockOfHost[numberOfHosts] = numberOfBlocks; null if not ordered by host
+	
+	
+	public BinaryFlowTrace(String pathToTrace) {
+		this(pathToTrace, false);
+	}
+	
+	
+	/**
+	 * @param requireHostIndex	fail at once (instead of in 
+	 * 							getFlowReader(hostId)) if the trace is not 
+	 * 							ordered by host
+	 */
+	public BinaryFlowTrace(String pathToTrace, boolean requireHostIndex) {
+		this.pathToTrace = pathToTrace;
+		try {
+			this.raf = new RandomAccessFile(pathToTrace, "r");
+			this.channel = raf.getChannel();
+			readFooter();
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new RuntimeException("ERROR: could not read binary flow trace " +pathToTrace); 
+		}
+		if (requireHostIndex && !isOrderedByHost()) {
+			close();
+			throw notOrderedByHost();
+		}
+	}
+	
+	
+	private void readFooter() throws IOException {
+		long size = channel.size();
+		if (size < HEADER_LENGTH + TRAILER_LENGTH)
+			throw new RuntimeException("ERROR: " +pathToTrace +" is not a binary flow trace (.gbf)"); 
+		ByteBuffer header = read(0, HEADER_LENGTH);
+		ByteBuffer trailer = read(size - TRAILER_LENGTH, TRAILER_LENGTH);
+		this.offsetOfFooter = trailer.getLong();
+		this.numberOfFlows = trailer.getLong();
+		int crcOfFooter = trailer.getInt();
+		int version = trailer.getInt();
+		if (header.getInt() != MAGIC || trailer.getInt() != MAGIC)
+			throw new RuntimeException("ERROR: " +pathToTrace +" is not a binary flow trace (.gbf)"); 
+		if (header.getInt() != VERSION || version != VERSION)
+			throw new RuntimeException("ERROR: " +pathToTrace +" was created with an unsupported version (" +version +") of the .gbf format (supported: " +VERSION +")"); 
+		byte[] footer = new byte[(int)(size - TRAILER_LENGTH - offsetOfFooter)];
+		read(offsetOfFooter, ByteBuffer.wrap(footer));
+		CRC32 crc = new CRC32();
+		crc.update(footer);
+		if ((int)crc.getValue() != crcOfFooter)
+			throw new RuntimeException("ERROR: footer of " +pathToTrace +" is corrupt (checksum mismatch)"); 
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+		this.dictionary = new String[in.readInt()];
+		for (int i=1; i<dictionary.length; i++) // index 0 = null
+			dictionary[i] = in.readUTF();
+		int numberOfBlocks = in.readInt();
+		this.offsetOfBlock = new long[numberOfBlocks + 1];
+		this.senderIdOfBlock = new int[numberOfBlocks];
+		this.flowsInBlock = new int[numberOfBlocks];
+		for (int i=0; i<numberOfBlocks; i++) {
+			offsetOfBlock[i] = in.readLong();
+			senderIdOfBlock[i] = in.readInt();
+			flowsInBlock[i] = in.readInt();
+		}
+		offsetOfBlock[numberOfBlocks] = offsetOfFooter;
+		int numberOfHosts = in.readInt();
+		if (numberOfHosts >= 0) {
+			this.firstBlockOfHost = new int[numberOfHosts + 1];
+			for (int i=0; i<numberOfHosts; i++)
+				firstBlockOfHost[i] = in.readInt();
+			firstBlockOfHost[numberOfHosts] = numberOfBlocks;
+		}
+	}
+	
+	
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer result = ByteBuffer.allocate(length);
+		read(position, result);
+		result.flip();
+		return result;
+	}
+	
+	
+	/**
+	 * positional read (thread-safe; does not change the position of the 
+	 * channel)
+	 */
+	void read(long position, ByteBuffer destination) throws IOException {
+		while (destination.hasRemaining()) {
+			int read = channel.read(destination, position);
+			if (read < 0)
+				throw new IOException("unexpected end of file: " +pathToTrace); 
+			position += read;
+		}
+	}
+	
+	
+	/**
+	 * returns a reader for the flows of the specified host (hostId = senderId 
+	 * in the trace file). Restrictions are calculated (see 
+	 * FlowReader.FgFlowIterator).
+	 */
+	@Override
+	public BinaryFlowReader getFlowReader(int hostId) {
+		if (!isOrderedByHost())
+			throw notOrderedByHost();
+		if (hostId < 0 || hostId >= getNumberOfHosts())
+			throw new RuntimeException("ERROR: no host with id " +hostId +" in trace file " +pathToTrace +" (number of hosts: " +getNumberOfHosts() +")"); 
+		return new BinaryFlowReader(this, firstBlockOfHost[hostId], firstBlockOfHost[hostId+1], null, true);
+	}
+	
+	
+	/**
+	 * returns a reader for all flows of the trace file.
+	 */
+	public BinaryFlowReader getFlowReader(FlowFilter filter, boolean calculateRestrictions) {
+		return new BinaryFlowReader(this, 0, getNumberOfBlocks(), filter, calculateRestrictions);
+	}
+	
+	
+	private RuntimeException notOrderedByHost() {
+		return new RuntimeException("ERROR: " +pathToTrace +" has no host index (the flows of the source trace were not ordered by senderId). Sort the source trace by host and convert it again with converter.ToGBF"); 
+	}
+	
+	
+	public boolean isOrderedByHost() {
+		return firstBlockOfHost != null;
+	}
+	
+	
+	@Override
+	public int getNumberOfHosts() {
+		return firstBlockOfHost == null ? 0 : firstBlockOfHost.length - 1;
+	}
+	
+	
+	public long getNumberOfFlows() {
+		return numberOfFlows;
+	}
+	
+	
+	public int getNumberOfBlocks() {
+		return flowsInBlock.length;
+	}
+	
+	
+	long getOffsetOfBlock(int block) {
+		return offsetOfBlock[block];
+	}
+	
+	
+	/** 
+	 * length of the block (including its header)
+	 */
+	int getLengthOfBlock(int block) {
+		return (int)(offsetOfBlock[block+1] - offsetOfBlock[block]);
+	}
+	
+	
+	int getSenderIdOfBlock(int block) {
+		return senderIdOfBlock[block];
+	}
+	
+	
+	String[] getDictionary() {
+		return dictionary;
+	}
+	
+	
+	public String getPathToTrace() {
+		return pathToTrace;
+	}
+	
+	
+	/**
+	 * closes the underlying file (for all readers of this trace)
+	 */
+	public void close() {
+		try {
+			raf.close();
+		} catch (IOException e) {}
+	}
+	
+}
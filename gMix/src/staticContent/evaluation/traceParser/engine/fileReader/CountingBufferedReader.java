@@ -61,6 +61,15 @@ public class CountingBufferedReader {
 		this.raf = raf;
 	}
 
+	
+	/**
+	 * for subclasses that do not read from a BufferedReader. readLine() must 
+	 * not be called in this case.
+	 */
+	protected CountingBufferedReader() {
+		this.isCounting = false;
+	}
+
 
 	/**
 	 * valid line terminators: ['\n'], ['\r'] and ['\r''\n']
@@ -119,7 +128,8 @@ public class CountingBufferedReader {
 	
 	
 	public final void close() throws IOException {
-		reader.close();
+		if (reader != null)
+			reader.close();
 		if (raf != null)
 			raf.close();
 	}
@@ -67,22 +67,53 @@ public class DynamicPacketReader extends PacketReader {
 	}	
 
 	
-	// TODO: support direct layer 2 records (layer 0 contains layer 2 packets... e.g. ERFtype = TYPE_IPV4)
 	private Packet readPack(Packet packet) throws IOException {
+		while (true) {
+			byte[] layer0packet = readRecord();
+			if (layer0packet == null)
+				return null;
+			if (parsePacket(layer0packet, ++seqNumber, packet) != null)
+				return packet;
+			packet.reuse(); // malformed packet -> try next one
+		}
+	}
+	
+	
+	/**
+	 * Reads the next layer 0 record (e.g. an ERF record) from the trace file 
+	 * without parsing it (see parsePacket()). Returns null at the end of the 
+	 * file.
+	 */
+	public byte[] readRecord() throws IOException {
+		ProtocolHandler layer0handler = traceInfo.getTraceFormat().getProtocolHandler();
+		assert layer0handler != null;
+		byte[] layer0packet = layer0handler.readPacket(sourceTraceFile);
+		if (layer0packet != null)
+			read += layer0packet.length;
+		return layer0packet;
+	}
+	
+	
+	/**
+	 * Creates a Packet from the given layer 0 record (see readRecord()). 
+	 * Returns null if the packet is malformed.
+	 * 
+	 * Note: doesn't change the state of this reader, i.e. records can be 
+	 * parsed by several threads in parallel, if the ProtocolHandler of the 
+	 * trace format is stateless (this is the case for ERF, but not for PCAP; 
+	 * see PCAPpacket).
+	 */
+	// TODO: support direct layer 2 records (layer 0 contains layer 2 packets... e.g. ERFtype = TYPE_IPV4)
+	public Packet parsePacket(byte[] layer0packet, long sequenceNumber, Packet packet) {
 		
 		// layer 0:
 		byte[] layer0payload;
-		byte[] layer0packet;
 		ProtocolHandler layer0handler = traceInfo.getTraceFormat().getProtocolHandler();
 		assert layer0handler != null;
-		layer0packet = layer0handler.readPacket(sourceTraceFile);
-		if (layer0packet == null)
-			return null;
-		read += layer0packet.length;
 		//packet.setRaw(layer0packet);
 		layer0payload = layer0handler.getPayload(layer0packet);
 		//packet.setPayload(layer0payload);
-		packet.setSequenceNumber(++seqNumber);
+		packet.setSequenceNumber(sequenceNumber);
 		packet.setTimestamp(layer0handler.getTimestamp(layer0packet));
 		assert packet.getTimestamp() != null;
 		packet.setLayer0protocol(traceInfo.getTraceFormat());
@@ -136,7 +167,7 @@ public class DynamicPacketReader extends PacketReader {
 			&& layer2handler.getLengthAccuracy(layer2packet) == LengthAccuracy.EXACT
 				) {
 			if (layer1handler.getPayloadLength(layer1packet) != layer2handler.getLength(layer2packet)) { // malformed packet
-				return readPacket(packet);
+				return null;
 			}
 		}
 		packet.setLayer3length(layer2handler.getPayloadLength(layer2packet));
@@ -168,7 +199,7 @@ public class DynamicPacketReader extends PacketReader {
 			&& layer3handler.getLengthAccuracy(layer3packet) == LengthAccuracy.EXACT
 				) {
 			if (layer2handler.getPayloadLength(layer2packet) != layer3handler.getLength(layer3packet)) { // malformed packet
-				return readPacket(packet);
+				return null;
 			}
 		}
 		packet.setLayer4length(layer3handler.getPayloadLength(layer3packet));
@@ -215,7 +246,7 @@ public class DynamicPacketReader extends PacketReader {
 			&& layer4handler.getLengthAccuracy(layer4packet) == LengthAccuracy.EXACT
 				) {
 			if (layer3handler.getPayloadLength(layer3packet) != layer4handler.getLength(layer4packet)) { // malformed packet
-				return readPacket(packet);
+				return null;
 			}
 		}
 		//layer4payload = layer4handler.getPayload(layer4packet);
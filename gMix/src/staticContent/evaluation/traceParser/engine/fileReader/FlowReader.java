@@ -110,6 +110,17 @@ public class FlowReader extends CountingBufferedReader implements FlowIterator {
 		this.calculateRestrictions = calculateRestrictions;
 	}
 
+	
+	/**
+	 * for subclasses that override readNextFlowFromSource() (see 
+	 * MappedFlowReader).
+	 */
+	protected FlowReader(FlowFilter filter, boolean calculateRestrictions) {
+		super();
+		this.filter = filter;
+		this.calculateRestrictions = calculateRestrictions;
+	}
+
 
 	/**
 	 * returns the path to the created (or loaded if already existing) .gmf file
@@ -159,27 +170,25 @@ public class FlowReader extends CountingBufferedReader implements FlowIterator {
 	
 	
 	protected Flow tryReadFlowFromFile() throws IOException {
-		String serializedFlow = super.readLine();
+		Flow flow = readNextFlowFromSource();
 		if (filter == null) {
 			this.tmp_offsetOfLastFlow = this.tmp_offsetOfNextFlow;
 			this.tmp_offsetOfNextFlow = super.getPositionOfNextLine();
-			return serializedFlow == null ? null : new Flow(serializedFlow);
+			return flow;
 		} else {
-			if (serializedFlow == null) {
+			if (flow == null) {
 				this.tmp_offsetOfLastFlow = this.tmp_offsetOfNextFlow;
 				this.tmp_offsetOfNextFlow = super.getPositionOfNextLine();
 				return null;
 			}
-			Flow flow = new Flow(serializedFlow);
 			while (filter.filterFlow(flow)) {
 				this.tmp_offsetOfNextFlow = super.getPositionOfNextLine();
-				serializedFlow = super.readLine();
-				if (serializedFlow == null) {
+				flow = readNextFlowFromSource();
+				if (flow == null) {
 					this.tmp_offsetOfLastFlow = this.tmp_offsetOfNextFlow;
 					this.tmp_offsetOfNextFlow = super.getPositionOfNextLine();
 					return null;
 				}
-				flow = new Flow(serializedFlow);
 			} 
 			this.tmp_offsetOfLastFlow = this.tmp_offsetOfNextFlow;
 			this.tmp_offsetOfNextFlow = super.getPositionOfNextLine();
@@ -188,6 +197,17 @@ public class FlowReader extends CountingBufferedReader implements FlowIterator {
 	}
 	
 	
+	/**
+	 * reads and decodes the next flow from the underlying source (or returns 
+	 * null if there are no more flows). must update positionOfLastLine and 
+	 * positionOfNextLine when overridden (see MappedFlowReader).
+	 */
+	protected Flow readNextFlowFromSource() throws IOException {
+		String serializedFlow = super.readLine();
+		return serializedFlow == null ? null : new Flow(serializedFlow);
+	}
+	
+	
 	public Flow readFlow() throws IOException {
 		if (!wasHasNextCalled)
 			hasNextFlow();
@@ -0,0 +1,482 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Comparator;
+
+import staticContent.evaluation.traceParser.engine.Protocol;
+import staticContent.evaluation.traceParser.engine.dataStructure.ExtendedHost;
+import staticContent.evaluation.traceParser.engine.dataStructure.Host;
+import staticContent.evaluation.traceParser.interfaces.FlowFilter;
+import staticContent.evaluation.traceParser.statistics.HostComparator.*;
+
+
+/**
+ * Binary host index (.gmi file, created by HostIndexCreator). Stores the 
+ * statistics of each host (see Host.stat_*) in a fixed-width record, so the 
+ * index can be memory mapped and hosts can be accessed without reading (or 
+ * deserializing) the whole index:
+ * 
+ * file:        [header][records][rankings][think times]
+ * header:      int MAGIC, int VERSION, int numberOfHosts, 
+ *              int numberOfProtocols, long numberOfThinkTimes
+ * records:     one record per host, ordered by hostId (see FIELD_* 
+ *              constants and writeRecord())
+ * rankings:    one int[numberOfHosts] per Ranking: position (in the record 
+ *              section) of the host with rank 0, 1, 2, ... (i.e. the hosts 
+ *              sorted by the comparator of the Ranking)
+ * think times: int[numberOfThinkTimes] (Host.stat_userThinkTimes of all 
+ *              hosts; each record stores offset and length of its values)
+ * 
+ * Host objects are created lazily (see getHost()). Primitive values can be 
+ * read straight from the mapping (see getHostId() and getRank()).
+ * 
+ * Note: the mapping is released by the garbage collector when the HostIndex 
+ * is no longer referenced.
+ */
+public class HostIndex {
+
+	public final static int MAGIC = 0x474D4921; // "GMI!"
+	public final static int VERSION = 1;
+	public final static int HEADER_LENGTH = 24;
+	
+	public final static int FIELD_HOST_ID = 0;
+	public final static int FIELD_RANKS = 168; // one int per Ranking
+	public final static int FIELD_PROTOCOL_DISTRIBUTION = FIELD_RANKS + 4 * Ranking.values().length; // one int per Protocol
+	
+	private final static int SEGMENT_SIZE = 1 << 30; // a single MappedByteBuffer can't exceed 2 GB
+	
+	/**
+	 * Rankings of the hosts. Ties are ordered by the previous Ranking (the 
+	 * ranks are calculated in the order of this enum; see 
+	 * HostIndexCreator.calculateRanks()).
+	 */
+	public enum Ranking {
+		
+		NUMBER_OF_FLOWS(new NumberOfFlowsComparator()),
+		ONLINE_TIME(new OnlineTimeComparator()),
+		AVG_BYTES_PER_SEC(new AvgBytesPerSecComparator()),
+		AVG_REQUEST_BYTES_PER_SEC(new AvgRequestBytesPerSecComparator()),
+		AVG_REPLY_BYTES_PER_SEC(new AvgReplyBytesPerSecComparator()),
+		TOTAL_BYTES_TRANSFERRED(new TotalBytesTransferredComparator()),
+		REQUEST_BYTES_TRANSFERRED(new RequestBytesTransferredComparator()),
+		REPLY_BYTES_TRANSFERRED(new ReplyBytesTransferredComparator()),
+		AVG_NEW_FLOWS_PER_SEC(new AvgNewFlowsPerSecComparator());
+		
+		private final Comparator<Host> comparator;
+		
+		
+		private Ranking(Comparator<Host> comparator) {
+			this.comparator = comparator;
+		}
+		
+		
+		public Comparator<Host> getComparator() {
+			return comparator;
+		}
+		
+		
+		public int getRank(Host host) {
+			switch (this) {
+				case NUMBER_OF_FLOWS: return host.stat_rank_byNumberOfFlows;
+				case ONLINE_TIME: return host.stat_rank_byOnlineTime;
+				case AVG_BYTES_PER_SEC: return host.stat_rank_byAvgBytesPerSec;
+				case AVG_REQUEST_BYTES_PER_SEC: return host.stat_rank_byAvgRequestBytesPerSec;
+				case AVG_REPLY_BYTES_PER_SEC: return host.stat_rank_byAvgReplyBytesPerSec;
+				case TOTAL_BYTES_TRANSFERRED: return host.stat_rank_byTotalBytesTransferred;
+				case REQUEST_BYTES_TRANSFERRED: return host.stat_rank_byRequestBytesTransferred;
+				case REPLY_BYTES_TRANSFERRED: return host.stat_rank_byReplyBytesTransferred;
+				case AVG_NEW_FLOWS_PER_SEC: return host.stat_rank_byAvgNewFlowsPerSec;
+				default: throw new RuntimeException("ERROR: unknown ranking " +this);
+			}
+		}
+		
+		
+		public void setRank(Host host, int rank) {
+			switch (this) {
+				case NUMBER_OF_FLOWS: host.stat_rank_byNumberOfFlows = rank; break;
+				case ONLINE_TIME: host.stat_rank_byOnlineTime = rank; break;
+				case AVG_BYTES_PER_SEC: host.stat_rank_byAvgBytesPerSec = rank; break;
+				case AVG_REQUEST_BYTES_PER_SEC: host.stat_rank_byAvgRequestBytesPerSec = rank; break;
+				case AVG_REPLY_BYTES_PER_SEC: host.stat_rank_byAvgReplyBytesPerSec = rank; break;
+				case TOTAL_BYTES_TRANSFERRED: host.stat_rank_byTotalBytesTransferred = rank; break;
+				case REQUEST_BYTES_TRANSFERRED: host.stat_rank_byRequestBytesTransferred = rank; break;
+				case REPLY_BYTES_TRANSFERRED: host.stat_rank_byReplyBytesTransferred = rank; break;
+				case AVG_NEW_FLOWS_PER_SEC: host.stat_rank_byAvgNewFlowsPerSec = rank; break;
+				default: throw new RuntimeException("ERROR: unknown ranking " +this);
+			}
+		}
+		
+	}
+	
+	private final String pathToIndex;
+	private final FlowFilter filter;
+	private final int numberOfHosts;
+	private final int recordLength;
+	private final Segments records;
+	private final Segments[] rankings;
+	private final Segments thinkTimes;
+	private final Host[] hosts; // created on demand (see getHost())
+	
+	
+	public HostIndex(String pathToIndex, FlowFilter filter) {
+		this.pathToIndex = pathToIndex;
+		this.filter = filter;
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(pathToIndex, "r");
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_LENGTH)
+				throw new RuntimeException("ERROR: " +pathToIndex +" is not a host index (.gmi)"); 
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+			if (header.getInt() != MAGIC)
+				throw new RuntimeException("ERROR: " +pathToIndex +" is not a host index (.gmi)"); 
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new RuntimeException("ERROR: " +pathToIndex +" was created with an unsupported version (" +version +") of the .gmi format (supported: " +VERSION +")"); 
+			this.numberOfHosts = header.getInt();
+			if (header.getInt() != Protocol.values().length)
+				throw new RuntimeException("ERROR: " +pathToIndex +" was created for a different set of protocols (recreate the index)"); 
+			long numberOfThinkTimes = header.getLong();
+			this.recordLength = getRecordLength();
+			long offset = HEADER_LENGTH;
+			this.records = new Segments(channel, offset, numberOfHosts, recordLength);
+			offset += (long)numberOfHosts * recordLength;
+			this.rankings = new Segments[Ranking.values().length];
+			for (int i=0; i<rankings.length; i++) {
+				rankings[i] = new Segments(channel, offset, numberOfHosts, 4);
+				offset += (long)numberOfHosts * 4L;
+			}
+			this.thinkTimes = new Segments(channel, offset, numberOfThinkTimes, 4);
+			offset += numberOfThinkTimes * 4L;
+			if (offset != channel.size())
+				throw new RuntimeException("ERROR: " +pathToIndex +" is corrupt (expected " +offset +" bytes, found " +channel.size() +")"); 
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new RuntimeException("ERROR: could not read host index " +pathToIndex); 
+		} finally {
+			try {
+				if (raf != null)
+					raf.close(); // the mapping remains valid
+			} catch (IOException e) {}
+		}
+		this.hosts = new Host[numberOfHosts];
+	}
+	
+	
+	/**
+	 * Returns true if the given file is a host index of the current format 
+	 * (i.e. if it can be opened with this class). Index files of older 
+	 * versions (serialized Host objects) must be recreated.
+	 */
+	public static boolean isHostIndex(String pathToIndex) {
+		if (!new File(pathToIndex).exists())
+			return false;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(pathToIndex));
+			return in.readInt() == MAGIC && in.readInt() == VERSION && in.readInt() >= 0 && in.readInt() == Protocol.values().length;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			try {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {}
+		}
+	}
+	
+	
+	/**
+	 * Writes the given hosts (must be ordered by hostId and ranked; see 
+	 * HostIndexCreator.calculateRanks()) to a new index file.
+	 */
+	public static void write(String pathToIndex, Host[] hosts) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathToIndex), 65536));
+		try {
+			long numberOfThinkTimes = 0;
+			for (Host host: hosts)
+				if (host.stat_userThinkTimes != null)
+					numberOfThinkTimes += host.stat_userThinkTimes.length;
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(hosts.length);
+			out.writeInt(Protocol.values().length);
+			out.writeLong(numberOfThinkTimes);
+			long offsetOfThinkTimes = 0;
+			for (int i=0; i<hosts.length; i++) {
+				if (i > 0 && hosts[i].hostId <= hosts[i-1].hostId)
+					throw new RuntimeException("ERROR: hosts must be ordered by hostId"); 
+				writeRecord(out, hosts[i], offsetOfThinkTimes);
+				if (hosts[i].stat_userThinkTimes != null)
+					offsetOfThinkTimes += hosts[i].stat_userThinkTimes.length;
+			}
+			for (Ranking ranking: Ranking.values()) {
+				int[] positionOfRank = new int[hosts.length];
+				for (int i=0; i<hosts.length; i++) {
+					int rank = ranking.getRank(hosts[i]);
+					if (rank < 0 || rank >= hosts.length)
+						throw new RuntimeException("ERROR: host " +hosts[i].hostId +" has no valid rank for " +ranking +" (" +rank +")"); 
+					positionOfRank[rank] = i;
+				}
+				for (int i=0; i<positionOfRank.length; i++)
+					out.writeInt(positionOfRank[i]);
+			}
+			for (Host host: hosts)
+				if (host.stat_userThinkTimes != null)
+					for (int thinkTime: host.stat_userThinkTimes)
+						out.writeInt(thinkTime);
+		} finally {
+			out.close();
+		}
+	}
+	
+	
+	// same order as readRecord()
+	private static void writeRecord(DataOutputStream out, Host host, long offsetOfThinkTimes) throws IOException {
+		out.writeInt(host.hostId);
+		out.writeLong(host.firstAction);
+		out.writeLong(host.lastAction);
+		out.writeLong(host.offsetInTraceFile);
+		out.writeInt(host.stat_numberOfFlows);
+		out.writeInt(host.stat_numberOfFlowGroups);
+		out.writeInt(host.stat_onlineTime);
+		out.writeLong(host.stat_requestBytesTransferred);
+		out.writeLong(host.stat_replyBytesTransferred);
+		out.writeDouble(host.stat_avgRequestBytesPerSec);
+		out.writeDouble(host.stat_avgReplyBytesPerSec);
+		out.writeDouble(host.stat_avgNewFlowsPerSec);
+		out.writeDouble(host.stat_avgFlowsPerFlowGroup);
+		out.writeInt(host.stat_minFlowsPerFlowGroup);
+		out.writeInt(host.stat_maxFlowsPerFlowGroup);
+		out.writeInt(host.stat_avgRequestBytesPerFlow);
+		out.writeInt(host.stat_minRequestBytesPerFlow);
+		out.writeInt(host.stat_maxRequestBytesPerFlow);
+		out.writeInt(host.stat_avgReplyBytesPerFlow);
+		out.writeInt(host.stat_minReplyBytesPerFlow);
+		out.writeInt(host.stat_maxReplyBytesPerFlow);
+		out.writeInt(host.stat_avgUserThinkTime);
+		out.writeInt(host.stat_minUserThinkTime);
+		out.writeInt(host.stat_maxUserThinkTime);
+		out.writeLong(offsetOfThinkTimes);
+		out.writeInt(host.stat_userThinkTimes == null ? -1 : host.stat_userThinkTimes.length);
+		out.writeInt(host.stat_avgFlowDuration);
+		out.writeInt(host.stat_minFlowDuration);
+		out.writeInt(host.stat_maxFlowDuration);
+		out.writeInt(host.stat_avgFlowGroupDuration);
+		out.writeInt(host.stat_minFlowGroupDuration);
+		out.writeInt(host.stat_maxFlowGroupDuration);
+		for (Ranking ranking: Ranking.values()) // FIELD_RANKS
+			out.writeInt(ranking.getRank(host));
+		for (int i=0; i<Protocol.values().length; i++) // FIELD_PROTOCOL_DISTRIBUTION
+			out.writeInt(host.stat_protocolDistributionPerFlow[i]);
+	}
+	
+	
+	// same order as writeRecord()
+	private Host readRecord(int position) {
+		ByteBuffer record = records.getRecord(position);
+		Host host = new ExtendedHost(filter);
+		host.hostId = record.getInt();
+		host.firstAction = record.getLong();
+		host.lastAction = record.getLong();
+		host.offsetInTraceFile = record.getLong();
+		host.stat_numberOfFlows = record.getInt();
+		host.stat_numberOfFlowGroups = record.getInt();
+		host.stat_onlineTime = record.getInt();
+		host.stat_requestBytesTransferred = record.getLong();
+		host.stat_replyBytesTransferred = record.getLong();
+		host.stat_avgRequestBytesPerSec = record.getDouble();
+		host.stat_avgReplyBytesPerSec = record.getDouble();
+		host.stat_avgNewFlowsPerSec = record.getDouble();
+		host.stat_avgFlowsPerFlowGroup = record.getDouble();
+		host.stat_minFlowsPerFlowGroup = record.getInt();
+		host.stat_maxFlowsPerFlowGroup = record.getInt();
+		host.stat_avgRequestBytesPerFlow = record.getInt();
+		host.stat_minRequestBytesPerFlow = record.getInt();
+		host.stat_maxRequestBytesPerFlow = record.getInt();
+		host.stat_avgReplyBytesPerFlow = record.getInt();
+		host.stat_minReplyBytesPerFlow = record.getInt();
+		host.stat_maxReplyBytesPerFlow = record.getInt();
+		host.stat_avgUserThinkTime = record.getInt();
+		host.stat_minUserThinkTime = record.getInt();
+		host.stat_maxUserThinkTime = record.getInt();
+		long offsetOfThinkTimes = record.getLong();
+		int numberOfThinkTimes = record.getInt();
+		if (numberOfThinkTimes >= 0) {
+			host.stat_userThinkTimes = new int[numberOfThinkTimes];
+			for (int i=0; i<numberOfThinkTimes; i++)
+				host.stat_userThinkTimes[i] = thinkTimes.getInt(offsetOfThinkTimes + i);
+		}
+		host.stat_avgFlowDuration = record.getInt();
+		host.stat_minFlowDuration = record.getInt();
+		host.stat_maxFlowDuration = record.getInt();
+		host.stat_avgFlowGroupDuration = record.getInt();
+		host.stat_minFlowGroupDuration = record.getInt();
+		host.stat_maxFlowGroupDuration = record.getInt();
+		assert record.position() == FIELD_RANKS;
+		for (Ranking ranking: Ranking.values())
+			ranking.setRank(host, record.getInt());
+		for (int i=0; i<host.stat_protocolDistributionPerFlow.length; i++)
+			host.stat_protocolDistributionPerFlow[i] = record.getInt();
+		return host;
+	}
+	
+	
+	private static int getRecordLength() {
+		return FIELD_PROTOCOL_DISTRIBUTION + 4 * Protocol.values().length;
+	}
+	
+	
+	public int size() {
+		return numberOfHosts;
+	}
+	
+	
+	/**
+	 * Returns the host at the given position (0 <= position < size(); the 
+	 * hosts are ordered by hostId). The Host object is created on the first 
+	 * call and reused afterwards (hosts of the index must not be modified; 
+	 * see Host.cloneHost()).
+	 */
+	public synchronized Host getHost(int position) {
+		if (hosts[position] == null)
+			hosts[position] = readRecord(position);
+		return hosts[position];
+	}
+	
+	
+	/**
+	 * Returns the host with the given rank (0 = lowest value) for the given 
+	 * ranking.
+	 */
+	public Host getHostByRank(Ranking ranking, int rank) {
+		return getHost(getPositionByRank(ranking, rank));
+	}
+	
+	
+	/**
+	 * Returns all hosts (ordered by hostId).
+	 */
+	public Host[] getHosts() {
+		Host[] result = new Host[numberOfHosts];
+		for (int i=0; i<numberOfHosts; i++)
+			result[i] = getHost(i);
+		return result;
+	}
+	
+	
+	public int getHostId(int position) {
+		return records.getRecordInt(position, FIELD_HOST_ID);
+	}
+	
+	
+	public int getRank(Ranking ranking, int position) {
+		return records.getRecordInt(position, FIELD_RANKS + 4 * ranking.ordinal());
+	}
+	
+	
+	public int getPositionByRank(Ranking ranking, int rank) {
+		if (rank < 0 || rank >= numberOfHosts)
+			throw new IndexOutOfBoundsException("rank " +rank +" (hosts: " +numberOfHosts +")");
+		return rankings[ranking.ordinal()].getInt(rank);
+	}
+	
+	
+	/**
+	 * Returns the position of the host with the given id or -1 if the index 
+	 * contains no such host.
+	 */
+	public int getPosition(int hostId) {
+		int low = 0;
+		int high = numberOfHosts - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int id = getHostId(middle);
+			if (id < hostId)
+				low = middle + 1;
+			else if (id > hostId)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+	
+	
+	public String getPathToIndex() {
+		return pathToIndex;
+	}
+	
+	
+	/**
+	 * Array of fixed-width elements, mapped in segments of (at most) 
+	 * SEGMENT_SIZE bytes (no element spans two segments).
+	 */
+	private static class Segments {
+		
+		private final MappedByteBuffer[] segments;
+		private final int elementLength;
+		private final long elementsPerSegment;
+		
+		
+		private Segments(FileChannel channel, long offset, long numberOfElements, int elementLength) throws IOException {
+			this.elementLength = elementLength;
+			this.elementsPerSegment = SEGMENT_SIZE / elementLength;
+			this.segments = new MappedByteBuffer[(int)((numberOfElements + elementsPerSegment - 1) / elementsPerSegment)];
+			for (int i=0; i<segments.length; i++) {
+				long first = i * elementsPerSegment;
+				long elements = Math.min(elementsPerSegment, numberOfElements - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * elementLength, elements * elementLength);
+			}
+		}
+		
+		
+		private int getInt(long index) {
+			return segments[(int)(index / elementsPerSegment)].getInt((int)(index % elementsPerSegment) * elementLength);
+		}
+		
+		
+		private int getRecordInt(long index, int field) {
+			return segments[(int)(index / elementsPerSegment)].getInt((int)(index % elementsPerSegment) * elementLength + field);
+		}
+		
+		
+		// independent buffer (position and limit) for the given element
+		private ByteBuffer getRecord(long index) {
+			ByteBuffer record = segments[(int)(index / elementsPerSegment)].duplicate();
+			int start = (int)(index % elementsPerSegment) * elementLength;
+			record.limit(start + elementLength);
+			record.position(start);
+			return record.slice();
+		}
+		
+	}
+	
+}
@@ -17,16 +17,11 @@
  *******************************************************************************/
 package staticContent.evaluation.traceParser.engine.fileReader;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.Channels;
 import java.util.Arrays;
@@ -37,9 +32,10 @@ import staticContent.evaluation.traceParser.engine.dataStructure.ExtendedHost;
 import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
 import staticContent.evaluation.traceParser.engine.dataStructure.FlowGroup;
 import staticContent.evaluation.traceParser.engine.dataStructure.Host;
+import staticContent.evaluation.traceParser.engine.fileReader.HostIndex.Ranking;
 import staticContent.evaluation.traceParser.engine.filter.PacketFilterTester;
 import staticContent.evaluation.traceParser.interfaces.FlowFilter;
-import staticContent.evaluation.traceParser.statistics.HostComparator.*;
+import staticContent.evaluation.traceParser.statistics.HostComparator.HostIdComparator;
 import staticContent.framework.util.Util;
 
 
@@ -52,8 +48,22 @@ public class HostIndexCreator {
 	
 	
 	public static Host[] getHostIndex(TraceInfo traceInfo, FlowFilter filter) {
-		Host[] index = readIndex(traceInfo, filter);
-		return index == null ? createIndex(traceInfo, filter) : index;
+		HostIndex index = readIndex(traceInfo, filter);
+		return index == null ? createIndex(traceInfo, filter) : index.getHosts();
+	}
+	
+	
+	/**
+	 * Same as getHostIndex(), but the hosts are not created until they are 
+	 * accessed (see HostIndex).
+	 */
+	public static HostIndex openHostIndex(TraceInfo traceInfo, FlowFilter filter) {
+		HostIndex index = readIndex(traceInfo, filter);
+		if (index == null) {
+			createIndex(traceInfo, filter);
+			index = readIndex(traceInfo, filter);
+		}
+		return index;
 	}
 	
 	
@@ -72,14 +82,10 @@ public class HostIndexCreator {
 			}
 			ExtendedHost[] hosts = allHosts.toArray(new ExtendedHost[0]); 
 			calculateRanks(hosts);
-			// serialize index:
+			// write index:
 			try {
-				ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexPath(traceInfo, filter))));
-				oos.write(Util.intToByteArray(hosts.length));
 				Arrays.sort(hosts, new HostIdComparator());
-				for (int i=0; i<hosts.length; i++)
-					oos.writeObject((Host)hosts[i]);
-				oos.close();
+				HostIndex.write(getIndexPath(traceInfo, filter), hosts);
 			} catch (Exception e) {
 				throw new RuntimeException("ERROR: could not write index to " +getIndexPath(traceInfo, filter));
 			}
@@ -207,24 +213,16 @@ public class HostIndexCreator {
 */	
 	
 	// returns null if no index available
-	private static Host[] readIndex(TraceInfo traceInfo, FlowFilter filter) {
-		try {
-			ObjectInputStream trace = new ObjectInputStream(new BufferedInputStream(new FileInputStream(getIndexPath(traceInfo, filter))));
-			System.out.println("detected existing index file");
-			int numberOfHosts = Util.forceReadInt(trace);
-			Host[] hosts = new Host[numberOfHosts];
-			for (int i=0; i<hosts.length; i++) {
-				hosts[i] = (Host)trace.readObject();
-				hosts[i].filter = filter;
-			}
-			return hosts;
-		} catch (IOException e) {
+	private static HostIndex readIndex(TraceInfo traceInfo, FlowFilter filter) {
+		String path = getIndexPath(traceInfo, filter);
+		if (!new File(path).exists())
 			return null;
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
-			System.exit(1);
+		if (!HostIndex.isHostIndex(path)) {
+			System.out.println("detected outdated index file (will be recreated)");
 			return null;
 		}
+		System.out.println("detected existing index file");
+		return new HostIndex(path, filter);
 	}
 	
 	
@@ -235,35 +233,14 @@ public class HostIndexCreator {
 	}
 	
 	
+	// the ranks are stored in the index (together with the resulting order of the hosts for each ranking; see HostIndex)
 	public static void calculateRanks(Host[] hosts) {
 		System.out.println("calculating ranks"); 
-		Arrays.sort(hosts, new NumberOfFlowsComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byNumberOfFlows = i;
-		Arrays.sort(hosts, new OnlineTimeComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byOnlineTime = i;
-		Arrays.sort(hosts, new AvgBytesPerSecComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byAvgBytesPerSec = i;
-		Arrays.sort(hosts, new AvgRequestBytesPerSecComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byAvgRequestBytesPerSec = i;
-		Arrays.sort(hosts, new AvgReplyBytesPerSecComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byAvgReplyBytesPerSec = i;
-		Arrays.sort(hosts, new TotalBytesTransferredComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byTotalBytesTransferred = i;
-		Arrays.sort(hosts, new RequestBytesTransferredComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byRequestBytesTransferred = i;
-		Arrays.sort(hosts, new ReplyBytesTransferredComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byReplyBytesTransferred = i;
-		Arrays.sort(hosts, new AvgNewFlowsPerSecComparator());
-		for (int i=0; i<hosts.length; i++)
-			hosts[i].stat_rank_byAvgNewFlowsPerSec = i;
+		for (Ranking ranking: Ranking.values()) { // ties keep the order of the previous ranking (stable sort)
+			Arrays.sort(hosts, ranking.getComparator());
+			for (int i=0; i<hosts.length; i++)
+				ranking.setRank(hosts[i], i);
+		}
 		System.out.println("calculating ranks done"); 
 	} 
 	
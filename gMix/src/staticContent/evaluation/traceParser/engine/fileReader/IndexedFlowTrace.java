@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+
+/**
+ * A flow trace that can hand out a FlowReader for the flows of a single host 
+ * without scanning the whole trace (see MappedTraceFile for .gmf files and 
+ * BinaryFlowTrace for .gbf files).
+ */
+public interface IndexedFlowTrace {
+
+	public int getNumberOfHosts();
+	public FlowReader getFlowReader(int hostId);
+	
+}
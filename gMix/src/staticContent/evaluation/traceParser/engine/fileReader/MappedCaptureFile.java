@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import staticContent.evaluation.traceParser.engine.Protocol;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.PCAPfileHeader;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.PCAPpacket;
+import staticContent.framework.util.Util;
+
+
+/**
+ * Read-only, memory mapped (uncompressed) PCAP file. The packets are not 
+ * copied out of the mapping, but exposed as (reusable) PacketViews: 
+ * 
+ * 	MappedCaptureFile captureFile = new MappedCaptureFile(path);
+ * 	PacketView packet = captureFile.createView();
+ * 	while (captureFile.readNext(packet))
+ * 		String srcMac = EthernetFrame.getSrcMacAsString(packet.getBuffer(), packet.getOffset());
+ * 
+ * A MappedCaptureFile holds no state that changes while reading (the read 
+ * position is stored in the PacketView), so it can be shared by any number 
+ * of threads (each with its own PacketView). As there is no static state 
+ * either (in contrast to PCAPpacket.readPCAPpacket()), any number of capture 
+ * files can be parsed in parallel.
+ * 
+ * The file is mapped in segments of 1 GB (a single MappedByteBuffer can't 
+ * exceed 2 GB). Consecutive segments overlap by the maximum size of a 
+ * record, so each packet is contained in a single segment.
+ * 
+ * Note: the mapping is released by the garbage collector when the 
+ * MappedCaptureFile and all of its PacketViews are no longer referenced.
+ */
+public class MappedCaptureFile {
+
+	private final static int SEGMENT_BITS = 30;
+	private final static long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private final static int SEGMENT_MASK = (int)SEGMENT_SIZE - 1;
+	private final static int MAX_SNAPLEN = 262144; // maximum snaplen of libpcap
+	private final static int MAX_RECORD_LENGTH = PCAPpacket.RECORD_HEADER_LENGTH + MAX_SNAPLEN;
+	
+	private final String pathToCaptureFile;
+	private final MappedByteBuffer[] segments;
+	private final long size;
+	private final PCAPfileHeader fileHeader;
+	private final Protocol linkLayerProtocol;
+	
+	
+	public MappedCaptureFile(String pathToCaptureFile) {
+		this.pathToCaptureFile = pathToCaptureFile;
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(pathToCaptureFile, "r");
+			FileChannel channel = raf.getChannel();
+			this.size = channel.size();
+			this.segments = new MappedByteBuffer[(int)Math.max(1L, (size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+			for (int i=0; i<segments.length; i++) {
+				long start = (long)i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + MAX_RECORD_LENGTH, size - start));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new RuntimeException("ERROR: could not map capture file " +pathToCaptureFile); 
+		} finally {
+			try {
+				if (raf != null)
+					raf.close(); // the mapping remains valid
+			} catch (IOException e) {}
+		}
+		this.fileHeader = PCAPfileHeader.readHeader(segments[0]);
+		this.linkLayerProtocol = fileHeader.getLinkLayerHeaderTypeAsProtocol();
+	}
+	
+	
+	/**
+	 * Returns true if the given file is an uncompressed PCAP file (i.e. if it 
+	 * can be read with a MappedCaptureFile).
+	 */
+	public static boolean isMappable(String pathToCaptureFile) {
+		InputStream is = null;
+		try {
+			is = new FileInputStream(pathToCaptureFile);
+			byte[] magicNumber = Util.forceRead(is, 4);
+			return magicNumber != null && PCAPfileHeader.isMagicNumber(magicNumber);
+		} catch (IOException e) {
+			return false;
+		} finally {
+			try {
+				if (is != null)
+					is.close();
+			} catch (IOException e) {}
+		}
+	}
+	
+	
+	/**
+	 * Returns a new PacketView, positioned before the first packet of the 
+	 * file (call readNext() to move it to the first packet).
+	 */
+	public PacketView createView() {
+		return new PacketView(PCAPfileHeader.LENGTH);
+	}
+	
+	
+	/**
+	 * Returns a new PacketView, positioned before the packet whose record 
+	 * header starts at the given offset (see PacketView.getPositionInFile()).
+	 */
+	public PacketView createView(long positionOfRecord) {
+		if (positionOfRecord < PCAPfileHeader.LENGTH || positionOfRecord > size)
+			throw new RuntimeException("ERROR: invalid record position " +positionOfRecord +" for " +pathToCaptureFile); 
+		return new PacketView(positionOfRecord);
+	}
+	
+	
+	/**
+	 * Moves the given PacketView to the next packet of the file. Returns 
+	 * false if there are no further (complete) packets.
+	 */
+	public boolean readNext(PacketView view) {
+		long position = view.nextRecord;
+		if (position + PCAPpacket.RECORD_HEADER_LENGTH > size) // EOF
+			return false;
+		MappedByteBuffer segment = segments[(int)(position >>> SEGMENT_BITS)];
+		int recordOffset = (int)(position & SEGMENT_MASK);
+		int capturedLength = PCAPpacket.getCapturedLength(segment, recordOffset, fileHeader);
+		if (capturedLength < 0 || position + PCAPpacket.RECORD_HEADER_LENGTH + capturedLength > size) // truncated record at the end of the file
+			return false;
+		if (capturedLength > MAX_SNAPLEN)
+			throw new RuntimeException("ERROR: packet at offset " +position +" of " +pathToCaptureFile +" exceeds the maximum snaplen (" +capturedLength +" bytes). corrupt file?"); 
+		view.buffer = segment;
+		view.offset = recordOffset + PCAPpacket.RECORD_HEADER_LENGTH;
+		view.capturedLength = capturedLength;
+		view.originalLength = PCAPpacket.getOriginalLength(segment, recordOffset, fileHeader);
+		view.timestamp = PCAPpacket.getTimestamp(segment, recordOffset, fileHeader);
+		view.timestampMicroSeconds = PCAPpacket.getTimestampMicroSeconds(segment, recordOffset, fileHeader);
+		view.positionInFile = position;
+		view.nextRecord = position + PCAPpacket.RECORD_HEADER_LENGTH + capturedLength;
+		return true;
+	}
+	
+	
+	public PCAPfileHeader getFileHeader() {
+		return fileHeader;
+	}
+	
+	
+	/**
+	 * protocol of the packets (i.e. of the link layer header) of this file.
+	 */
+	public Protocol getLinkLayerProtocol() {
+		return linkLayerProtocol;
+	}
+	
+	
+	public long size() {
+		return size;
+	}
+	
+	
+	public String getPathToCaptureFile() {
+		return pathToCaptureFile;
+	}
+	
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.util.Arrays;
+
+import staticContent.evaluation.traceParser.engine.Protocol;
+import staticContent.evaluation.traceParser.engine.dataStructure.ExtendedTransaction;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow.FlowDirection;
+import staticContent.evaluation.traceParser.interfaces.FlowFilter;
+
+
+/**
+ * FlowReader for a region of a MappedTraceFile (see 
+ * MappedTraceFile.getFlowReader()). Flows are decoded on demand, directly 
+ * from the mapped bytes: no line Strings, no String.split() and no 
+ * Integer/Long.parseX() calls. Strings (addresses, protocol names) are only 
+ * created if they differ from the ones of the last decoded flow (addresses 
+ * of consecutive flows of the same host are usually the same).
+ * 
+ * Not thread-safe (like FlowReader), but any number of MappedFlowReaders can 
+ * share the same MappedTraceFile.
+ */
+public class MappedFlowReader extends FlowReader {
+
+	private final static int END_OF_REGION = -1;
+	
+	private final MappedTraceFile trace;
+	private final long end;
+	private long position;
+	private long startOfLine;
+	private int lastDelimiter;
+	
+	// last decoded values (reused if unchanged):
+	private String senderAddress;
+	private String receiverAddress;
+	private String protocolAsString;
+	private String layer4protocolAsString;
+	private Protocol layer4protocol;
+	private String flowDirectionAsString;
+	private FlowDirection flowDirection;
+	
+	// buffers:
+	private char[] chars = new char[64];
+	private long[] startsOfReplies = new long[16];
+	private long[] endsOfReplies = new long[16];
+	private int[] replySizes = new int[16];
+	
+	
+	protected MappedFlowReader(MappedTraceFile trace, long start, long end, FlowFilter filter, boolean calculateRestrictions) {
+		super(filter, calculateRestrictions);
+		this.trace = trace;
+		this.position = start;
+		this.end = end;
+		super.positionOfNextLine = start;
+	}
+	
+	
+	@Override
+	protected Flow readNextFlowFromSource() {
+		if (position >= end)
+			return null;
+		this.startOfLine = position;
+		Flow flow = new Flow();
+		flow.senderId = readInt();
+		flow.flowId = readInt();
+		flow.startOfFlow = readLong();
+		flow.endOfFlow = readLong();
+		flow.requestSize = readInt();
+		flow.replySize = readInt();
+		flow.senderAddress = senderAddress = readString(senderAddress);
+		flow.receiverAddress = receiverAddress = readString(receiverAddress);
+		flow.receiverID = readInt();
+		flow.senderPort = readInt();
+		flow.receiverPort = readInt();
+		String name = readString(layer4protocolAsString);
+		if (name != layer4protocolAsString) {
+			layer4protocol = Protocol.valueOf(name);
+			layer4protocolAsString = name;
+		}
+		flow.layer4protocol = layer4protocol;
+		flow.protocolAsString = protocolAsString = readString(protocolAsString);
+		name = readString(flowDirectionAsString);
+		if (name != flowDirectionAsString) {
+			flowDirection = FlowDirection.valueOf(name);
+			flowDirectionAsString = name;
+		}
+		flow.flowDirection = flowDirection;
+		if (lastDelimiter != '#')
+			throw formatError();
+		while (!isEndOfLine(lastDelimiter))
+			flow.transactions.add(readTransaction());
+		if (flow.transactions.size() == 0)
+			throw formatError();
+		if (lastDelimiter == '\r' && position < end && trace.get(position) == '\n')
+			position++;
+		super.positionOfLastLine = startOfLine;
+		super.positionOfNextLine = position;
+		return flow;
+	}
+	
+	
+	/**
+	 * format: sendDelay;startOfRequest;endOfRequest;requestSize;serverId
+	 * [;startOfReply;endOfReply;replySize]* (see 
+	 * ExtendedTransaction.serializeExtended())
+	 */
+	private ExtendedTransaction readTransaction() {
+		int sendDelay = readInt();
+		long startOfRequest = readLong();
+		long endOfRequest = readLong();
+		int requestSize = readInt();
+		int serverId = readInt();
+		int replyRecords = 0;
+		boolean containsReplies = true;
+		while (lastDelimiter == ';') {
+			if (replyRecords == replySizes.length) {
+				startsOfReplies = Arrays.copyOf(startsOfReplies, replyRecords * 2);
+				endsOfReplies = Arrays.copyOf(endsOfReplies, replyRecords * 2);
+				replySizes = Arrays.copyOf(replySizes, replyRecords * 2);
+			}
+			startsOfReplies[replyRecords] = readLong();
+			endsOfReplies[replyRecords] = readLong();
+			replySizes[replyRecords] = readInt();
+			if (replySizes[replyRecords] == 0)
+				containsReplies = false;
+			replyRecords++;
+		}
+		if (replyRecords == 0)
+			throw formatError();
+		if (!containsReplies)
+			return ExtendedTransaction.createDecodedTransaction(sendDelay, startOfRequest, endOfRequest, requestSize, serverId, null, null, null);
+		return ExtendedTransaction.createDecodedTransaction(
+				sendDelay, 
+				startOfRequest, 
+				endOfRequest, 
+				requestSize, 
+				serverId, 
+				Arrays.copyOf(startsOfReplies, replyRecords), 
+				Arrays.copyOf(endsOfReplies, replyRecords), 
+				Arrays.copyOf(replySizes, replyRecords)
+				);
+	}
+	
+	
+	private int nextByte() {
+		return position < end ? trace.get(position++) : END_OF_REGION;
+	}
+	
+	
+	private static boolean isEndOfLine(int b) {
+		return b == '\n' || b == '\r' || b == END_OF_REGION;
+	}
+	
+	
+	private static boolean isDelimiter(int b) {
+		return b == '#' || b == ';' || isEndOfLine(b);
+	}
+	
+	
+	private int readInt() {
+		return (int)readLong();
+	}
+	
+	
+	private long readLong() {
+		int b = nextByte();
+		boolean negative = b == '-';
+		if (negative)
+			b = nextByte();
+		long value = 0;
+		int digits = 0;
+		while (b >= '0' && b <= '9') {
+			value = value * 10 + (b - '0');
+			digits++;
+			b = nextByte();
+		}
+		if (digits == 0 || !isDelimiter(b))
+			throw formatError();
+		this.lastDelimiter = b;
+		return negative ? -value : value;
+	}
+	
+	
+	/**
+	 * returns "lastValue" if the next field equals "lastValue" (no new String 
+	 * is created in this case).
+	 */
+	private String readString(String lastValue) {
+		long start = position;
+		int b;
+		while (!isDelimiter(b = nextByte()))
+			continue;
+		this.lastDelimiter = b;
+		int length = (int)((b == END_OF_REGION ? position : position - 1) - start);
+		if (lastValue != null && lastValue.length() == length) {
+			boolean equal = true;
+			for (int i=0; i<length; i++) {
+				if (lastValue.charAt(i) != (char)(trace.get(start + i) & 0xFF)) {
+					equal = false;
+					break;
+				}
+			}
+			if (equal)
+				return lastValue;
+		}
+		if (chars.length < length)
+			chars = new char[Math.max(length, chars.length * 2)];
+		for (int i=0; i<length; i++)
+			chars[i] = (char)(trace.get(start + i) & 0xFF); // ISO-8859-1
+		return new String(chars, 0, length);
+	}
+	
+	
+	private RuntimeException formatError() {
+		return new RuntimeException("unrecognized trace file format: " +trace.getPathToGmfFile() +" (flow at offset " +startOfLine +")"); 
+	}
+	
+}
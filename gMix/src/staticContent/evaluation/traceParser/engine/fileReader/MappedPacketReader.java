@@ -0,0 +1,434 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import staticContent.evaluation.traceParser.engine.Protocol;
+import staticContent.evaluation.traceParser.engine.TraceInfo;
+import staticContent.evaluation.traceParser.engine.dataStructure.Packet;
+import staticContent.evaluation.traceParser.engine.dataStructure.Flow.FlowDirection;
+import staticContent.evaluation.traceParser.engine.dataStructure.Packet.TCPflags;
+import staticContent.evaluation.traceParser.engine.protocolHandler.IPhandler;
+import staticContent.evaluation.traceParser.engine.protocolHandler.ProtocolHandler;
+import staticContent.evaluation.traceParser.engine.protocolHandler.ProtocolHandler.LengthAccuracy;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.EthernetFrame;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.IPv4Packet;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.IPv6Packet;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.TCPpacket;
+import staticContent.evaluation.traceParser.engine.protocolHeaderParser.UDPpacket;
+
+
+/**
+ * Packet reader that creates Packets from a MappedCaptureFile (PCAP). Creates 
+ * the same Packets as DynamicPacketReader, but reads all header fields 
+ * straight from the mapped file (see PacketView) instead of copying each 
+ * packet (and each of its layers) into a new byte array first. Supported 
+ * protocols: the ones with a ProtocolHandler available for layers 1-4 
+ * (Ethernet, IPv4, IPv6, TCP, UDP and DNS).
+ * 
+ * Each MappedPacketReader has its own PacketView, i.e. several readers (on 
+ * different or the same file) can be used in parallel.
+ */
+public class MappedPacketReader extends PacketReader {
+
+	private final MappedCaptureFile captureFile;
+	private final PacketView view;
+	private final String WAN_ADDRESS; // mac
+	private final String LAN_ADDRESS; // mac
+	private long seqNumber = 0;
+	private long read = 0;
+	
+	
+	public MappedPacketReader(MappedCaptureFile captureFile, TraceInfo traceInfo) {
+		super(null);
+		this.captureFile = captureFile;
+		this.view = captureFile.createView();
+		this.WAN_ADDRESS = traceInfo.getWanAddress();
+		this.LAN_ADDRESS = traceInfo.getLanAddress();
+	}
+	
+	
+	@Override
+	public Packet readPacket() throws IOException {
+		return readPack(new Packet());
+	}
+
+
+	@Override
+	public Packet readPacket(Packet reusePacket) throws IOException {
+		reusePacket.reuse();
+		return readPack(reusePacket);
+	}
+	
+	
+	private Packet readPack(Packet packet) {
+		while (true) {
+			if (!captureFile.readNext(view))
+				return null;
+			read += view.getCapturedLength();
+			if (parsePacket(view, ++seqNumber, packet) != null)
+				return packet;
+			packet.reuse(); // malformed packet -> try next one
+		}
+	}
+	
+	
+	/**
+	 * Creates a Packet from the packet the given view points to. Returns null 
+	 * if the packet is malformed.
+	 * 
+	 * Note: doesn't change the state of this reader, i.e. packets can be 
+	 * parsed by several threads in parallel (each with its own PacketView).
+	 */
+	// same steps as DynamicPacketReader.parsePacket(), but a layer is described by its protocol, its offset in the buffer and the number of bytes available (instead of a byte[])
+	public Packet parsePacket(PacketView view, long sequenceNumber, Packet packet) {
+		// layer 0:
+		ByteBuffer buffer = view.getBuffer();
+		packet.setSequenceNumber(sequenceNumber);
+		packet.setTimestamp(view.getTimestamp());
+		packet.setLayer0protocol(Protocol.PCAP);
+		packet.setLayer1length(view.getOriginalLength());
+		
+		Protocol layer1protocol = captureFile.getLinkLayerProtocol();
+		packet.setLayer1protocol(layer1protocol);
+		int layer1offset = view.getOffset();
+		int layer1length = view.getCapturedLength();
+		if (!canParse(buffer, layer1protocol, layer1offset, layer1length))
+			return packet;
+		
+		// layer 1:
+		packet.setLayer2length(getPayloadLength(buffer, layer1protocol, layer1offset, layer1length));
+		packet.setLayer1srcAddress(getSourceAddress(buffer, layer1protocol, layer1offset));
+		packet.setLayer1dstAddress(getDestinationAddress(buffer, layer1protocol, layer1offset));
+		if (WAN_ADDRESS != null) { // determine and store flow direction if possible
+			if (packet.getLayer1srcAddress().equalsIgnoreCase(WAN_ADDRESS))
+				packet.setFlowDirection(FlowDirection.FROM_WAN);
+			else if (packet.getLayer1dstAddress().equalsIgnoreCase(WAN_ADDRESS))
+				packet.setFlowDirection(FlowDirection.TO_WAN);
+			else
+				packet.setFlowDirection(FlowDirection.UNKNOWN);
+		}
+		if ((packet.getFlowDirection() == null || packet.getFlowDirection() == FlowDirection.UNKNOWN) && LAN_ADDRESS != null) {
+			if (packet.getLayer1srcAddress().equalsIgnoreCase(LAN_ADDRESS))
+				packet.setFlowDirection(FlowDirection.TO_WAN);
+			else if (packet.getLayer1dstAddress().equalsIgnoreCase(LAN_ADDRESS))
+				packet.setFlowDirection(FlowDirection.FROM_WAN);
+			else
+				packet.setFlowDirection(FlowDirection.UNKNOWN);
+		}
+		
+		Protocol layer2protocol = getPayloadProtocol(buffer, layer1protocol, layer1offset);
+		packet.setLayer2protocol(layer2protocol);
+		int layer2offset = layer1offset + getHeaderLength(buffer, layer1protocol, layer1offset, layer1length);
+		int layer2length = getAvailablePayloadLength(buffer, layer1protocol, layer1offset, layer1length);
+		if (!canParse(buffer, layer2protocol, layer2offset, layer2length))
+			return packet;
+		
+		// layer 2:
+		if (	getPayloadLengthAccuracy(buffer, layer1protocol, layer1offset) != LengthAccuracy.EXACT // the layer below is not sure about the size
+				&& getLengthAccuracy(buffer, layer2protocol, layer2offset) == LengthAccuracy.EXACT // this layer knows the exact value
+				)
+			packet.setLayer2length(getLength(buffer, layer2protocol, layer2offset, layer2length));
+		if (getPayloadLengthAccuracy(buffer, layer1protocol, layer1offset) == LengthAccuracy.EXACT
+			&& getLengthAccuracy(buffer, layer2protocol, layer2offset) == LengthAccuracy.EXACT
+				) {
+			if (getPayloadLength(buffer, layer1protocol, layer1offset, layer1length) != getLength(buffer, layer2protocol, layer2offset, layer2length)) { // malformed packet
+				return null;
+			}
+		}
+		packet.setLayer3length(getPayloadLength(buffer, layer2protocol, layer2offset, layer2length));
+		packet.setLayer2srcAddress(getSourceAddress(buffer, layer2protocol, layer2offset));
+		packet.setLayer2dstAddress(getDestinationAddress(buffer, layer2protocol, layer2offset));
+		
+		Protocol layer3protocol = getPayloadProtocol(buffer, layer2protocol, layer2offset);
+		packet.setLayer3protocol(layer3protocol);
+		int layer3offset = layer2offset + getHeaderLength(buffer, layer2protocol, layer2offset, layer2length);
+		int layer3length = getAvailablePayloadLength(buffer, layer2protocol, layer2offset, layer2length);
+		if (!canParse(buffer, layer3protocol, layer3offset, layer3length)) {
+			// try to find out about the actual size
+			if (getPayloadLengthAccuracy(buffer, layer1protocol, layer1offset) == LengthAccuracy.EXACT // the layer below is sure about the payload size
+				&& getHeaderLengthAccuracy(layer2protocol) == LengthAccuracy.EXACT // this layer is sure about the header size
+				)
+				packet.setLayer3length(getPayloadLength(buffer, layer1protocol, layer1offset, layer1length) - getHeaderLength(buffer, layer2protocol, layer2offset, layer2length));
+			return packet;
+		}
+		
+		// layer 3:
+		if (	getPayloadLengthAccuracy(buffer, layer2protocol, layer2offset) != LengthAccuracy.EXACT // the layer below is not sure about the size
+				&& getLengthAccuracy(buffer, layer3protocol, layer3offset) == LengthAccuracy.EXACT // this layer knows the exact value
+				)
+			packet.setLayer3length(getLength(buffer, layer3protocol, layer3offset, layer3length));
+		if (getPayloadLengthAccuracy(buffer, layer2protocol, layer2offset) == LengthAccuracy.EXACT
+			&& getLengthAccuracy(buffer, layer3protocol, layer3offset) == LengthAccuracy.EXACT
+				) {
+			if (getPayloadLength(buffer, layer2protocol, layer2offset, layer2length) != getLength(buffer, layer3protocol, layer3offset, layer3length)) { // malformed packet
+				return null;
+			}
+		}
+		packet.setLayer4length(getPayloadLength(buffer, layer3protocol, layer3offset, layer3length));
+		packet.setLayer3srcAddress(getSourceAddress(buffer, layer3protocol, layer3offset));
+		packet.setLayer3dstAddress(getDestinationAddress(buffer, layer3protocol, layer3offset));
+		if (layer3protocol == Protocol.TCP) { // store handshake status if possible
+			boolean syn = TCPpacket.getFlag_SYN(buffer, layer3offset);
+			boolean ack = TCPpacket.getFlag_ACK(buffer, layer3offset);
+			boolean fin = TCPpacket.getFlag_FIN(buffer, layer3offset);
+			if (syn && ack)
+				packet.setTCPflags(TCPflags.SYN_ACK);
+			else if (fin && ack)
+				packet.setTCPflags(TCPflags.FIN_ACK);
+			else if (syn)
+				packet.setTCPflags(TCPflags.SYN);
+			else if (ack)
+				packet.setTCPflags(TCPflags.ACK);
+			else
+				packet.setTCPflags(TCPflags.NONE);
+		}
+		
+		Protocol layer4protocol = getPayloadProtocol(buffer, layer3protocol, layer3offset);
+		packet.setLayer4protocol(layer4protocol);
+		int layer4offset = layer3offset + getHeaderLength(buffer, layer3protocol, layer3offset, layer3length);
+		int layer4length = getAvailablePayloadLength(buffer, layer3protocol, layer3offset, layer3length);
+		if (!canParse(buffer, layer4protocol, layer4offset, layer4length) && !isTerminal(layer4protocol)) {
+			// try to find out about the actual size
+			if (getPayloadLengthAccuracy(buffer, layer2protocol, layer2offset) == LengthAccuracy.EXACT // the layer below is sure about the payload size
+				&& getHeaderLengthAccuracy(layer3protocol) == LengthAccuracy.EXACT // this layer is sure about the header size
+				)
+				packet.setLayer4length(getPayloadLength(buffer, layer2protocol, layer2offset, layer2length) - getHeaderLength(buffer, layer3protocol, layer3offset, layer3length));
+			return packet;
+		}
+		
+		// layer 4:
+		if (	getPayloadLengthAccuracy(buffer, layer3protocol, layer3offset) != LengthAccuracy.EXACT // the layer below is not sure about the size
+				&& getLengthAccuracy(buffer, layer4protocol, layer4offset) == LengthAccuracy.EXACT // this layer knows the exact value
+				) 
+			packet.setLayer4length(getLength(buffer, layer4protocol, layer4offset, layer4length));
+		if (getPayloadLengthAccuracy(buffer, layer3protocol, layer3offset) == LengthAccuracy.EXACT
+			&& getLengthAccuracy(buffer, layer4protocol, layer4offset) == LengthAccuracy.EXACT
+				) {
+			if (getPayloadLength(buffer, layer3protocol, layer3offset, layer3length) != getLength(buffer, layer4protocol, layer4offset, layer4length)) { // malformed packet
+				return null;
+			}
+		}
+		return packet;
+	}
+
+
+	@Override
+	public long getTotalBytesRead() {
+		return read;
+	}
+	
+	
+	/*
+	 * The methods below correspond to the ones of the ProtocolHandlers of the 
+	 * supported protocols.
+	 */
+	
+	// true if a handler is available for the protocol and enough bytes are available to read its header
+	private static boolean canParse(ByteBuffer buffer, Protocol protocol, int offset, int length) {
+		if (protocol == null)
+			return false;
+		switch (protocol) {
+			case Ethernet:
+				return length >= 14 && (length >= 18 || !EthernetFrame.isVLAN(buffer, offset));
+			case IPv4:
+				return length >= 20;
+			case IPv6:
+				return length >= 40;
+			case TCP:
+				return length >= 14; // ports, header length and flags (the segment may be truncated by the ethernet crc heuristic)
+			case UDP:
+				return length >= UDPpacket.getHeaderLengthStat();
+			default:
+				return false;
+		}
+	}
+	
+	
+	// application layer protocols with a handler available (the handler doesn't look at the packet; see DNShandler)
+	private static boolean isTerminal(Protocol protocol) {
+		return protocol == Protocol.DNS;
+	}
+	
+	
+	private static LengthAccuracy getLengthAccuracy(ByteBuffer buffer, Protocol protocol, int offset) {
+		switch (protocol) {
+			case Ethernet:
+				return (EthernetFrame.getEtherType(buffer, offset) <= 1500) ? LengthAccuracy.EXACT : LengthAccuracy.UNCLEAR; // ethernet II: may be truncated and or padded
+			case IPv4:
+			case IPv6:
+			case UDP:
+				return LengthAccuracy.EXACT;
+			default:
+				return LengthAccuracy.UNCLEAR;
+		}
+	}
+	
+	
+	private static int getLength(ByteBuffer buffer, Protocol protocol, int offset, int length) {
+		switch (protocol) {
+			case Ethernet:
+				return EthernetFrame.getLengthStat(buffer, offset, length);
+			case IPv4:
+				return IPv4Packet.getTotalLength(buffer, offset);
+			case IPv6:
+				return IPv6Packet.getPayloadLengthIncludingExtensionHeaders(buffer, offset) + 40;
+			case TCP:
+				int headerLength = TCPpacket.getHeaderLengthStat(buffer, offset);
+				return (length - headerLength <= 0) ? headerLength : length; // headerLength for truncated packets
+			case UDP:
+				return UDPpacket.getTotalLength(buffer, offset);
+			default:
+				return ProtocolHandler.UNKNOWN;
+		}
+	}
+	
+	
+	private static LengthAccuracy getHeaderLengthAccuracy(Protocol protocol) {
+		return LengthAccuracy.EXACT; // for all supported protocols
+	}
+	
+	
+	private static int getHeaderLength(ByteBuffer buffer, Protocol protocol, int offset, int length) {
+		switch (protocol) {
+			case Ethernet:
+				return EthernetFrame.getHeaderLengthStat(buffer, offset);
+			case IPv4:
+				return IPv4Packet.getHeaderLengthStat(buffer, offset);
+			case IPv6:
+				return IPv6Packet.getHeaderLengthStat(buffer, offset, length);
+			case TCP:
+				return TCPpacket.getHeaderLengthStat(buffer, offset);
+			case UDP:
+				return UDPpacket.getHeaderLengthStat();
+			case DNS:
+				return 12;
+			default:
+				throw new RuntimeException("ERROR: unsupported protocol " +protocol); 
+		}
+	}
+	
+	
+	private static LengthAccuracy getPayloadLengthAccuracy(ByteBuffer buffer, Protocol protocol, int offset) {
+		return getLengthAccuracy(buffer, protocol, offset); // same for all supported protocols
+	}
+	
+	
+	private static int getPayloadLength(ByteBuffer buffer, Protocol protocol, int offset, int length) {
+		switch (protocol) {
+			case Ethernet:
+				return EthernetFrame.getPayloadLengthStat(buffer, offset, length);
+			case IPv4:
+				return IPv4Packet.getPayloadLengthStat(buffer, offset);
+			case IPv6:
+				return IPv6Packet.getPayloadLengthWithoutExtensionHeaders(buffer, offset, length);
+			case TCP:
+				return TCPpacket.getPayloadLengthStat(buffer, offset, length);
+			case UDP:
+				return UDPpacket.getPayloadLengthStat(buffer, offset);
+			default:
+				return ProtocolHandler.UNKNOWN;
+		}
+	}
+	
+	
+	// number of payload bytes available (the payload starts directly after the header); 0 if no payload is available
+	private static int getAvailablePayloadLength(ByteBuffer buffer, Protocol protocol, int offset, int length) {
+		switch (protocol) {
+			case Ethernet:
+				return EthernetFrame.getAvailablePayloadLength(buffer, offset, length);
+			case IPv4:
+				return IPv4Packet.getAvailablePayloadLength(buffer, offset, length);
+			case IPv6:
+				return IPv6Packet.getAvailablePayloadLength(buffer, offset, length);
+			case TCP:
+				return Math.max(0, length - TCPpacket.getHeaderLengthStat(buffer, offset));
+			case UDP:
+				return UDPpacket.getAvailablePayloadLength(buffer, offset, length);
+			default:
+				return 0;
+		}
+	}
+	
+	
+	private static Protocol getPayloadProtocol(ByteBuffer buffer, Protocol protocol, int offset) {
+		switch (protocol) {
+			case Ethernet:
+				int type = EthernetFrame.getEtherType(buffer, offset);
+				if (type == EthernetFrame.ETHER_TYPE_IP_V4)
+					return Protocol.IPv4;
+				else if (type == EthernetFrame.ETHER_TYPE_IP_V6)
+					return Protocol.IPv6;
+				else if (type == EthernetFrame.ETHER_TYPE_ARP)
+					return Protocol.ARP;
+				else 
+					return Protocol.UNKNOWN;
+			case IPv4:
+				return IPhandler.ipProtocolToProtocol(IPv4Packet.getProtocol(buffer, offset));
+			case IPv6:
+				return IPhandler.ipProtocolToProtocol(IPv6Packet.getProtocol(buffer, offset));
+			case TCP:
+				Protocol tcpProtocol = Protocol.portToProtocol(TCPpacket.getSourcePort(buffer, offset));
+				return (tcpProtocol != Protocol.UNKNOWN) ? tcpProtocol : Protocol.portToProtocol(TCPpacket.getDestinationPort(buffer, offset));
+			case UDP:
+				Protocol udpProtocol = Protocol.portToProtocol(UDPpacket.getSourcePort(buffer, offset));
+				return (udpProtocol != Protocol.UNKNOWN) ? udpProtocol : Protocol.portToProtocol(UDPpacket.getDestinationPort(buffer, offset));
+			default:
+				return null;
+		}
+	}
+	
+	
+	private static String getSourceAddress(ByteBuffer buffer, Protocol protocol, int offset) {
+		switch (protocol) {
+			case Ethernet:
+				return EthernetFrame.getSrcMacAsString(buffer, offset);
+			case IPv4:
+				return IPv4Packet.getSrcIPasString(buffer, offset);
+			case IPv6:
+				return IPv6Packet.getSrcIPasString(buffer, offset);
+			case TCP:
+				return ""+TCPpacket.getSourcePort(buffer, offset);
+			case UDP:
+				return ""+UDPpacket.getSourcePort(buffer, offset);
+			default:
+				return null;
+		}
+	}
+	
+	
+	private static String getDestinationAddress(ByteBuffer buffer, Protocol protocol, int offset) {
+		switch (protocol) {
+			case Ethernet:
+				return EthernetFrame.getDstMacAsString(buffer, offset);
+			case IPv4:
+				return IPv4Packet.getDstIPasString(buffer, offset);
+			case IPv6:
+				return IPv6Packet.getDstIPasString(buffer, offset);
+			case TCP:
+				return ""+TCPpacket.getDestinationPort(buffer, offset);
+			case UDP:
+				return ""+UDPpacket.getDestinationPort(buffer, offset);
+			default:
+				return null;
+		}
+	}
+	
+}
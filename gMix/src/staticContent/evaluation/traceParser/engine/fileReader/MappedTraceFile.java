@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import staticContent.evaluation.traceParser.engine.TraceInfo;
+import staticContent.evaluation.traceParser.interfaces.FlowFilter;
+
+
+/**
+ * Read-only, memory mapped image of a .gmf file that can be shared by any 
+ * number of readers (e.g. one reader per TraceReplayClient). The file is 
+ * mapped only once (in segments of 1 GB, as a single MappedByteBuffer can't 
+ * exceed 2 GB) and indexed only once: the index stores the offset of the 
+ * first flow of each host (the flows of a .gmf file are ordered by 
+ * senderId). Use getFlowReader(hostId) to read the flows of a single host 
+ * without opening the file again.
+ * 
+ * Note: the mapping is released by the garbage collector when the 
+ * MappedTraceFile and all of its readers are no longer referenced.
+ */
+public class MappedTraceFile implements IndexedFlowTrace {
+
+	private final static int SEGMENT_BITS = 30;
+	private final static long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private final static int SEGMENT_MASK = (int)SEGMENT_SIZE - 1;
+	
+	private final String pathToGmfFile;
+	private final MappedByteBuffer[] segments;
+	private final long size;
+	private long[] startOfHost; // startOfHost[i]: offset of the first flow of host i; startOfHost[numberOfHosts]: size of the file
+	private int numberOfHosts;
+	
+	
+	public MappedTraceFile(String pathToTraceFolder) {
+		this(new TraceInfo(pathToTraceFolder));
+	}
+	
+	
+	public MappedTraceFile(TraceInfo traceInfo) {
+		this.pathToGmfFile = FlowReader.getGmfFilePointer(traceInfo);
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(pathToGmfFile, "r");
+			FileChannel channel = raf.getChannel();
+			this.size = channel.size();
+			this.segments = new MappedByteBuffer[(int)((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+			for (int i=0; i<segments.length; i++) {
+				long start = (long)i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new RuntimeException("ERROR: could not map trace file " +pathToGmfFile); 
+		} finally {
+			try {
+				if (raf != null)
+					raf.close(); // the mapping remains valid
+			} catch (IOException e) {}
+		}
+		createIndex();
+	}
+	
+	
+	/**
+	 * single pass over the file; only the senderId (first column) of each 
+	 * flow is decoded.
+	 */
+	private void createIndex() {
+		long[] index = new long[1024];
+		int currentHostId = -1;
+		long position = 0;
+		while (position < size) {
+			long startOfLine = position;
+			int senderId = 0;
+			byte b = 0;
+			while (position < size && (b = get(position++)) >= '0' && b <= '9')
+				senderId = senderId*10 + (b - '0');
+			if (b != '#' || position == startOfLine + 1)
+				throw new RuntimeException("ERROR: unrecognized trace file format (" +pathToGmfFile +", offset " +startOfLine +")"); 
+			if (senderId != currentHostId) {
+				currentHostId++;
+				if (senderId != currentHostId)
+					throw new RuntimeException("the trace file " +pathToGmfFile +" seems to be not " +
+							"ordered correctly.\nmake sure to use an Extractor (package evaluation." +
+							"traceParser.scenarioExtractor) to generate the trace file and specify " +
+							"the path of the created trace file in the experiment config file correctly.)" );
+				if (currentHostId == index.length - 1)
+					index = Arrays.copyOf(index, index.length * 2);
+				index[currentHostId] = startOfLine;
+			}
+			// skip rest of line (valid line terminators: ['\n'], ['\r'] and ['\r''\n']):
+			while (position < size && (b = get(position++)) != '\n' && b != '\r')
+				continue;
+			if (b == '\r' && position < size && get(position) == '\n')
+				position++;
+		}
+		this.numberOfHosts = currentHostId + 1;
+		index[numberOfHosts] = size;
+		this.startOfHost = Arrays.copyOf(index, numberOfHosts + 1);
+	}
+	
+	
+	/**
+	 * absolute read; does not modify the state of the mapping (can be used by
+	 * several readers concurrently).
+	 */
+	final byte get(long offset) {
+		return segments[(int)(offset >>> SEGMENT_BITS)].get((int)offset & SEGMENT_MASK);
+	}
+	
+	
+	/**
+	 * returns a reader for the flows of the specified host (hostId = senderId 
+	 * in the trace file). Restrictions are calculated (see 
+	 * FlowReader.FgFlowIterator).
+	 */
+	@Override
+	public MappedFlowReader getFlowReader(int hostId) {
+		if (hostId < 0 || hostId >= numberOfHosts)
+			throw new RuntimeException("ERROR: no host with id " +hostId +" in trace file " +pathToGmfFile +" (number of hosts: " +numberOfHosts +")"); 
+		return new MappedFlowReader(this, startOfHost[hostId], startOfHost[hostId+1], null, true);
+	}
+	
+	
+	/**
+	 * returns a reader for all flows of the trace file.
+	 */
+	public MappedFlowReader getFlowReader(FlowFilter filter, boolean calculateRestrictions) {
+		return new MappedFlowReader(this, 0, size, filter, calculateRestrictions);
+	}
+	
+	
+	@Override
+	public int getNumberOfHosts() {
+		return numberOfHosts;
+	}
+	
+	
+	public long getOffsetOfHost(int hostId) {
+		return startOfHost[hostId];
+	}
+	
+	
+	public long size() {
+		return size;
+	}
+	
+	
+	public String getPathToGmfFile() {
+		return pathToGmfFile;
+	}
+	
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.evaluation.traceParser.engine.fileReader;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Flyweight view of a single packet of a MappedCaptureFile: stores only the 
+ * position of the packet in the (memory mapped) file, the packet data itself 
+ * is never copied (unless copy() is called). The header parsers of package 
+ * protocolHeaderParser can read the packet directly from getBuffer(), 
+ * starting at getOffset().
+ * 
+ * A PacketView is reused for all packets it is moved to (see 
+ * MappedCaptureFile.readNext()), i.e. its values change with each call of 
+ * readNext(). Use copy() to keep the data of a packet. A PacketView must 
+ * not be shared among threads (but any number of PacketViews can read the 
+ * same MappedCaptureFile in parallel).
+ */
+public class PacketView {
+
+	ByteBuffer buffer;
+	int offset;
+	int capturedLength;
+	int originalLength;
+	long timestamp;
+	long timestampMicroSeconds;
+	long positionInFile; // offset of the record header
+	long nextRecord; // offset of the record header of the next packet
+	
+	
+	PacketView(long firstRecord) {
+		this.nextRecord = firstRecord;
+	}
+	
+	
+	/**
+	 * the (memory mapped) buffer containing the packet. note that the buffer 
+	 * must not be modified and that its position is meaningless (use 
+	 * absolute get()s only).
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+	
+	
+	/**
+	 * index of the first byte of the packet (i.e. of the link layer header) 
+	 * in getBuffer().
+	 */
+	public int getOffset() {
+		return offset;
+	}
+	
+	
+	/**
+	 * number of bytes of the packet present in the file (may be less than 
+	 * getOriginalLength() if the packet was truncated during capture).
+	 */
+	public int getCapturedLength() {
+		return capturedLength;
+	}
+	
+	
+	/**
+	 * length of the packet as it appeared on the network.
+	 */
+	public int getOriginalLength() {
+		return originalLength;
+	}
+	
+	
+	// unix time (ms passed since midnight, January 1, 1970 UTC; same format as returned by "System.currentTimeMillis()")
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	
+	/**
+	 * fraction of the second the packet was captured in (see 
+	 * PCAPpacket.getTimestampMicroSeconds()).
+	 */
+	public long getTimestampMicroSeconds() {
+		return timestampMicroSeconds;
+	}
+	
+	
+	/**
+	 * offset of the record (header) of this packet in the capture file.
+	 */
+	public long getPositionInFile() {
+		return positionInFile;
+	}
+	
+	
+	/**
+	 * returns a copy of the captured bytes of this packet (e.g. for use with 
+	 * the byte[] based methods of the header parsers or to keep the packet 
+	 * after the view was moved on).
+	 */
+	public byte[] copy() {
+		byte[] result = new byte[capturedLength];
+		ByteBuffer source = buffer.duplicate(); // don't touch the position of the shared buffer
+		source.position(offset);
+		source.get(result);
+		return result;
+	}
+	
+}
@@ -17,6 +17,7 @@
  *******************************************************************************/
 package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.zip.CRC32;
 
@@ -190,6 +191,70 @@ public class EthernetFrame {
 	public static boolean getIsWOL(byte[] frame) {
 		return getEtherType(frame) == ETHER_TYPE_WOL;
 	}
+	
+	
+	/*
+	 * The methods below read the header fields straight from a (memory 
+	 * mapped) buffer without copying the frame. "offset" is the index of the 
+	 * first byte of the frame in "buffer", "length" the number of bytes 
+	 * captured. The buffer must use big endian byte order (default).
+	 */
+	public static boolean isVLAN(ByteBuffer buffer, int offset) {
+		return (buffer.getShort(offset + 12) & 0xffff) == ETHER_TYPE_VLAN;
+	}
+	
+	
+	public static int getEtherType(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + (isVLAN(buffer, offset) ? 16 : 12)) & 0xffff;
+	}
+	
+	
+	public static int getHeaderLengthStat(ByteBuffer buffer, int offset) {
+		return isVLAN(buffer, offset) ? 18 : 14;
+	}
+	
+	
+	public static int getLengthStat(ByteBuffer buffer, int offset, int length) {
+		int etherType = getEtherType(buffer, offset);
+		return (etherType <= 1500) ? etherType : length;
+	}
+	
+	
+	public static int getPayloadLengthStat(ByteBuffer buffer, int offset, int length) { 
+		int etherType = getEtherType(buffer, offset);
+		if (etherType <= 1500) // IEEE 802.3 frame
+			return etherType;
+		int crcLength = (length < 64) ? 0 : 4; //  (length < 64) indicates a truncated packet
+		return length - getHeaderLengthStat(buffer, offset) - crcLength;
+	}
+	
+	
+	/**
+	 * returns the number of payload bytes available in the buffer (same bytes 
+	 * as returned by getPayloadStat(byte[])); the payload starts at offset + 
+	 * getHeaderLengthStat(buffer, offset). returns 0 if no payload is 
+	 * available.
+	 */
+	public static int getAvailablePayloadLength(ByteBuffer buffer, int offset, int length) {
+		int headerLength = getHeaderLengthStat(buffer, offset);
+		if (length <= headerLength)
+			return 0;
+		int etherType = getEtherType(buffer, offset);
+		if (etherType <= 1500) // IEEE 802.3 frame
+			return Math.min(etherType, length - headerLength);
+		int crcLength = (length < 64) ? 0 : 4;
+		return length - headerLength - crcLength;
+	}
+	
+	
+	public static String getDstMacAsString(ByteBuffer buffer, int offset) {
+		return Util.toHex(buffer, offset, 6);
+	}
+	
+	
+	public static String getSrcMacAsString(ByteBuffer buffer, int offset) {
+		return Util.toHex(buffer, offset + 6, 6);
+	}
 
 
 	public static String etherTypeToString(int etherType) {
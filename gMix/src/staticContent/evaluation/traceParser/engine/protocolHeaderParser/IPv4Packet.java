@@ -19,6 +19,7 @@ package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import staticContent.evaluation.traceParser.engine.protocolHeaderParser.IPpacket.IPprotocol;
@@ -218,6 +219,75 @@ public class IPv4Packet {
 	}
 	
 	
+	/*
+	 * The methods below read the header fields straight from a (memory 
+	 * mapped) buffer without copying the packet. "offset" is the index of the 
+	 * first byte of the packet in "buffer", "length" the number of bytes 
+	 * captured. The buffer must use big endian byte order (default).
+	 */
+	public static int getVersion(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0xf0) >> 4;
+	}
+	
+	
+	public static int getHeaderLengthStat(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0x0f) * 4;
+	}
+	
+	
+	public static int getTotalLength(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + 2) & 0xffff;
+	}
+	
+	
+	public static IPprotocol getProtocol(ByteBuffer buffer, int offset) {
+		return IPpacket.getIPprotocolNumberByByte(buffer.get(offset + 9));
+	}
+	
+	
+	public static String getSrcIPasString(ByteBuffer buffer, int offset) {
+		return addressToString(buffer, offset + 12);
+	}
+	
+	
+	public static String getDstIPasString(ByteBuffer buffer, int offset) {
+		return addressToString(buffer, offset + 16);
+	}
+	
+	
+	public static int getPayloadLengthStat(ByteBuffer buffer, int offset) {
+		return getTotalLength(buffer, offset) - getHeaderLengthStat(buffer, offset);
+	}
+	
+	
+	/**
+	 * returns the number of payload bytes available in the buffer (same bytes 
+	 * as returned by getPayloadStat(byte[]), i.e. without padding); the 
+	 * payload starts at offset + getHeaderLengthStat(buffer, offset). returns 
+	 * 0 if no payload is available.
+	 */
+	public static int getAvailablePayloadLength(ByteBuffer buffer, int offset, int length) {
+		int availableData = length - getHeaderLengthStat(buffer, offset); // might include padding (!)
+		if (availableData <= 0) // truncated packet; no payload
+			return 0;
+		return Math.max(0, Math.min(availableData, getPayloadLengthStat(buffer, offset)));
+	}
+	
+	
+	/**
+	 * dotted decimal notation of the 4 byte address at "offset" (same format 
+	 * as InetAddress.getHostAddress()).
+	 */
+	public static String addressToString(ByteBuffer buffer, int offset) {
+		StringBuilder sb = new StringBuilder(15);
+		sb.append(buffer.get(offset) & 0xff).append('.');
+		sb.append(buffer.get(offset + 1) & 0xff).append('.');
+		sb.append(buffer.get(offset + 2) & 0xff).append('.');
+		sb.append(buffer.get(offset + 3) & 0xff);
+		return sb.toString();
+	}
+	
+	
 	public static String toString(byte[] packet) {
 		StringBuffer sb = new StringBuffer();
 		sb.append("IPv4 header: \n");
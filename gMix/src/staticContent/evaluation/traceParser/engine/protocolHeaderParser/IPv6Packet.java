@@ -19,6 +19,7 @@ package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Vector;
 
@@ -184,6 +185,96 @@ public class IPv6Packet {
 	}
 	
 	
+	/*
+	 * The methods below read the header fields straight from a (memory 
+	 * mapped) buffer without copying the packet. "offset" is the index of the 
+	 * first byte of the packet in "buffer", "length" the number of bytes 
+	 * captured. The buffer must use big endian byte order (default).
+	 */
+	public static int getPayloadLengthIncludingExtensionHeaders(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + 4) & 0xffff;
+	}
+	
+	
+	public static IPprotocol getProtocol(ByteBuffer buffer, int offset) {
+		return IPpacket.getIPprotocolNumberByByte(buffer.get(offset + 6));
+	}
+	
+	
+	public static int getProtocolAsInt(ByteBuffer buffer, int offset) {
+		return buffer.get(offset + 6) & 0xff;
+	}
+	
+	
+	public static String getSrcIPasString(ByteBuffer buffer, int offset) {
+		return addressToString(buffer, offset + 8);
+	}
+	
+	
+	public static String getDstIPasString(ByteBuffer buffer, int offset) {
+		return addressToString(buffer, offset + 24);
+	}
+	
+	
+	/**
+	 * same as getHeaderLengthStat(byte[]), but stops at the end of the 
+	 * captured data (truncated packets).
+	 */
+	public static int getHeaderLengthStat(ByteBuffer buffer, int offset, int length) {
+		if (!IPpacket.isIPv6ExtensionHeader(getProtocolAsInt(buffer, offset))) // no extension headers -> return basic length (= 40 bytes)
+			return 40;
+		int headerOffset = 40;
+		while (headerOffset + 1 < length) {
+			int type = buffer.get(offset + headerOffset) & 0xff;
+			if (IPpacket.isIPv6ExtensionHeader(type))
+				headerOffset += (8 + (buffer.get(offset + headerOffset + 1) & 0xff));
+			else
+				break;
+		}
+		return headerOffset;
+	}
+	
+	
+	public static int getPayloadLengthWithoutExtensionHeaders(ByteBuffer buffer, int offset, int length) {
+		return getPayloadLengthIncludingExtensionHeaders(buffer, offset) - (getHeaderLengthStat(buffer, offset, length) - 40);
+	}
+	
+	
+	/**
+	 * returns the number of payload bytes available in the buffer (same bytes 
+	 * as returned by getPayloadStat(byte[]), i.e. without padding); the 
+	 * payload starts at offset + getHeaderLengthStat(buffer, offset, length). 
+	 * returns 0 if no payload is available.
+	 */
+	public static int getAvailablePayloadLength(ByteBuffer buffer, int offset, int length) {
+		int availableData = length - getHeaderLengthStat(buffer, offset, length); // might include padding (!)
+		if (availableData <= 0) // truncated packet; no payload
+			return 0;
+		return Math.max(0, Math.min(availableData, getPayloadLengthWithoutExtensionHeaders(buffer, offset, length)));
+	}
+	
+	
+	/**
+	 * textual representation of the 16 byte address at "offset" (same format 
+	 * as InetAddress.getByAddress(address).getHostAddress(), i.e. IPv4-mapped 
+	 * addresses are returned in dotted decimal notation).
+	 */
+	public static String addressToString(ByteBuffer buffer, int offset) {
+		boolean isIPv4Mapped = (buffer.getShort(offset + 10) & 0xffff) == 0xffff;
+		for (int i=0; i<10 && isIPv4Mapped; i++)
+			if (buffer.get(offset + i) != 0)
+				isIPv4Mapped = false;
+		if (isIPv4Mapped)
+			return IPv4Packet.addressToString(buffer, offset + 12);
+		StringBuilder sb = new StringBuilder(39);
+		for (int i=0; i<8; i++) {
+			if (i != 0)
+				sb.append(':');
+			sb.append(Integer.toHexString(buffer.getShort(offset + (i << 1)) & 0xffff));
+		}
+		return sb.toString();
+	}
+	
 	
 	public static String toString(byte[] packet) {
 		StringBuffer sb = new StringBuffer();
@@ -19,6 +19,7 @@ package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import staticContent.evaluation.traceParser.engine.Protocol;
 import staticContent.framework.util.Util;
@@ -28,6 +29,7 @@ public class PCAPfileHeader {
 
 	private final static long MAGIC_NUMBER = 0xA1B2C3D4l;
 	private final static long MAGIC_NUMBER_SWAPPED = 0xD4C3B2A1l;
+	public final static int LENGTH = 24; // in byte
 	private boolean isSwapped;
 	private int majorVersionNr;
 	private int minorVersionNr;
@@ -337,6 +339,65 @@ public class PCAPfileHeader {
 	}
 	
 	
+	/**
+	 * Reads the header from the first 24 bytes of the given (memory mapped) 
+	 * buffer (big endian byte order).
+	 */
+	public static PCAPfileHeader readHeader(ByteBuffer buffer) {
+		if (buffer.limit() < LENGTH)
+			throw new RuntimeException("no PCAP header found. doesn't seem to be a PCAP file");
+		PCAPfileHeader pcapHeader = new PCAPfileHeader();
+		long magicNumber = buffer.getInt(0) & 0xFFFFFFFFl;
+		if (magicNumber == MAGIC_NUMBER) {
+			pcapHeader.isSwapped = false;
+		} else if (magicNumber == MAGIC_NUMBER_SWAPPED) {
+			pcapHeader.isSwapped = true;
+		} else 
+			throw new RuntimeException("no PCAP header found. doesn't seem to be a PCAP file"); 
+		pcapHeader.majorVersionNr = pcapHeader.getUnsignedShort(buffer, 4);
+		pcapHeader.minorVersionNr = pcapHeader.getUnsignedShort(buffer, 6);
+		pcapHeader.timeZoneOffest = (int) pcapHeader.getUnsignedInt(buffer, 8);
+		if (pcapHeader.timeZoneOffest != 0)
+			System.err.println("warning: timeZoneOffest in pcap header not set to 0"); // should always be 0 according to http://wiki.wireshark.org/Development/LibpcapFileFormat
+		pcapHeader.timestampAccurycy = (int) pcapHeader.getUnsignedInt(buffer, 12);
+		if (pcapHeader.timestampAccurycy != 0)
+			System.err.println("warning: timestampAccurycy in pcap header not set to 0"); // should always be 0 according to http://wiki.wireshark.org/Development/LibpcapFileFormat
+		pcapHeader.snaplen = (int) pcapHeader.getUnsignedInt(buffer, 16);
+		pcapHeader.linkLayerHeaderType = LinkLayerHeaderType.values()[(int) pcapHeader.getUnsignedInt(buffer, 20)];
+		return pcapHeader;
+	}
+	
+	
+	/**
+	 * Returns true if the given 4 bytes are a PCAP magic number (in any byte 
+	 * order).
+	 */
+	public static boolean isMagicNumber(byte[] firstFourBytes) {
+		long magicNumber = Util.unsignedIntToLong(firstFourBytes);
+		return magicNumber == MAGIC_NUMBER || magicNumber == MAGIC_NUMBER_SWAPPED;
+	}
+	
+	
+	/**
+	 * Reads the (unsigned) 4 byte field at "index" of the given buffer in the 
+	 * byte order of the file.
+	 */
+	public long getUnsignedInt(ByteBuffer buffer, int index) {
+		int value = buffer.getInt(index);
+		return (isSwapped ? Integer.reverseBytes(value) : value) & 0xFFFFFFFFl;
+	}
+	
+	
+	/**
+	 * Reads the (unsigned) 2 byte field at "index" of the given buffer in the 
+	 * byte order of the file.
+	 */
+	public int getUnsignedShort(ByteBuffer buffer, int index) {
+		short value = buffer.getShort(index);
+		return (isSwapped ? Short.reverseBytes(value) : value) & 0xFFFF;
+	}
+	
+	
 	public byte[] forceRead(InputStream inputStream, int length) throws IOException {
 		byte[] data = Util.forceRead(inputStream, length);
 		if (data == null) // EOF
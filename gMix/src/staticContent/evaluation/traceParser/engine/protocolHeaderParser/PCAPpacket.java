@@ -19,6 +19,7 @@ package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Calendar;
 
 import staticContent.evaluation.traceParser.engine.Protocol;
@@ -28,6 +29,7 @@ import staticContent.framework.util.Util;
 public class PCAPpacket {
 
 	public static PCAPfileHeader pcapFileHeader = null;
+	public final static int RECORD_HEADER_LENGTH = 16; // in byte
 	private final static int NOT_SET = -1;
 	private static long timestamp = NOT_SET;
 	private static long timestampMS = NOT_SET;
@@ -95,6 +97,45 @@ public class PCAPpacket {
 	}
 	
 	
+	/*
+	 * The methods below read the fields of the record header starting at 
+	 * "recordOffset" straight from a (memory mapped) buffer. In contrast to 
+	 * the methods above, they don't depend on any static state (the byte 
+	 * order is taken from the "fileHeader" of the file the buffer belongs 
+	 * to), i.e. any number of files can be parsed in parallel.
+	 */
+	public static long getTimestampSeconds(ByteBuffer buffer, int recordOffset, PCAPfileHeader fileHeader) {
+		return fileHeader.getUnsignedInt(buffer, recordOffset);
+	}
+	
+	
+	public static long getTimestampMicroSeconds(ByteBuffer buffer, int recordOffset, PCAPfileHeader fileHeader) {
+		return fileHeader.getUnsignedInt(buffer, recordOffset + 4);
+	}
+	
+	
+	// unix time (ms passed since midnight, January 1, 1970 UTC; same format as returned by "System.currentTimeMillis()")
+	public static long getTimestamp(ByteBuffer buffer, int recordOffset, PCAPfileHeader fileHeader) {
+		return (getTimestampSeconds(buffer, recordOffset, fileHeader) * 1000l) + Math.round((double)getTimestampMicroSeconds(buffer, recordOffset, fileHeader)/1000.0d);
+	}
+	
+	
+	/**
+	 * number of bytes of the packet present in the file ("incl_len").
+	 */
+	public static int getCapturedLength(ByteBuffer buffer, int recordOffset, PCAPfileHeader fileHeader) {
+		return (int)fileHeader.getUnsignedInt(buffer, recordOffset + 8);
+	}
+	
+	
+	/**
+	 * length of the packet as it appeared on the network ("orig_len").
+	 */
+	public static int getOriginalLength(ByteBuffer buffer, int recordOffset, PCAPfileHeader fileHeader) {
+		return (int)fileHeader.getUnsignedInt(buffer, recordOffset + 12);
+	}
+	
+	
 	public static String toString(byte[] rawPacket) {
 		StringBuffer sb = new StringBuffer();
 		sb.append("pcap packet header: \n");
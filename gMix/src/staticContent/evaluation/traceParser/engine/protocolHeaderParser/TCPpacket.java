@@ -17,6 +17,7 @@
  *******************************************************************************/
 package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import staticContent.evaluation.traceParser.engine.protocolHandler.ProtocolHandler;
@@ -137,6 +138,51 @@ public class TCPpacket {
 	}
 	
 	
+	/*
+	 * The methods below read the header fields straight from a (memory 
+	 * mapped) buffer without copying the packet. "offset" is the index of the 
+	 * first byte of the segment in "buffer", "length" the number of bytes 
+	 * captured. The buffer must use big endian byte order (default).
+	 */
+	public static int getSourcePort(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset) & 0xffff;
+	}
+	
+	
+	public static int getDestinationPort(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + 2) & 0xffff;
+	}
+	
+	
+	public static int getHeaderLengthStat(ByteBuffer buffer, int offset) {
+		return 4 * ((buffer.get(offset + 12) & 0xf0) >> 4);
+	}
+	
+	
+	public static boolean getFlag_ACK(ByteBuffer buffer, int offset) {
+		return Util.getBitAt(4, buffer.get(offset + 13));
+	}
+	
+	
+	public static boolean getFlag_SYN(ByteBuffer buffer, int offset) {
+		return Util.getBitAt(1, buffer.get(offset + 13));
+	}
+	
+	
+	public static boolean getFlag_FIN(ByteBuffer buffer, int offset) {
+		return Util.getBitAt(0, buffer.get(offset + 13));
+	}
+	
+	
+	public static int getPayloadLengthStat(ByteBuffer buffer, int offset, int length) {
+		int availableData = length - getHeaderLengthStat(buffer, offset);
+		if (availableData <= 0) // truncated packet
+			return ProtocolHandler.UNKNOWN;
+		else
+			return availableData;
+	}
+	
+	
 	public static String toString(byte[] packet) {
 		StringBuffer sb = new StringBuffer();
 		sb.append("TCP header: \n");
@@ -17,6 +17,7 @@
  *******************************************************************************/
 package staticContent.evaluation.traceParser.engine.protocolHeaderParser;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import staticContent.framework.util.Util;
@@ -73,6 +74,46 @@ public class UDPpacket {
 	}
 	
 	
+	/*
+	 * The methods below read the header fields straight from a (memory 
+	 * mapped) buffer without copying the packet. "offset" is the index of the 
+	 * first byte of the segment in "buffer", "length" the number of bytes 
+	 * captured. The buffer must use big endian byte order (default).
+	 */
+	public static int getSourcePort(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset) & 0xffff;
+	}
+	
+	
+	public static int getDestinationPort(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + 2) & 0xffff;
+	}
+	
+	
+	public static int getTotalLength(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset + 4) & 0xffff;
+	}
+	
+	
+	public static int getPayloadLengthStat(ByteBuffer buffer, int offset) {
+		return getTotalLength(buffer, offset) - getHeaderLengthStat();
+	}
+	
+	
+	/**
+	 * returns the number of payload bytes available in the buffer (same bytes 
+	 * as returned by getPayloadStat(byte[]), i.e. without padding); the 
+	 * payload starts at offset + getHeaderLengthStat(). returns 0 if no 
+	 * payload is available.
+	 */
+	public static int getAvailablePayloadLength(ByteBuffer buffer, int offset, int length) {
+		int actualLength = length - getHeaderLengthStat();
+		if (actualLength <= 0) // truncated packet; no payload
+			return 0;
+		return Math.max(0, Math.min(actualLength, getPayloadLengthStat(buffer, offset)));
+	}
+	
+	
 	public static String toString(byte[] packet) {
 		StringBuffer sb = new StringBuffer();
 		sb.append("UDP header: \n");
@@ -80,6 +80,9 @@ public class EncDnsServer {
 	public static int cachesize;
 	public static int timeout;
 	public static int maxThreads;
+	public static int cryptoThreads;
+	public static int upstreamSockets;
+	public static int retries;
 	public static String pkPath;
 	public static String skPath;
 	public static boolean encryption;
@@ -196,8 +199,11 @@ public class EncDnsServer {
             _opt.addOption("pk", "public-key", true, "path to public key (default: ./lib/encdns.pk)");
             _opt.addOption("sk", "secret-key", true, "path to secret key (default: ./lib/encdns.sk)");
             _opt.addOption("c", "cache", true, "shared secret cache size (default: 100)");
-            _opt.addOption("t", "timeout", true, "timeout for queries to authoritative nameservers in ms (default: 5000)");
-            _opt.addOption("mt", "max-threads", true, "maximum number of threads (default: 100)");
+            _opt.addOption("t", "timeout", true, "timeout for queries to the nameserver in ms (per try; default: 2000)");
+            _opt.addOption("mt", "max-threads", true, "maximum number of threads for the internal resolver (default: 100)");
+            _opt.addOption("ct", "crypto-threads", true, "number of threads for encryption/decryption (default: number of cores)");
+            _opt.addOption("us", "upstream-sockets", true, "number of sockets to multiplex queries to the nameserver over (default: 4)");
+            _opt.addOption("r", "retries", true, "number of retransmissions of unanswered queries to the nameserver (default: 2)");
             _opt.addOption("d", "disable-encryption", false, "disable encryption");
            _opt.addOption("v", "verbose", false, "enable verbose output");
            _opt.addOption("dts", "displayThreadStatus", false, "display info about threads (idle, encrypting...)");
@@ -238,6 +244,9 @@ public class EncDnsServer {
             String cacheStr = cmd.getOptionValue("cache");
             String timeoutStr = cmd.getOptionValue("timeout");
             String threadsStr = cmd.getOptionValue("max-threads");
+            String cryptoThreadsStr = cmd.getOptionValue("crypto-threads");
+            String upstreamSocketsStr = cmd.getOptionValue("upstream-sockets");
+            String retriesStr = cmd.getOptionValue("retries");
             String pkStr = cmd.getOptionValue("public-key");
             String skStr = cmd.getOptionValue("secret-key");
             String displayThreadStatusIntStr = cmd.getOptionValue("displayThreadStatusInterval");
@@ -265,7 +274,7 @@ public class EncDnsServer {
             if(cacheStr != null) {
                 cache = Integer.parseInt(cacheStr);
             }
-            int timeout = 5000;
+            int timeout = 2000;
             if(timeoutStr != null) {
                 timeout = Integer.parseInt(timeoutStr);
             }
@@ -273,6 +282,18 @@ public class EncDnsServer {
             if(threadsStr != null) {
                 maxThreads = Integer.parseInt(threadsStr);
             }
+            int cryptoThreads = Runtime.getRuntime().availableProcessors();
+            if(cryptoThreadsStr != null) {
+            	cryptoThreads = Integer.parseInt(cryptoThreadsStr);
+            }
+            int upstreamSockets = 4;
+            if(upstreamSocketsStr != null) {
+            	upstreamSockets = Integer.parseInt(upstreamSocketsStr);
+            }
+            int retries = 2;
+            if(retriesStr != null) {
+            	retries = Integer.parseInt(retriesStr);
+            }
             boolean encryption = true;
             if(cmd.hasOption("disable-encryption")) {
             	encryption = false;
@@ -351,6 +372,9 @@ public class EncDnsServer {
             EncDnsServer.cachesize = cache;
             EncDnsServer.timeout = timeout;
             EncDnsServer.maxThreads = maxThreads;
+            EncDnsServer.cryptoThreads = cryptoThreads;
+            EncDnsServer.upstreamSockets = upstreamSockets;
+            EncDnsServer.retries = retries;
             EncDnsServer.pkPath = pkStr;
             EncDnsServer.skPath = skStr;
             EncDnsServer.encryption = encryption;
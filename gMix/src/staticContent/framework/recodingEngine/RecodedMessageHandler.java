@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.recodingEngine;
+
+
+/**
+ * Receives the recoded messages of a RecodingEngine (in the order the 
+ * messages were taken from the input queue); typically forwards them to 
+ * layer 3 (e.g. outputStrategyLayerMix.addRequest()).
+ */
+public interface RecodedMessageHandler<M> {
+
+	public void handle(M message);
+	
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.recodingEngine;
+
+
+/**
+ * Recodes single messages for a RecodingEngine. Each worker thread of the 
+ * engine uses its own Recoder (see RecoderFactory), so implementations may 
+ * keep non thread-safe state (e.g. Cipher objects).
+ */
+public interface Recoder<M> {
+
+	/**
+	 * Returns the recoded message or null, if the message shall be dropped 
+	 * (e.g. wrong MAC or replay).
+	 */
+	public M recode(M message);
+	
+}
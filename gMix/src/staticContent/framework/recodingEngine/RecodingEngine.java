@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.recodingEngine;
+
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import staticContent.framework.message.MixMessage;
+import staticContent.framework.userDatabase.User;
+
+
+/**
+ * Layer 2 execution engine: takes the message batches (Request[] or Reply[]) 
+ * from a queue of the AnonNode (e.g. the request input queue filled by layer 
+ * 1), recodes the messages on a work-stealing ForkJoinPool and hands the 
+ * recoded messages to a RecodedMessageHandler (layer 3) in the order of the 
+ * batches.
+ * 
+ * To keep all cores busy even if layer 1 puts single messages into the 
+ * queue, all batches available at the time the previous round has finished 
+ * (max. MAX_BATCHES_PER_ROUND) are recoded together.
+ * 
+ * If "preserveOrderPerUser" is set (required for stateful recoders like 
+ * channels), the messages of a user are recoded sequentially (in the order 
+ * they were received) by the same task. Otherwise the messages are split up 
+ * recursively.
+ * 
+ * Statistics (per message): time waited in the pool before recoding (queue 
+ * wait) and time needed for recoding (crypto time).
+ */
+public class RecodingEngine<M extends MixMessage> {
+
+	private final static int MAX_BATCHES_PER_ROUND = 1024;
+	private final static int TASKS_PER_THREAD = 4; // granularity of work splitting (for work-stealing)
+	
+	private final String name;
+	private final BlockingQueue<M[]> inputQueue;
+	private final RecoderFactory<M> recoderFactory;
+	private final RecodedMessageHandler<M> outputHandler;
+	private final ForkJoinPool pool;
+	private final boolean preserveOrderPerUser;
+	private final ThreadLocal<Recoder<M>> recoders = new ThreadLocal<Recoder<M>>() {
+		@Override
+		protected Recoder<M> initialValue() {
+			return recoderFactory.createRecoder();
+		}
+	};
+	private DispatcherThread dispatcherThread;
+	
+	// statistics (times in ns)
+	private final AtomicLong rounds = new AtomicLong(0);
+	private final AtomicLong batches = new AtomicLong(0);
+	private final AtomicLong messages = new AtomicLong(0);
+	private final AtomicLong droppedMessages = new AtomicLong(0);
+	private final AtomicLong queueWaitTime = new AtomicLong(0);
+	private final AtomicLong recodingTime = new AtomicLong(0);
+	private final AtomicLong inputWaitTime = new AtomicLong(0);
+	private final AtomicLong outputTime = new AtomicLong(0);
+	
+	
+	/**
+	 * @param pool	may be shared by several engines (e.g. for requests and 
+	 * 				replies); see createPool()
+	 */
+	public RecodingEngine(
+			String name,
+			BlockingQueue<M[]> inputQueue, 
+			RecoderFactory<M> recoderFactory, 
+			RecodedMessageHandler<M> outputHandler, 
+			ForkJoinPool pool, 
+			boolean preserveOrderPerUser) {
+		this.name = name;
+		this.inputQueue = inputQueue;
+		this.recoderFactory = recoderFactory;
+		this.outputHandler = outputHandler;
+		this.pool = pool;
+		this.preserveOrderPerUser = preserveOrderPerUser;
+	}
+	
+	
+	/**
+	 * Creates a pool with "numberOfThreads" worker threads (one per core, if 
+	 * numberOfThreads < 1).
+	 */
+	public static ForkJoinPool createPool(int numberOfThreads) {
+		if (numberOfThreads < 1)
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		return new ForkJoinPool(numberOfThreads);
+	}
+	
+	
+	public void start() {
+		if (dispatcherThread != null)
+			throw new RuntimeException("ERROR: " +name +" already started"); 
+		this.dispatcherThread = new DispatcherThread();
+		dispatcherThread.setName(name);
+		dispatcherThread.setPriority(Thread.MAX_PRIORITY);
+		dispatcherThread.start();
+	}
+	
+	
+	private class DispatcherThread extends Thread {
+		
+		private ArrayList<M[]> batchesOfRound = new ArrayList<M[]>();
+		
+		
+		@Override
+		public void run() {
+			while (true) {
+				long start = System.nanoTime();
+				M[] firstBatch;
+				try {
+					firstBatch = inputQueue.take();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					continue;
+				}
+				inputWaitTime.addAndGet(System.nanoTime() - start);
+				batchesOfRound.add(firstBatch);
+				inputQueue.drainTo(batchesOfRound, MAX_BATCHES_PER_ROUND - 1);
+				recode(batchesOfRound);
+				batchesOfRound.clear();
+			}
+		}
+		
+		
+		private void recode(ArrayList<M[]> batchesOfRound) {
+			int numberOfMessages = 0;
+			for (M[] batch: batchesOfRound)
+				numberOfMessages += batch.length;
+			MixMessage[] messagesOfRound = new MixMessage[numberOfMessages];
+			int position = 0;
+			for (M[] batch: batchesOfRound) {
+				System.arraycopy(batch, 0, messagesOfRound, position, batch.length);
+				position += batch.length;
+			}
+			MixMessage[] results = new MixMessage[numberOfMessages];
+			long dispatchTime = System.nanoTime();
+			if (preserveOrderPerUser)
+				pool.invoke(new PartitionedRecodingTask(messagesOfRound, results, dispatchTime));
+			else
+				pool.invoke(new RecodingTask(messagesOfRound, results, 0, numberOfMessages, getSplitThreshold(numberOfMessages), dispatchTime));
+			long start = System.nanoTime();
+			int dropped = 0;
+			for (int i=0; i<results.length; i++) {
+				if (results[i] == null) {
+					dropped++;
+				} else {
+					@SuppressWarnings("unchecked")
+					M result = (M)results[i];
+					outputHandler.handle(result);
+				}
+			}
+			outputTime.addAndGet(System.nanoTime() - start);
+			rounds.incrementAndGet();
+			batches.addAndGet(batchesOfRound.size());
+			messages.addAndGet(numberOfMessages);
+			droppedMessages.addAndGet(dropped);
+		}
+		
+		
+		private int getSplitThreshold(int numberOfMessages) {
+			return Math.max(1, numberOfMessages / (pool.getParallelism() * TASKS_PER_THREAD));
+		}
+		
+	}
+	
+	
+	/**
+	 * Recodes messages[i] for all i in "indices" (or in [from, to), if 
+	 * indices == null) sequentially and stores the results at the same index 
+	 * in "results".
+	 */
+	private void recodeSequentially(MixMessage[] messages, MixMessage[] results, int[] indices, int from, int to, long dispatchTime) {
+		Recoder<M> recoder = recoders.get();
+		long waitTime = 0;
+		long cryptoTime = 0;
+		for (int i=from; i<to; i++) {
+			int index = indices == null ? i : indices[i];
+			long start = System.nanoTime();
+			waitTime += start - dispatchTime;
+			@SuppressWarnings("unchecked")
+			M message = (M)messages[index];
+			results[index] = recoder.recode(message);
+			cryptoTime += System.nanoTime() - start;
+		}
+		queueWaitTime.addAndGet(waitTime);
+		recodingTime.addAndGet(cryptoTime);
+	}
+	
+	
+	@SuppressWarnings("serial")
+	private class RecodingTask extends RecursiveAction {
+		
+		private final MixMessage[] messages;
+		private final MixMessage[] results;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final long dispatchTime;
+		
+		
+		private RecodingTask(MixMessage[] messages, MixMessage[] results, int from, int to, int threshold, long dispatchTime) {
+			this.messages = messages;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.dispatchTime = dispatchTime;
+		}
+		
+		
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				recodeSequentially(messages, results, null, from, to, dispatchTime);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(
+						new RecodingTask(messages, results, from, middle, threshold, dispatchTime), 
+						new RecodingTask(messages, results, middle, to, threshold, dispatchTime)
+						);
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * Splits the messages up by user (hash partitioning); the messages of 
+	 * each partition are recoded sequentially (in the order they were 
+	 * received) by a separate task.
+	 */
+	@SuppressWarnings("serial")
+	private class PartitionedRecodingTask extends RecursiveAction {
+		
+		private final MixMessage[] messages;
+		private final MixMessage[] results;
+		private final long dispatchTime;
+		
+		
+		private PartitionedRecodingTask(MixMessage[] messages, MixMessage[] results, long dispatchTime) {
+			this.messages = messages;
+			this.results = results;
+			this.dispatchTime = dispatchTime;
+		}
+		
+		
+		@Override
+		protected void compute() {
+			int numberOfPartitions = Integer.highestOneBit(Math.max(1, Math.min(messages.length, pool.getParallelism() * TASKS_PER_THREAD)));
+			if (numberOfPartitions == 1) {
+				recodeSequentially(messages, results, null, 0, messages.length, dispatchTime);
+				return;
+			}
+			int[] partitionOf = new int[messages.length];
+			int[] partitionSize = new int[numberOfPartitions];
+			for (int i=0; i<messages.length; i++) {
+				User owner = messages[i].getOwner();
+				int hash = owner == null ? 0 : owner.getIdentifier() * 0x9E3779B9;
+				partitionOf[i] = (hash ^ (hash >>> 16)) & (numberOfPartitions - 1);
+				partitionSize[partitionOf[i]]++;
+			}
+			int[][] partitions = new int[numberOfPartitions][];
+			for (int i=0; i<numberOfPartitions; i++)
+				partitions[i] = new int[partitionSize[i]];
+			int[] position = new int[numberOfPartitions];
+			for (int i=0; i<messages.length; i++)
+				partitions[partitionOf[i]][position[partitionOf[i]]++] = i;
+			ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>(numberOfPartitions);
+			for (final int[] partition: partitions) {
+				if (partition.length == 0)
+					continue;
+				tasks.add(new RecursiveAction() {
+					@Override
+					protected void compute() {
+						recodeSequentially(messages, results, partition, 0, partition.length, dispatchTime);
+					}
+				});
+			}
+			invokeAll(tasks);
+		}
+		
+	}
+	
+	
+	public long getNumberOfRecodedBatches() {
+		return batches.get();
+	}
+	
+	
+	public long getNumberOfRecodedMessages() {
+		return messages.get();
+	}
+	
+	
+	public long getNumberOfDroppedMessages() {
+		return droppedMessages.get();
+	}
+	
+	
+	/**
+	 * Average time (in ns) a message waited in the pool for a worker thread.
+	 */
+	public long getAverageQueueWaitTime() {
+		long n = messages.get();
+		return n == 0 ? 0 : queueWaitTime.get() / n;
+	}
+	
+	
+	/**
+	 * Average time (in ns) needed to recode a message (crypto time).
+	 */
+	public long getAverageRecodingTime() {
+		long n = messages.get();
+		return n == 0 ? 0 : recodingTime.get() / n;
+	}
+	
+	
+	/**
+	 * Total time (in ns) the engine waited for new batches (idle time).
+	 */
+	public long getTotalInputWaitTime() {
+		return inputWaitTime.get();
+	}
+	
+	
+	/**
+	 * Total time (in ns) needed to hand the recoded messages to the 
+	 * RecodedMessageHandler.
+	 */
+	public long getTotalOutputTime() {
+		return outputTime.get();
+	}
+	
+	
+	public void resetStatistics() {
+		rounds.set(0);
+		batches.set(0);
+		messages.set(0);
+		droppedMessages.set(0);
+		queueWaitTime.set(0);
+		recodingTime.set(0);
+		inputWaitTime.set(0);
+		outputTime.set(0);
+	}
+	
+	
+	@Override
+	public String toString() {
+		long r = rounds.get();
+		return name 
+				+": rounds: " +r
+				+", batches: " +batches.get()
+				+", messages: " +messages.get()
+				+" (dropped: " +droppedMessages.get() +")"
+				+", avg. messages per round: " +(r == 0 ? 0 : messages.get() / r)
+				+", avg. queue wait: " +(getAverageQueueWaitTime() / 1000) +" us"
+				+", avg. recoding time: " +(getAverageRecodingTime() / 1000) +" us"
+				+", total input wait: " +(getTotalInputWaitTime() / 1000000) +" ms"
+				+", total output time: " +(getTotalOutputTime() / 1000000) +" ms"
+				+", threads: " +pool.getParallelism();
+	}
+	
+}
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.timingWheel;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Hashed hierarchical timing wheel (see Varghese and Lauck 1987: "Hashed and 
+ * Hierarchical Timing Wheels: Data Structures for the Efficient 
+ * Implementation of a Timer Facility"). Replacement for java.util.Timer for 
+ * large numbers of (per message) timeouts: scheduling and cancellation are 
+ * O(1) (instead of O(log n) for the heap of java.util.Timer) and all 
+ * elements expiring in the same tick are handed to the ExpirationHandler 
+ * together (as one list).
+ * 
+ * The wheel consists of NUMBER_OF_LEVELS levels with SLOTS_PER_LEVEL slots 
+ * each. A slot of level 0 covers one tick, a slot of level l covers 
+ * SLOTS_PER_LEVEL^l ticks. Elements are moved to the next lower level 
+ * ("cascaded") when the current tick reaches their slot. With the default 
+ * tick duration of 1 ms, delays of up to 2^32 ms (~49 days) are supported 
+ * (longer delays are cascaded repeatedly).
+ * 
+ * New and cancelled timeouts are passed to the timer thread via lock-free 
+ * queues, i.e. the wheel itself is only accessed by the timer thread. The 
+ * timer thread sleeps while no timeouts are pending.
+ * 
+ * Expiration times are rounded up to the next tick.
+ */
+public class TimingWheel<T> {
+	
+	public final static long DEFAULT_TICK_DURATION = 1; // ms
+	private final static int BITS_PER_LEVEL = 8;
+	private final static int SLOTS_PER_LEVEL = 1 << BITS_PER_LEVEL;
+	private final static int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+	private final static int NUMBER_OF_LEVELS = 4;
+	private final static long MAX_DELTA = 1L << (BITS_PER_LEVEL * NUMBER_OF_LEVELS); // in ticks
+	
+	private final ExpirationHandler<T> expirationHandler;
+	private final long tickDuration; // in ns
+	private final long startTime;
+	private final Slot<T>[][] wheel;
+	private final ConcurrentLinkedQueue<Timeout<T>> newTimeouts = new ConcurrentLinkedQueue<Timeout<T>>();
+	private final ConcurrentLinkedQueue<Timeout<T>> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout<T>>();
+	private final AtomicInteger pendingTimeouts = new AtomicInteger(0);
+	private final TimerThread timerThread;
+	private volatile boolean isIdle = false;
+	private long currentTick = 0; // last processed tick (accessed by timerThread only)
+	
+	
+	public TimingWheel(String name, ExpirationHandler<T> expirationHandler) {
+		this(name, DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, expirationHandler);
+	}
+	
+	
+	public TimingWheel(String name, long tickDuration, TimeUnit unit, ExpirationHandler<T> expirationHandler) {
+		if (tickDuration <= 0)
+			throw new RuntimeException("ERROR: tickDuration must be > 0"); 
+		this.expirationHandler = expirationHandler;
+		this.tickDuration = unit.toNanos(tickDuration);
+		this.wheel = createWheel();
+		this.startTime = System.nanoTime();
+		this.timerThread = new TimerThread();
+		timerThread.setName(name);
+		timerThread.setDaemon(true);
+		timerThread.start();
+	}
+	
+	
+	// generic arrays can't be created directly; the cast is safe since all slots are filled with Slot<T> here
+	@SuppressWarnings("unchecked")
+	private static <T> Slot<T>[][] createWheel() {
+		Slot<T>[][] wheel = (Slot<T>[][])new Slot<?>[NUMBER_OF_LEVELS][SLOTS_PER_LEVEL];
+		for (int level=0; level<NUMBER_OF_LEVELS; level++)
+			for (int i=0; i<SLOTS_PER_LEVEL; i++)
+				wheel[level][i] = new Slot<T>();
+		return wheel;
+	}
+	
+	
+	/**
+	 * Hands "element" to the ExpirationHandler after "delay" ms.
+	 */
+	public Timeout<T> schedule(T element, long delay) {
+		return schedule(element, delay, 0);
+	}
+	
+	
+	/**
+	 * Hands "element" to the ExpirationHandler after "delay" ms and then 
+	 * every "period" ms (fixed rate) until the returned Timeout is cancelled.
+	 */
+	public Timeout<T> scheduleAtFixedRate(T element, long delay, long period) {
+		if (period <= 0)
+			throw new RuntimeException("ERROR: period must be > 0"); 
+		return schedule(element, delay, period);
+	}
+	
+	
+	private Timeout<T> schedule(T element, long delay, long period) {
+		long deadline = (System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)) + tickDuration - 1) / tickDuration;
+		long periodInTicks = period == 0 ? 0 : Math.max(1, TimeUnit.MILLISECONDS.toNanos(period) / tickDuration);
+		Timeout<T> timeout = new Timeout<T>(this, element, deadline, periodInTicks);
+		pendingTimeouts.incrementAndGet();
+		newTimeouts.add(timeout);
+		if (isIdle)
+			LockSupport.unpark(timerThread);
+		return timeout;
+	}
+	
+	
+	/**
+	 * Number of elements scheduled but not yet expired or cancelled.
+	 */
+	public int getNumberOfPendingTimeouts() {
+		return pendingTimeouts.get();
+	}
+	
+	
+	public static class Timeout<T> {
+		
+		private final static int PENDING = 0;
+		private final static int CANCELLED = 1;
+		private final static int EXPIRED = 2;
+		
+		private final TimingWheel<T> timingWheel;
+		private final T element;
+		private final long periodInTicks; // 0 = not periodic
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		// accessed by the timer thread only:
+		private long deadline; // in ticks
+		private Slot<T> slot;
+		private Timeout<T> previous;
+		private Timeout<T> next;
+		
+		
+		private Timeout(TimingWheel<T> timingWheel, T element, long deadline, long periodInTicks) {
+			this.timingWheel = timingWheel;
+			this.element = element;
+			this.deadline = deadline;
+			this.periodInTicks = periodInTicks;
+		}
+		
+		
+		public T getElement() {
+			return element;
+		}
+		
+		
+		/**
+		 * Returns false if the element has already expired (or if cancel() 
+		 * was already called).
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(PENDING, CANCELLED))
+				return false;
+			timingWheel.pendingTimeouts.decrementAndGet();
+			timingWheel.cancelledTimeouts.add(this);
+			return true;
+		}
+		
+		
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+		
+		
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+		
+	}
+	
+	
+	// doubly linked list of timeouts (for O(1) removal)
+	private static class Slot<T> {
+		
+		private Timeout<T> head;
+		private Timeout<T> tail;
+		
+		
+		private void add(Timeout<T> timeout) {
+			timeout.slot = this;
+			timeout.previous = tail;
+			timeout.next = null;
+			if (tail == null)
+				head = timeout;
+			else
+				tail.next = timeout;
+			tail = timeout;
+		}
+		
+		
+		private void remove(Timeout<T> timeout) {
+			if (timeout.previous == null)
+				head = timeout.next;
+			else
+				timeout.previous.next = timeout.next;
+			if (timeout.next == null)
+				tail = timeout.previous;
+			else
+				timeout.next.previous = timeout.previous;
+			timeout.slot = null;
+			timeout.previous = null;
+			timeout.next = null;
+		}
+		
+		
+		// removes and returns all timeouts of this slot (as linked list)
+		private Timeout<T> clear() {
+			Timeout<T> first = head;
+			head = null;
+			tail = null;
+			return first;
+		}
+		
+	}
+	
+	
+	private class TimerThread extends Thread {
+		
+		private ArrayList<Timeout<T>> expiredTimeouts = new ArrayList<Timeout<T>>();
+		private ArrayList<T> expiredElements = new ArrayList<T>();
+		
+		
+		@Override
+		public void run() {
+			while (true) {
+				if (pendingTimeouts.get() == 0 && newTimeouts.isEmpty()) {
+					waitForNewTimeouts();
+					continue;
+				} 
+				long elapsedTicks = getElapsedTicks();
+				if (currentTick >= elapsedTicks) { // wait for next tick
+					LockSupport.parkNanos(startTime + (currentTick + 1) * tickDuration - System.nanoTime());
+					continue;
+				}
+				while (currentTick < elapsedTicks) // catch up if we are late
+					processTick(currentTick + 1);
+			}
+		}
+		
+		
+		private void waitForNewTimeouts() {
+			isIdle = true;
+			while (pendingTimeouts.get() == 0 && newTimeouts.isEmpty())
+				LockSupport.park(this);
+			isIdle = false;
+			// no timeouts pending -> ticks can be skipped
+			currentTick = Math.max(currentTick, getElapsedTicks() - 1);
+			removeCancelledTimeouts();
+		}
+		
+		
+		private long getElapsedTicks() {
+			return (System.nanoTime() - startTime) / tickDuration;
+		}
+		
+		
+		private void processTick(long tick) {
+			currentTick = tick;
+			// cascade (higher levels first)
+			for (int level=NUMBER_OF_LEVELS-1; level>0; level--) {
+				if ((tick & ((1L << (BITS_PER_LEVEL * level)) - 1)) == 0) {
+					Timeout<T> timeout = wheel[level][(int)(tick >>> (BITS_PER_LEVEL * level)) & SLOT_MASK].clear();
+					while (timeout != null) {
+						Timeout<T> next = timeout.next;
+						timeout.slot = null;
+						timeout.previous = null;
+						timeout.next = null;
+						place(timeout);
+						timeout = next;
+					}
+				}
+			}
+			transferNewTimeouts();
+			removeCancelledTimeouts();
+			Timeout<T> timeout = wheel[0][(int)tick & SLOT_MASK].clear();
+			while (timeout != null) {
+				Timeout<T> next = timeout.next;
+				timeout.slot = null;
+				timeout.previous = null;
+				timeout.next = null;
+				expiredTimeouts.add(timeout);
+				timeout = next;
+			}
+			if (expiredTimeouts.size() > 0)
+				expire();
+		}
+		
+		
+		private void transferNewTimeouts() {
+			Timeout<T> timeout;
+			while ((timeout = newTimeouts.poll()) != null)
+				if (timeout.state.get() == Timeout.PENDING)
+					place(timeout);
+		}
+		
+		
+		private void removeCancelledTimeouts() {
+			Timeout<T> timeout;
+			while ((timeout = cancelledTimeouts.poll()) != null)
+				if (timeout.slot != null) // else: still in newTimeouts or already expired
+					timeout.slot.remove(timeout);
+		}
+		
+		
+		private void place(Timeout<T> timeout) {
+			long delta = timeout.deadline - currentTick;
+			if (delta <= 0) { // expired
+				expiredTimeouts.add(timeout);
+				return;
+			}
+			if (delta >= MAX_DELTA)
+				delta = MAX_DELTA - 1; // will be cascaded again
+			long tick = currentTick + delta;
+			int level = 0;
+			while (delta >= (1L << (BITS_PER_LEVEL * (level + 1))))
+				level++;
+			wheel[level][(int)(tick >>> (BITS_PER_LEVEL * level)) & SLOT_MASK].add(timeout);
+		}
+		
+		
+		private void expire() {
+			for (Timeout<T> timeout: expiredTimeouts) {
+				if (timeout.periodInTicks == 0) {
+					if (!timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED))
+						continue; // cancelled
+					pendingTimeouts.decrementAndGet();
+				} else {
+					if (timeout.state.get() != Timeout.PENDING)
+						continue; // cancelled
+					do { // note: periods missed (due to overload) are skipped
+						timeout.deadline += timeout.periodInTicks;
+					} while (timeout.deadline <= currentTick);
+					place(timeout);
+				}
+				expiredElements.add(timeout.element);
+			}
+			expiredTimeouts.clear();
+			if (expiredElements.size() > 0) {
+				try {
+					expirationHandler.expired(expiredElements);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				expiredElements = new ArrayList<T>();
+			}
+		}
+		
+	}
+	
+}
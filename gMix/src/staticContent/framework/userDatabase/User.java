@@ -17,8 +17,6 @@
  *******************************************************************************/
 package staticContent.framework.userDatabase;
 
-import java.util.HashMap;
-
 import staticContent.framework.util.Util;
 import userGeneratedContent.testbedPlugIns.layerPlugIns.layer1network.cascade_TCP_v0_001.ClientHandler_TCP_RR_sync.ChannelData;
 
@@ -30,8 +28,9 @@ import userGeneratedContent.testbedPlugIns.layerPlugIns.layer1network.cascade_TC
 public final class User {
 
 	public static final int NOT_SET = -1;
-	private int identifier;
-	private HashMap<Object, UserAttachment> attachments;
+	private static final UserAttachment[] NO_ATTACHMENTS = new UserAttachment[0];
+	private final int identifier;
+	private volatile UserAttachment[] attachments = NO_ATTACHMENTS; // [slot]; see UserDatabase.allocateAttachmentSlot()
 	private UserDatabase userDatabase;
 	public volatile int layer1Id = NOT_SET; // can be used as a "fast access" identifier on each layer (optional) 
 	public volatile int layer2Id = NOT_SET;
@@ -62,29 +61,58 @@ public final class User {
 	}
 
 	
+	/**
+	 * Returns the attachment stored in the given slot (see <code>
+	 * UserDatabase.allocateAttachmentSlot()</code>) or null, if no attachment 
+	 * is stored in this slot. Note: the type is not checked; only one type of 
+	 * attachment should be stored per slot.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends UserAttachment> T getAttachment(int slot) {
+		UserAttachment[] attachments = this.attachments;
+		return slot < attachments.length ? (T)attachments[slot] : null;
+	}
+	
+	
+	protected synchronized void setAttachment(int slot, UserAttachment attachment) {
+		UserAttachment[] attachments = this.attachments;
+		if (slot >= attachments.length) {
+			UserAttachment[] newAttachments = new UserAttachment[Math.max(slot + 1, userDatabase == null ? 0 : userDatabase.getNumberOfAttachmentSlots())];
+			System.arraycopy(attachments, 0, newAttachments, 0, attachments.length);
+			attachments = newAttachments;
+		}
+		assert attachments[slot] == null || attachment == null : "only one attachment per slot allowed; add the data to the existing attachment";
+		attachments[slot] = attachment;
+		this.attachments = attachments; // (re-)publish (volatile write)
+	}
+	
+	
+	public synchronized UserAttachment removeAttachment(int slot) {
+		UserAttachment removed = getAttachment(slot);
+		if (removed != null)
+			setAttachment(slot, null);
+		return removed;
+	}
+	
+	
+	// compatibility methods: the slot is looked up for the calling instance (see UserDatabase.getAttachmentSlot(Object))
 	protected void addAttachment(UserAttachment attachment, Object callingInstance) {
-		//System.out.println("add attachment: " +attachment +" (" +callingInstance +")"); // TODO
-		if (attachments == null)
-			attachments = new HashMap<Object, UserAttachment>();
-		assert !attachments.containsKey(callingInstance) : "only one attachment per instance allowed; add the data to the existing attachment";
-		attachments.put(callingInstance, attachment);
+		setAttachment(userDatabase.getAttachmentSlot(callingInstance), attachment);
 	}
 	
 	
 	public UserAttachment removeAttachment(UserAttachment attachment, Object callingInstance) {
-		return attachments.remove(callingInstance);
+		int slot = userDatabase.lookupAttachmentSlot(callingInstance);
+		return slot == NOT_SET ? null : removeAttachment(slot);
 	}
 	
 	
 	public <T extends UserAttachment> T getAttachment(Object callingInstance, Class<T> desiredType) {
-		//System.out.println("get attachment: " +desiredType +" (" +callingInstance +")"); // TODO
-		try {
-			if (attachments.get(callingInstance) == null)
-				throw new RuntimeException("no data stored for the calling instance " +callingInstance +". this methode requires a reference on the instance the attachment was created in."); 
-			return desiredType.cast(attachments.get(callingInstance));
-		} catch (Exception e) {
-			return null;
-		}
+		int slot = userDatabase.lookupAttachmentSlot(callingInstance);
+		if (slot == NOT_SET)
+			return null; // no data stored for the calling instance. this method requires a reference on the instance the attachment was created in.
+		UserAttachment attachment = getAttachment(slot);
+		return desiredType.isInstance(attachment) ? desiredType.cast(attachment) : null;
 	}
 
 
@@ -22,6 +22,23 @@ public abstract class UserAttachment {
 	private User owner;
 	
 	
+	/**
+	 * Stores this attachment in the given slot of "owner" (see 
+	 * <code>UserDatabase.allocateAttachmentSlot()</code>). Retrieve it with 
+	 * <code>owner.getAttachment(slot)</code>.
+	 */
+	public UserAttachment(User owner, int slot) {
+		this.owner = owner;
+		owner.setAttachment(slot, this);
+	}
+	
+	
+	/**
+	 * Compatibility constructor: stores this attachment in the slot reserved 
+	 * for "callingInstance". Retrieve it with <code>owner.getAttachment(
+	 * callingInstance, Class)</code>. New plugins should use 
+	 * <code>UserAttachment(User, int)</code>.
+	 */
 	public UserAttachment(User owner, Object callingInstance) {
 		this.owner = owner;
 		owner.addAttachment(this, callingInstance);
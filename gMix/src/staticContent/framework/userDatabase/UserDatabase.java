@@ -17,8 +17,9 @@
  *******************************************************************************/
 package staticContent.framework.userDatabase;
 
-import java.util.HashMap;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import staticContent.framework.observer.ObservationSubject;
 
@@ -32,18 +33,20 @@ import staticContent.framework.observer.ObservationSubject;
  */
 public class UserDatabase implements ObservationSubject<DatabaseEventListener> {
 
-	private int userIdCounter = 0;
-	private Vector<DatabaseEventListener> eventListeners;
-	private HashMap<String, User> users = new HashMap<String, User>(); 
+	private AtomicInteger userIdCounter = new AtomicInteger(0);
+	private CopyOnWriteArrayList<DatabaseEventListener> eventListeners; // listeners are (un-)registered rarely, but notified for every user
+	private UserTable users = new UserTable(); // lock-free lookups (called for every message on some layers)
+	private AtomicInteger attachmentSlotCounter = new AtomicInteger(0);
+	private ConcurrentHashMap<Object, Integer> attachmentSlotsOfCallingInstances = new ConcurrentHashMap<Object, Integer>(); // for the compatibility methods of User/UserAttachment
 	
 	public UserDatabase() {
-		this.eventListeners = new Vector<DatabaseEventListener>();
+		this.eventListeners = new CopyOnWriteArrayList<DatabaseEventListener>();
 		
 	}
 	
 	
 	public User generateUser() { // TODO: distinguish between different types of users
-		User newUser = new User(userIdCounter++, this);
+		User newUser = new User(userIdCounter.getAndIncrement(), this);
 		//addUser(newUser);
 		return newUser;
 	}
@@ -56,29 +59,60 @@ public class UserDatabase implements ObservationSubject<DatabaseEventListener> {
 	}
 	
 	
+	/**
+	 * Reserves a slot for user attachments (see <code>UserAttachment(User, 
+	 * int)</code> and <code>User.getAttachment(int)</code>). Plugins should 
+	 * call this method once (e.g. in <code>constructor()</code>) and use the 
+	 * returned slot for all users: looking up an attachment is a simple 
+	 * array access then.
+	 */
+	public int allocateAttachmentSlot() {
+		return attachmentSlotCounter.getAndIncrement();
+	}
+	
+	
+	public int getNumberOfAttachmentSlots() {
+		return attachmentSlotCounter.get();
+	}
+	
+	
+	// returns the slot of "callingInstance" (a new slot is allocated on first call)
+	protected int getAttachmentSlot(Object callingInstance) {
+		Integer slot = attachmentSlotsOfCallingInstances.get(callingInstance);
+		if (slot == null) {
+			Integer newSlot = allocateAttachmentSlot();
+			slot = attachmentSlotsOfCallingInstances.putIfAbsent(callingInstance, newSlot);
+			if (slot == null)
+				slot = newSlot;
+		}
+		return slot;
+	}
+	
+	
+	// returns the slot of "callingInstance" or User.NOT_SET if no slot was allocated for "callingInstance" yet
+	protected int lookupAttachmentSlot(Object callingInstance) {
+		Integer slot = attachmentSlotsOfCallingInstances.get(callingInstance);
+		return slot == null ? User.NOT_SET : slot;
+	}
+	
+	
 	@Override
 	public void registerEventListener(DatabaseEventListener dbel) {
-		synchronized (eventListeners) {
-			eventListeners.add(dbel);
-		}
+		eventListeners.add(dbel);
 	}
 	
 	
 	@Override
 	public boolean unregisterEventListener(DatabaseEventListener dbel) {
-		synchronized (eventListeners) {
-			return eventListeners.remove(dbel);
-		}
+		return eventListeners.remove(dbel);
 	}
 	
 	
 	public void addUser(User user) {
 		if (user != null) {
-			users.put(""+user.getIdentifier(), user);
-			synchronized (eventListeners) {
-				for (DatabaseEventListener dbel:eventListeners)
-					dbel.userAdded(user);
-			}
+			users.put(user);
+			for (DatabaseEventListener dbel:eventListeners)
+				dbel.userAdded(user);
 		}
 	}
 	
@@ -86,23 +120,19 @@ public class UserDatabase implements ObservationSubject<DatabaseEventListener> {
 	// avoid notification for calling instance
 	public void addUser(User user, DatabaseEventListener callingInstance) {
 		if (user != null) {
-			users.put(""+user.getIdentifier(), user);
-			synchronized (eventListeners) {
-				for (DatabaseEventListener dbel:eventListeners)
-					if (dbel != callingInstance)
-						dbel.userAdded(user);
-			}
+			users.put(user);
+			for (DatabaseEventListener dbel:eventListeners)
+				if (dbel != callingInstance)
+					dbel.userAdded(user);
 		}
 	}
 
 	
 	public User removeUser(User user) {
-		User removedUser = users.remove(""+user.getIdentifier());
+		User removedUser = users.remove(user.getIdentifier());
 		if (removedUser != null) {
-			synchronized (eventListeners) {
-				for (DatabaseEventListener dbel:eventListeners)
-					dbel.userRemoved(user);
-			}
+			for (DatabaseEventListener dbel:eventListeners)
+				dbel.userRemoved(user);
 		}
 		return removedUser;
 	}
@@ -110,36 +140,36 @@ public class UserDatabase implements ObservationSubject<DatabaseEventListener> {
 	
 	// avoid notification for calling instance
 	public User removeUser(User user, DatabaseEventListener callingInstance) {
-		User removedUser = users.remove(""+user.getIdentifier());
+		User removedUser = users.remove(user.getIdentifier());
 		if (removedUser != null) {
-			synchronized (eventListeners) {
-				for (DatabaseEventListener dbel:eventListeners)
-					if (dbel != callingInstance)
-						dbel.userRemoved(user);
-			}
+			for (DatabaseEventListener dbel:eventListeners)
+				if (dbel != callingInstance)
+					dbel.userRemoved(user);
 		}
 		return removedUser;
 	}
 	
 	
 	public User removeUser(int identifier) {
-		return users.remove(""+getUser(identifier));
+		User user = getUser(identifier);
+		return user == null ? null : removeUser(user);
 	}
 		
 	
 	// avoid notification for calling instance
 	public User removeUser(int identifier, DatabaseEventListener callingInstance) {
-		return removeUser(getUser(identifier), callingInstance);
+		User user = getUser(identifier);
+		return user == null ? null : removeUser(user, callingInstance);
 	}
 	
 
 	public User getUser(int identifier) {
-		return users.get(""+identifier);
+		return users.get(identifier);
 	}
 
 	
 	public boolean isExistingUser(int identifier) {
-		return users.containsKey(""+identifier);
+		return users.get(identifier) != null;
 	}
 
 
@@ -149,7 +179,7 @@ public class UserDatabase implements ObservationSubject<DatabaseEventListener> {
 
 
 	public User[] getAllUsers() {
-		return users.values().toArray(new User[0]);
+		return users.getAll();
 	}
 
 }
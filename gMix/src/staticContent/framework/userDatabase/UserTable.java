@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.userDatabase;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Hash table for <code>User</code>s, keyed by <code>User.getIdentifier()
+ * </code> (open addressing, linear probing). Lookups are lock-free (and do 
+ * not allocate); modifications are synchronized. Used by <code>UserDatabase
+ * </code>.
+ */
+final class UserTable {
+
+	private static final int INITIAL_CAPACITY = 64; // must be a power of two
+	private static final User REMOVED = new User(User.NOT_SET, null); // marks slots of removed users (keeps probe sequences intact)
+	
+	private volatile AtomicReferenceArray<User> table = new AtomicReferenceArray<User>(INITIAL_CAPACITY);
+	private volatile int size = 0;
+	private int usedSlots = 0; // users + REMOVED markers
+	
+	
+	private static int getSlot(int identifier, int mask) {
+		int hash = identifier * 0x9E3779B9; // ids are mostly consecutive -> spread them
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+	
+	
+	User get(int identifier) {
+		AtomicReferenceArray<User> table = this.table;
+		int mask = table.length() - 1;
+		for (int i=getSlot(identifier, mask);; i=(i+1) & mask) {
+			User user = table.get(i);
+			if (user == null)
+				return null;
+			if (user != REMOVED && user.getIdentifier() == identifier)
+				return user;
+		}
+	}
+	
+	
+	// returns the user previously stored for the identifier of "user" (or null)
+	synchronized User put(User user) {
+		int mask = table.length() - 1;
+		int freeSlot = -1;
+		for (int i=getSlot(user.getIdentifier(), mask);; i=(i+1) & mask) {
+			User current = table.get(i);
+			if (current == null) {
+				if (freeSlot == -1) {
+					freeSlot = i;
+					usedSlots++;
+				}
+				break;
+			} else if (current == REMOVED) {
+				if (freeSlot == -1)
+					freeSlot = i;
+			} else if (current.getIdentifier() == user.getIdentifier()) {
+				table.set(i, user);
+				return current;
+			}
+		}
+		table.set(freeSlot, user);
+		size++;
+		if (usedSlots > table.length() / 2)
+			resize();
+		return null;
+	}
+	
+	
+	synchronized User remove(int identifier) {
+		int mask = table.length() - 1;
+		for (int i=getSlot(identifier, mask);; i=(i+1) & mask) {
+			User current = table.get(i);
+			if (current == null)
+				return null;
+			if (current != REMOVED && current.getIdentifier() == identifier) {
+				table.set(i, REMOVED);
+				size--;
+				return current;
+			}
+		}
+	}
+	
+	
+	// the old table stays valid for concurrent readers until the new one is published
+	private void resize() {
+		int newCapacity = size > table.length() / 4 ? table.length() * 2 : table.length(); // only rehash if most used slots are REMOVED markers
+		AtomicReferenceArray<User> newTable = new AtomicReferenceArray<User>(newCapacity);
+		int mask = newCapacity - 1;
+		for (int j=0; j<table.length(); j++) {
+			User user = table.get(j);
+			if (user == null || user == REMOVED)
+				continue;
+			int i = getSlot(user.getIdentifier(), mask);
+			while (newTable.get(i) != null)
+				i = (i+1) & mask;
+			newTable.set(i, user);
+		}
+		usedSlots = size;
+		this.table = newTable;
+	}
+	
+	
+	int size() {
+		return size;
+	}
+	
+	
+	User[] getAll() {
+		AtomicReferenceArray<User> table = this.table;
+		User[] result = new User[size];
+		int ctr = 0;
+		for (int i=0; i<table.length(); i++) {
+			User user = table.get(i);
+			if (user == null || user == REMOVED)
+				continue;
+			if (ctr == result.length) { // user added concurrently
+				User[] tmp = new User[result.length * 2 + 1];
+				System.arraycopy(result, 0, tmp, 0, ctr);
+				result = tmp;
+			}
+			result[ctr++] = user;
+		}
+		if (ctr == result.length)
+			return result;
+		User[] tmp = new User[ctr];
+		System.arraycopy(result, 0, tmp, 0, ctr);
+		return tmp;
+	}
+	
+}
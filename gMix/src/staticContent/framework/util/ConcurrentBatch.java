@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.util;
+
+import java.lang.reflect.Array;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Collects messages (or other elements) in fixed size batches without 
+ * locking (for layer 3 batch/threshold plug-ins): each call of add() reserves 
+ * a slot of the current batch with one atomic increment. The thread 
+ * reserving the last slot of a batch replaces the batch with a new, empty 
+ * one (so the other threads can continue immediately), waits until all 
+ * reserved slots are written and returns the full batch (as array, in random 
+ * order) so it can be handed off with one call (e.g. 
+ * AnonNode.putOutRequests()).
+ * 
+ * Incomplete batches can be taken with flush() (e.g. by a timer).
+ * 
+ * The order of the elements in a batch must not be predictable: use the 
+ * default (java.security.SecureRandom) for real deployments and a seeded 
+ * Random (e.g. FastRandom) only for (reproducible) simulations.
+ */
+public class ConcurrentBatch<E> {
+
+	private final Class<? extends E> type;
+	private final int batchSize;
+	private final Random random;
+	private final AtomicReference<Buffer<E>> currentBuffer;
+	
+	
+	private static class Buffer<E> {
+		
+		private final E[] elements;
+		private final AtomicInteger reservedSlots = new AtomicInteger(0);
+		private final AtomicInteger writtenSlots = new AtomicInteger(0);
+		
+		
+		@SuppressWarnings("unchecked")
+		private Buffer(Class<? extends E> type, int size) {
+			this.elements = (E[])Array.newInstance(type, size);
+		}
+		
+	}
+	
+	
+	/**
+	 * @param type	type of the arrays returned by add() and flush() (e.g. 
+	 * 				Request.class for AnonNode.putOutRequests())
+	 */
+	public ConcurrentBatch(Class<? extends E> type, int batchSize) {
+		this(type, batchSize, new SecureRandom());
+	}
+	
+	
+	/**
+	 * @param type	type of the arrays returned by add() and flush() (e.g. 
+	 * 				Request.class for AnonNode.putOutRequests())
+	 * @param random	source of randomness for the order of the batches 
+	 * 					(must be thread-safe)
+	 */
+	public ConcurrentBatch(Class<? extends E> type, int batchSize, Random random) {
+		if (batchSize < 1)
+			throw new RuntimeException("ERROR: batch size must be > 0"); 
+		this.type = type;
+		this.batchSize = batchSize;
+		this.random = random;
+		this.currentBuffer = new AtomicReference<Buffer<E>>(new Buffer<E>(type, batchSize));
+	}
+	
+	
+	/**
+	 * Adds "element" to the current batch. Returns the batch (in random 
+	 * order) if it is full now, null otherwise.
+	 */
+	public E[] add(E element) {
+		while (true) {
+			Buffer<E> buffer = currentBuffer.get();
+			int slot = buffer.reservedSlots.getAndIncrement();
+			if (slot < batchSize) {
+				buffer.elements[slot] = element;
+				buffer.writtenSlots.incrementAndGet();
+				if (slot == batchSize - 1) { // batch complete
+					currentBuffer.set(new Buffer<E>(type, batchSize));
+					return close(buffer, batchSize);
+				}
+				return null;
+			} else { // buffer is being replaced by another thread
+				while (currentBuffer.get() == buffer)
+					Thread.yield();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns the current (incomplete) batch (in random order) and starts a 
+	 * new one. Returns null if the current batch is empty.
+	 */
+	public E[] flush() {
+		Buffer<E> buffer = currentBuffer.get();
+		if (buffer.reservedSlots.get() == 0)
+			return null;
+		int reserved = buffer.reservedSlots.getAndSet(batchSize);
+		if (reserved >= batchSize) // batch is full; will be returned by add()
+			return null;
+		currentBuffer.set(new Buffer<E>(type, batchSize));
+		if (reserved == 0)
+			return null;
+		E[] elements = close(buffer, reserved);
+		@SuppressWarnings("unchecked")
+		E[] result = (E[])Array.newInstance(type, reserved);
+		System.arraycopy(elements, 0, result, 0, reserved);
+		return result;
+	}
+	
+	
+	/**
+	 * Number of elements in the current batch.
+	 */
+	public int size() {
+		return Math.min(batchSize, currentBuffer.get().reservedSlots.get());
+	}
+	
+	
+	// waits for the threads that reserved a slot but did not yet write it
+	private E[] close(Buffer<E> buffer, int numberOfElements) {
+		while (buffer.writtenSlots.get() < numberOfElements)
+			Thread.yield();
+		shuffle(buffer.elements, numberOfElements, random);
+		return buffer.elements;
+	}
+	
+	
+	/**
+	 * Random permutation (Fisher-Yates) of the first "length" elements of 
+	 * "array". Cheaper replacement for sorting a batch by payload 
+	 * (MixMessage.compareTo()) to hide the order in which the messages were 
+	 * received. "random" should be a java.security.SecureRandom for real 
+	 * deployments (see above).
+	 */
+	public static void shuffle(Object[] array, int length, Random random) {
+		for (int i=length-1; i>0; i--) {
+			int j = random.nextInt(i + 1);
+			Object tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+	
+}
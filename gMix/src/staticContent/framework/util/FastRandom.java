@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.util;
+
+import java.util.Random;
+
+
+/**
+ * Fast, seedable and splittable pseudo random number generator (SplitMix64, 
+ * see Steele et al. 2014: "Fast Splittable Pseudorandom Number Generators"). 
+ * Extends java.util.Random, so it can be used wherever a Random is expected. 
+ * Intended for simulations (reproducible results for the same seed; 
+ * split() creates independent generators, e.g. one per mix). NOT 
+ * cryptographically secure: use a java.security.SecureRandom for real 
+ * deployments.
+ * 
+ * Not thread-safe (other than java.util.Random).
+ */
+public class FastRandom extends Random {
+
+	private static final long serialVersionUID = -1960436624376447233L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	private long state;
+	private final long gamma;
+	
+	
+	public FastRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	
+	private FastRandom(long seed, long gamma) {
+		super(0); // the state of java.util.Random is not used
+		this.state = seed;
+		this.gamma = gamma;
+	}
+	
+	
+	/**
+	 * Returns a new generator whose sequence is (statistically) independent 
+	 * of the sequence of this generator.
+	 */
+	public FastRandom split() {
+		return new FastRandom(nextLong(), mixGamma(nextSeed()));
+	}
+	
+	
+	@Override
+	public void setSeed(long seed) {
+		this.state = seed; // note: called by the constructor of java.util.Random
+	}
+	
+	
+	@Override
+	protected int next(int bits) {
+		return (int)(mix64(nextSeed()) >>> (64 - bits));
+	}
+	
+	
+	@Override
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+	
+	
+	@Override
+	public int nextInt() {
+		return (int)(mix64(nextSeed()) >>> 32);
+	}
+	
+	
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+		// Lemire 2019: "Fast Random Integer Generation in an Interval" (unbiased)
+		long product = (nextLong() >>> 32) * bound;
+		int low = (int)product;
+		if ((low & 0xFFFFFFFFL) < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while ((low & 0xFFFFFFFFL) < threshold) {
+				product = (nextLong() >>> 32) * bound;
+				low = (int)product;
+			}
+		}
+		return (int)(product >>> 32);
+	}
+	
+	
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+	
+	
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+	
+	
+	private long nextSeed() {
+		return state += gamma;
+	}
+	
+	
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L; // must be odd
+		return (Long.bitCount(z ^ (z >>> 1)) < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+	
+}
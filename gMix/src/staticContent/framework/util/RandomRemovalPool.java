@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package staticContent.framework.util;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Pool of messages (or other elements) for pool mixes (simulator and 
+ * testbed). Elements are stored in an array; randomly chosen elements are 
+ * removed by replacing them with the last element of the array, i.e. adding 
+ * and removing an element are O(1) (instead of O(n) for Vector.remove(i)) 
+ * and a flush of k elements is O(k) (or O(n) for coin flips). Removed 
+ * elements are returned as one array (bulk flush).
+ * 
+ * Note that the order of the elements in the pool changes when elements are 
+ * removed (irrelevant for pool mixes, as the elements to put out are chosen 
+ * randomly anyway).
+ * 
+ * The source of randomness can be chosen: FastRandom for (reproducible) 
+ * simulations, java.security.SecureRandom for real deployments.
+ * 
+ * Not thread-safe.
+ */
+public class RandomRemovalPool<E> {
+
+	private final Class<? extends E> type;
+	private final Random random;
+	private E[] elements;
+	private int size = 0;
+	
+	
+	/**
+	 * @param type	type of the arrays returned by the remove methods (e.g. 
+	 * 				Request.class for AnonNode.putOutRequests())
+	 */
+	public RandomRemovalPool(Class<? extends E> type, int initialCapacity, Random random) {
+		this.type = type;
+		this.random = random;
+		this.elements = newArray(Math.max(1, initialCapacity));
+	}
+	
+	
+	public void add(E element) {
+		if (size == elements.length)
+			elements = Arrays.copyOf(elements, elements.length * 2);
+		elements[size++] = element;
+	}
+	
+	
+	public int size() {
+		return size;
+	}
+	
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	
+	/**
+	 * Removes and returns a randomly chosen element (null if the pool is 
+	 * empty).
+	 */
+	public E removeRandom() {
+		if (size == 0)
+			return null;
+		return removeAt(random.nextInt(size));
+	}
+	
+	
+	/**
+	 * Adds "element" and removes a randomly chosen element (possibly 
+	 * "element") in one step (e.g. for a Cottrell pool: "put new message in 
+	 * pool and randomly chose and put out one message").
+	 */
+	public E addAndRemoveRandom(E element) {
+		int chosen = random.nextInt(size + 1);
+		if (chosen == size)
+			return element;
+		E removed = elements[chosen];
+		elements[chosen] = element;
+		return removed;
+	}
+	
+	
+	/**
+	 * Removes "numberOfElements" (or size(), if smaller) randomly chosen 
+	 * elements and returns them (in random order).
+	 */
+	public E[] removeRandom(int numberOfElements) {
+		numberOfElements = Math.max(0, Math.min(numberOfElements, size));
+		// partial Fisher-Yates shuffle: move the chosen elements to the end
+		for (int i=0; i<numberOfElements; i++) {
+			int chosen = random.nextInt(size - i);
+			int last = size - 1 - i;
+			E tmp = elements[chosen];
+			elements[chosen] = elements[last];
+			elements[last] = tmp;
+		}
+		return removeLast(numberOfElements);
+	}
+	
+	
+	/**
+	 * Removes each element with probability "probability" (independent coin 
+	 * flips) and returns the removed elements.
+	 */
+	public E[] removeEachWithProbability(double probability) {
+		int removed = 0;
+		// move the chosen elements to the end
+		for (int i=size-1; i>=0; i--) {
+			if (random.nextDouble() <= probability) {
+				int last = size - 1 - removed;
+				E tmp = elements[i];
+				elements[i] = elements[last];
+				elements[last] = tmp;
+				removed++;
+			}
+		}
+		return removeLast(removed);
+	}
+	
+	
+	/**
+	 * Removes and returns all elements.
+	 */
+	public E[] removeAll() {
+		return removeLast(size);
+	}
+	
+	
+	private E removeAt(int index) {
+		E element = elements[index];
+		elements[index] = elements[--size];
+		elements[size] = null;
+		return element;
+	}
+	
+	
+	private E[] removeLast(int numberOfElements) {
+		E[] result = newArray(numberOfElements);
+		System.arraycopy(elements, size - numberOfElements, result, 0, numberOfElements);
+		Arrays.fill(elements, size - numberOfElements, size, null);
+		size -= numberOfElements;
+		return result;
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	private E[] newArray(int length) {
+		return (E[])Array.newInstance(type, length);
+	}
+	
+}
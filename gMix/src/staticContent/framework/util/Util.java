@@ -33,6 +33,7 @@ import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
 import java.lang.reflect.Field;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -876,6 +877,24 @@ public final class Util {
 	}
 	
 	
+	private final static char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	
+	
+	/**
+	 * same format as toHex(byte[]), but reads the bytes (absolute) from the 
+	 * given buffer (no copy or BigInteger needed).
+	 */
+	public static String toHex(ByteBuffer buffer, int offset, int length) {
+		char[] result = new char[length << 1];
+		for (int i=0; i<length; i++) {
+			int b = buffer.get(offset + i) & 0xff;
+			result[i << 1] = HEX_DIGITS[b >>> 4];
+			result[(i << 1) + 1] = HEX_DIGITS[b & 0x0f];
+		}
+		return new String(result);
+	}
+	
+	
 	public static String toBinary(byte[] bytes) {
 	    BigInteger b = new BigInteger(1, bytes);
 	    return b.toString(2);
@@ -39,8 +39,8 @@ public enum ClientSendStyle {
 	
 	public static ClientSendStyleImpl getInstance(AbstractClient owner) {
 		boolean noMixes = !Topology.getTopology().containsAtLeastOneMix();
-		boolean noRequestChannel = Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY");
-		String desiredImpl = Simulator.settings.getProperty("CLIENT_SEND_STYLE");
+		boolean noRequestChannel = Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY");
+		String desiredImpl = Simulator.getSettings().getProperty("CLIENT_SEND_STYLE");
 		if (noMixes || noRequestChannel) {
 			return new ClientSendWithoutMixes(owner, Simulator.getSimulator());
 		} else if (desiredImpl.equals("SEND_IMMEDIATELY")) {
@@ -86,7 +86,7 @@ public enum DelayBox {
 	private static int latency_proxy;
 		
 	public static DelayBoxImpl getInstance(int bandwidthSend, int bandwidthReceive, int latency) {
-		String desiredImpl = Simulator.settings.getProperty("TYPE_OF_DELAY_BOX");
+		String desiredImpl = Simulator.getSettings().getProperty("TYPE_OF_DELAY_BOX");
 		if (desiredImpl.equals("BASIC_DELAY_BOX"))
 			return new BasicDelayBox(bandwidthSend, bandwidthReceive, latency);
 		else if (desiredImpl.equals("NO_DELAY_BOX"))
@@ -99,51 +99,34 @@ public enum DelayBox {
 		
 		
 	public static DelayBoxImpl getInstance(TypeOfNode typeOfNode) {
-		String desiredImpl = Simulator.settings.getProperty("TYPE_OF_DELAY_BOX");
+		String desiredImpl = Simulator.getSettings().getProperty("TYPE_OF_DELAY_BOX");
 		if (desiredImpl.equals("NO_DELAY_BOX")) {
 			return new NoDelayDelayBox();
 		} else if (desiredImpl.equals("BASIC_DELAY_BOX")) {
-//			int bandwidthSend;
-//			int bandwidthReceive;
-//			int latency;
+			// note: no static fields here (several simulation runs may create delay boxes concurrently)
+			String keyPrefix;
 			if (typeOfNode == TypeOfNode.CLIENT) {
-				if (Simulator.settings.getProperty("BASIC_DELAY_BOX_DEFAULT_CLIENT_BANDWIDTH_SEND").equals("UNLIMITED"))
-					bandwidthSend_client = UNLIMITD_BANDWIDTH;
-				else
-					bandwidthSend_client = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_CLIENT_BANDWIDTH_SEND");
-				if (Simulator.settings.getProperty("BASIC_DELAY_BOX_DEFAULT_CLIENT_BANDWIDTH_RECEIVE").equals("UNLIMITED"))
-					bandwidthReceive_client = UNLIMITD_BANDWIDTH;
-				else
-					bandwidthReceive_client = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_CLIENT_BANDWIDTH_RECEIVE");
-				latency_client = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_CLIENT_LATENCY");
-				return new BasicDelayBox(bandwidthSend_client, bandwidthReceive_client, latency_client);
+				keyPrefix = "BASIC_DELAY_BOX_DEFAULT_CLIENT_";
 			} else if (typeOfNode == TypeOfNode.MIX) {
-				if (Simulator.settings.getProperty("BASIC_DELAY_BOX_DEFAULT_MIX_BANDWIDTH_SEND").equals("UNLIMITED"))
-					bandwidthSend_mix = UNLIMITD_BANDWIDTH;
-				else
-					bandwidthSend_mix = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_MIX_BANDWIDTH_SEND");
-				if (Simulator.settings.getProperty("BASIC_DELAY_BOX_DEFAULT_MIX_BANDWIDTH_RECEIVE").equals("UNLIMITED"))
-					bandwidthReceive_mix = UNLIMITD_BANDWIDTH;
-				else
-					bandwidthReceive_mix = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_MIX_BANDWIDTH_RECEIVE");
-				latency_mix = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_MIX_LATENCY");
-				return new BasicDelayBox(bandwidthSend_mix, bandwidthReceive_mix, latency_mix);
+				keyPrefix = "BASIC_DELAY_BOX_DEFAULT_MIX_";
 			} else if (typeOfNode == TypeOfNode.DISTANT_PROXY) {
-				if (Simulator.settings.getProperty("BASIC_DELAY_BOX_DEFAULT_DISTANT_PROXY_BANDWIDTH_SEND").equals("UNLIMITED"))
-					bandwidthSend_proxy = UNLIMITD_BANDWIDTH;
-				else
-					bandwidthSend_proxy = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_DISTANT_PROXY_BANDWIDTH_SEND");
-				if (Simulator.settings.getProperty("BASIC_DELAY_BOX_DEFAULT_DISTANT_PROXY_BANDWIDTH_RECEIVE").equals("UNLIMITED"))
-					bandwidthReceive_proxy = UNLIMITD_BANDWIDTH;
-				else
-					bandwidthReceive_proxy = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_DISTANT_PROXY_BANDWIDTH_RECEIVE");
-				latency_proxy = Simulator.settings.getPropertyAsInt("BASIC_DELAY_BOX_DEFAULT_DISTANT_PROXY_LATENCY");
-				return new BasicDelayBox(bandwidthSend_proxy, bandwidthReceive_proxy, latency_proxy);
+				keyPrefix = "BASIC_DELAY_BOX_DEFAULT_DISTANT_PROXY_";
 			} else {
 				new InternalError("add new case for TypeOfNode " +typeOfNode);
 				return null;
 			}
-//			return new BasicDelayBox(bandwidthSend, bandwidthReceive, latency);
+			int bandwidthSend;
+			int bandwidthReceive;
+			if (Simulator.getSettings().getProperty(keyPrefix +"BANDWIDTH_SEND").equals("UNLIMITED"))
+				bandwidthSend = UNLIMITD_BANDWIDTH;
+			else
+				bandwidthSend = Simulator.getSettings().getPropertyAsInt(keyPrefix +"BANDWIDTH_SEND");
+			if (Simulator.getSettings().getProperty(keyPrefix +"BANDWIDTH_RECEIVE").equals("UNLIMITED"))
+				bandwidthReceive = UNLIMITD_BANDWIDTH;
+			else
+				bandwidthReceive = Simulator.getSettings().getPropertyAsInt(keyPrefix +"BANDWIDTH_RECEIVE");
+			int latency = Simulator.getSettings().getPropertyAsInt(keyPrefix +"LATENCY");
+			return new BasicDelayBox(bandwidthSend, bandwidthReceive, latency);
 		} else
 			throw new RuntimeException("ERROR: no DelayBox with the name \"" +desiredImpl  
 				+"\" available (Key \"TYPE_OF_DELAY_BOX\" in experiment config file. See " +
@@ -33,7 +33,7 @@ public enum MixSendStyle {
 	
 	
 	public static MixSendStyleImpl getInstance(NetworkNode owner, ReplyReceiver replyReceiver) {
-		String desiredImpl = Simulator.settings.getProperty("MIX_SEND_STYLE");
+		String desiredImpl = Simulator.getSettings().getProperty("MIX_SEND_STYLE");
 		if (desiredImpl.equals("REPLY_IMMEDIATELY")) {
 			return new LastMixReplyImmediately(owner, Simulator.getSimulator(), replyReceiver);
 		} else if (desiredImpl.equals("WAIT_FOR_FURTHER_DATA_BEFORE_REPLY")) {
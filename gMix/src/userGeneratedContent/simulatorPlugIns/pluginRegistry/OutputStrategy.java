@@ -66,7 +66,7 @@ public enum OutputStrategy {
 	
 	
 	public static OutputStrategyImpl getInstance(Mix owner) {
-		String desiredImpl = Simulator.settings.getProperty("OUTPUT_STRATEGY");
+		String desiredImpl = Simulator.getSettings().getProperty("OUTPUT_STRATEGY");
 		if (desiredImpl.equals("NO_DELAY")) {
 			return new NoDelay(owner, Simulator.getSimulator());
 		} else if (desiredImpl.equals("BASIC_SYNCHRONOUS_BATCH")) {
@@ -160,6 +160,15 @@ public enum StatisticsType {
 	
 	public enum Unit { sec, ms, byte_, kbyte, mbyte, gbyte, percent, event };
 	
+	/**
+	 * EXACT: all recorded values are stored and aggregated at the end of the 
+	 * simulation. 
+	 * SKETCH: values are aggregated on the fly (see OnlineAccumulator); needs 
+	 * constant memory per Statistics object, but MEDIAN is approximated. 
+	 * Only available if sourceValueAggregator is AVG, MIN, MAX or MEDIAN.
+	 */
+	public enum RecordingMode { EXACT, SKETCH };
+	
 	
 	private StatisticsType(	String destinationPlot, 
 							PlotType plotType,
@@ -189,6 +198,13 @@ public enum StatisticsType {
 	}
 	
 	
+	public boolean supportsRecordingMode(RecordingMode recordingMode) {
+		if (recordingMode == RecordingMode.EXACT)
+			return true;
+		return sourceValueAggregator.supportsOnlineAggregation();
+	}
+	
+	
 	public static void reset() {
 		
 		for (StatisticsType st:StatisticsType.values())
@@ -17,13 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.pluginRegistry;
 
-import java.util.HashMap;
-
 import staticContent.evaluation.simulator.Simulator;
-import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
-import staticContent.evaluation.simulator.core.networkComponent.DistantProxy;
-import staticContent.evaluation.simulator.core.networkComponent.Mix;
-import staticContent.evaluation.simulator.core.networkComponent.NetworkConnection;
 import userGeneratedContent.simulatorPlugIns.plugins.topology.NMixCascadeTopology;
 import userGeneratedContent.simulatorPlugIns.plugins.topology.NoMixTopology;
 import userGeneratedContent.simulatorPlugIns.plugins.topology.TopologyScript;
@@ -31,55 +25,39 @@ import userGeneratedContent.simulatorPlugIns.plugins.topology.TopologyScript;
 
 public enum Topology {
 
-	NO_MIXES(new NoMixTopology(), false),
-	ONE_MIX(new NMixCascadeTopology(1), true),
-	THREE_MIX_CASCADE(new NMixCascadeTopology(3), true),
-	FIVE_MIX_CASCADE(new NMixCascadeTopology(5), true),
+	NO_MIXES(0),
+	ONE_MIX(1),
+	THREE_MIX_CASCADE(3),
+	FIVE_MIX_CASCADE(5),
 	;
 	
 
-	private TopologyScript topologyScript;
-	private boolean containsAtLeastOneMix;
+	private int numberOfMixes;
 	
 	
-	private Topology(TopologyScript topologyScript, boolean containsAtLeastOneMix) {
-		this.topologyScript = topologyScript;
-		this.containsAtLeastOneMix = containsAtLeastOneMix;
+	private Topology(int numberOfMixes) {
+		this.numberOfMixes = numberOfMixes;
 	}
 	
 
-	public void constructor(AbstractClient[] clients) {
-		this.topologyScript.constructor(clients);
-	}
-	
-	
-	public HashMap<String, AbstractClient> getClients() {
-		return this.topologyScript.getClients();
-	}
-	
-	
-	public HashMap<String, Mix> getMixes() {
-		return this.topologyScript.getMixes();
-	}
-	
-	
-	public DistantProxy getDistantProxy() {
-		return this.topologyScript.getDistantProxy();
-	}
-	
-	
-	public HashMap<String, NetworkConnection> getNetworkConnections() {
-		return this.topologyScript.getNetworkConnections();
+	/**
+	 * Creates a new instance of this topology (one per simulation run).
+	 */
+	public TopologyScript createTopologyScript() {
+		if (this.numberOfMixes == 0)
+			return new NoMixTopology();
+		else
+			return new NMixCascadeTopology(this.numberOfMixes);
 	}
 	
 	
 	public boolean containsAtLeastOneMix() {
-		return this.containsAtLeastOneMix;
+		return this.numberOfMixes > 0;
 	}
 
 	
 	public static Topology getTopology() {
-		String desiredTopology = Simulator.settings.getProperty("TOPOLOGY_SCRIPT");
+		String desiredTopology = Simulator.getSettings().getProperty("TOPOLOGY_SCRIPT");
 		for (Topology t:Topology.values())
 			if (t.name().equalsIgnoreCase(desiredTopology))
 				return t;
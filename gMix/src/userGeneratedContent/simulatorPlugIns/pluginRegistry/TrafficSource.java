@@ -18,7 +18,6 @@
 package userGeneratedContent.simulatorPlugIns.pluginRegistry;
 
 import staticContent.evaluation.simulator.Simulator;
-import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
 import userGeneratedContent.simulatorPlugIns.plugins.trafficSource.JansenModel;
 import userGeneratedContent.simulatorPlugIns.plugins.trafficSource.ParetoModel;
 import userGeneratedContent.simulatorPlugIns.plugins.trafficSource.PoissonModel;
@@ -30,35 +29,40 @@ import userGeneratedContent.simulatorPlugIns.plugins.trafficSource.TrafficSource
 
 public enum TrafficSource {
 
-	CONSTANT(new SendConstantModel()),
-	POISSON(new PoissonModel()),
-	PARETO(new ParetoModel()),
-	REQUEST_REPLY(new RequestReplyModel()),
-	TRACE_FILE(new TraceFileModel()),
-	JANSEN(new JansenModel())//,
+	CONSTANT,
+	POISSON,
+	PARETO,
+	REQUEST_REPLY,
+	TRACE_FILE,
+	JANSEN//,
 	;
 	
 
-	private TrafficSourceImplementation implementation;
-	
-	
-	private TrafficSource(TrafficSourceImplementation implementation) {
-		this.implementation = implementation;
-	}
-	
-
-	public AbstractClient[] createClientsArray() {
-		return this.implementation.createClientsArray();
-	}
-	
-	
-	public void startSending() {
-		this.implementation.startSending();
+	/**
+	 * Creates a new instance of this traffic source (one per simulation run).
+	 */
+	public TrafficSourceImplementation createImplementation() {
+		switch (this) {
+			case CONSTANT:
+				return new SendConstantModel();
+			case POISSON:
+				return new PoissonModel();
+			case PARETO:
+				return new ParetoModel();
+			case REQUEST_REPLY:
+				return new RequestReplyModel();
+			case TRACE_FILE:
+				return new TraceFileModel();
+			case JANSEN:
+				return new JansenModel();
+			default:
+				throw new RuntimeException("ERROR: add new case for TrafficSource " +this);
+		}
 	}
 
 	
 	public static TrafficSource getTrafficSource() {
-		String desiredTrafficSource = Simulator.settings.getProperty("TYPE_OF_TRAFFIC_GENERATOR");
+		String desiredTrafficSource = Simulator.getSettings().getProperty("TYPE_OF_TRAFFIC_GENERATOR");
 		for (TrafficSource tc:TrafficSource.values())
 			if (tc.name().equalsIgnoreCase(desiredTrafficSource))
 				return tc;
@@ -48,7 +48,7 @@ public class ClientBasicSynchronous extends ClientSendStyleImpl implements
 		super(owner, simulator);
 		
 		sendInterval = new Integer(
-				Simulator.settings
+				Simulator.getSettings()
 						.getProperty("BASIC_SYNCHRONOUS_SEND_INTERVAL_IN_MS"));
 		this.scheduleNextSend();
 	}
@@ -78,7 +78,7 @@ public class ClientBasicSynchronous extends ClientSendStyleImpl implements
 	}
 
 	private void scheduleNextSend() {
-		Event sendNextMessageEvent = new Event(this, Simulator.getNow()
+		Event sendNextMessageEvent = this.simulator.getEventFromPool(this, Simulator.getNow()
 				+ this.sendInterval, ClientSendStyleEvent.SEND_NEXT_MIX_MESSAGE);
 		this.simulator.scheduleEvent(sendNextMessageEvent, this);
 	}
@@ -39,9 +39,9 @@ public abstract class ClientSendStyleImpl implements EventExecutor {
 		this.simulator = simulator;
 		this.owner = owner;
 		this.statistics = owner.getStatistics();
-		this.simulateReplyChannel = Simulator.settings.getProperty(
+		this.simulateReplyChannel = Simulator.getSettings().getProperty(
 				"COMMUNICATION_MODE").equals("SIMPLEX_REPLY")
-				|| Simulator.settings.getProperty("COMMUNICATION_MODE").equals(
+				|| Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals(
 						"DUPLEX");
 	}
 
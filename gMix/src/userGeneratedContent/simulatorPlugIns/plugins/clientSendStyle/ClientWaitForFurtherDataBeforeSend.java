@@ -45,7 +45,7 @@ public class ClientWaitForFurtherDataBeforeSend extends ClientSendStyleImpl
 			Simulator simulator) {
 
 		super(owner, simulator);
-		this.timeToWaitForFurtherDataFromUser = Simulator.settings
+		this.timeToWaitForFurtherDataFromUser = Simulator.getSettings()
 				.getPropertyAsInt("TIME_TO_WAIT_FOR_FURTHER_DATA_FROM_USER"); // in
 																				// ms
 
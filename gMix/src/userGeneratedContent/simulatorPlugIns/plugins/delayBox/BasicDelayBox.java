@@ -29,7 +29,7 @@ public class BasicDelayBox extends DelayBoxImpl {
 			key = "NETWORK_PACKET_PAYLOAD_SIZE", 
 			min = 0,
 			max = 9000) // Jumboframe Ethernet frame size
-	private int packetSize = new Integer(Simulator.settings.getProperty("NETWORK_PACKET_PAYLOAD_SIZE"));
+	private int packetSize = new Integer(Simulator.getSettings().getProperty("NETWORK_PACKET_PAYLOAD_SIZE"));
 	
 	private class SimplexDelayBox {
 
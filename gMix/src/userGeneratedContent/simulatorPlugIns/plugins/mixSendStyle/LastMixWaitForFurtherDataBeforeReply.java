@@ -49,7 +49,7 @@ public class LastMixWaitForFurtherDataBeforeReply extends MixSendStyleImpl
 	
 	public LastMixWaitForFurtherDataBeforeReply(NetworkNode owner, Simulator simulator, ReplyReceiver replyReceiver) {
 		super(owner, simulator, replyReceiver);
-		this.timeToWaitForFurtherDataFromDistantProxy = new Integer(Simulator.settings.getProperty("TIME_TO_WAIT_FOR_DATA_FROM_DISTANT_PROXY")); // in ms
+		this.timeToWaitForFurtherDataFromDistantProxy = new Integer(Simulator.getSettings().getProperty("TIME_TO_WAIT_FOR_DATA_FROM_DISTANT_PROXY")); // in ms
 	}
 
 	
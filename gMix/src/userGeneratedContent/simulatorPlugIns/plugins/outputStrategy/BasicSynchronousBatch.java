@@ -100,7 +100,7 @@ public class BasicSynchronousBatch extends OutputStrategyImpl implements
 		this.requestBatch = new SimplexSynchronousBatch(batchSize, true);
 		if (super.simulateReplyChannel) {
 			this.replyBatch = new SimplexSynchronousBatch(batchSize, false);
-			this.replyInterval = Simulator.settings
+			this.replyInterval = Simulator.getSettings()
 					.getPropertyAsInt("BASIC_SYNCHRONOUS_REPLY_INTERVAL_IN_MS");
 			if (mix.isLastMix()) {
 				this.clientReplyWaitingQueues = new HashMap<String, Vector<TransportMessage>>();
@@ -110,7 +110,7 @@ public class BasicSynchronousBatch extends OutputStrategyImpl implements
 				}
 			}
 			// schedule first reply batch:
-			Event putOutNextReplyBatchEvent = new Event(this,
+			Event putOutNextReplyBatchEvent = simulator.getEventFromPool(this,
 					Simulator.getNow() + this.replyInterval,
 					OutputStrategyEvent.PUT_OUT_REPLY_BATCH);
 			simulator.scheduleEvent(putOutNextReplyBatchEvent, this);
@@ -129,7 +129,7 @@ public class BasicSynchronousBatch extends OutputStrategyImpl implements
 	@Override
 	public ClientSendStyleImpl getClientSendStyle(AbstractClient client) {
 		boolean noMixes = !Topology.getTopology().containsAtLeastOneMix();
-		boolean noRequestChannel = Simulator.settings.getProperty(
+		boolean noRequestChannel = Simulator.getSettings().getProperty(
 				"COMMUNICATION_MODE").equals("SIMPLEX_REPLY");
 		if (noMixes || noRequestChannel) {
 			return new ClientSendWithoutMixes(client, Simulator.getSimulator());
@@ -224,7 +224,7 @@ public class BasicSynchronousBatch extends OutputStrategyImpl implements
 
 		}
 
-		Event sendNextReplyEvent = new Event(this, Simulator.getNow()
+		Event sendNextReplyEvent = this.simulator.getEventFromPool(this, Simulator.getNow()
 				+ this.replyInterval, OutputStrategyEvent.PUT_OUT_REPLY_BATCH);
 		this.simulator.scheduleEvent(sendNextReplyEvent, this);
 
@@ -53,7 +53,7 @@ public class Batch extends OutputStrategyImpl {
 	public Batch(Mix mix, Simulator simulator) {
 		super(mix, simulator);
 		this.statistics = super.getOwner().getStatistics();
-		batchSize = Simulator.settings.getPropertyAsInt("BASIC_BATCH_BATCH_SIZE");
+		batchSize = Simulator.getSettings().getPropertyAsInt("BASIC_BATCH_BATCH_SIZE");
 		this.requestBatch = new SimplexBatch(batchSize, true);
 		this.replyBatch = new SimplexBatch(batchSize, false);
 	}
@@ -64,8 +64,8 @@ public class BatchWithTimeout extends OutputStrategyImpl {
 	public BatchWithTimeout(Mix mix, Simulator simulator) {
 		super(mix, simulator);
 		this.statistics = super.getOwner().getStatistics();
-		timeout = Simulator.settings.getPropertyAsInt("TIMEOUT_IN_MS");
-		batchSize = Simulator.settings.getPropertyAsInt("BATCH_WITH_TIMEOUT_BATCH_SIZE");
+		timeout = Simulator.getSettings().getPropertyAsInt("TIMEOUT_IN_MS");
+		batchSize = Simulator.getSettings().getPropertyAsInt("BATCH_WITH_TIMEOUT_BATCH_SIZE");
 		this.requestBatch = new SimplexBatchWithTimeout(true, timeout,
 				batchSize);
 		this.replyBatch = new SimplexBatchWithTimeout(false, timeout, batchSize);
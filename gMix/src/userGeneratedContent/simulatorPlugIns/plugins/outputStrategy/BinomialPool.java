@@ -17,8 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
-import java.util.Vector;
+import java.util.Random;
 
 import org.apache.commons.math.MathException;
 import org.apache.commons.math.distribution.NormalDistributionImpl;
@@ -31,6 +30,8 @@ import staticContent.evaluation.simulator.core.event.EventExecutor;
 import staticContent.evaluation.simulator.core.message.MixMessage;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
 import staticContent.evaluation.simulator.core.networkComponent.Mix;
+import staticContent.framework.util.FastRandom;
+import staticContent.framework.util.RandomRemovalPool;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.ClientSendStyle;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.MixSendStyle;
 import userGeneratedContent.simulatorPlugIns.plugins.clientSendStyle.ClientSendStyleImpl;
@@ -47,7 +48,7 @@ public class BinomialPool extends OutputStrategyImpl {
 
 	private SimplexBinomialPool requestBatch;
 	private SimplexBinomialPool replyBatch;
-	private static SecureRandom secureRandom = new SecureRandom();
+	private Random random;
 	
 	@DoubleSimulationProperty(
 			name = "Sending interval (ms)",
@@ -83,10 +84,11 @@ public class BinomialPool extends OutputStrategyImpl {
 	public BinomialPool(Mix mix, Simulator simulator) {
 
 		super(mix, simulator);
-		sendingInterval = Simulator.settings.getPropertyAsInt("BINOMIAL_POOL_SENDING_INTERVAL_IN_MS");
-		maxOutputFraction = Simulator.settings.getPropertyAsDouble("BINOMIAL_POOL_MAX_OUTPUT_FRACTION");
-		mean = Simulator.settings.getPropertyAsDouble("BINOMIAL_POOL_MEAN");
-		stdDev = Simulator.settings.getPropertyAsDouble("BINOMIAL_POOL_STANDARD_DEVIATION");
+		this.random = new FastRandom(simulator.getRandom().nextLong()); // seeded -> reproducible
+		sendingInterval = Simulator.getSettings().getPropertyAsInt("BINOMIAL_POOL_SENDING_INTERVAL_IN_MS");
+		maxOutputFraction = Simulator.getSettings().getPropertyAsDouble("BINOMIAL_POOL_MAX_OUTPUT_FRACTION");
+		mean = Simulator.getSettings().getPropertyAsDouble("BINOMIAL_POOL_MEAN");
+		stdDev = Simulator.getSettings().getPropertyAsDouble("BINOMIAL_POOL_STANDARD_DEVIATION");
 		this.requestBatch = new SimplexBinomialPool(true, sendingInterval, maxOutputFraction, mean, stdDev);
 		this.replyBatch = new SimplexBinomialPool(false, sendingInterval, maxOutputFraction, mean, stdDev);
 	}
@@ -107,7 +109,7 @@ public class BinomialPool extends OutputStrategyImpl {
 	public class SimplexBinomialPool implements EventExecutor {
 		
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
 		private int sendingInterval;
 		private double maxOutputFraction;
@@ -120,12 +122,12 @@ public class BinomialPool extends OutputStrategyImpl {
 									double mean, 
 									double stdDev) {
 			
-			this.collectedMessages = new Vector<MixMessage>(simulator.getClients().size()*2);	
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(MixMessage.class, simulator.getClients().size()*2, random);	
 			this.isRequestPool = isRequestPool;
 			this.sendingInterval = sendingInterval;
 			this.maxOutputFraction = maxOutputFraction;
 			this.normalDist = new NormalDistributionImpl(mean, stdDev);
-			this.normalDist.reseedRandomGenerator(secureRandom.nextLong());
+			this.normalDist.reseedRandomGenerator(random.nextLong());
 			
 		}
 		
@@ -147,23 +149,14 @@ public class BinomialPool extends OutputStrategyImpl {
 			try {
 				
 				double coinBias = maxOutputFraction * normalDist.cumulativeProbability(collectedMessages.size());
+				MixMessage[] chosen = collectedMessages.removeEachWithProbability(coinBias);
 				
-				for (int i=0; i<collectedMessages.size(); i++) {
-					
-					MixMessage m = collectedMessages.get(i);
-					
-					if (secureRandom.nextDouble() <= coinBias) {
-						
-						if (isRequestPool)
-							mix.putOutRequest(m);
-						else
-							mix.putOutReply(m);
-						
-						collectedMessages.remove(i--);
-						
-					}
-					
-				}
+				if (isRequestPool)
+					for (MixMessage m: chosen)
+						mix.putOutRequest(m);
+				else
+					for (MixMessage m: chosen)
+						mix.putOutReply(m);
 				
 			} catch (MathException e) {
 				throw new RuntimeException("ERROR: problem with generating the biased coin! " +e.getStackTrace()); 
@@ -174,7 +167,7 @@ public class BinomialPool extends OutputStrategyImpl {
 		
 		private void scheduleNextOutput() {
 			
-			simulator.scheduleEvent(new Event(this, Simulator.getNow() + sendingInterval, OutputStrategyEvent.TIMEOUT), this);
+			simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + sendingInterval, OutputStrategyEvent.TIMEOUT), this);
 		
 		}
 
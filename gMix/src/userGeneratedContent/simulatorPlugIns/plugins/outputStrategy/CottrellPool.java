@@ -17,7 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
+import java.util.Random;
 
 import staticContent.evaluation.simulator.Simulator;
 import staticContent.evaluation.simulator.annotations.plugin.Plugin;
@@ -40,7 +40,7 @@ import userGeneratedContent.simulatorPlugIns.plugins.mixSendStyle.MixSendStyleIm
 @Plugin(pluginKey = "COTTRELL_POOL", pluginName = "Cottrell Pool")
 public class CottrellPool extends OutputStrategyImpl {
 
-	private static SecureRandom secureRandom = new SecureRandom();
+	private Random random;
 	private SimplexCottrellPool requestPool;
 	private SimplexCottrellPool replyPool;
 	
@@ -53,7 +53,8 @@ public class CottrellPool extends OutputStrategyImpl {
 	
 	public CottrellPool(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.poolSize = Simulator.settings.getPropertyAsInt("POOL_SIZE");
+		this.random = simulator.getRandom();
+		this.poolSize = Simulator.getSettings().getPropertyAsInt("POOL_SIZE");
 		this.requestPool = new SimplexCottrellPool(true, poolSize);
 		this.replyPool = new SimplexCottrellPool(false, poolSize);
 	}
@@ -96,7 +97,7 @@ public class CottrellPool extends OutputStrategyImpl {
 				
 			} else {
 				
-				int chosen = secureRandom.nextInt(poolSize+1);
+				int chosen = random.nextInt(poolSize+1);
 				
 				if (chosen == poolSize) {
 					
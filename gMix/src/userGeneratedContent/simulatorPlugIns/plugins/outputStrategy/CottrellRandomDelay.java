@@ -17,7 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
+import java.util.Random;
 
 import staticContent.evaluation.simulator.Simulator;
 import staticContent.evaluation.simulator.annotations.plugin.Plugin;
@@ -38,7 +38,7 @@ import userGeneratedContent.simulatorPlugIns.plugins.mixSendStyle.MixSendStyleIm
 @Plugin(pluginKey = "COTTRELL_RANDOM_DELAY", pluginName = "Cottrell Random Delay")
 public class CottrellRandomDelay extends OutputStrategyImpl implements EventExecutor {
 
-	private static SecureRandom secureRandom = new SecureRandom();
+	private Random random;
 	
 	@IntSimulationProperty(
 			name = "Maximum delay (ms)",
@@ -51,7 +51,8 @@ public class CottrellRandomDelay extends OutputStrategyImpl implements EventExec
 	public CottrellRandomDelay(Mix mix, Simulator simulator) {
 
 		super(mix, simulator);
-		this.maxDelay = Simulator.settings.getPropertyAsInt("COTTRELL_MAX_RANDOM_DELAY_IN_MS");
+		this.random = simulator.getRandom();
+		this.maxDelay = Simulator.getSettings().getPropertyAsInt("COTTRELL_MAX_RANDOM_DELAY_IN_MS");
 	}
 	
 	
@@ -68,12 +69,12 @@ public class CottrellRandomDelay extends OutputStrategyImpl implements EventExec
 
 	
 	private int getRandomDelay() {
-		return secureRandom.nextInt(maxDelay+1);
+		return random.nextInt(maxDelay+1);
 	}
 
 	
 	private void scheduleOutput(MixMessage mixMessage, int delayTillOutput) {
-		simulator.scheduleEvent(new Event(this, Simulator.getNow() + delayTillOutput, OutputStrategyEvent.TIMEOUT, mixMessage), this);
+		simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + delayTillOutput, OutputStrategyEvent.TIMEOUT, mixMessage), this);
 	}
 	
 	
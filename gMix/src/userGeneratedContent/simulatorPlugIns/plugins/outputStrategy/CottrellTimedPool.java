@@ -17,8 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
-import java.util.Vector;
+import java.util.Random;
 
 
 
@@ -33,6 +32,8 @@ import staticContent.evaluation.simulator.core.event.EventExecutor;
 import staticContent.evaluation.simulator.core.message.MixMessage;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
 import staticContent.evaluation.simulator.core.networkComponent.Mix;
+import staticContent.framework.util.FastRandom;
+import staticContent.framework.util.RandomRemovalPool;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.ClientSendStyle;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.MixSendStyle;
 import userGeneratedContent.simulatorPlugIns.plugins.clientSendStyle.ClientSendStyleImpl;
@@ -47,7 +48,7 @@ public class CottrellTimedPool extends OutputStrategyImpl {
 
 	private SimplexCottrellTimedPool requestBatch;
 	private SimplexCottrellTimedPool replyBatch;
-	private static SecureRandom secureRandom = new SecureRandom();
+	private Random random;
 	
 	@IntSimulationProperty(
 			name = "Sending Interval (ms)",
@@ -65,8 +66,9 @@ public class CottrellTimedPool extends OutputStrategyImpl {
 	
 	public CottrellTimedPool(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.sendingRate = Simulator.settings.getPropertyAsInt("COTTRELL_TIMED_POOL_SENDING_INTERVAL_IN_MS");
-		this.poolSize = Simulator.settings.getPropertyAsInt("COTTRELL_TIMED_POOL_MIN_POOL_SIZE");
+		this.random = new FastRandom(simulator.getRandom().nextLong()); // seeded -> reproducible
+		this.sendingRate = Simulator.getSettings().getPropertyAsInt("COTTRELL_TIMED_POOL_SENDING_INTERVAL_IN_MS");
+		this.poolSize = Simulator.getSettings().getPropertyAsInt("COTTRELL_TIMED_POOL_MIN_POOL_SIZE");
 		this.requestBatch = new SimplexCottrellTimedPool(true, sendingRate, poolSize);
 		this.replyBatch = new SimplexCottrellTimedPool(false, sendingRate, poolSize);
 	}
@@ -85,7 +87,7 @@ public class CottrellTimedPool extends OutputStrategyImpl {
 	public class SimplexCottrellTimedPool implements EventExecutor {
 		
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
 		private int sendingRate;
 		private int poolSize;
@@ -93,7 +95,7 @@ public class CottrellTimedPool extends OutputStrategyImpl {
 		
 		public SimplexCottrellTimedPool(boolean isRequestPool, int sendingRate, int poolSize) {
 			
-			this.collectedMessages = new Vector<MixMessage>(simulator.getClients().size()*2);	
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(MixMessage.class, simulator.getClients().size()*2, random);	
 			this.isRequestPool = isRequestPool;
 			this.sendingRate = sendingRate;
 			this.poolSize = poolSize;
@@ -119,15 +121,14 @@ public class CottrellTimedPool extends OutputStrategyImpl {
 			
 			if (numberOfMessagesToPutOut > 0) {
 				
-				for (int i=0; i<numberOfMessagesToPutOut; i++) {
-					
-					int chosen = secureRandom.nextInt(collectedMessages.size());
-					
-					if (isRequestPool)
-						mix.putOutRequest(collectedMessages.remove(chosen));
-					else
-						mix.putOutReply(collectedMessages.remove(chosen));
-				}
+				MixMessage[] chosen = collectedMessages.removeRandom(numberOfMessagesToPutOut);
+				
+				if (isRequestPool)
+					for (MixMessage m: chosen)
+						mix.putOutRequest(m);
+				else
+					for (MixMessage m: chosen)
+						mix.putOutReply(m);
 			
 			}
 	
@@ -136,7 +137,7 @@ public class CottrellTimedPool extends OutputStrategyImpl {
 		
 		private void scheduleNextOutput() {
 			
-			simulator.scheduleEvent(new Event(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
+			simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
 		
 		}
 
@@ -57,8 +57,8 @@ public class DLPABasic extends OutputStrategyImpl implements Identifiable {
 	
 	public DLPABasic(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.maxRequestDelay = Simulator.settings.getPropertyAsInt("MAX_DLPAB_REQUEST_DELAY");
-		this.maxReplyDelay = Simulator.settings.getPropertyAsInt("MAX_DLPAB_REPLY_DELAY");
+		this.maxRequestDelay = Simulator.getSettings().getPropertyAsInt("MAX_DLPAB_REQUEST_DELAY");
+		this.maxReplyDelay = Simulator.getSettings().getPropertyAsInt("MAX_DLPAB_REPLY_DELAY");
 		this.statistics = new Statistics(this);
 		this.numericIdentifier = IdGenerator.getId();
 	}
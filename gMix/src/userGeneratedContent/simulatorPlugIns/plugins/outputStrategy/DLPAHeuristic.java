@@ -92,10 +92,10 @@ public class DLPAHeuristic extends OutputStrategyImpl implements Identifiable {
 		super(mix, simulator);
 		this.statistics = new Statistics(this);
 		this.numericIdentifier = IdGenerator.getId();
-		maxRequestDelay = Simulator.settings.getPropertyAsInt("MAX_DLPAI_REQUEST_DELAY");
-		maxReplyDelay = Simulator.settings.getPropertyAsInt("MAX_DLPAI_REPLY_DELAY");
-		requestUtilityThreshold = Simulator.settings.getPropertyAsDouble("REQUEST_UTILITY_THRESHOLD_I");
-		replyUtilityThreshold = Simulator.settings.getPropertyAsDouble("REPLY_UTILITY_THRESHOLD_I");
+		maxRequestDelay = Simulator.getSettings().getPropertyAsInt("MAX_DLPAI_REQUEST_DELAY");
+		maxReplyDelay = Simulator.getSettings().getPropertyAsInt("MAX_DLPAI_REPLY_DELAY");
+		requestUtilityThreshold = Simulator.getSettings().getPropertyAsDouble("REQUEST_UTILITY_THRESHOLD_I");
+		replyUtilityThreshold = Simulator.getSettings().getPropertyAsDouble("REPLY_UTILITY_THRESHOLD_I");
 		this.requestHandler = new DLPAHeuristicSimplex(true, maxRequestDelay, requestUtilityThreshold);
 		this.replyHandler = new DLPAHeuristicSimplex(false, maxReplyDelay, replyUtilityThreshold);
 		}
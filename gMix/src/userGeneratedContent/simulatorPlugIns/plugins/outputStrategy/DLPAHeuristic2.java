@@ -90,10 +90,10 @@ public class DLPAHeuristic2 extends OutputStrategyImpl implements Identifiable {
 		super(mix, simulator);
 		this.statistics = new Statistics(this);
 		this.numericIdentifier = IdGenerator.getId();
-		maxRequestDelay = Simulator.settings.getPropertyAsInt("MAX_DLPAII_REQUEST_DELAY");
-		maxReplyDelay = Simulator.settings.getPropertyAsInt("MAX_DLPAII_REPLY_DELAY");
-		requestUtilityThreshold = Simulator.settings.getPropertyAsDouble("REQUEST_UTILITY_THRESHOLD_II");
-		replyUtilityThreshold = Simulator.settings.getPropertyAsDouble("REPLY_UTILITY_THRESHOLD_II");
+		maxRequestDelay = Simulator.getSettings().getPropertyAsInt("MAX_DLPAII_REQUEST_DELAY");
+		maxReplyDelay = Simulator.getSettings().getPropertyAsInt("MAX_DLPAII_REPLY_DELAY");
+		requestUtilityThreshold = Simulator.getSettings().getPropertyAsDouble("REQUEST_UTILITY_THRESHOLD_II");
+		replyUtilityThreshold = Simulator.getSettings().getPropertyAsDouble("REPLY_UTILITY_THRESHOLD_II");
 		this.requestHandler = new DLPAHeuristicSimplex(true, maxRequestDelay, requestUtilityThreshold);
 		this.replyHandler = new DLPAHeuristicSimplex(false, maxReplyDelay, replyUtilityThreshold);
 		}
@@ -88,7 +88,7 @@ public class DLPAOutputSlot implements EventExecutor {
 			messages.add(mixMessage);
 		}
 		messagesToSend.clear();
-		Collections.shuffle(messages);
+		Collections.shuffle(messages, simulator.getRandom());
 		for (MixMessage m:messages) {
 			if (isRequestSlot) {
 				dLPABasic.statistics.increment(1, StatisticsType.DLPA_REQUEST_SENDING_RATE_PER_MIX);
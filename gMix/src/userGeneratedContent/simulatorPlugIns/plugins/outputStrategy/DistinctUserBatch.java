@@ -73,7 +73,7 @@ public class DistinctUserBatch extends OutputStrategyImpl implements EventExecut
 	
 	public DistinctUserBatch(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.timeout = Simulator.settings.getPropertyAsInt("MAX_REPLY_DELAY_DISTINCT_USER_BATCH");
+		this.timeout = Simulator.getSettings().getPropertyAsInt("MAX_REPLY_DELAY_DISTINCT_USER_BATCH");
 	}
 
 
@@ -83,7 +83,7 @@ public class DistinctUserBatch extends OutputStrategyImpl implements EventExecut
 		batchSize = Simulator.getSimulator().getNumberOfClients();
 		collectedRequests = new MixMessage[batchSize];
 		
-		if (Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX")) {
+		if (Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX")) {
 			
 			collectedReplies = new MixMessage[batchSize];
 			
@@ -301,7 +301,7 @@ public class DistinctUserBatch extends OutputStrategyImpl implements EventExecut
 	@Override
 	public ClientSendStyleImpl getClientSendStyle(AbstractClient client) {
 		boolean noMixes = !Topology.getTopology().containsAtLeastOneMix();
-		boolean noRequestChannel = Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY");
+		boolean noRequestChannel = Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY");
 		if (noMixes || noRequestChannel) {
 			return new ClientSendWithoutMixes(client, Simulator.getSimulator());
 		} else {
@@ -69,10 +69,10 @@ public class LossySynchronousBatch extends OutputStrategyImpl implements Identif
 		this.statistics = new Statistics(this);
 		this.numericIdentifier = IdGenerator.getId();
 		int numberOfClients = Simulator.getSimulator().getNumberOfClients();
-		this.requestRate = Simulator.settings.getPropertyAsDouble("LSB_REQUEST_RATE");
+		this.requestRate = Simulator.getSettings().getPropertyAsDouble("LSB_REQUEST_RATE");
 		this.requestBatch = new SimplexLossySynchronousBatch(true, requestRate, numberOfClients);
-		if (Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX")) {
-			replyRate = Simulator.settings.getPropertyAsDouble("LSB_REPLY_RATE");
+		if (Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX")) {
+			replyRate = Simulator.getSettings().getPropertyAsDouble("LSB_REPLY_RATE");
 			this.replyBatch = new SimplexLossySynchronousBatch(true, replyRate, numberOfClients);
 			if (mix.isLastMix())
 				clientReplyWaitingQueues = new HashMap<String, Vector<TransportMessage>>();
@@ -158,7 +158,7 @@ public class LossySynchronousBatch extends OutputStrategyImpl implements Identif
 					}
 				} 
 				List<MixMessage> result = Arrays.asList(batch);
-				Collections.shuffle(result);
+				Collections.shuffle(result, simulator.getRandom());
 				if (isRequestBatch) {
 					for (MixMessage msg:result)
 						mix.putOutRequest(msg);
@@ -172,7 +172,7 @@ public class LossySynchronousBatch extends OutputStrategyImpl implements Identif
 		
 		
 		private void scheduleNextOutput() { 
-			Event outputEvent = new Event(this, Simulator.getNow() + sendInterval, OutputStrategyEvent.TIMEOUT);
+			Event outputEvent = simulator.getEventFromPool(this, Simulator.getNow() + sendInterval, OutputStrategyEvent.TIMEOUT);
 			simulator.scheduleEvent(outputEvent, this);
 		}
 		
@@ -207,7 +207,7 @@ public class LossySynchronousBatch extends OutputStrategyImpl implements Identif
 					batch.add(mixMessage);
 				}	
 			}
-			Collections.shuffle(batch);
+			Collections.shuffle(batch, simulator.getRandom());
 			for (MixMessage mixMessage:batch)
 				mix.putOutRequest(mixMessage);
 		}
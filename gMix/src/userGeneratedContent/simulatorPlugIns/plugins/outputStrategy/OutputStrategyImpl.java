@@ -39,11 +39,11 @@ public abstract class OutputStrategyImpl implements ReplyReceiver {
 	public OutputStrategyImpl(Mix mix, Simulator simulator) {
 		this.mix = mix;
 		this.simulator = simulator;
-		if (Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX"))
+		if (Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY") || Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX"))
 			simulateReplyChannel = true;
 		else
 			simulateReplyChannel = false;
-		if (Simulator.settings.getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY"))
+		if (Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("SIMPLEX_REPLY"))
 			simulateRequestChannel = false;
 		else
 			simulateRequestChannel = true;
@@ -43,7 +43,7 @@ public class StopAndGo extends OutputStrategyImpl implements EventExecutor {
 	
 	public StopAndGo(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.useTimeStamps = Simulator.settings.getPropertyAsBoolean("SGMIX_USE_TIMESTAMPS");
+		this.useTimeStamps = Simulator.getSettings().getPropertyAsBoolean("SGMIX_USE_TIMESTAMPS");
 	}
 	
 	
@@ -76,7 +76,7 @@ public class StopAndGo extends OutputStrategyImpl implements EventExecutor {
 
 	
 	private void scheduleOutput(MixMessage mixMessage, int delayTillOutput) {
-		simulator.scheduleEvent(new Event(this, Simulator.getNow() + delayTillOutput, OutputStrategyEvent.TIMEOUT, mixMessage), this);
+		simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + delayTillOutput, OutputStrategyEvent.TIMEOUT, mixMessage), this);
 	}
 	
 	
@@ -17,8 +17,6 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
-
 import org.apache.commons.math.MathException;
 import org.apache.commons.math.distribution.ExponentialDistributionImpl;
 
@@ -33,6 +31,7 @@ import staticContent.evaluation.simulator.annotations.property.requirements.SgMi
 import staticContent.evaluation.simulator.annotations.property.requirements.SgMixMinInterMixDelayRequirement;
 import staticContent.evaluation.simulator.core.message.BasicMixMessage;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
+import staticContent.evaluation.simulator.core.networkComponent.IdGenerator;
 import staticContent.evaluation.simulator.core.networkComponent.NetworkNode;
 
 // This is an example of how to manually cap a plugin
@@ -48,9 +47,7 @@ public class StopAndGoMessage extends BasicMixMessage {
 	private int tsMaxCounter = 0;
 	private int delayCounter = 0;
 	private ExponentialDistributionImpl expDist;
-	private static SecureRandom secureRandom = new SecureRandom();
 	private int identifier;
-	private static int idCounter = 0;
 	
 	@DoubleSimulationProperty ( name = "Security parameter mu", 
 			key = "SGMIX_SECURITY_PARAMETER_MU")
@@ -90,16 +87,16 @@ public class StopAndGoMessage extends BasicMixMessage {
 		
 		super(isRequest, source, destination, owner, creationTime, isDummy);
 		
-		this.identifier = idCounter++;
+		this.identifier = IdGenerator.getId();
 		
 		// generate delays
-		securityParameterMu = Simulator.settings.getPropertyAsDouble("SGMIX_SECURITY_PARAMETER_MU");
+		securityParameterMu = Simulator.getSettings().getPropertyAsDouble("SGMIX_SECURITY_PARAMETER_MU");
 		Simulator simulator = Simulator.getSimulator();
 		int numberOfMixes = simulator.getMixes().size();
 		this.delay = new int[numberOfMixes];
 		this.expDist = new ExponentialDistributionImpl(1d/securityParameterMu);
-		this.expDist.reseedRandomGenerator(secureRandom.nextLong());
-		boolean useTimeStamps = Simulator.settings.getPropertyAsBoolean("SGMIX_USE_TIMESTAMPS");
+		this.expDist.reseedRandomGenerator(simulator.getRandom().nextLong());
+		boolean useTimeStamps = Simulator.getSettings().getPropertyAsBoolean("SGMIX_USE_TIMESTAMPS");
 		
 		for (int i=0; i<numberOfMixes; i++) {
 			
@@ -114,11 +111,11 @@ public class StopAndGoMessage extends BasicMixMessage {
 		
 		if (useTimeStamps) {
 			
-			minInterMixDelay = Simulator.settings.getPropertyAsInt("SGMIX_MIN_INTER_MIX_DELAY");
-			maxInterMixDelay = Simulator.settings.getPropertyAsInt("SGMIX_MAX_INTER_MIX_DELAY");
-			minClientMixDelay = Simulator.settings.getPropertyAsInt("SGMIX_MIN_CLIENT_MIX_DELAY");
-			maxClientMixDelay = Simulator.settings.getPropertyAsInt("SGMIX_MAX_CLIENT_MIX_DELAY");
-			maxClockDeviation = Simulator.settings.getPropertyAsInt("SGMIX_MAX_CLOCK_DEVITION");
+			minInterMixDelay = Simulator.getSettings().getPropertyAsInt("SGMIX_MIN_INTER_MIX_DELAY");
+			maxInterMixDelay = Simulator.getSettings().getPropertyAsInt("SGMIX_MAX_INTER_MIX_DELAY");
+			minClientMixDelay = Simulator.getSettings().getPropertyAsInt("SGMIX_MIN_CLIENT_MIX_DELAY");
+			maxClientMixDelay = Simulator.getSettings().getPropertyAsInt("SGMIX_MAX_CLIENT_MIX_DELAY");
+			maxClockDeviation = Simulator.getSettings().getPropertyAsInt("SGMIX_MAX_CLOCK_DEVITION");
 			
 			tsMin = new long[numberOfMixes];
 			tsMax = new long[numberOfMixes];
@@ -55,8 +55,8 @@ public class ThresholdAndTimedBatch extends OutputStrategyImpl {
 	
 	public ThresholdAndTimedBatch(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.sendingRate = Simulator.settings.getPropertyAsInt("THRESHOLD_AND_TIMED_BATCH_SENDING_RATE_IN_MS");
-		this.batchSize = Simulator.settings.getPropertyAsInt("THRESHOLD_AND_TIMED_BATCH_BATCH_SIZE");
+		this.sendingRate = Simulator.getSettings().getPropertyAsInt("THRESHOLD_AND_TIMED_BATCH_SENDING_RATE_IN_MS");
+		this.batchSize = Simulator.getSettings().getPropertyAsInt("THRESHOLD_AND_TIMED_BATCH_BATCH_SIZE");
 		this.requestBatch = new SimplexThresholdAndTimedBatch(true, sendingRate,batchSize );
 		this.replyBatch = new SimplexThresholdAndTimedBatch(false, sendingRate, batchSize);
 	}
@@ -123,7 +123,7 @@ public class ThresholdAndTimedBatch extends OutputStrategyImpl {
 		
 		
 		private void scheduleNextOutput() {
-			simulator.scheduleEvent(new Event(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
+			simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
 		}
 
 		
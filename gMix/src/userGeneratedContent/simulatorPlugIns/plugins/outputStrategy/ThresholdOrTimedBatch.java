@@ -55,8 +55,8 @@ public class ThresholdOrTimedBatch extends OutputStrategyImpl {
 	
 	public ThresholdOrTimedBatch(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.sendingRate = Simulator.settings.getPropertyAsInt("THRESHOLD_OR_TIMED_BATCH_SENDING_RATE_IN_MS");
-		this.batchSize = Simulator.settings.getPropertyAsInt("THRESHOLD_OR_TIMED_BATCH_BATCH_SIZE");
+		this.sendingRate = Simulator.getSettings().getPropertyAsInt("THRESHOLD_OR_TIMED_BATCH_SENDING_RATE_IN_MS");
+		this.batchSize = Simulator.getSettings().getPropertyAsInt("THRESHOLD_OR_TIMED_BATCH_BATCH_SIZE");
 		this.requestBatch = new SimplexThresholdOrTimedBatch(true, sendingRate,batchSize );
 		this.replyBatch = new SimplexThresholdOrTimedBatch(false, sendingRate, batchSize);
 	}
@@ -124,7 +124,7 @@ public class ThresholdOrTimedBatch extends OutputStrategyImpl {
 		
 		private void scheduleNextOutput() {
 			
-			simulator.scheduleEvent(new Event(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
+			simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
 		
 		}
 
@@ -17,8 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
-import java.util.Vector;
+import java.util.Random;
 
 import staticContent.evaluation.simulator.Simulator;
 import staticContent.evaluation.simulator.annotations.plugin.Plugin;
@@ -26,6 +25,8 @@ import staticContent.evaluation.simulator.annotations.property.IntSimulationProp
 import staticContent.evaluation.simulator.core.message.MixMessage;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
 import staticContent.evaluation.simulator.core.networkComponent.Mix;
+import staticContent.framework.util.FastRandom;
+import staticContent.framework.util.RandomRemovalPool;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.ClientSendStyle;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.MixSendStyle;
 import userGeneratedContent.simulatorPlugIns.plugins.clientSendStyle.ClientSendStyleImpl;
@@ -41,7 +42,7 @@ import userGeneratedContent.simulatorPlugIns.plugins.mixSendStyle.MixSendStyleIm
 @Plugin(pluginKey = "THRESHOLD_POOL", pluginName="Threshold Pool")
 public class ThresholdPool extends OutputStrategyImpl {
 
-	private static SecureRandom secureRandom = new SecureRandom();
+	private Random random;
 	private SimplexTresholdPool requestPool;
 	private SimplexTresholdPool replyPool;
 	
@@ -58,8 +59,9 @@ public class ThresholdPool extends OutputStrategyImpl {
 	
 	public ThresholdPool(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.poolSize = Simulator.settings.getPropertyAsInt("THRESHOLD_POOL_MIN_POOL_SIZE");
-		this.threshold = Simulator.settings.getPropertyAsInt("THRESHOLD_POOL_THRESHOLD");
+		this.random = new FastRandom(simulator.getRandom().nextLong()); // seeded -> reproducible
+		this.poolSize = Simulator.getSettings().getPropertyAsInt("THRESHOLD_POOL_MIN_POOL_SIZE");
+		this.threshold = Simulator.getSettings().getPropertyAsInt("THRESHOLD_POOL_THRESHOLD");
 		this.requestPool = new SimplexTresholdPool(true, poolSize, threshold);
 		this.replyPool = new SimplexTresholdPool(false, poolSize, threshold);
 	}
@@ -80,7 +82,7 @@ public class ThresholdPool extends OutputStrategyImpl {
 	public class SimplexTresholdPool {
 		
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private final int threshold;
 		private final int minPoolSize;
 		//private int numberOfMessagesToPutOut;
@@ -88,7 +90,7 @@ public class ThresholdPool extends OutputStrategyImpl {
 		
 		public SimplexTresholdPool(boolean isRequestPool, int minPoolSize, int threshold) {
 			
-			this.collectedMessages = new Vector<MixMessage>(minPoolSize*2);
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(MixMessage.class, (minPoolSize + threshold)*2, random);
 			this.isRequestPool = isRequestPool;
 			this.threshold = threshold;
 			this.minPoolSize = minPoolSize;
@@ -109,16 +111,14 @@ public class ThresholdPool extends OutputStrategyImpl {
 		
 		public void putOutMessages() {
 			
-			for (int i=0; i<threshold; i++) {
-					
-				int chosen = secureRandom.nextInt(collectedMessages.size());
-					
-				if (isRequestPool)
-					mix.putOutRequest(collectedMessages.remove(chosen));
-				else
-					mix.putOutReply(collectedMessages.remove(chosen));
-
-			}
+			MixMessage[] chosen = collectedMessages.removeRandom(threshold);
+			
+			if (isRequestPool)
+				for (MixMessage m: chosen)
+					mix.putOutRequest(m);
+			else
+				for (MixMessage m: chosen)
+					mix.putOutReply(m);
 	
 			//collectedMessages.clear();
 			
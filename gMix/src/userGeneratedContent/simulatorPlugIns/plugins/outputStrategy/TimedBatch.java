@@ -49,7 +49,7 @@ public class TimedBatch extends OutputStrategyImpl {
 	
 	public TimedBatch(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.sendingRate = Simulator.settings.getPropertyAsInt("TIMED_BATCH_SEND_INTERVAL_IN_MS");
+		this.sendingRate = Simulator.getSettings().getPropertyAsInt("TIMED_BATCH_SEND_INTERVAL_IN_MS");
 		this.requestBatch = new SimplexTimedMix(true, sendingRate);
 		this.replyBatch = new SimplexTimedMix(false, sendingRate);
 	}
@@ -112,7 +112,7 @@ public class TimedBatch extends OutputStrategyImpl {
 		
 		private void scheduleNextOutput() {
 			
-			simulator.scheduleEvent(new Event(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
+			simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
 		
 		}
 
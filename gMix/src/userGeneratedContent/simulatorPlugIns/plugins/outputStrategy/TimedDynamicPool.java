@@ -17,8 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.outputStrategy;
 
-import java.security.SecureRandom;
-import java.util.Vector;
+import java.util.Random;
 
 import staticContent.evaluation.simulator.Simulator;
 import staticContent.evaluation.simulator.annotations.plugin.Plugin;
@@ -29,6 +28,8 @@ import staticContent.evaluation.simulator.core.event.EventExecutor;
 import staticContent.evaluation.simulator.core.message.MixMessage;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
 import staticContent.evaluation.simulator.core.networkComponent.Mix;
+import staticContent.framework.util.FastRandom;
+import staticContent.framework.util.RandomRemovalPool;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.ClientSendStyle;
 import userGeneratedContent.simulatorPlugIns.pluginRegistry.MixSendStyle;
 import userGeneratedContent.simulatorPlugIns.plugins.clientSendStyle.ClientSendStyleImpl;
@@ -48,7 +49,7 @@ public class TimedDynamicPool extends OutputStrategyImpl {
 
 	private SimplexTimedDynamicPool requestPool;
 	private SimplexTimedDynamicPool replyPool;
-	private static SecureRandom secureRandom = new SecureRandom();
+	private Random random;
 	
 	@IntSimulationProperty( name = "Send rate (ms)",
 			key = "TIMED_DYNAMIC_POOL_SEND_INTERVAL_IN_MS",
@@ -68,9 +69,10 @@ public class TimedDynamicPool extends OutputStrategyImpl {
 	
 	public TimedDynamicPool(Mix mix, Simulator simulator) {
 		super(mix, simulator);
-		this.sendingRate = Simulator.settings.getPropertyAsInt("TIMED_DYNAMIC_POOL_SEND_INTERVAL_IN_MS");
-		this.minMessages = Simulator.settings.getPropertyAsInt("TIMED_DYNAMIC_POOL_MIN_MESSAGES_IN_POOL");
-		this.fraction = Simulator.settings.getPropertyAsDouble("TIMED_DYNAMIC_POOL_FRACTION");
+		this.random = new FastRandom(simulator.getRandom().nextLong()); // seeded -> reproducible
+		this.sendingRate = Simulator.getSettings().getPropertyAsInt("TIMED_DYNAMIC_POOL_SEND_INTERVAL_IN_MS");
+		this.minMessages = Simulator.getSettings().getPropertyAsInt("TIMED_DYNAMIC_POOL_MIN_MESSAGES_IN_POOL");
+		this.fraction = Simulator.getSettings().getPropertyAsDouble("TIMED_DYNAMIC_POOL_FRACTION");
 		this.requestPool = new SimplexTimedDynamicPool(true, this.sendingRate, this.minMessages, this.fraction);
 		this.replyPool = new SimplexTimedDynamicPool(false, this.sendingRate, this.minMessages, this.fraction);
 	}
@@ -88,7 +90,7 @@ public class TimedDynamicPool extends OutputStrategyImpl {
 	public class SimplexTimedDynamicPool implements EventExecutor {
 
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
 		private int sendingRate;
 		private double minMessages;
@@ -96,7 +98,7 @@ public class TimedDynamicPool extends OutputStrategyImpl {
 		
 		public SimplexTimedDynamicPool(boolean isRequestPool, int sendingRate, int minMessages, double fraction) {
 			
-			this.collectedMessages = new Vector<MixMessage>(simulator.getClients().size()*2);	
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(MixMessage.class, simulator.getClients().size()*2, random);	
 			this.isRequestPool = isRequestPool;
 			this.sendingRate = sendingRate;
 			this.minMessages = minMessages;
@@ -123,15 +125,14 @@ public class TimedDynamicPool extends OutputStrategyImpl {
 				
 				int numberOfMessagesToPutOut = (int) Math.floor(fraction * (collectedMessages.size() - minMessages));
 				
-				for (int i=0; i<numberOfMessagesToPutOut; i++) {
-					
-					int chosen = secureRandom.nextInt(collectedMessages.size());
-					
-					if (isRequestPool)
-						mix.putOutRequest(collectedMessages.remove(chosen));
-					else
-						mix.putOutReply(collectedMessages.remove(chosen));
-				}
+				MixMessage[] chosen = collectedMessages.removeRandom(numberOfMessagesToPutOut);
+				
+				if (isRequestPool)
+					for (MixMessage m: chosen)
+						mix.putOutRequest(m);
+				else
+					for (MixMessage m: chosen)
+						mix.putOutReply(m);
 				
 			}
 	
@@ -140,7 +141,7 @@ public class TimedDynamicPool extends OutputStrategyImpl {
 		
 		private void scheduleNextOutput() {
 			
-			simulator.scheduleEvent(new Event(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
+			simulator.scheduleEvent(simulator.getEventFromPool(this, Simulator.getNow() + sendingRate, OutputStrategyEvent.TIMEOUT), this);
 		
 		}
 
@@ -58,8 +58,8 @@ public class LineChartPlotterCf extends Plotter {
 	private final String NONE_OVERWRITABLE_PARAMETERS = "";
 
 	public LineChartPlotterCf() {
-		this.CALC_AVG_OF_RUNS = Simulator.settings.getPropertyAsBoolean("CALC_AVG_OF_RUNS");
-		this.IS_INVERSE = Simulator.settings.getPropertyAsBoolean("IS_INVERSE");
+		this.CALC_AVG_OF_RUNS = Simulator.getSettings().getPropertyAsBoolean("CALC_AVG_OF_RUNS");
+		this.IS_INVERSE = Simulator.getSettings().getPropertyAsBoolean("IS_INVERSE");
 	}
 
 
@@ -78,16 +78,17 @@ public class JansenClient extends AbstractClient {
 		super(identifier, simulator);
 		this.clientId = clientId;
 		this.clientType = clientType;
-		this.requestSize = Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
-		this.maxReplyPayloadSize = Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
-		this.maxBytesPerSec = Simulator.settings.getPropertyAsInt("JANSEN_SERVER_BW_LIMIT_BYTES_PER_SEC");
+		this.requestSize = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
+		this.maxReplyPayloadSize = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+		this.maxBytesPerSec = Simulator.getSettings().getPropertyAsInt("JANSEN_SERVER_BW_LIMIT_BYTES_PER_SEC");
 		this.sendInterval = (int) Math.round(1000d/((double)maxBytesPerSec/(double)maxReplyPayloadSize));
+		this.rand.reSeed(simulator.getRandom().nextLong());
 	}
 
 	
 	public void startSending() {
-		int delay = rand.nextSecureInt(1, 1000);
-		Event startSendingEvent = new Event(this, Simulator.getNow() + delay, JansenClientEvent.START_SENDING);
+		int delay = rand.nextInt(1, 1000);
+		Event startSendingEvent = simulator.getEventFromPool(this, Simulator.getNow() + delay, JansenClientEvent.START_SENDING);
 		simulator.scheduleEvent(startSendingEvent, this);
 	}
 
@@ -137,11 +138,11 @@ public class JansenClient extends AbstractClient {
 	 */
 	private void scheduleNextMessage() {
 		if (clientType == ClientType.WEB) {
-			int delay = rand.nextSecureInt(1, 60000);
+			int delay = rand.nextInt(1, 60000);
 			int replySize = 320*1024;
 			ExtendedTransaction et = createTransaction(replySize);
 			EndToEndMessage eteMessage = new EndToEndMessage(0, et, true);
-			Event sendNextMessageEvent = new Event(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
+			Event sendNextMessageEvent = simulator.getEventFromPool(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
 			simulator.scheduleEvent(sendNextMessageEvent, this);
 		} else if (clientType == ClientType.DOWNLOAD) {
 			int replySize = 5*1024*1024; 
@@ -153,21 +154,21 @@ public class JansenClient extends AbstractClient {
 			int replySize = 50*1024;
 			ExtendedTransaction et = createTransaction(replySize);
 			EndToEndMessage eteMessage = new EndToEndMessage(0, et, true);
-			Event sendNextMessageEvent = new Event(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
+			Event sendNextMessageEvent = simulator.getEventFromPool(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
 			simulator.scheduleEvent(sendNextMessageEvent, this);
 		} else if (clientType == ClientType.PERF2) {
 			int delay = 60000;
 			int replySize = 1024*1024;
 			ExtendedTransaction et = createTransaction(replySize);
 			EndToEndMessage eteMessage = new EndToEndMessage(0, et, true);
-			Event sendNextMessageEvent = new Event(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
+			Event sendNextMessageEvent = simulator.getEventFromPool(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
 			simulator.scheduleEvent(sendNextMessageEvent, this);
 		} else if (clientType == ClientType.PERF3) {
 			int delay = 60000;
 			int replySize = 5*1024*1024;
 			ExtendedTransaction et = createTransaction(replySize);
 			EndToEndMessage eteMessage = new EndToEndMessage(0, et, true);
-			Event sendNextMessageEvent = new Event(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
+			Event sendNextMessageEvent = simulator.getEventFromPool(this, Simulator.getNow() + delay, JansenClientEvent.SEND_NEXT_MESSAGE, eteMessage);
 			simulator.scheduleEvent(sendNextMessageEvent, this);
 		} else {
 			throw new RuntimeException("Unknown ClientType -> check source code (impementation fault)"); 
@@ -63,9 +63,9 @@ public class JansenModel extends TrafficSourceImplementation {
 	
 	@Override
 	public AbstractClient[] createClientsArray() {
-		if (!Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX"))
+		if (!Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX"))
 			throw new RuntimeException("ERROR: JansenModel requires COMMUNICATION_MODE to be DUPLEX (see experiment config file)!"); 
-		this.numberOfClients = Simulator.settings.getPropertyAsInt("JANSEN_MODEL_NUMBER_OF_CLIENTS_TO_SIMULATE");
+		this.numberOfClients = Simulator.getSettings().getPropertyAsInt("JANSEN_MODEL_NUMBER_OF_CLIENTS_TO_SIMULATE");
 		clients = new JansenClient[numberOfClients];
 		int webClients = (int) Math.round(0.7826d*(double)numberOfClients);
 		int dlClients = (int) Math.round(0.0869d*(double)numberOfClients);
@@ -19,13 +19,14 @@ package userGeneratedContent.simulatorPlugIns.plugins.trafficSource;
 
 import java.math.BigDecimal;
 import java.security.SecureRandom;
+import java.util.Random;
 
 
 public class NormalizedPareto {
 
 	private final double ALPHA; // shape parameter
 	private final double GAMMA;
-	private final SecureRandom random = new SecureRandom();
+	private final Random random;
 	
 	
 	/**
@@ -34,12 +35,25 @@ public class NormalizedPareto {
 	 * @param avg avg result when drawing a sample
 	 */
 	public NormalizedPareto(double alpha, double avg) {
+		this(alpha, avg, new SecureRandom());
+	}
+	
+	
+	/**
+	 * normalized Pareto distribution
+	 * @param alpha the shape parameter
+	 * @param avg avg result when drawing a sample
+	 * @param random source of randomness (e.g. the seeded generator of the 
+	 * current simulation run)
+	 */
+	public NormalizedPareto(double alpha, double avg, Random random) {
 		if (alpha <= 0)
 			throw new RuntimeException("alpha must be > 0");
 		if (avg <= 0)
 			throw new RuntimeException("avg must be > 0");
 		this.ALPHA = alpha;
 		this.GAMMA = 1d/(avg*(ALPHA-1d));
+		this.random = random;
 	}
 	
 	
@@ -17,8 +17,6 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.trafficSource;
 
-import java.security.SecureRandom;
-
 import org.apache.commons.math.random.RandomDataImpl;
 
 import staticContent.evaluation.simulator.Simulator;
@@ -66,26 +64,25 @@ public class ParetoClient extends AbstractClient {
 	
 	private NormalizedPareto pareto;
 	private RandomDataImpl randomDataImpl;
-	private static SecureRandom secureRandom = new SecureRandom();
 	
 	
 	public ParetoClient(String identifier, Simulator simulator, int clientId) {
 		super(identifier, simulator);
-		if (Simulator.settings.getProperty("PARETO_REQUEST_SIZE").equals("AUTO"))
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
+		if (Simulator.getSettings().getProperty("PARETO_REQUEST_SIZE").equals("AUTO"))
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
 		else
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("PARETO_REQUEST_SIZE");
-		if (Simulator.settings.getProperty("PARETO_REPLY_SIZE").equals("AUTO"))
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("PARETO_REQUEST_SIZE");
+		if (Simulator.getSettings().getProperty("PARETO_REPLY_SIZE").equals("AUTO"))
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
 		else
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("PARETO_REPLY_SIZE");
-		this.RESOLVE_TIME = Simulator.settings.getPropertyAsInt("PARETO_RESOLVE_TIME");
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("PARETO_REPLY_SIZE");
+		this.RESOLVE_TIME = Simulator.getSettings().getPropertyAsInt("PARETO_RESOLVE_TIME");
 		this.clientId = clientId;
-		this.ALPHA = Simulator.settings.getPropertyAsDouble("PARETO_ALPHA");
-		this.AVERAGE_REQUESTS_PER_SECOND = Simulator.settings.getPropertyAsDouble("PARETO_AVERAGE_REQUESTS_PER_SECOND_AND_CLIENT");
-		this.pareto = new NormalizedPareto(ALPHA, AVERAGE_REQUESTS_PER_SECOND);
+		this.ALPHA = Simulator.getSettings().getPropertyAsDouble("PARETO_ALPHA");
+		this.AVERAGE_REQUESTS_PER_SECOND = Simulator.getSettings().getPropertyAsDouble("PARETO_AVERAGE_REQUESTS_PER_SECOND_AND_CLIENT");
+		this.pareto = new NormalizedPareto(ALPHA, AVERAGE_REQUESTS_PER_SECOND, simulator.getRandom());
 		this.randomDataImpl = new RandomDataImpl();
-		this.randomDataImpl.reSeed(secureRandom.nextLong());
+		this.randomDataImpl.reSeed(simulator.getRandom().nextLong());
 	}
 
 	
@@ -119,7 +116,7 @@ public class ParetoClient extends AbstractClient {
 		long numberOfMessages = Math.round(pareto.drawSample());
 		for (int i=0; i<numberOfMessages; i++) {
 			long whenToSend = (long) randomDataImpl.nextUniform(now, end);
-			simulator.scheduleEvent(new Event(this, whenToSend, ParetoClientClientEvent.SEND_MESSAGE), this);	
+			simulator.scheduleEvent(simulator.getEventFromPool(this, whenToSend, ParetoClientClientEvent.SEND_MESSAGE), this);	
 		}
 	}
 	
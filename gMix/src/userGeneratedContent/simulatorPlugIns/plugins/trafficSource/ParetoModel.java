@@ -39,7 +39,7 @@ public class ParetoModel extends TrafficSourceImplementation implements EventExe
 	@Override
 	public AbstractClient[] createClientsArray() {
 		this.simulator = Simulator.getSimulator();
-		this.numberOfClients = Simulator.settings.getPropertyAsInt("PARETO_NUMBER_OF_CLIENTS_TO_SIMULATE");
+		this.numberOfClients = Simulator.getSettings().getPropertyAsInt("PARETO_NUMBER_OF_CLIENTS_TO_SIMULATE");
 		clients = new ParetoClient[numberOfClients];
 		for (int i=0; i<clients.length; i++) 
 			clients[i] = new ParetoClient("Client" +i, Simulator.getSimulator(), i);
@@ -56,7 +56,7 @@ public class ParetoModel extends TrafficSourceImplementation implements EventExe
 	private void scheduleNextSends() {
 		for (ParetoClient client: clients)
 			client.scheduleNextSends();
-		simulator.scheduleEvent(new Event(this, (Simulator.getNow() + 1000), ParetoClientEvent.SCHEDULE_NEXT_SENDS), this);	
+		simulator.scheduleEvent(simulator.getEventFromPool(this, (Simulator.getNow() + 1000), ParetoClientEvent.SCHEDULE_NEXT_SENDS), this);	
 	}
 	
 	
@@ -17,8 +17,6 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.trafficSource;
 
-import java.security.SecureRandom;
-
 import org.apache.commons.math.random.RandomDataImpl;
 
 import staticContent.evaluation.simulator.Simulator;
@@ -63,24 +61,23 @@ public class PoissonClient extends AbstractClient {
 	private double LAMBDA;
 	
 	private RandomDataImpl randomDataImpl;
-	private static SecureRandom secureRandom = new SecureRandom();
 	
 	
 	public PoissonClient(String identifier, Simulator simulator, int clientId) {
 		super(identifier, simulator);
-		if (Simulator.settings.getProperty("POISSON_REQUEST_SIZE").equals("AUTO"))
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
+		if (Simulator.getSettings().getProperty("POISSON_REQUEST_SIZE").equals("AUTO"))
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
 		else
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("POISSON_REQUEST_SIZE");
-		if (Simulator.settings.getProperty("POISSON_REPLY_SIZE").equals("AUTO"))
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("POISSON_REQUEST_SIZE");
+		if (Simulator.getSettings().getProperty("POISSON_REPLY_SIZE").equals("AUTO"))
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
 		else
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("POISSON_REPLY_SIZE");
-		this.RESOLVE_TIME = Simulator.settings.getPropertyAsInt("POISSON_RESOLVE_TIME");
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("POISSON_REPLY_SIZE");
+		this.RESOLVE_TIME = Simulator.getSettings().getPropertyAsInt("POISSON_RESOLVE_TIME");
 		this.clientId = clientId;
-		this.LAMBDA = Simulator.settings.getPropertyAsDouble("POISSON_AVERAGE_REQUESTS_PER_SECOND_AND_CLIENT");
+		this.LAMBDA = Simulator.getSettings().getPropertyAsDouble("POISSON_AVERAGE_REQUESTS_PER_SECOND_AND_CLIENT");
 		this.randomDataImpl = new RandomDataImpl();
-		this.randomDataImpl.reSeed(secureRandom.nextLong());
+		this.randomDataImpl.reSeed(simulator.getRandom().nextLong());
 	}
 
 	
@@ -114,7 +111,7 @@ public class PoissonClient extends AbstractClient {
 		long numberOfMessages = randomDataImpl.nextPoisson(LAMBDA);
 		for (int i=0; i<numberOfMessages; i++) {
 			long whenToSend = (long) randomDataImpl.nextUniform(now, end);
-			simulator.scheduleEvent(new Event(this, whenToSend, PoissonClientEvent.SEND_MESSAGE), this);	
+			simulator.scheduleEvent(simulator.getEventFromPool(this, whenToSend, PoissonClientEvent.SEND_MESSAGE), this);	
 		}
 	}
 
@@ -40,7 +40,7 @@ public class PoissonModel extends TrafficSourceImplementation implements EventEx
 	@Override
 	public AbstractClient[] createClientsArray() {
 		this.simulator = Simulator.getSimulator();
-		numberOfClients = Simulator.settings.getPropertyAsInt("POISSON_NUMBER_OF_CLIENTS_TO_SIMULATE");
+		numberOfClients = Simulator.getSettings().getPropertyAsInt("POISSON_NUMBER_OF_CLIENTS_TO_SIMULATE");
 		clients = new PoissonClient[numberOfClients];
 		for (int i=0; i<clients.length; i++) 
 			clients[i] = new PoissonClient("Client" +i, Simulator.getSimulator(), i);
@@ -57,7 +57,7 @@ public class PoissonModel extends TrafficSourceImplementation implements EventEx
 	private void scheduleNextSends() {
 		for (PoissonClient client: clients)
 			client.scheduleNextSends();
-		simulator.scheduleEvent(new Event(this, (Simulator.getNow() + 1000), PoissonModelEvent.SCHEDULE_NEXT_SENDS), this);	
+		simulator.scheduleEvent(simulator.getEventFromPool(this, (Simulator.getNow() + 1000), PoissonModelEvent.SCHEDULE_NEXT_SENDS), this);	
 	}
 	
 	
@@ -49,15 +49,15 @@ public class RequestReplyClient extends AbstractClient {
 	
 	public RequestReplyClient(String identifier, Simulator simulator, int clientId) {
 		super(identifier, simulator);
-		if (Simulator.settings.getProperty("REQUEST_REPLY_REQUEST_SIZE").equals("AUTO"))
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
+		if (Simulator.getSettings().getProperty("REQUEST_REPLY_REQUEST_SIZE").equals("AUTO"))
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
 		else
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("REQUEST_REPLY_REQUEST_SIZE");
-		if (Simulator.settings.getProperty("REQUEST_REPLY_REPLY_SIZE").equals("AUTO"))
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("REQUEST_REPLY_REQUEST_SIZE");
+		if (Simulator.getSettings().getProperty("REQUEST_REPLY_REPLY_SIZE").equals("AUTO"))
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
 		else
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("REQUEST_REPLY_REPLY_SIZE");
-		this.RESOLVE_TIME = Simulator.settings.getPropertyAsInt("REQUEST_REPLY_RESOLVE_TIME");
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("REQUEST_REPLY_REPLY_SIZE");
+		this.RESOLVE_TIME = Simulator.getSettings().getPropertyAsInt("REQUEST_REPLY_RESOLVE_TIME");
 		this.clientId = clientId;
 	}
 
@@ -33,9 +33,9 @@ public class RequestReplyModel extends TrafficSourceImplementation {
 	
 	@Override
 	public AbstractClient[] createClientsArray() {
-		if (!Simulator.settings.getProperty("COMMUNICATION_MODE").equals("DUPLEX"))
+		if (!Simulator.getSettings().getProperty("COMMUNICATION_MODE").equals("DUPLEX"))
 			throw new RuntimeException("ERROR: RequestReplyModel requires COMMUNICATION_MODE to be DUPLEX (see experiment config file)!"); 
-		this.numberOfClients = Simulator.settings.getPropertyAsInt("REQUEST_REPLY_NUMBER_OF_CLIENTS_TO_SIMULATE");
+		this.numberOfClients = Simulator.getSettings().getPropertyAsInt("REQUEST_REPLY_NUMBER_OF_CLIENTS_TO_SIMULATE");
 		clients = new RequestReplyClient[numberOfClients];
 		for (int i=0; i<clients.length; i++) 
 			clients[i] = new RequestReplyClient("Client" +i, Simulator.getSimulator(), i);
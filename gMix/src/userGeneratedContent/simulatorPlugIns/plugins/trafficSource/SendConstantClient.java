@@ -17,8 +17,6 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.trafficSource;
 
-import java.security.SecureRandom;
-
 import org.apache.commons.math.random.RandomDataImpl;
 
 import staticContent.evaluation.simulator.Simulator;
@@ -62,34 +60,33 @@ public class SendConstantClient extends AbstractClient {
 	private long TIME_BETWEEN_SENDS;
 	
 	private RandomDataImpl randomDataImpl;
-	private static SecureRandom secureRandom = new SecureRandom();
 	
 	
 	public SendConstantClient(String identifier, Simulator simulator, int clientId) {
 		super(identifier, simulator);
 
-		if (Simulator.settings.getProperty("CONSTANT_REQUEST_SIZE").equals("AUTO"))
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
+		if (Simulator.getSettings().getProperty("CONSTANT_REQUEST_SIZE").equals("AUTO"))
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REQUEST_PAYLOAD_SIZE");
 		else
-			this.REQUEST_SIZE = Simulator.settings.getPropertyAsInt("CONSTANT_REQUEST_SIZE");
+			this.REQUEST_SIZE = Simulator.getSettings().getPropertyAsInt("CONSTANT_REQUEST_SIZE");
 
-		if (Simulator.settings.getProperty("CONSTANT_REPLY_SIZE").equals("AUTO"))
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
+		if (Simulator.getSettings().getProperty("CONSTANT_REPLY_SIZE").equals("AUTO"))
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("MIX_REPLY_PAYLOAD_SIZE");
 		else
-			this.REPLY_SIZE = Simulator.settings.getPropertyAsInt("CONSTANT_REPLY_SIZE");
-		this.RESOLVE_TIME = Simulator.settings.getPropertyAsInt("CONSTANT_RESOLVE_TIME");
+			this.REPLY_SIZE = Simulator.getSettings().getPropertyAsInt("CONSTANT_REPLY_SIZE");
+		this.RESOLVE_TIME = Simulator.getSettings().getPropertyAsInt("CONSTANT_RESOLVE_TIME");
 		this.clientId = clientId;
-		this.TIME_BETWEEN_SENDS = Math.round(1000d/Simulator.settings.getPropertyAsDouble("CONSTANT_AVERAGE_REQUESTS_PER_SECOND_AND_CLIENT"));
+		this.TIME_BETWEEN_SENDS = Math.round(1000d/Simulator.getSettings().getPropertyAsDouble("CONSTANT_AVERAGE_REQUESTS_PER_SECOND_AND_CLIENT"));
 		if (TIME_BETWEEN_SENDS == 0)
 			throw new RuntimeException("ERROR: TIME_BETWEEN_SENDS in experiment config files must be 1000 at max."); 
 		this.randomDataImpl = new RandomDataImpl();
-		this.randomDataImpl.reSeed(secureRandom.nextLong());
+		this.randomDataImpl.reSeed(simulator.getRandom().nextLong());
 	}
 
 	
 	public void startSending() {
 		long whenToSendFirstMessage = (long) randomDataImpl.nextUniform(Simulator.getNow(), Simulator.getNow() + TIME_BETWEEN_SENDS);
-		simulator.scheduleEvent(new Event(this, whenToSendFirstMessage, SendConstantClientEvent.SEND_MESSAGE), this);	
+		simulator.scheduleEvent(simulator.getEventFromPool(this, whenToSendFirstMessage, SendConstantClientEvent.SEND_MESSAGE), this);	
 	}
 
 	
@@ -110,7 +107,7 @@ public class SendConstantClient extends AbstractClient {
 		EndToEndMessage eteMessage = new EndToEndMessage(0, et, true);
 		sendMessage(eteMessage);
 		long whenToSendNextMessage = Simulator.getNow() + TIME_BETWEEN_SENDS;
-		simulator.scheduleEvent(new Event(this, whenToSendNextMessage, SendConstantClientEvent.SEND_MESSAGE), this);	
+		simulator.scheduleEvent(simulator.getEventFromPool(this, whenToSendNextMessage, SendConstantClientEvent.SEND_MESSAGE), this);	
 	}
 
 	
@@ -35,7 +35,7 @@ public class SendConstantModel extends TrafficSourceImplementation {
 	
 	@Override
 	public AbstractClient[] createClientsArray() {
-		numberOfClients = Simulator.settings.getPropertyAsInt("CONSTANT_NUMBER_OF_CLIENTS_TO_SIMULATE");
+		numberOfClients = Simulator.getSettings().getPropertyAsInt("CONSTANT_NUMBER_OF_CLIENTS_TO_SIMULATE");
 		clients = new SendConstantClient[numberOfClients];
 		for (int i=0; i<clients.length; i++) 
 			clients[i] = new SendConstantClient("Client" +i, Simulator.getSimulator(), i);
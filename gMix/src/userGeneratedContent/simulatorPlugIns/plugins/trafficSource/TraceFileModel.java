@@ -17,11 +17,6 @@
  *******************************************************************************/
 package userGeneratedContent.simulatorPlugIns.plugins.trafficSource;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -35,14 +30,16 @@ import staticContent.evaluation.simulator.annotations.property.IntSimulationProp
 import staticContent.evaluation.simulator.annotations.property.StringSimulationProperty;
 import staticContent.evaluation.simulator.annotations.property.requirements.TrafficSourceTraceFileClientLimitRequirement;
 import staticContent.evaluation.simulator.core.networkComponent.AbstractClient;
-import staticContent.evaluation.traceParser.engine.dataStructure.Flow;
-import staticContent.evaluation.traceParser.engine.fileReader.FlowReader;
+import staticContent.evaluation.traceParser.engine.fileReader.BinaryFlowTrace;
+import staticContent.evaluation.traceParser.engine.fileReader.IndexedFlowTrace;
+import staticContent.evaluation.traceParser.engine.fileReader.MappedTraceFile;
 
 
 @Plugin(pluginKey = "TRACE_FILE", pluginName = "Tracefile")
 public class TraceFileModel extends TrafficSourceImplementation {
 
 	private TraceReplayClient[] clients;
+	private BinaryFlowTrace binaryFlowTrace = null; // keeps its file open until close() (a MappedTraceFile closes its file after mapping it)
 	
 	@StringSimulationProperty(
 			name = "Path to trace file",
@@ -70,79 +67,38 @@ public class TraceFileModel extends TrafficSourceImplementation {
 	
 	@Override
 	public AbstractClient[] createClientsArray() {
-		this.pathToTrace = Simulator.settings.getProperty("PATH_TO_TRACE");
-		this.limitClients = Simulator.settings.getPropertyAsBoolean("LIMIT_CLIENT_NUMBER");
-		this.limit = limitClients ? Simulator.settings.getPropertyAsInt("CLIENT_LIMIT") : 0;
-		this.chooseClientsAtRandom = Simulator.settings.getPropertyAsBoolean("CHOOSE_RANDOM_CLIENTS");
-		Vector<TraceReplayClient> clients = new Vector<TraceReplayClient>(1000);
-		HashSet<Integer> chosenClients = null;
+		this.pathToTrace = Simulator.getSettings().getProperty("PATH_TO_TRACE");
+		this.limitClients = Simulator.getSettings().getPropertyAsBoolean("LIMIT_CLIENT_NUMBER");
+		this.limit = limitClients ? Simulator.getSettings().getPropertyAsInt("CLIENT_LIMIT") : 0;
+		this.chooseClientsAtRandom = Simulator.getSettings().getPropertyAsBoolean("CHOOSE_RANDOM_CLIENTS");
+		// open (and index) the trace file once; all clients read from the same (read-only) image:
+		if (pathToTrace.endsWith(".gbf"))
+			this.binaryFlowTrace = new BinaryFlowTrace(pathToTrace, true);
+		IndexedFlowTrace trace = binaryFlowTrace != null ? binaryFlowTrace : new MappedTraceFile(pathToTrace);
+		int numberOfHosts = trace.getNumberOfHosts();
+		Vector<TraceReplayClient> clients = new Vector<TraceReplayClient>(limitClients ? Math.min(limit, numberOfHosts) : numberOfHosts);
+		HashSet<Integer> chosenClients = chooseClientsAtRandom ? getChosenClientIds(numberOfHosts, limit) : null;
 		int cid = -1;
-		try {
-			if (chooseClientsAtRandom)
-				chosenClients = getChosenClientIds(pathToTrace, limit);
-			FlowReader flowReader = new FlowReader(pathToTrace, null, false);
-			int currentClientId = -1;
-			while (flowReader.hasNextFlow()) {
-				Flow flow = flowReader.readFlow();
-				if (currentClientId != flow.senderId) {
-					currentClientId ++;
-					if (limitClients && !chooseClientsAtRandom && currentClientId == limit)
-						break;
-					if (flow.senderId != currentClientId)
-						throw new RuntimeException("the trace file " +pathToTrace +" seems to be not " +
-								"ordered correctly.\nmake sure to use an Extractor (package evaluation." +
-								"traceParser.scenarioExtractor) to generate the trace file and specify " +
-								"the path of the created trace file in the experiment config file correctly.)" );
-					long offset = flowReader.getOffsetOfLastFlow();
-					FlowReader readerOfClient;
-					try {
-						RandomAccessFile raf = new RandomAccessFile(pathToTrace, "r");
-						raf.seek(offset);
-						// use BufferedReader to read line instead of raf.readLine() for performance reasons:
-						BufferedReader reader = new BufferedReader(Channels.newReader(raf.getChannel(), "ISO-8859-1"));
-						readerOfClient = new FlowReader(reader, null, true, raf);
-					} catch (Exception e) {
-						System.err.println("could not read " +pathToTrace); 
-						e.printStackTrace();
-						throw new RuntimeException();
-					}
-					if (chooseClientsAtRandom && !chosenClients.contains(currentClientId)) {
-						readerOfClient.close();
-						continue;
-					} else {
-						cid++;
-						TraceReplayClient client = new TraceReplayClient("Client" +cid, Simulator.getSimulator(), readerOfClient, cid, currentClientId);
-						clients.add(client);
-					}
-					
-				}
-			}
-		} catch (Exception e) {
-			System.err.println("could not read trace file " +pathToTrace); 
-			e.printStackTrace();
-			throw new RuntimeException(); 
+		for (int currentClientId=0; currentClientId<numberOfHosts; currentClientId++) {
+			if (limitClients && !chooseClientsAtRandom && currentClientId == limit)
+				break;
+			if (chooseClientsAtRandom && !chosenClients.contains(currentClientId))
+				continue;
+			cid++;
+			TraceReplayClient client = new TraceReplayClient("Client" +cid, Simulator.getSimulator(), trace.getFlowReader(currentClientId), cid, currentClientId);
+			clients.add(client);
 		}
 		this.clients = clients.toArray(new TraceReplayClient[0]); 
 		return this.clients;
 	}
 
 	
-	private HashSet<Integer> getChosenClientIds(String pathToTrace, int limit) throws FileNotFoundException, IOException {
-		// determine number of clients:
-		FlowReader flowReader = new FlowReader(pathToTrace, null, false);
-		int currentClientId = -1;
-		while (flowReader.hasNextFlow()) {
-			Flow flow = flowReader.readFlow();
-			if (currentClientId != flow.senderId)
-				currentClientId ++;
-		}
-		flowReader.close();
-		int numberofClients = currentClientId +1;
+	private HashSet<Integer> getChosenClientIds(int numberofClients, int limit) {
 		//chose clients (no duplicates):
 		ArrayList<Integer> all = new ArrayList<Integer>(numberofClients);
 		for (int i=0; i<numberofClients; i++)
 			all.add(i);
-		Collections.shuffle(all);
+		Collections.shuffle(all, Simulator.getSimulator().getRandom());
 		List<Integer> chosenOnes = all.subList(0, limit);
 		HashSet<Integer> result = new HashSet<Integer>(numberofClients);
 		result.addAll(chosenOnes); 
@@ -155,5 +111,14 @@ public class TraceFileModel extends TrafficSourceImplementation {
 		for (TraceReplayClient client: clients)
 			client.startSending();
 	}
+	
+	
+	@Override
+	public void close() {
+		if (binaryFlowTrace != null) {
+			binaryFlowTrace.close();
+			binaryFlowTrace = null;
+		}
+	}
 
 }
@@ -74,7 +74,7 @@ public class TraceReplayClient extends AbstractClient {
 				for (int i=0; i<replySizes.length; i++) {
 					EndToEndMessage reply = message.createReplyForThisMessage(at, replySizes[i]);
 					long replyDelay = at.endsOfReplies[i] - at.startOfRequest; // delay as observed in original trace
-					Event incomingReplyEvent = new Event(this, Simulator.getNow() + replyDelay, TraceReplayClientEvent.CALL_INCOMING_MESSAGE, reply);
+					Event incomingReplyEvent = simulator.getEventFromPool(this, Simulator.getNow() + replyDelay, TraceReplayClientEvent.CALL_INCOMING_MESSAGE, reply);
 					simulator.scheduleEvent(incomingReplyEvent, this);
 					//System.out.println("simplex, scheduling reply for transaction " +at.getTransactionId() +" for t=" +(Simulator.getNow() + replyDelay)); 
 				}
@@ -102,7 +102,7 @@ public class TraceReplayClient extends AbstractClient {
 			if (activeFlow.hasNextTransaction()) { // next transaction available -> schedule its send
 				ExtendedTransaction nextTransaction = activeFlow.getNextTransaction();
 				//System.out.println(nextTransaction.getSendDelay()); 
-				Event replayNextTransactionEvent = new Event(this, Simulator.getNow() + nextTransaction.getSendDelay(), TraceReplayClientEvent.REPLAY_NEXT_TRANSACTION, activeFlow);
+				Event replayNextTransactionEvent = simulator.getEventFromPool(this, Simulator.getNow() + nextTransaction.getSendDelay(), TraceReplayClientEvent.REPLAY_NEXT_TRANSACTION, activeFlow);
 				//System.out.println(super.toString() +": scheduling next transaction (id: " +nextTransaction.getTransactionId() +", arrayOffset: " +activeFlow.getArrayOffsetOfCurrentTransaction() +", flow: " +activeFlow.flow.flowId +", time:" +Simulator.getNow() +") for " +(Simulator.getNow() + nextTransaction.getSendDelay()));
 				simulator.scheduleEvent(replayNextTransactionEvent, this);
 			} else { // no next transaction (end of flow)
@@ -124,18 +124,18 @@ public class TraceReplayClient extends AbstractClient {
 		while (flowSource.peekNextFlow() != null) { 
 			if (flowSource.peekNextFlow().restriction == Restriction.NONE) { // schedule none restricted flow
 				Flow nextFlow = flowSource.readNextFlow();
-				Event replayNextFlowEvent = new Event(this, Simulator.getNow() , TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
+				Event replayNextFlowEvent = simulator.getEventFromPool(this, Simulator.getNow() , TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
 				//System.out.println(super.toString() +": scheduling next flow (no restriction, id: " +nextFlow.flowId +", time:" +Simulator.getNow() +") for " +Simulator.getNow());
 				simulator.scheduleEvent(replayNextFlowEvent, this);
 			} else if (flowSource.peekNextFlow().restriction == Restriction.SIMPLE_DELAY) {
 				Flow nextFlow = flowSource.readNextFlow();
-				Event replayNextFlowEvent = new Event(this, Simulator.getNow() + nextFlow.offsetFromRestriction, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
+				Event replayNextFlowEvent = simulator.getEventFromPool(this, Simulator.getNow() + nextFlow.offsetFromRestriction, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
 				//System.out.println(super.toString() +": scheduling next flow (SIMPLE_DELAY restriction, id: " +nextFlow.flowId +", time:" +Simulator.getNow() +") for " +(Simulator.getNow() + nextFlow.offsetFromRestriction));
 				simulator.scheduleEvent(replayNextFlowEvent, this);
 			} else if (flowSource.peekNextFlow().restriction == Restriction.NOT_BEFORE_END_OF_OTHER_FLOW) {
 				if (flowSource.peekNextFlow().idOfRestrictingFlow < idOfFirstFlowOfCurrentFlowGroup || finishedFlows.contains(flowSource.peekNextFlow().idOfRestrictingFlow)) { // no more blocked (restricting flow is finished now)
 					Flow nextFlow = flowSource.readNextFlow();
-					Event replayNextFlowEvent = new Event(this, Simulator.getNow() + nextFlow.offsetFromRestriction, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
+					Event replayNextFlowEvent = simulator.getEventFromPool(this, Simulator.getNow() + nextFlow.offsetFromRestriction, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
 					//System.out.println(super.toString() +": scheduling next flow (NOT_BEFORE_END_OF_OTHER_FLOW-restriction, id: " +nextFlow.flowId +", id of restricting flow: " +nextFlow.idOfRestrictingFlow +", time:" +Simulator.getNow() +", delay: " +nextFlow.offsetFromRestriction +") for " +(Simulator.getNow() + nextFlow.offsetFromRestriction));
 					simulator.scheduleEvent(replayNextFlowEvent, this);
 				} else { // next flow is blocked
@@ -151,7 +151,7 @@ public class TraceReplayClient extends AbstractClient {
 							&& flowSource.peekNextFlow().idOfRestrictingReply <= restrictingFlow.getIdOfLatestFinishedReply())) // the restricting reply of the restricting transaction is already replayed
 					) { // restriction no longer given
 					Flow nextFlow = flowSource.readNextFlow();
-					Event replayNextFlowEvent = new Event(this, Simulator.getNow() + nextFlow.offsetFromRestriction, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
+					Event replayNextFlowEvent = simulator.getEventFromPool(this, Simulator.getNow() + nextFlow.offsetFromRestriction, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
 					//System.out.println(super.toString() +": scheduling next flow (NOT_BEFORE_END_OF_TRANSACTION-restriction, id: " +nextFlow.flowId +", time:" +Simulator.getNow() +") for " +(Simulator.getNow() + nextFlow.offsetFromRestriction));
 					//String rsfid = restrictingFlow == null ? "none" : ""+restrictingFlow.flow.flowId;
 					//System.out.println("restrictingFlow: " +rsfid); 
@@ -181,14 +181,14 @@ public class TraceReplayClient extends AbstractClient {
 					finishedFlows = new HashSet<Integer>();
 					while (currentFlowGroup.hasNext() && trace.peekNextFlow().notBeforeRestriction == Util.NOT_SET) { geht so nicht, notBeforeRestriction wird erst durch fgiterator gesetzt..
 						Flow nextFlow = currentFlowGroup.next();
-						Event replayNextFlowEvent = new Event(this, Simulator.getNow() + nextFlow.offsetFromLastFlow, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
+						Event replayNextFlowEvent = simulator.getEventFromPool(this, Simulator.getNow() + nextFlow.offsetFromLastFlow, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
 						simulator.scheduleEvent(replayNextFlowEvent, this);
 					} 
 				}
 			} else { // check if blocked flows of the current flow group can be scheduled:
 				while (currentFlowGroup.hasNext() && finishedFlows.contains(trace.peekNextFlow().notBeforeRestriction)) { geht so nicht, notBeforeRestriction wird erst durch fgiterator gesetzt..
 					Flow nextFlow = currentFlowGroup.next();
-					Event replayNextFlowEvent = new Event(this, Simulator.getNow() + nextFlow.offsetFromRestrictingFlow, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
+					Event replayNextFlowEvent = simulator.getEventFromPool(this, Simulator.getNow() + nextFlow.offsetFromRestrictingFlow, TraceReplayClientEvent.REPLAY_FLOW, nextFlow);
 					simulator.scheduleEvent(replayNextFlowEvent, this);
 				}
 			}
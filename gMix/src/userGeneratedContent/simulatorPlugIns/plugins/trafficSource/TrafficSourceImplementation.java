@@ -28,4 +28,12 @@ public abstract class TrafficSourceImplementation {
 	
 	public abstract void startSending();
 	
+	/**
+	 * called when the simulation run has ended (after the clients were 
+	 * closed); subclasses may release shared resources (e.g. files) here.
+	 */
+	public void close() {
+		
+	}
+	
 }
@@ -72,10 +72,12 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 	private LinkedList<SelectionKey> delayedReadRequestEvents =  new LinkedList<SelectionKey>();
 	private LinkedList<Request> delayedRequests =  new LinkedList<Request>();
 	private LinkedList<UserChannelData> usersWithRepliesReady = new LinkedList<UserChannelData>();
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		this.bindAddress = settings.getPropertyAsInetAddress("GLOBAL_MIX_BIND_ADDRESS");
 		this.port = settings.getPropertyAsInt("GLOBAL_MIX_BIND_PORT");
 		this.backlog = settings.getPropertyAsInt("BACKLOG");
@@ -179,7 +181,7 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 								} else {
 									Request r = requests.remove(0);
 									delayedRequests.add(r);
-									UserChannelData userData = r.getOwner().getAttachment(getThis(), UserChannelData.class);
+									UserChannelData userData = r.getOwner().getAttachment(attachmentSlot);
 									if (!userData.valid)
 										continue;
 						        	SelectionKey selectionkey = userData.socketChannel.keyFor(selector);
@@ -293,7 +295,7 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 							}
 							replyThreadSleeping = false;
 						}
-						UserChannelData userData = reply[i].getOwner().getAttachment(getThis(), UserChannelData.class);
+						UserChannelData userData = reply[i].getOwner().getAttachment(attachmentSlot);
 						if (!userData.valid)
 							continue;
 						messageCounterReplies++;
@@ -320,8 +322,8 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 		boolean valid = true;
 		
 		
-		public UserChannelData(User owner, Object callingInstance) {
-			super(owner, callingInstance);
+		public UserChannelData(User owner) {
+			super(owner, attachmentSlot);
 		}
 		
 		
@@ -419,7 +421,7 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 			numberOfActiveConnections++;
 			User user = userDatabase.generateUser();
 			userDatabase.addUser(user, this);
-			UserChannelData userData = new UserChannelData(user, this);
+			UserChannelData userData = new UserChannelData(user);
 			userData.socketChannel = clientSocketChannel;
 			clientSocketChannel.register(selector, SelectionKey.OP_READ, userData);
 			
@@ -523,7 +525,7 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 
 	@Override
 	public void userRemoved(User user) {
-		UserChannelData userData = user.getAttachment(getThis(), UserChannelData.class);
+		UserChannelData userData = user.getAttachment(attachmentSlot);
 		userData.clear();
 		synchronized (sync) {
 			while(usersWithRepliesReady.remove(userData));
@@ -533,8 +535,4 @@ public class ClientHandler_TCP_FCFS_async_nio extends SubImplementation implemen
 	}
 
 	
-	private ClientHandler_TCP_FCFS_async_nio getThis() {
-		return this;
-	}
-	
 }
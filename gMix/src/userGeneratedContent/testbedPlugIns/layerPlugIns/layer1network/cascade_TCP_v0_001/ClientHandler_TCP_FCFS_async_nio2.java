@@ -68,10 +68,12 @@ public class ClientHandler_TCP_FCFS_async_nio2 extends SubImplementation impleme
 	private int maxMessages;
 	private volatile int messageCounterReplies = 0;
 	private volatile boolean replyFetcherSleeping = false;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		this.bindAddress = settings.getPropertyAsInetAddress("GLOBAL_MIX_BIND_ADDRESS");
 		this.port = settings.getPropertyAsInt("GLOBAL_MIX_BIND_PORT");
 		this.backlog = settings.getPropertyAsInt("BACKLOG");
@@ -209,7 +211,7 @@ public class ClientHandler_TCP_FCFS_async_nio2 extends SubImplementation impleme
 							}
 							replyFetcherSleeping = false;
 						}
-						UserChannelData userData = reply[i].getOwner().getAttachment(getThis(), UserChannelData.class);
+						UserChannelData userData = reply[i].getOwner().getAttachment(attachmentSlot);
 						if (!userData.valid)
 							continue;
 						messageCounterReplies++;
@@ -329,8 +331,8 @@ public class ClientHandler_TCP_FCFS_async_nio2 extends SubImplementation impleme
 		boolean valid = true;
 		
 		
-		public UserChannelData(User owner, Object callingInstance) {
-			super(owner, callingInstance);
+		public UserChannelData(User owner) {
+			super(owner, attachmentSlot);
 		}
 		
 		
@@ -399,7 +401,7 @@ public class ClientHandler_TCP_FCFS_async_nio2 extends SubImplementation impleme
 			numberOfActiveConnections++;
 			User user = userDatabase.generateUser();
 			userDatabase.addUser(user, this);
-			UserChannelData userData = new UserChannelData(user, this);
+			UserChannelData userData = new UserChannelData(user);
 			userData.socketChannel = clientSocketChannel;
 			clientSocketChannel.register(selector, SelectionKey.OP_READ, userData);
 			
@@ -504,7 +506,7 @@ public class ClientHandler_TCP_FCFS_async_nio2 extends SubImplementation impleme
 
 	@Override
 	public void userRemoved(User user) {
-		UserChannelData userData = user.getAttachment(getThis(), UserChannelData.class);
+		UserChannelData userData = user.getAttachment(attachmentSlot);
 		userData.clear();
 		synchronized (sync) {
 			while(usersWithRepliesReady.remove(userData));
@@ -514,8 +516,4 @@ public class ClientHandler_TCP_FCFS_async_nio2 extends SubImplementation impleme
 	}
 
 	
-	private ClientHandler_TCP_FCFS_async_nio2 getThis() {
-		return this;
-	}
-	
 }
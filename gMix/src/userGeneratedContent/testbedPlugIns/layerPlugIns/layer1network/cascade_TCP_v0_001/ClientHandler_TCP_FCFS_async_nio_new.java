@@ -50,10 +50,12 @@ public class ClientHandler_TCP_FCFS_async_nio_new extends SubImplementation {
 	private int MAX_REQUEST_LENGTH;
 	private int QUEUE_BLOCK_SIZE;
 	private int MAX_READS_IN_A_ROW;
-
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
+	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		if (anonNode.ROUTING_MODE != RoutingMode.GLOBAL_ROUTING)
 			throw new RuntimeException("this is a cascade plug-in; ROUTING_MODE is not set to GLOBAL_ROUTING -> will exit now");
 		this.MIX_BIND_ADDRESS = settings.getPropertyAsInetAddress("GLOBAL_MIX_BIND_ADDRESS");
@@ -152,7 +154,7 @@ public class ClientHandler_TCP_FCFS_async_nio_new extends SubImplementation {
 				userDatabase.addUser(user);
 
 				sc.register(selector, SelectionKey.OP_READ,
-						new UserChannelData(user, this, sc));
+						new UserChannelData(user, sc));
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -278,9 +280,9 @@ public class ClientHandler_TCP_FCFS_async_nio_new extends SubImplementation {
 		SocketChannel socketChannel;
 		boolean requestLengthHeaderRead = false;
 
-		public UserChannelData(User owner, Object callingInstance,
+		public UserChannelData(User owner,
 				SocketChannel socketChannel) {
-			super(owner, callingInstance);
+			super(owner, attachmentSlot);
 			this.socketChannel = socketChannel;
 		}
 
@@ -17,15 +17,15 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer1network.cascade_TCP_v0_001;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.security.SecureRandom;
 import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import staticContent.framework.controller.SubImplementation;
@@ -35,21 +35,34 @@ import staticContent.framework.message.Request;
 import staticContent.framework.routing.MixList;
 import staticContent.framework.userDatabase.DatabaseEventListener;
 import staticContent.framework.userDatabase.User;
-import staticContent.framework.util.Util;
 
 
+/**
+ * Multiplexes the requests of all users over MULTIPLEXED_CONNECTIONS parallel 
+ * connections ("links") to the next mix. Each user is assigned to a link by 
+ * its channel id, so all messages of a user take the same link (= per-user 
+ * order is preserved). Each link has its own writer and reader thread. 
+ * Frame format (both directions): [int channel id][int length][message].
+ * 
+ * All requests of a link that are returned by a single call of 
+ * anonNode.getFromRequestOutputQueue() (i.e. a whole batch for batch output 
+ * strategies) are sent with a single gathering write (instead of three 
+ * write() calls and a flush() per request). Replies are received in bulk; the 
+ * remainder of a reply that didn't fit into the receive buffer is read 
+ * directly into the reply's byte array with a scattering read (that also 
+ * fetches the following replies).
+ */
 public class NextMixHandler_TCP_multiplexed_sync extends SubImplementation implements DatabaseEventListener {	
 
+	private final static int HEADER_LENGTH = 8; // [int channel id][int length]
+	private final static int MAX_PENDING_BATCHES_PER_LINK = 64;
+	
 	private InetAddress nextMixAddress;
 	private int nextMixPort;
-	private Socket nextMixSocket; // TODO: ssl
-	private BufferedInputStream nextMixInputStream;
-	private BufferedOutputStream nextMixOutputStream;
-	private AtomicBoolean replyThreadWaiting = new AtomicBoolean(false);
 	//private int queueBlockSize;
 	
 	private RequestThread requestThread;
-	private ReplyThread replyThread;
+	private Link[] links;
 	
 	private int requestBufferSize;
 	private int replyBufferSize;
@@ -62,12 +75,17 @@ public class NextMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 	@Override
 	public void constructor() {
 		//this.queueBlockSize = settings.getPropertyAsInt("QUEUE_BLOCK_SIZE");
-		this.requestThread = new RequestThread();
-		this.replyThread = new ReplyThread();
 		this.thisToNextMixIDs = new  HashMap<User,Integer>((int)Math.round((double)anonNode.EXPECTED_NUMBER_OF_USERS * 1.3d));
 		this.nextMixToThisIDs = new  HashMap<Integer,User>((int)Math.round((double)anonNode.EXPECTED_NUMBER_OF_USERS * 1.3d));
 		this.requestBufferSize = settings.getPropertyAsInt("MULTIPLEXED_REQUEST_BUFFER_SIZE");
 		this.replyBufferSize = settings.getPropertyAsInt("MULTIPLEXED_REPLY_BUFFER_SIZE");
+		int numberOfLinks = !settings.isPropertyPresent("MULTIPLEXED_CONNECTIONS") ? 1 : settings.getPropertyAsInt("MULTIPLEXED_CONNECTIONS");
+		if (numberOfLinks < 1)
+			throw new RuntimeException("ERROR: MULTIPLEXED_CONNECTIONS must be >= 1 (" +numberOfLinks +")"); 
+		this.links = new Link[numberOfLinks];
+		for (int i=0; i<numberOfLinks; i++)
+			links[i] = new Link(i);
+		this.requestThread = new RequestThread();
 	}
 
 	
@@ -85,10 +103,11 @@ public class NextMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 	@Override
 	public void begin() {
 		this.requestThread.setPriority(Thread.MAX_PRIORITY);
-		this.replyThread.setPriority(Thread.MAX_PRIORITY);
-		this.requestThread.connectToNextMix();
+		for (Link link: links)
+			link.connectToNextMix();
+		for (Link link: links)
+			link.start();
 		this.requestThread.start();
-		this.replyThread.start();
 	}
 	
 
@@ -116,51 +135,226 @@ public class NextMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 	}
 
 	
+	private Link getLink(int channelIdentifier) {
+		return links[(channelIdentifier & Integer.MAX_VALUE) % links.length];
+	}
+	
+	
+	/**
+	 * Requests (and their channel ids) that shall be sent over the same link.
+	 */
+	private static class Batch {
+		
+		private final Request[] requests;
+		private final int[] channelIdentifiers;
+		
+		
+		private Batch(Request[] requests, int[] channelIdentifiers) {
+			this.requests = requests;
+			this.channelIdentifiers = channelIdentifiers;
+		}
+		
+	}
+	
+	
+	/**
+	 * Takes the requests from the anonNode and splits them up by link. In 
+	 * case of a single link, the requests are written directly by this thread.
+	 */
 	private class RequestThread extends Thread {
 		
+		private int[] channelIdentifiers = new int[0];
+		private int[] requestsPerLink = new int[links.length];
+		
+		
 		@Override
 		public void run() {
 			while (true) {
 				Request[] requests = anonNode.getFromRequestOutputQueue();
-				for (int i=0; i<requests.length; i++) {
-					try {
-						synchronized (nextMixToThisIDs) {
-							nextMixOutputStream.write(Util.intToByteArray(thisToNextMixIDs.get(requests[i].getOwner())));
+				if (channelIdentifiers.length < requests.length)
+					channelIdentifiers = new int[Math.max(requests.length, channelIdentifiers.length * 2)];
+				synchronized (nextMixToThisIDs) { // one monitor enter per batch instead of per request
+					for (int i=0; i<requests.length; i++) {
+						Integer channelIdentifier = thisToNextMixIDs.get(requests[i].getOwner());
+						if (channelIdentifier == null) {
+							System.out.println(anonNode +" no channel id for " +requests[i].getOwner() +"; dropping request"); 
+							requests[i] = null;
+							continue;
 						}
-						nextMixOutputStream.write(Util.intToByteArray(requests[i].getByteMessage().length));
-						nextMixOutputStream.write(requests[i].getByteMessage());
-						nextMixOutputStream.flush();
-					} catch (IOException e) {
-						System.out.println(anonNode +" connection to next mix (" +nextMixAddress +":" +nextMixPort +") lost"); 
-						connectToNextMix(); // reestablish connection
-						continue;	
-					} catch (NullPointerException e) {
-						e.printStackTrace();
-						continue;
+						channelIdentifiers[i] = channelIdentifier;
 					}
-				} 
+				}
+				if (links.length == 1)
+					links[0].writeRequests(new Batch(requests, channelIdentifiers));
+				else
+					dispatch(requests);
 			}
-		}	
+		}
+		
+		
+		private void dispatch(Request[] requests) {
+			for (int i=0; i<requests.length; i++)
+				if (requests[i] != null)
+					requestsPerLink[getLink(channelIdentifiers[i]).index]++;
+			Request[][] requestsForLink = new Request[links.length][];
+			int[][] idsForLink = new int[links.length][];
+			for (int i=0; i<links.length; i++) {
+				requestsForLink[i] = new Request[requestsPerLink[i]];
+				idsForLink[i] = new int[requestsPerLink[i]];
+				requestsPerLink[i] = 0; // reused as write position below
+			}
+			for (int i=0; i<requests.length; i++) {
+				if (requests[i] == null)
+					continue;
+				int link = getLink(channelIdentifiers[i]).index;
+				int position = requestsPerLink[link]++;
+				requestsForLink[link][position] = requests[i];
+				idsForLink[link][position] = channelIdentifiers[i];
+			}
+			for (int i=0; i<links.length; i++) {
+				if (requestsPerLink[i] != 0)
+					links[i].enqueue(new Batch(requestsForLink[i], idsForLink[i]));
+				requestsPerLink[i] = 0;
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * A single connection to the next mix with its own writer and reader 
+	 * thread.
+	 */
+	private class Link {
+		
+		private final int index;
+		private volatile SocketChannel nextMixChannel; // TODO: ssl
+		private AtomicBoolean replyThreadWaiting = new AtomicBoolean(false);
+		private ArrayBlockingQueue<Batch> pendingBatches;
+		private WriterThread writerThread;
+		private ReplyThread replyThread;
+		
+		// headers of all requests of the current batch (direct buffer, so 
+		// the kernel can read the headers without an additional copy)
+		private ByteBuffer headerBuffer;
+		// views on the 8 byte regions of headerBuffer (one per request)
+		private ByteBuffer[] headers;
+		// [header 0][message 0][header 1][message 1]...
+		private ByteBuffer[] frames;
+		
+		
+		private Link(int index) {
+			this.index = index;
+			this.replyThread = new ReplyThread(this);
+			if (links.length > 1) {
+				this.pendingBatches = new ArrayBlockingQueue<Batch>(MAX_PENDING_BATCHES_PER_LINK);
+				this.writerThread = new WriterThread(this);
+			}
+			ensureCapacity(Math.max(1, requestBufferSize / HEADER_LENGTH));
+		}
+		
+		
+		private void start() {
+			replyThread.setPriority(Thread.MAX_PRIORITY);
+			replyThread.start();
+			if (writerThread != null) {
+				writerThread.setPriority(Thread.MAX_PRIORITY);
+				writerThread.start();
+			}
+		}
+		
+		
+		private void enqueue(Batch batch) {
+			while (true) {
+				try {
+					pendingBatches.put(batch);
+					return;
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					continue;
+				}
+			}
+		}
+		
+		
+		private void writeRequests(Batch batch) {
+			try {
+				gatheringWrite(batch);
+			} catch (IOException e) {
+				System.out.println(anonNode +" connection " +index +" to next mix (" +nextMixAddress +":" +nextMixPort +") lost"); 
+				connectToNextMix(); // reestablish connection
+			}
+		}
+		
+		
+		/**
+		 * Frames all requests and sends them with a single gathering write 
+		 * (per IOV_MAX buffers; the channel is in blocking mode, so there is 
+		 * no busy waiting).
+		 */
+		private void gatheringWrite(Batch batch) throws IOException {
+			Request[] requests = batch.requests;
+			ensureCapacity(requests.length);
+			int numberOfBuffers = 0;
+			for (int i=0; i<requests.length; i++) {
+				if (requests[i] == null) // no channel id
+					continue;
+				byte[] message = requests[i].getByteMessage();
+				ByteBuffer header = headers[i];
+				header.clear();
+				header.putInt(batch.channelIdentifiers[i]);
+				header.putInt(message.length);
+				header.flip();
+				frames[numberOfBuffers++] = header;
+				frames[numberOfBuffers++] = ByteBuffer.wrap(message);
+			}
+			SocketChannel channel = nextMixChannel;
+			int offset = 0;
+			while (offset < numberOfBuffers) {
+				channel.write(frames, offset, numberOfBuffers - offset);
+				while (offset < numberOfBuffers && !frames[offset].hasRemaining())
+					offset++;
+			}
+			for (int i=0; i<numberOfBuffers; i++)
+				frames[i] = null; // don't keep the messages alive until the next batch
+		}
+		
+		
+		private void ensureCapacity(int numberOfRequests) {
+			if (headers != null && headers.length >= numberOfRequests)
+				return;
+			int capacity = headers == null ? numberOfRequests : Math.max(numberOfRequests, headers.length * 2);
+			this.headerBuffer = ByteBuffer.allocateDirect(capacity * HEADER_LENGTH); // big endian, like Util.intToByteArray()
+			this.headers = new ByteBuffer[capacity];
+			for (int i=0; i<capacity; i++) {
+				headerBuffer.limit((i+1) * HEADER_LENGTH);
+				headerBuffer.position(i * HEADER_LENGTH);
+				headers[i] = headerBuffer.slice();
+			}
+			this.frames = new ByteBuffer[capacity * 2];
+		}
 		
 		
 		private void connectToNextMix() {
 			synchronized (replyThreadWaiting) {
-				System.out.println(anonNode +" trying to connect to next mix (" +nextMixAddress +":" +nextMixPort +")"); 
+				System.out.println(anonNode +" trying to establish connection " +index +" to next mix (" +nextMixAddress +":" +nextMixPort +")"); 
 				while (true) { // try to connect to next mix
 					try {
-						nextMixSocket = new Socket();
-						nextMixSocket.setKeepAlive(true); // permanent connection
+						SocketChannel oldChannel = nextMixChannel;
+						if (oldChannel != null)
+							oldChannel.close();
+						SocketChannel channel = SocketChannel.open(); // blocking mode
+						channel.socket().setKeepAlive(true); // permanent connection
 						SocketAddress receiverAddress = new InetSocketAddress(nextMixAddress, nextMixPort);
-						nextMixSocket.connect(receiverAddress);
-						nextMixOutputStream = new BufferedOutputStream(nextMixSocket.getOutputStream(), requestBufferSize);
-						nextMixInputStream = new BufferedInputStream(nextMixSocket.getInputStream(), replyBufferSize);
+						channel.connect(receiverAddress);
+						nextMixChannel = channel;
 						//System.out.println(".");
 						if (replyThreadWaiting.get() == true)
 							replyThreadWaiting.notify();
 						break; 	// exit loop, when no IOException has occurred 
 								// (= connection is established successfully)
 					} catch (Exception e) { // connection failed
-						System.out.println(anonNode +" connection to next mix (" +nextMixAddress +":" +nextMixPort +") could not be established; trying to connect again"); 
+						System.out.println(anonNode +" connection " +index +" to next mix (" +nextMixAddress +":" +nextMixPort +") could not be established; trying to connect again"); 
 						//e.printStackTrace(); // TODO: remove
 						try {
 							Thread.sleep(1000);
@@ -169,61 +363,134 @@ public class NextMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 						}
 					}
 				}
-				System.out.println(anonNode +" connection to next mix (" +nextMixAddress +":" +nextMixPort +") established"); 
+				System.out.println(anonNode +" connection " +index +" to next mix (" +nextMixAddress +":" +nextMixPort +") established"); 
 			}
 		}
+		
+		
+		private SocketChannel waitForConnection() {
+			synchronized (replyThreadWaiting) {
+				while (nextMixChannel == null || !nextMixChannel.isConnected()) {
+					replyThreadWaiting.set(true);
+					try {
+						// wait for new connection
+						replyThreadWaiting.wait();
+					} catch (InterruptedException e) {
+						e.printStackTrace();
+						continue;
+					}
+				}
+				replyThreadWaiting.set(false);	
+				return nextMixChannel;
+			}
+		}
+		
+	}
+	
+	
+	private class WriterThread extends Thread {
+		
+		private final Link link;
+		
+		
+		private WriterThread(Link link) {
+			this.link = link;
+		}
+		
+		
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					link.writeRequests(link.pendingBatches.take());
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					continue;
+				}
+			}
+		}	
+		
 	}
 	
 	
 	private class ReplyThread extends Thread {
 		
+		private final Link link;
+		// data received but not processed yet is stored between 0 and position()
+		private ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(Math.max(HEADER_LENGTH, replyBufferSize));
+		private ByteBuffer[] scatterTargets = new ByteBuffer[2];
+		
+		
+		private ReplyThread(Link link) {
+			this.link = link;
+		}
+		
+		
 		@Override
 		public void run() {
 			while (true) { // receive messages from next mix
+				SocketChannel channel = link.waitForConnection();
 				try {
-					waitForConnection();
-					int channelIdentifier = Util.forceReadInt(nextMixInputStream);
-					int messageLength = Util.forceReadInt(nextMixInputStream);
-					if (messageLength < 1) {
-						System.out.println(anonNode +" wrong size for reply message received: " +messageLength); 
-						nextMixSocket.close();
-						continue;
-					}
-					User user = null;
-					synchronized (nextMixToThisIDs) {
-						user = nextMixToThisIDs.get(channelIdentifier);
-					}
-					if (user == null) {
-						System.out.println(anonNode +" received reply from (" +nextMixAddress +":" +nextMixPort +") for an unknown channel id"); 
-						nextMixInputStream.skip(messageLength);
+					receiveReplies(channel);
+				} catch (IOException e) {
+					try {
+						channel.close(); // writer will reconnect
+					} catch (IOException e1) {
 						continue;
 					}
-					byte[] message = Util.forceRead(nextMixInputStream, messageLength);
-					Reply reply = MixMessage.getInstanceReply(message, user);
-					anonNode.putInReplyInputQueue(reply);
-				} catch (IOException e) {
-					waitForConnection();
-					continue;
 				}
 			}
 		}
 		
 		
-		private void waitForConnection() {
-			synchronized (replyThreadWaiting) {
-				while (nextMixSocket == null || !nextMixSocket.isConnected()) {
-					replyThreadWaiting.set(true);
-					try {
-						// wait for new connection
-						replyThreadWaiting.wait();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-						continue;
+		private void receiveReplies(SocketChannel channel) throws IOException {
+			receiveBuffer.clear();
+			while (true) {
+				if (channel.read(receiveBuffer) == -1)
+					throw new IOException("connection closed by next mix"); 
+				receiveBuffer.flip();
+				while (receiveBuffer.remaining() >= HEADER_LENGTH) {
+					int channelIdentifier = receiveBuffer.getInt();
+					int messageLength = receiveBuffer.getInt();
+					if (messageLength < 1) {
+						System.out.println(anonNode +" wrong size for reply message received: " +messageLength); 
+						throw new IOException("wrong size for reply message"); 
 					}
+					byte[] message = new byte[messageLength];
+					if (receiveBuffer.remaining() >= messageLength) {
+						receiveBuffer.get(message);
+					} else { // read the rest of the message directly into "message" (and the following replies into receiveBuffer)
+						ByteBuffer messageBuffer = ByteBuffer.wrap(message);
+						messageBuffer.put(receiveBuffer);
+						receiveBuffer.clear();
+						scatterTargets[0] = messageBuffer;
+						scatterTargets[1] = receiveBuffer;
+						while (messageBuffer.hasRemaining())
+							if (channel.read(scatterTargets) == -1)
+								throw new IOException("connection closed by next mix"); 
+						scatterTargets[0] = null;
+						receiveBuffer.flip();
+					}
+					forwardReply(channelIdentifier, message);
 				}
-				replyThreadWaiting.set(false);	
+				receiveBuffer.compact();
+			}
+		}
+		
+		
+		private void forwardReply(int channelIdentifier, byte[] message) {
+			User user = null;
+			synchronized (nextMixToThisIDs) {
+				user = nextMixToThisIDs.get(channelIdentifier);
 			}
+			if (user == null) {
+				System.out.println(anonNode +" received reply from (" +nextMixAddress +":" +nextMixPort +") for an unknown channel id"); 
+				return;
+			}
+			Reply reply = MixMessage.getInstanceReply(message, user);
+			anonNode.putInReplyInputQueue(reply);
 		}
+		
 	}
 	
 }
@@ -24,8 +24,10 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import staticContent.framework.controller.SubImplementation;
 import staticContent.framework.message.MixMessage;
@@ -35,24 +37,31 @@ import staticContent.framework.userDatabase.User;
 import staticContent.framework.util.Util;
 
 
+/**
+ * Counterpart of NextMixHandler_TCP_multiplexed_sync. Accepts the 
+ * MULTIPLEXED_CONNECTIONS parallel connections ("links") of the previous mix. 
+ * Each link has its own reader and writer thread. The replies of a user are 
+ * sent back over the link its last request was received on (the previous mix 
+ * assigns users to links by channel id, so per-user order is preserved).
+ */
 public class PrevMixHandler_TCP_multiplexed_sync extends SubImplementation implements staticContent.framework.userDatabase.DatabaseEventListener  {
 
+	private final static int MAX_PENDING_BATCHES_PER_LINK = 64;
+	
 	private int port; 
 	private InetAddress bindAddress;
-	private Socket previousMixSocket;
-	private BufferedInputStream previousMixInputStream;
-	private BufferedOutputStream previousMixOutputStream;
-	private AtomicBoolean replyThreadWaiting = new AtomicBoolean(false);
 	private ServerSocket serverSocket;
 	private int maxRequestLength;
+	private int numberOfLinks;
 	//private int queueBlockSize;
 	
-	private HashMap<User,Integer> thisToPrevMixIDs;
+	private ConcurrentHashMap<User,Integer> thisToPrevMixIDs;
+	private ConcurrentHashMap<User,Link> thisToPrevMixLinks;
 	
 	private int requestBufferSize;
 	private int replyBufferSize;
 	
-	private RequestThread requestThread;
+	private AcceptThread acceptThread;
 	private ReplyThread replyThread;
 	
 	
@@ -62,8 +71,10 @@ public class PrevMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 		this.bindAddress = settings.getPropertyAsInetAddress("GLOBAL_MIX_BIND_ADDRESS");
 		this.port = settings.getPropertyAsInt("GLOBAL_MIX_BIND_PORT");
 		this.maxRequestLength = settings.getPropertyAsInt("MAX_REQUEST_LENGTH");
-		thisToPrevMixIDs = new HashMap<User,Integer>((int)Math.round((double)settings.getPropertyAsInt("MAX_CONNECTIONS") * 1.3d));
-		this.requestThread = new RequestThread();
+		this.numberOfLinks = !settings.isPropertyPresent("MULTIPLEXED_CONNECTIONS") ? 1 : settings.getPropertyAsInt("MULTIPLEXED_CONNECTIONS");
+		thisToPrevMixIDs = new ConcurrentHashMap<User,Integer>((int)Math.round((double)settings.getPropertyAsInt("MAX_CONNECTIONS") * 1.3d));
+		thisToPrevMixLinks = new ConcurrentHashMap<User,Link>((int)Math.round((double)settings.getPropertyAsInt("MAX_CONNECTIONS") * 1.3d));
+		this.acceptThread = new AcceptThread();
 		this.replyThread = new ReplyThread();
 		this.requestBufferSize = settings.getPropertyAsInt("MULTIPLEXED_REQUEST_BUFFER_SIZE");
 		this.replyBufferSize = settings.getPropertyAsInt("MULTIPLEXED_REPLY_BUFFER_SIZE");
@@ -79,99 +90,204 @@ public class PrevMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 	
 	@Override
 	public void begin() {
-		this.requestThread.setPriority(Thread.MAX_PRIORITY);
 		this.replyThread.setPriority(Thread.MAX_PRIORITY);
-		this.requestThread.start();
+		this.acceptThread.start();
 		this.replyThread.start();
 	}
 	
 	
+	private class AcceptThread extends Thread {
+		
+		@Override
+		public void run() {
+			try {
+				serverSocket = new ServerSocket(port, Math.max(1, numberOfLinks), bindAddress);
+				System.out.println(anonNode + " bound to " +bindAddress + ":" +port); 	
+			} catch (IOException e) {
+				System.out.println(anonNode + " couldn't bind socket " +bindAddress + ":" +port);
+				e.printStackTrace();
+				System.exit(1);
+			}
+			System.out.println(anonNode +" waiting for connections from previous mix"); 
+			while (true) {
+				try {
+					Socket previousMixSocket = serverSocket.accept();
+					previousMixSocket.setKeepAlive(true);
+					new Link(previousMixSocket).start();
+					System.out.println(anonNode +" connection established");
+				} catch (IOException e) {
+					System.out.println(anonNode +" connection attempt from previous mix failed");
+					e.printStackTrace();
+					try {
+						Thread.sleep(1000);
+					} catch (InterruptedException e1) {
+						continue;
+					}
+					continue; // wait again	
+				}
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * A single connection from the previous mix with its own reader (requests) 
+	 * and writer (replies) thread.
+	 */
+	private class Link {
+		
+		private Socket previousMixSocket;
+		private BufferedInputStream previousMixInputStream;
+		private BufferedOutputStream previousMixOutputStream;
+		private ArrayBlockingQueue<Reply[]> pendingReplies = new ArrayBlockingQueue<Reply[]>(MAX_PENDING_BATCHES_PER_LINK);
+		private ArrayList<Reply> collectedReplies = new ArrayList<Reply>(); // used by ReplyThread only
+		private volatile boolean isClosed = false;
+		private RequestThread requestThread;
+		private WriterThread writerThread;
+		
+		
+		private Link(Socket previousMixSocket) throws IOException {
+			this.previousMixSocket = previousMixSocket;
+			this.previousMixInputStream = new BufferedInputStream(previousMixSocket.getInputStream(), requestBufferSize);
+			this.previousMixOutputStream = new BufferedOutputStream(previousMixSocket.getOutputStream(), replyBufferSize);
+			this.requestThread = new RequestThread(this);
+			this.writerThread = new WriterThread(this);
+		}
+		
+		
+		private void start() {
+			requestThread.setPriority(Thread.MAX_PRIORITY);
+			writerThread.setPriority(Thread.MAX_PRIORITY);
+			requestThread.start();
+			writerThread.start();
+		}
+		
+		
+		private void enqueue(Reply[] replies) {
+			while (!isClosed) { // don't block forever on the queue of a closed link
+				try {
+					if (pendingReplies.offer(replies, 100, TimeUnit.MILLISECONDS))
+						return;
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					continue;
+				}
+			}
+		}
+		
+		
+		private void close() {
+			if (isClosed)
+				return;
+			isClosed = true;
+			try {
+				previousMixSocket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			pendingReplies.clear();
+			pendingReplies.offer(new Reply[0]); // wake up writer thread
+		}
+		
+	}
+	
+	
 	private class RequestThread extends Thread {
 		
+		private final Link link;
+		
+		
+		private RequestThread(Link link) {
+			this.link = link;
+		}
+		
+		
 		@Override
 		public void run() {
-			waitForConnectionFromPreviousMix();
 			while (true) {
 				try {	// TODO: give blocks of messages to inputOutputHandlerInternal, not only single messages
-					int channelIdentifier = Util.forceReadInt(previousMixInputStream);
+					int channelIdentifier = Util.forceReadInt(link.previousMixInputStream);
 					User user = userDatabase.getUser(channelIdentifier);
 					if (user == null) {
 						user = userDatabase.generateUser(channelIdentifier);
 						userDatabase.addUser(user);
 						thisToPrevMixIDs.put(user, channelIdentifier);
 					}
-					int messageLength = Util.forceReadInt(previousMixInputStream);
+					if (thisToPrevMixLinks.get(user) != link)
+						thisToPrevMixLinks.put(user, link);
+					int messageLength = Util.forceReadInt(link.previousMixInputStream);
 					if (messageLength < 1 || messageLength > maxRequestLength) {
 						System.out.println(anonNode +" wrong size for request received"); 
-						previousMixSocket.close();
-						continue;
+						link.close();
+						return;
 					}
-					byte[] message = Util.forceRead(previousMixInputStream, messageLength);
+					byte[] message = Util.forceRead(link.previousMixInputStream, messageLength);
+					if (message == null)
+						throw new IOException("connection closed by previous mix"); 
 					Request request = MixMessage.getInstanceRequest(message, user);
 					//System.out.println(this +" received this message (ciphertext): " +Util.md5(request.getByteMessage())); // TODO
 					anonNode.putInRequestInputQueue(request);			
-				} catch (IOException e) { // connection is lost
+				} catch (IOException e) { // connection is lost; the previous mix will reconnect
 					System.out.println(anonNode +" connection to previous mix lost"); 
-					waitForConnectionFromPreviousMix();
-					continue;
+					link.close();
+					return;
 				}
 			}
 		}
 		
+	}
+	
+	
+	/**
+	 * Takes the replies from the anonNode and hands them to the writer thread 
+	 * of the link the corresponding users are assigned to.
+	 */
+	private class ReplyThread extends Thread {
 		
-		private void waitForConnectionFromPreviousMix() {
-			
-			if (serverSocket == null) {
-				try {
-					serverSocket = new ServerSocket(port, 1, bindAddress);
-					System.out.println(anonNode + " bound to " +bindAddress + ":" +port); 	
-				} catch (IOException e) {
-					System.out.println(anonNode + " couldn't bind socket " +bindAddress + ":" +port);
-					e.printStackTrace();
-					System.exit(1);
-				}
-				
-			}
-			
-			System.out.println(anonNode +" waiting for connection from previous mix"); 
-			
+		private ArrayList<Link> linksWithReplies = new ArrayList<Link>();
+		
+		
+		@Override
+		public void run() {
 			while (true) {
-				synchronized (replyThreadWaiting) {
-					try {
-						previousMixSocket = serverSocket.accept();
-						previousMixSocket.setKeepAlive(true);
-						previousMixInputStream = new BufferedInputStream(previousMixSocket.getInputStream(), requestBufferSize);
-						previousMixOutputStream = new BufferedOutputStream(previousMixSocket.getOutputStream(), replyBufferSize);
-						System.out.println(anonNode +" connection established");
-						if (replyThreadWaiting.get())
-							replyThreadWaiting.notify();
-						break;		
-					} catch (IOException e) {
-						System.out.println(anonNode +" connection attempt from previous mix failed");
-						e.printStackTrace();
-						try {
-							Thread.sleep(1000);
-						} catch (InterruptedException e1) {
-							continue;
-						}
-						continue; // wait again	
-					}
+				Reply[] replies = anonNode.getFromReplyOutputQueue(); // TODO: add message-type-header ?
+				for (int i=0; i<replies.length; i++) {
+					Link link = thisToPrevMixLinks.get(replies[i].getOwner());
+					if (link == null) {
+						System.out.println(anonNode +" no id for " +replies[i].getOwner() +" available" );
+						continue;
+					}	
+					if (link.collectedReplies.size() == 0)
+						linksWithReplies.add(link);
+					link.collectedReplies.add(replies[i]);
 				}
+				for (Link link: linksWithReplies) {
+					link.enqueue(link.collectedReplies.toArray(new Reply[link.collectedReplies.size()]));
+					link.collectedReplies.clear();
+				}
+				linksWithReplies.clear();
 			}
-			
 		}
 		
 	}
 	
 	
-	private class ReplyThread extends Thread {
+	private class WriterThread extends Thread {
+		
+		private final Link link;
+		
+		
+		private WriterThread(Link link) {
+			this.link = link;
+		}
+		
 		
 		@Override
 		public void run() {
-			waitForConnection();
-			while (true) {
+			while (!link.isClosed) {
 				try {
-					Reply[] replies = anonNode.getFromReplyOutputQueue(); // TODO: add message-type-header ?
+					Reply[] replies = link.pendingReplies.take();
 					for (int i=0; i<replies.length; i++) {
 						Integer id = thisToPrevMixIDs.get(replies[i].getOwner());
 						if (id == null) {
@@ -181,32 +297,18 @@ public class PrevMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 						//System.out.println("id: " +id +", len: " +replies[i].getByteMessage().length); 
 						//assert replies[i].getByteMessage().length > 0;
 						assert replies[i].getByteMessage().length > 0: replies[i].getDummyStatus();
-						previousMixOutputStream.write(Util.intToByteArray(id));
-						previousMixOutputStream.write(Util.intToByteArray(replies[i].getByteMessage().length));
-						previousMixOutputStream.write(replies[i].getByteMessage());
-						previousMixOutputStream.flush();
+						link.previousMixOutputStream.write(Util.intToByteArray(id));
+						link.previousMixOutputStream.write(Util.intToByteArray(replies[i].getByteMessage().length));
+						link.previousMixOutputStream.write(replies[i].getByteMessage());
 					}
+					link.previousMixOutputStream.flush(); // once per batch
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					continue;
 				} catch (IOException e) {
-					waitForConnection();
-					continue;	
-				}
-			}
-		}
-		
-		
-		private void waitForConnection() {
-			synchronized (replyThreadWaiting) {
-				while (previousMixSocket == null || !previousMixSocket.isConnected()) {
-					replyThreadWaiting.set(true);
-					try {
-						// wait for new connection
-						replyThreadWaiting.wait();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-						continue;
-					}
+					link.close();
+					return;	
 				}
-				replyThreadWaiting.set(false);	
 			}
 		}
 		
@@ -222,6 +324,7 @@ public class PrevMixHandler_TCP_multiplexed_sync extends SubImplementation imple
 	@Override
 	public void userRemoved(User user) {
 		thisToPrevMixIDs.remove(user);
+		thisToPrevMixLinks.remove(user);
 	}
 
 }
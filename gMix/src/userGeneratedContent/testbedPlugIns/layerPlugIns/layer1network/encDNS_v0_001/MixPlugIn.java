@@ -18,7 +18,8 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer1network.encDNS_v0_001;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
 
 import staticContent.framework.EncDnsServer;
 import staticContent.framework.controller.Implementation;
@@ -27,19 +28,22 @@ import staticContent.framework.interfaces.Layer1NetworkMix;
 
 public class MixPlugIn extends Implementation implements Layer1NetworkMix {
 	
-    private DatagramSocket _udpSock53;
+    private DatagramChannel _udpChannel53;
     
     
     
 	@Override
 	public void constructor() {
 		try {
-			 _udpSock53 = new DatagramSocket(EncDnsServer.bindPort, EncDnsServer.bindAddress);
-			 //_udpSock53.setReceiveBufferSize(10000);
+			_udpChannel53 = DatagramChannel.open();
+			_udpChannel53.bind(new InetSocketAddress(EncDnsServer.bindAddress, EncDnsServer.bindPort));
+			_udpChannel53.configureBlocking(false); // see layer 2 for the selector
+			//_udpChannel53.socket().setReceiveBufferSize(10000);
 	     } catch (IOException e) {
 	    	 System.err.println("UDP socket error: " +e.getMessage());
+	    	 throw new RuntimeException("ERROR: could not bind to " +EncDnsServer.bindAddress +":" +EncDnsServer.bindPort); 
 	     }
-		 System.out.println("listening on " +_udpSock53.getLocalAddress() +":"+_udpSock53.getLocalPort() +" for EncDNS queries"); 
+		 System.out.println("listening on " +_udpChannel53.socket().getLocalAddress() +":"+_udpChannel53.socket().getLocalPort() +" for EncDNS queries"); 
 	}
 
 	
@@ -55,7 +59,10 @@ public class MixPlugIn extends Implementation implements Layer1NetworkMix {
 	}
 	
 	
-	public DatagramSocket getSocket() {
-		return this._udpSock53;
+	/**
+	 * Returns the (non-blocking) channel EncDNS queries are received on.
+	 */
+	public DatagramChannel getChannel() {
+		return this._udpChannel53;
 	} 
 }
@@ -50,7 +50,6 @@ public class ClientHandler_TCP_RR_sync extends SubImplementation implements Clie
 	private int expectedConnections;
 	private int requestBufferSize;
 	private int replyBufferSize;
-	private Object attachmentKey = new Object();
 	//private int queueBlockSize;
 	
 	// for connection based mixes:
@@ -63,10 +62,12 @@ public class ClientHandler_TCP_RR_sync extends SubImplementation implements Clie
 	private MessageSenderThread senderThread;
 	
 	private ClientReplyProvider clientReplyProvider;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		if (anonNode.ROUTING_MODE == RoutingMode.GLOBAL_ROUTING)
 			throw new RuntimeException("this is a free route plug-in; ROUTING_MODE is set to GLOBAL_ROUTING -> will exit now"); 
 		this.bindAddress = settings.getPropertyAsInetAddress("GLOBAL_MIX_BIND_ADDRESS");
@@ -174,7 +175,7 @@ public class ClientHandler_TCP_RR_sync extends SubImplementation implements Clie
 						assert reply != null;
 						assert reply.getOwner() != null;
 						//System.out.println("sende auf layer 0 fuer " +reply.getOwner().toString() +": " +Util.md5(reply.getByteMessage())); 
-						ChannelData channel = reply.getOwner().getAttachment(attachmentKey, ChannelData.class);
+						ChannelData channel = reply.getOwner().getAttachment(attachmentSlot);
 						assert channel != null;
 						Socket client = new Socket(channel.replyAddress, channel.replyPort);
 						if (anonNode.DISPLAY_ROUTE_INFO)
@@ -340,7 +341,7 @@ public class ClientHandler_TCP_RR_sync extends SubImplementation implements Clie
 				assert reply != null;
 				assert reply.getOwner() != null;
 				//System.out.println("sende auf layer 0 fuer " +reply.getOwner().toString() +": " +Util.md5(reply.getByteMessage())); 
-				ChannelData channel = reply.getOwner().getAttachment(attachmentKey, ChannelData.class);
+				ChannelData channel = reply.getOwner().getAttachment(attachmentSlot);
 				assert channel != null;
 				assert channel.inputStream != null;
 				if (anonNode.DISPLAY_ROUTE_INFO)
@@ -373,7 +374,7 @@ public class ClientHandler_TCP_RR_sync extends SubImplementation implements Clie
 		
 		
 		public ChannelData(User user) {
-			super(user, attachmentKey);
+			super(user, attachmentSlot);
 			this.user = user;
 		}
 
@@ -17,7 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.RSA_AES_Channel_v0_001;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -26,6 +26,10 @@ import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer2RecodingSchemeMix;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
+import staticContent.framework.recodingEngine.RecodedMessageHandler;
+import staticContent.framework.recodingEngine.Recoder;
+import staticContent.framework.recodingEngine.RecoderFactory;
+import staticContent.framework.recodingEngine.RecodingEngine;
 import staticContent.framework.routing.RoutingMode;
 import staticContent.framework.userDatabase.User;
 import staticContent.framework.userDatabase.UserAttachment;
@@ -34,66 +38,103 @@ import staticContent.framework.userDatabase.UserAttachment;
 public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix {
 
 	private RSA_AES_Channel_Config config;
-	private RequestDistributorThread requestDistributorThread;
-	private ReplyDistributorThread replyDistributorThread;
-	
-	private RequestWorkerThread[] requestWorkerThreads;
-	private ReplyWorkerThread[] replyWorkerThreads;
-	
-	private ArrayBlockingQueue<ChannelData> channelsWithRequestsReady;
-	private ArrayBlockingQueue<ChannelData> channelsWithRepliesReady;
-	
-	private long waitCounter = 0;
-	private long noWaitCounter = 0;
+	private RecodingEngine<Request> requestEngine;
+	private RecodingEngine<Reply> replyEngine;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		if (anonNode.ROUTING_MODE == RoutingMode.DYNAMIC_ROUTING) 
 			throw new RuntimeException("RoutingMode DYNAMIC_ROUTING not supported, only GLOBAL_ROUTING and SOURCE_ROUTING"); 
 		this.config = new RSA_AES_Channel_Config(anonNode, false);
-		this.channelsWithRequestsReady = new ArrayBlockingQueue<ChannelData>(config.NUMBER_OF_THREADS * 5);
-		this.requestWorkerThreads = new RequestWorkerThread[config.NUMBER_OF_THREADS];
-		this.requestDistributorThread = new RequestDistributorThread();
-
-		if (anonNode.IS_DUPLEX) {
-			this.channelsWithRepliesReady = new ArrayBlockingQueue<ChannelData>(config.NUMBER_OF_THREADS * 5);
-			this.replyWorkerThreads = new ReplyWorkerThread[config.NUMBER_OF_THREADS];
-			this.replyDistributorThread = new ReplyDistributorThread();
-		}
-		
-		for (int i=0; i<config.NUMBER_OF_THREADS; i++) {
-			RSA_AES_Channel recodingScheme = new RSA_AES_Channel(anonNode, config);
-			requestWorkerThreads[i] = new RequestWorkerThread(recodingScheme);
-			if (anonNode.IS_DUPLEX) {
-				recodingScheme = new RSA_AES_Channel(anonNode, config);
-				replyWorkerThreads[i] = new ReplyWorkerThread(recodingScheme);
-			}
-		}
+		// the messages of a channel must be recoded in order (the ciphers 
+		// are stateful) -> preserveOrderPerUser
+		ForkJoinPool pool = RecodingEngine.createPool(config.NUMBER_OF_THREADS); // shared by requestEngine and replyEngine
+		this.requestEngine = new RecodingEngine<Request>(
+				"RSA_AES_Channel request recoding", 
+				anonNode.getRequestInputQueue(), 
+				new RecoderFactory<Request>() {
+					@Override
+					public Recoder<Request> createRecoder() {
+						final RSA_AES_Channel recodingScheme = createRecodingScheme();
+						return new Recoder<Request>() {
+							@Override
+							public Request recode(Request request) {
+								ChannelData channelData;
+								if (request.getOwner().layer2Id == User.NOT_SET) { // first message of this channel
+									request.getOwner().layer2Id = 1;
+									channelData = new ChannelData(request.getOwner());
+								} else {
+									channelData = request.getOwner().getAttachment(attachmentSlot);
+									assert channelData != null;
+								}
+								return recodingScheme.recodeMessage(request, channelData); 
+							}
+						};
+					}
+				}, 
+				new RecodedMessageHandler<Request>() {
+					@Override
+					public void handle(Request request) {
+						outputStrategyLayerMix.addRequest(request);
+					}
+				}, 
+				pool, 
+				true);
+		if (anonNode.IS_DUPLEX)
+			this.replyEngine = new RecodingEngine<Reply>(
+					"RSA_AES_Channel reply recoding", 
+					anonNode.getReplyInputQueue(), 
+					new RecoderFactory<Reply>() {
+						@Override
+						public Recoder<Reply> createRecoder() {
+							final RSA_AES_Channel recodingScheme = createRecodingScheme();
+							return new Recoder<Reply>() {
+								@Override
+								public Reply recode(Reply reply) {
+									ChannelData channelData = reply.getOwner().getAttachment(attachmentSlot);
+									if (channelData == null) {
+										System.err.println("no channel data stored for " +reply.getOwner());
+										userDatabase.removeUser(reply.getOwner());
+										return null;
+									}
+									return recodingScheme.recodeReply(reply, channelData);
+								}
+							};
+						}
+					}, 
+					new RecodedMessageHandler<Reply>() {
+						@Override
+						public void handle(Reply reply) {
+							outputStrategyLayerMix.addReply(reply);
+						}
+					}, 
+					pool, 
+					true);
+	}
+	
+	
+	// called by the worker threads of the engines (i.e. after initialize())
+	private RSA_AES_Channel createRecodingScheme() {
+		RSA_AES_Channel recodingScheme = new RSA_AES_Channel(anonNode, config);
+		recodingScheme.initAsRecoder();
+		return recodingScheme;
 	}
 
 	
 	@Override
 	public void initialize() {
-		for (int i=0; i<requestWorkerThreads.length; i++) {
-			requestWorkerThreads[i].recodingScheme.initAsRecoder();
-			if (anonNode.IS_DUPLEX)
-				replyWorkerThreads[i].recodingScheme.initAsRecoder();
-				
-		}
+		// note: the recoders are created (and initialized) by the worker threads of the engines
 	}
 	
 
 	@Override
 	public void begin() {
-		for (int i=0; i<requestWorkerThreads.length; i++) {
-			this.requestWorkerThreads[i].start();
-			if (anonNode.IS_DUPLEX)
-				this.replyWorkerThreads[i].start();
-		}
-		this.requestDistributorThread.start();
+		requestEngine.start();
 		if (anonNode.IS_DUPLEX)
-			this.replyDistributorThread.start();
+			replyEngine.start();
 		//new StatisticsThread().start();
 	}
 
@@ -139,147 +180,11 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		SecretKey macKey;
 		Cipher decryptCipher;
 		Cipher encryptCipher;
-		ArrayBlockingQueue<Request> requestQueue = new ArrayBlockingQueue<Request>(config.RS_THREAD_QUEUE_LENGTH);
-		ArrayBlockingQueue<Reply> replyQueue = new ArrayBlockingQueue<Reply>(config.RS_THREAD_QUEUE_LENGTH);
-		Object requestSynchronizer = new Object();
-		Object replySynchronizer = new Object();
 		int nextHopAddress;
 		
 		
 		public ChannelData(User owner) {
-			super(owner, getThis());
-		}
-		
-	}
-	
-	
-	class RequestDistributorThread extends Thread {
-		
-		@Override
-		public void run() {
-			while (true) { // process messages
-				for (Request request: anonNode.getFromRequestInputQueue()) {
-					ChannelData channelData = null;
-					try {
-						if (request.getOwner().layer2Id == User.NOT_SET) { // not set
-							request.getOwner().layer2Id = 1;
-							channelData = new ChannelData(request.getOwner());
-						} else {
-							channelData = request.getOwner().getAttachment(getThis(), ChannelData.class);
-							assert channelData != null;
-						}
-						channelData.requestQueue.put(request);
-						channelsWithRequestsReady.put(channelData);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-						continue;
-					}
-				} 
-			}	
-		}
-	}
-	
-	
-	class ReplyDistributorThread extends Thread {
-		
-		@Override
-		public void run() {	
-			while (true) { // process messages
-				for (Reply reply: anonNode.getFromReplyInputQueue()) {
-					ChannelData channelData = reply.getOwner().getAttachment(getThis(), ChannelData.class);
-					if (channelData == null) {
-						System.err.println("no channel data stored for " +reply.getOwner());
-						userDatabase.removeUser(reply.getOwner());
-						continue;
-					}
-					try {
-						channelData.replyQueue.put(reply);
-						channelsWithRepliesReady.put(channelData);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-						continue;
-					}
-				} 
-			}	
-		}
-	}
-	
-
-	class RequestWorkerThread extends Thread {
-		
-		public RSA_AES_Channel recodingScheme;
-		
-		public RequestWorkerThread(RSA_AES_Channel recodingScheme) {
-			this.recodingScheme = recodingScheme;
-		}
-
-		
-		@Override
-		public void run() {
-			while (true) { // process messages
-				ChannelData channelData;
-				try {
-					channelData = channelsWithRequestsReady.take();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-					continue;
-				}
-				long enter = System.nanoTime();
-				synchronized (channelData.requestSynchronizer) {
-					if (System.nanoTime() - enter > 10000)
-						waitCounter++;
-					else
-						noWaitCounter++;
-					while (true) {
-						Request request = channelData.requestQueue.poll();
-						if (request == null) {
-							break;
-						} else { 
-							request = recodingScheme.recodeMessage(request, channelData); 
-							if (request != null) {
-								outputStrategyLayerMix.addRequest(request); 
-							}
-						}	
-					}
-				}
-			}	
-		}
-		
-	}
-
-	
-	class ReplyWorkerThread extends Thread {
-		
-		public RSA_AES_Channel recodingScheme;
-		
-		public ReplyWorkerThread(RSA_AES_Channel recodingScheme) {
-			this.recodingScheme = recodingScheme;
-		}
-
-		
-		@Override
-		public void run() {
-			while (true) { // process messages
-				ChannelData channelData;
-				try {
-					channelData = channelsWithRepliesReady.take();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-					continue;
-				}
-				synchronized (channelData.replySynchronizer) {
-					while (true) {
-						Reply reply = channelData.replyQueue.poll();
-						if (reply == null) {
-							break;
-						} else {
-							reply = recodingScheme.recodeReply(reply, channelData);
-							if (reply != null)
-								outputStrategyLayerMix.addReply(reply);
-						}	
-					}
-				}
-			}	
+			super(owner, attachmentSlot);
 		}
 		
 	}
@@ -290,16 +195,15 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		public void run() {
 			while (true) {
 				try {Thread.sleep(5000);} catch (InterruptedException e) {e.printStackTrace();continue;}
-				System.out.println("recoding threads had to wait in " +((double)waitCounter/(double)(waitCounter+noWaitCounter))*100 +" % of cases");
-				waitCounter = 0;
-				noWaitCounter = 0;
+				System.out.println(requestEngine);
+				requestEngine.resetStatistics();
+				if (anonNode.IS_DUPLEX) {
+					System.out.println(replyEngine);
+					replyEngine.resetStatistics();
+				}
 			}
 		}
 	}
 	
-	
-	private MixPlugIn getThis() {
-		return this;
-	}
 
 }
@@ -40,10 +40,12 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 	
 	private long waitCounter = 0;
 	private long noWaitCounter = 0;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		if (anonNode.ROUTING_MODE != RoutingMode.GLOBAL_ROUTING)
 			throw new RuntimeException("not supported"); // TODO: support it...
 		this.config = new RSA_AES_LossTolerantChannel_Config(anonNode, false);
@@ -134,7 +136,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		Object replySynchronizer = new Object();
 		
 		public ChannelData(User owner) {
-			super(owner, getThis());
+			super(owner, attachmentSlot);
 		}
 	}
 	
@@ -157,7 +159,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 						request.getOwner().layer2Id = 1;
 						channelData = new ChannelData(request.getOwner());
 					} else {
-						channelData = request.getOwner().getAttachment(getThis(), ChannelData.class);
+						channelData = request.getOwner().getAttachment(attachmentSlot);
 						assert channelData != null;
 					}
 					long enter = System.nanoTime();
@@ -190,7 +192,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		public void run() {
 			while (true) { // process messages
 				for (Reply reply: anonNode.getFromReplyInputQueue()) {
-					ChannelData channelData = reply.getOwner().getAttachment(getThis(), ChannelData.class);
+					ChannelData channelData = reply.getOwner().getAttachment(attachmentSlot);
 					if (channelData == null) {
 						System.err.println("no channel data stored for " +reply.getOwner());
 						userDatabase.removeUser(reply.getOwner());
@@ -220,9 +222,5 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		}
 	}
 	
-	
-	private MixPlugIn getThis() {
-		return this;
-	}
 
 }
@@ -18,19 +18,24 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.RSA_OAEP_AES_OFB_v0_001;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer2RecodingSchemeMix;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
+import staticContent.framework.recodingEngine.RecodedMessageHandler;
+import staticContent.framework.recodingEngine.Recoder;
+import staticContent.framework.recodingEngine.RecoderFactory;
+import staticContent.framework.recodingEngine.RecodingEngine;
 import staticContent.framework.userDatabase.User;
 
 
 public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix {
 
 	private RSA_OAEP_AES_OFB_Config config;
-	private RequestThread[] requestThreads;
-	private ReplyThread[] replyThreads;
+	private RecodingEngine<Request> requestEngine;
+	private RecodingEngine<Reply> replyEngine;
 	//private RSA_OAEP_AES_OFB messageCreator;
 	
 	
@@ -39,15 +44,62 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		
 		this.config = new RSA_OAEP_AES_OFB_Config(anonNode, false);
 		//this.messageCreator = new RSA_OAEP_AES_OFB(anonNode, config);
-		this.requestThreads = new RequestThread[config.NUMBER_OF_THREADS];
+		ForkJoinPool pool = RecodingEngine.createPool(config.NUMBER_OF_THREADS); // shared by requestEngine and replyEngine
+		this.requestEngine = new RecodingEngine<Request>(
+				"RSA_OAEP_AES_OFB request recoding", 
+				anonNode.getRequestInputQueue(), 
+				new RecoderFactory<Request>() {
+					@Override
+					public Recoder<Request> createRecoder() {
+						final RSA_OAEP_AES_OFB recodingScheme = createRecodingScheme();
+						return new Recoder<Request>() {
+							@Override
+							public Request recode(Request request) {
+								return recodingScheme.recodeMessage(request);
+							}
+						};
+					}
+				}, 
+				new RecodedMessageHandler<Request>() {
+					@Override
+					public void handle(Request request) {
+						outputStrategyLayerMix.addRequest(request);
+					}
+				}, 
+				pool, 
+				false);
 		if (anonNode.IS_DUPLEX)
-			replyThreads = new ReplyThread[config.NUMBER_OF_THREADS];
-		for (int i=0; i<config.NUMBER_OF_THREADS; i++) {
-			RSA_OAEP_AES_OFB recodingScheme = new RSA_OAEP_AES_OFB(anonNode, config);
-			requestThreads[i] = new RequestThread(recodingScheme);
-			if (anonNode.IS_DUPLEX)
-				replyThreads[i] = new ReplyThread(recodingScheme);
-		}
+			this.replyEngine = new RecodingEngine<Reply>(
+					"RSA_OAEP_AES_OFB reply recoding", 
+					anonNode.getReplyInputQueue(), 
+					new RecoderFactory<Reply>() {
+						@Override
+						public Recoder<Reply> createRecoder() {
+							final RSA_OAEP_AES_OFB recodingScheme = createRecodingScheme();
+							return new Recoder<Reply>() {
+								@Override
+								public Reply recode(Reply reply) {
+									return recodingScheme.recodeReply(reply);
+								}
+							};
+						}
+					}, 
+					new RecodedMessageHandler<Reply>() {
+						@Override
+						public void handle(Reply reply) {
+							outputStrategyLayerMix.addReply(reply);
+						}
+					}, 
+					pool, 
+					false);
+	}
+	
+	
+	// called by the worker threads of the engines (i.e. after initialize())
+	private RSA_OAEP_AES_OFB createRecodingScheme() {
+		RSA_OAEP_AES_OFB recodingScheme = new RSA_OAEP_AES_OFB(anonNode, config);
+		recodingScheme.initAsRecoder();
+		return recodingScheme;
 	}
 
 	
@@ -58,21 +110,14 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 			config.publicKeysOfMixes = Arrays.copyOfRange(config.publicKeysOfMixes, (anonNode.PUBLIC_PSEUDONYM +1), config.publicKeysOfMixes.length); // TODO
 		}
 		config.numberOfMixes = config.publicKeysOfMixes.length;
-		for (int i=0; i<requestThreads.length; i++) {
-			requestThreads[i].recodingScheme.initAsRecoder();
-			if (anonNode.IS_DUPLEX)
-				replyThreads[i].recodingScheme.initAsRecoder();
-		}
 	}
 	
 
 	@Override
 	public void begin() {
-		for (int i=0; i<requestThreads.length; i++) {
-			requestThreads[i].start();
-			if (anonNode.IS_DUPLEX)
-				replyThreads[i].start();
-		}
+		requestEngine.start();
+		if (anonNode.IS_DUPLEX)
+			replyEngine.start();
 	}
 
 	
@@ -118,49 +163,4 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		throw new RuntimeException("not supported");
 	}
 
-	
-	class RequestThread extends Thread {
-		
-		RSA_OAEP_AES_OFB recodingScheme;
-		
-		public RequestThread(RSA_OAEP_AES_OFB recodingScheme) {
-			this.recodingScheme = recodingScheme;
-		}
-
-		
-		@Override
-		public void run() {
-			while (true) { // process messages
-				Request[] requests = anonNode.getFromRequestInputQueue();
-				for (int i=0; i<requests.length; i++) {
-					requests[i] = recodingScheme.recodeMessage(requests[i]);
-					if (requests[i] != null)
-						outputStrategyLayerMix.addRequest(requests[i]);
-				}
-			}	
-		}
-	}
-	
-	
-	class ReplyThread extends Thread {
-		
-		RSA_OAEP_AES_OFB recodingScheme;
-		
-		public ReplyThread(RSA_OAEP_AES_OFB recodingScheme) {
-			this.recodingScheme = recodingScheme;
-		}
-		
-		
-		@Override
-		public void run() {
-			while (true) { // process messages
-				Reply[] replies = anonNode.getFromReplyInputQueue();
-				for (Reply reply:replies) {
-					reply = recodingScheme.recodeReply(reply);
-					if (reply != null)
-						outputStrategyLayerMix.addReply(reply);
-				}
-			}
-		}
-	}
 }
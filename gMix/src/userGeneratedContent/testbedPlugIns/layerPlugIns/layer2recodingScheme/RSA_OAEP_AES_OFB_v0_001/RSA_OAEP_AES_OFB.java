@@ -45,6 +45,13 @@ public class RSA_OAEP_AES_OFB {
 	private KeyGenerator symKeyGenerator;
 	private KeyGenerator macKeyGenerator;
 	private SecureRandom secureRandom;
+	// reused for all messages (instead of calling getInstance() per message)
+	private Cipher symCipher;
+	private Mac macGenerator;
+	private byte[] macBuffer;
+	private Cipher symCipherReply;
+	private Mac macGeneratorReply;
+	private byte[] macBufferReply;
 
 
 	public RSA_OAEP_AES_OFB(AnonNode owner, RSA_OAEP_AES_OFB_Config config) {
@@ -75,6 +82,8 @@ public class RSA_OAEP_AES_OFB {
 			this.symKeyGenerator.init(config.SYM_KEY_LENGTH * 8);
 			this.macKeyGenerator = KeyGenerator.getInstance(config.MAC_ALGORITHM);
 			this.macKeyGenerator.init(config.MAC_KEY_LENGTH * 8);	
+			this.symCipher = Cipher.getInstance(config.SYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
+			this.macGenerator = Mac.getInstance(config.MAC_ALGORITHM);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -88,6 +97,13 @@ public class RSA_OAEP_AES_OFB {
 			this.asymmetricCipher.init(Cipher.DECRYPT_MODE, config.keyPair.getPrivate());
 			this.asymmetricCipherReply = Cipher.getInstance(config.ASYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
 			this.asymmetricCipherReply.init(Cipher.DECRYPT_MODE, config.keyPair.getPrivate());
+			this.symCipher = Cipher.getInstance(config.SYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
+			this.macGenerator = Mac.getInstance(config.MAC_ALGORITHM);
+			this.macBuffer = new byte[macGenerator.getMacLength()];
+			this.symCipherReply = Cipher.getInstance(config.SYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
+			this.macGeneratorReply = Mac.getInstance(config.MAC_ALGORITHM);
+			this.macBufferReply = new byte[macGeneratorReply.getMacLength()];
+			this.secureRandom = SecureRandom.getInstance(config.PRNG_ALGORITHM); // padding of replies
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new RuntimeException("could not init asym cipher at mix");
@@ -151,7 +167,6 @@ public class RSA_OAEP_AES_OFB {
 				}
 				
 				// add mac to header
-				Mac macGenerator = Mac.getInstance(config.MAC_ALGORITHM);
 				macGenerator.init(macKey);
 				mac = macGenerator.doFinal(plaintext);
 				plaintext = Util.concatArrays(mac, plaintext);
@@ -171,10 +186,6 @@ public class RSA_OAEP_AES_OFB {
 				byte[] asymCipherText = asymmetricCipher.doFinal(plaintext, 0, asymmetricCipher.getBlockSize());
 				
 				// encrypt message; symmetric part
-				Cipher symCipher = Cipher.getInstance(
-						config.SYM_CRYPTOGRAPHY_ALGORITHM,
-						config.CRYPTO_PROVIDER
-						);
 				symCipher.init(Cipher.ENCRYPT_MODE, symKey, initVector);
 				byte[] symCipherText = symCipher.doFinal(plaintext, asymmetricCipher.getBlockSize(), plaintext.length - asymmetricCipher.getBlockSize());
 
@@ -225,47 +236,44 @@ s += "[msg mix "+i +":"
 
 
 	public synchronized Reply extractPayload(Reply reply) {
-		byte[] pseudonym = Arrays.copyOfRange(reply.getByteMessage(), 0, config.PSEUDONYM_LENGTH);
-		byte[] payload = Arrays.copyOfRange(reply.getByteMessage(), config.PSEUDONYM_LENGTH, reply.getByteMessage().length );
+		byte[] message = reply.getByteMessage();
+		byte[] payload = new byte[message.length - config.PSEUDONYM_LENGTH];
 		byte[] seed;
 		SecureRandom prng = null;
 
 		SecretKey symKey;
 		IvParameterSpec initVector;
-		Cipher decryptCipher = null;
 		
 		try {
-			seed = config.replySeeds.get(new String(pseudonym,"UTF-8"));
+			seed = config.replySeeds.get(new String(message, 0, config.PSEUDONYM_LENGTH, "UTF-8"));
 			prng = SecureRandom.getInstance(config.PRNG_ALGORITHM);
 			prng.setSeed(seed);
-			decryptCipher = Cipher.getInstance(config.SYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
 		
 			byte[][] symKeys = new byte[config.numberOfMixes][config.SYM_KEY_LENGTH];
 			byte[][] IVs= new byte[config.numberOfMixes][config.IV_LENGTH];
 			
-			for(int i=0; i<config.numberOfMixes;i++)
-			{
+			for (int i=0; i<config.numberOfMixes; i++) {
 				prng.nextBytes(symKeys[i]);
 				prng.nextBytes(IVs[i]);
 			}
-		
-		for (int i=config.numberOfMixes-1; i>=0; i--) 
-		{ 
-			
-			symKey = new SecretKeySpec(symKeys[i], config.SYM_CRYPTOGRAPHY_ALGORITHM);
-			initVector = new IvParameterSpec(IVs[i]);
 			
-			decryptCipher.init(Cipher.DECRYPT_MODE, symKey, initVector);
-			payload = decryptCipher.doFinal(payload, 0, payload.length);
-		}
-		
+			// first layer is decrypted from the reply into "payload", the others in place
+			byte[] source = message;
+			int sourceOffset = config.PSEUDONYM_LENGTH;
+			for (int i=config.numberOfMixes-1; i>=0; i--) { 
+				symKey = new SecretKeySpec(symKeys[i], config.SYM_CRYPTOGRAPHY_ALGORITHM);
+				initVector = new IvParameterSpec(IVs[i]);
+				symCipher.init(Cipher.DECRYPT_MODE, symKey, initVector);
+				symCipher.doFinal(source, sourceOffset, payload.length, payload, 0);
+				source = payload;
+				sourceOffset = 0;
+			}
 		
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 		// remove Padding
-		byte[] lengthHeader = Arrays.copyOfRange(payload, 0, config.LENGTH_HEADER_LENGTH);
-		int payloadLength = Util.byteArrayToInt(lengthHeader);
+		int payloadLength = readInt(payload, 0);
 		if (payloadLength == 0) // dummy
 			payload = new byte[0];
 		else
@@ -343,7 +351,6 @@ s += "[msg mix "+i +":"
 			}
 			
 			// add mac to header
-			Mac macGenerator = Mac.getInstance(config.MAC_ALGORITHM);
 			macGenerator.init(macKey);
 			mac = macGenerator.doFinal(plaintext);
 			plaintext = Util.concatArrays(mac, plaintext);
@@ -368,10 +375,6 @@ s += "[msg mix "+i +":"
 			
 			
 			// encrypt message; symmetric part
-			Cipher symCipher = Cipher.getInstance(
-					config.SYM_CRYPTOGRAPHY_ALGORITHM, 
-					config.CRYPTO_PROVIDER
-					);
 			symCipher.init(Cipher.ENCRYPT_MODE, symKey, initVector);
 			byte[] symCipherText = symCipher.doFinal(plaintext, asymmetricCipher.getBlockSize(), plaintext.length - asymmetricCipher.getBlockSize());
 
@@ -417,121 +420,103 @@ s += "[msg mix "+i +":"
 }
 
 
-	public synchronized Request recodeMessage(Request message) {
-		synchronized (asymmetricCipher) 
-		{
-			boolean isLastMix =false;
-			if(owner.ROUTING_MODE == RoutingMode.GLOBAL_ROUTING)
-				isLastMix = owner.IS_LAST_MIX;
-			String cipherTextHash = null;
+	/**
+	 * Not synchronized: the MixPlugIn creates an instance for each request 
+	 * thread (the corresponding reply thread uses recodeReply() and the 
+	 * "...Reply" ciphers). The symmetrically encrypted part is decrypted 
+	 * directly into the output buffer (= the message for the next mix); keys, 
+	 * iv and mac are used in place (offsets into the RSA plaintext).
+	 */
+	public Request recodeMessage(Request message) {
+		boolean isLastMix = false;
+		if (owner.ROUTING_MODE == RoutingMode.GLOBAL_ROUTING)
+			isLastMix = owner.IS_LAST_MIX;
+		String cipherTextHash = null;
 		try {
+			byte[] cipherText = message.getByteMessage();
 			if (config.DEBUG_ON) {
-				cipherTextHash = Util.md5(message.getByteMessage());
+				cipherTextHash = Util.md5(cipherText);
 			//	System.out.println("Mix " +owner.getIdentifier() +": received this message (ciphertext): " +Util.md5(message.getByteMessage()));
 				//System.out.println("my public key: " +Util.md5(keyPair.getPublic().getEncoded()));
 			}
+			int blockSize = asymmetricCipher.getBlockSize();
 			// decrypt asymmetrically encrypted part
-			byte[] asymPlaintext = asymmetricCipher.doFinal(message.getByteMessage(), 0, asymmetricCipher.getBlockSize());
-			// extract data from derypted header (= first part of the "asymPlaintext")
-			byte[] mac;
-			SecretKey macKey;
-			SecretKey symKey;
-			IvParameterSpec initVector;
-			int pointer = 0;
-			mac = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.MAC_LENGTH);
+			byte[] asymPlaintext = asymmetricCipher.doFinal(cipherText, 0, blockSize);
+			// extract data from derypted header (= first part of the "asymPlaintext"); mac: [0, MAC_LENGTH)
+			int pointer = config.MAC_LENGTH;
 			if (owner.ROUTING_MODE == RoutingMode.SOURCE_ROUTING) { // determine next hop if source routing is enabled
-				byte[] nextHopAddress = Arrays.copyOfRange(asymPlaintext, pointer, pointer += 4);
-				int address = Util.byteArrayToInt(nextHopAddress);
+				int address = readInt(asymPlaintext, pointer);
+				pointer += 4;
 				if (address == owner.PUBLIC_PSEUDONYM) { // this mix is the last hop
 					if (owner.DISPLAY_ROUTE_INFO)
 						System.out.println(""+owner +" setting nextHopAddress to \"LAST HOP\""); 
 					message.nextHopAddress = MixMessage.NONE;
-					isLastMix= true;
+					isLastMix = true;
 				} else { // this mix is not the last hop
 					if (owner.DISPLAY_ROUTE_INFO)
 						System.out.println(""+owner +" setting nextHopAddress to " +address); 
 					message.nextHopAddress = address;
 				}
 			}
+			int macKeyOffset = pointer;
+			SecretKey macKey = new SecretKeySpec(asymPlaintext, pointer, config.MAC_KEY_LENGTH, config.MAC_ALGORITHM);
+			pointer += config.MAC_KEY_LENGTH;
+			SecretKey symKey = new SecretKeySpec(asymPlaintext, pointer, config.SYM_KEY_LENGTH, config.SYM_CRYPTOGRAPHY_ALGORITHM);
+			pointer += config.SYM_KEY_LENGTH;
+			IvParameterSpec initVector = new IvParameterSpec(asymPlaintext, pointer, config.IV_LENGTH);
+			pointer += config.IV_LENGTH;
+			
+			// plaintext = asymPlaintext | symPlaintext; output = plaintext[pointer, end)
+			int headerRemainder = asymPlaintext.length - pointer;
+			byte[] output = new byte[headerRemainder + cipherText.length - blockSize];
+			System.arraycopy(asymPlaintext, pointer, output, 0, headerRemainder);
 			
-			
-			byte[] macKeyAsByteArray = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.MAC_KEY_LENGTH);
-			macKey = new SecretKeySpec(macKeyAsByteArray, config.MAC_ALGORITHM);
-			
-			byte[] symKeyAsByteArray = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.SYM_KEY_LENGTH);
-			symKey = new SecretKeySpec(symKeyAsByteArray, config.SYM_CRYPTOGRAPHY_ALGORITHM);
-			
-			byte[] ivAsByteArray = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.IV_LENGTH);
-			initVector = new IvParameterSpec(ivAsByteArray);
-			
-		
 			// decrypt symmetrically encrypted part
-			Cipher decryptCipher = Cipher.getInstance(config.SYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
-			decryptCipher.init(Cipher.DECRYPT_MODE, symKey, initVector);
-			byte[] symPlaintext = decryptCipher.doFinal(message.getByteMessage(), asymmetricCipher.getBlockSize(), message.getByteMessage().length - asymmetricCipher.getBlockSize());
-			byte[] plaintext = Util.concatArrays(asymPlaintext, symPlaintext);
-			// validate mac
-			Mac macGenerator = Mac.getInstance(config.MAC_ALGORITHM);
+			symCipher.init(Cipher.DECRYPT_MODE, symKey, initVector);
+			symCipher.doFinal(cipherText, blockSize, cipherText.length - blockSize, output, headerRemainder);
+			
+			// validate mac (signed data: plaintext[MAC_LENGTH, end))
 			macGenerator.init(macKey);
-			byte[] signedData = Arrays.copyOfRange(plaintext, config.MAC_LENGTH, plaintext.length);
+			macGenerator.update(asymPlaintext, config.MAC_LENGTH, pointer - config.MAC_LENGTH);
+			macGenerator.update(output);
 			if (config.DEBUG_ON)
-				System.out.println(owner +" " +cipherTextHash +" -> " +Util.md5(signedData));
-			byte[] locallyGeneratedMac = macGenerator.doFinal(signedData);
+				System.out.println(owner +" " +cipherTextHash +" -> " +Util.md5(Util.concatArrays(Arrays.copyOfRange(asymPlaintext, config.MAC_LENGTH, pointer), output)));
+			macGenerator.doFinal(macBuffer, 0);
 			
-			if (!Arrays.equals(locallyGeneratedMac, mac)) {
+			if (!isEqual(macBuffer, asymPlaintext, 0, config.MAC_LENGTH)) {
 				System.out.println("wrong MAC!"); // TODO
 				return null;
 			} 
 			
 			if (config.PERFORM_REPLY_DETECTION)
-				if (config.replayDetection.isReplay(macKeyAsByteArray))
+				if (config.replayDetection.isReplay(asymPlaintext, macKeyOffset))
 					return null;
 			
-			if (isLastMix ) {
-				if(!owner.IS_DUPLEX)
-				{
-				// remove Padding
-				byte[] lengthHeader = Arrays.copyOfRange(plaintext, pointer, pointer += config.LENGTH_HEADER_LENGTH);
-				int payloadLength = Util.byteArrayToInt(lengthHeader);
-				if (payloadLength == 0) // dummy
-					plaintext = new byte[0];
-				else
-					plaintext = Arrays.copyOfRange(plaintext, pointer, pointer + payloadLength); 
-				message.setByteMessage(plaintext);
-				}
+			if (isLastMix) {
+				pointer = 0;
 				if (owner.IS_DUPLEX) { 
 					//	RBlength|replyblock|PTlength|plaintext|padding
-					byte[] RBlengthHeader = Arrays.copyOfRange(plaintext, pointer, pointer += config.LENGTH_HEADER_LENGTH);
-					int replyblockLength = Util.byteArrayToInt(RBlengthHeader);
-					byte[] replyblock = Arrays.copyOfRange(plaintext, pointer, pointer += replyblockLength); 
+					int replyblockLength = readInt(output, pointer);
+					pointer += config.LENGTH_HEADER_LENGTH;
+					byte[] replyblock = Arrays.copyOfRange(output, pointer, pointer += replyblockLength); 
 					ArrayList<byte[]> rpList;
-					if(config.replyblocks.containsKey(message.getOwner()))
-					{
+					if (config.replyblocks.containsKey(message.getOwner()))
 						rpList = config.replyblocks.get(message.getOwner());
-					}
 					else
-					{
 						rpList = new ArrayList<byte[]>();
-					}
 					rpList.add(replyblock);
 					config.replyblocks.put(message.getOwner(), rpList);
-					
-					byte[] lengthHeader = Arrays.copyOfRange(plaintext, pointer, pointer += config.LENGTH_HEADER_LENGTH);
-					int payloadLength = Util.byteArrayToInt(lengthHeader);
-					if (payloadLength == 0) // dummy
-						plaintext = new byte[0];
-					else
-						plaintext = Arrays.copyOfRange(plaintext, pointer, pointer + payloadLength); 
-					message.setByteMessage(plaintext);
-			
-					return message;
-				} else
-					return message;
-				
+				}
+				// remove Padding
+				int payloadLength = readInt(output, pointer);
+				pointer += config.LENGTH_HEADER_LENGTH;
+				if (payloadLength == 0) // dummy
+					message.setByteMessage(new byte[0]);
+				else
+					message.setByteMessage(Arrays.copyOfRange(output, pointer, pointer + payloadLength)); 
+				return message;
 			} else {
-				
-				message.setByteMessage(Arrays.copyOfRange(plaintext, pointer, plaintext.length));
-				
+				message.setByteMessage(output);
 				return message;
 			}
 
@@ -540,122 +525,125 @@ s += "[msg mix "+i +":"
 			System.err.println(owner +" Exception-message (ciphertext): " +Util.md5(message.getByteMessage()));
 			return null;
 		}
-		}
 	}
 
 	
-	
-
-
+	/**
+	 * Not synchronized (see recodeMessage()). The reply block is decrypted 
+	 * and the payload is encrypted directly into the output buffer.
+	 */
 	public Reply recodeReply(Reply message) {
-		synchronized(asymmetricCipherReply)
-		{
-			byte [] replyblock;
-			byte[] payload;
-		
-			if(message.getByteMessage().length<=config.MAX_PAYLOAD)
-		{
-				int paddingLength = config.MAX_PAYLOAD - message.getByteMessage().length;
-				byte[] lengthHeader = Util.intToByteArray(message.getByteMessage().length);
-				message.setByteMessage(Util.concatArrays(lengthHeader, message.getByteMessage()));
-				if (paddingLength > 0) {
-					byte[] padding = new byte[paddingLength];
-					 new SecureRandom().nextBytes(padding);
-			message.setByteMessage(Util.concatArrays(message.getByteMessage(),padding));
-				}
+		byte[] replyblock;
+		byte[] payload;
+		int payloadOffset;
+		int payloadLength;
+		if (message.getByteMessage().length <= config.MAX_PAYLOAD) {
+			// add length header and padding
+			payload = new byte[config.LENGTH_HEADER_LENGTH + config.MAX_PAYLOAD];
+			byte[] content = message.getByteMessage();
+			writeInt(payload, 0, content.length);
+			System.arraycopy(content, 0, payload, config.LENGTH_HEADER_LENGTH, content.length);
+			int paddingLength = config.MAX_PAYLOAD - content.length;
+			if (paddingLength > 0) {
+				byte[] padding = new byte[paddingLength];
+				secureRandom.nextBytes(padding);
+				System.arraycopy(padding, 0, payload, config.LENGTH_HEADER_LENGTH + content.length, paddingLength);
+			}
 			replyblock = config.replyblocks.get(message.getOwner()).remove(0);
+			payloadOffset = 0;
+			payloadLength = payload.length;
+		} else {
 			payload = message.getByteMessage();
-			}
-		
-		else
-		{
-			replyblock =  Arrays.copyOfRange(message.getByteMessage(), 0, message.getByteMessage().length - (config.MAX_PAYLOAD+config.LENGTH_HEADER_LENGTH));
-			payload =  Arrays.copyOfRange(message.getByteMessage(), replyblock.length, message.getByteMessage().length);
+			replyblock = payload;
+			payloadOffset = payload.length - (config.MAX_PAYLOAD + config.LENGTH_HEADER_LENGTH);
+			payloadLength = payload.length - payloadOffset;
 		}
- 		try {
+		int replyblockLength = payloadOffset == 0 ? replyblock.length : payloadOffset;
+		try {
+			int blockSize = asymmetricCipherReply.getBlockSize();
 			// decrypt asymmetrically encrypted part
-			byte[] asymPlaintext = asymmetricCipherReply.doFinal(replyblock, 0, asymmetricCipherReply.getBlockSize());
-			// extract data from derypted header (= first part of the "asymPlaintext")
-			byte[] mac;
-			SecretKey macKey;
-			SecretKey symKey;
-			IvParameterSpec initVector;
-			int pointer = 0;
-			mac = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.MAC_LENGTH);
-//			
-//			if (owner.ROUTING_MODE == RoutingMode.SOURCE_ROUTING) { // determine next hop if source routing is enabled
-//				byte[] nextHopAddress = Arrays.copyOfRange(asymPlaintext, pointer, pointer += 4);
-//				int address = Util.byteArrayToInt(nextHopAddress);
-//				if (address == owner.PUBLIC_PSEUDONYM) { // this mix is the last hop
-//					if (owner.DISPLAY_ROUTE_INFO)
-//						System.out.println(""+owner +" setting nextHopAddress to \"LAST HOP\""); 
-//					message.nextHopAddress = MixMessage.NONE;
-//					isLastMix = true;
-//				} else { // this mix is not the last hop
-//					if (owner.DISPLAY_ROUTE_INFO)
-//						System.out.println(""+owner +" setting nextHopAddress to " +address); 
-//					message.nextHopAddress = address;
-//				}
-//			}
-			
-
-			byte[] macKeyAsByteArray = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.MAC_KEY_LENGTH);
-			macKey = new SecretKeySpec(macKeyAsByteArray, config.MAC_ALGORITHM);
-			
-			byte[] symKeyAsByteArray = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.SYM_KEY_LENGTH);
-			symKey = new SecretKeySpec(symKeyAsByteArray, config.SYM_CRYPTOGRAPHY_ALGORITHM);
+			byte[] asymPlaintext = asymmetricCipherReply.doFinal(replyblock, 0, blockSize);
+			// extract data from derypted header (= first part of the "asymPlaintext"); mac: [0, MAC_LENGTH)
+			int pointer = config.MAC_LENGTH;
+			int macKeyOffset = pointer;
+			SecretKey macKey = new SecretKeySpec(asymPlaintext, pointer, config.MAC_KEY_LENGTH, config.MAC_ALGORITHM);
+			pointer += config.MAC_KEY_LENGTH;
+			SecretKey symKey = new SecretKeySpec(asymPlaintext, pointer, config.SYM_KEY_LENGTH, config.SYM_CRYPTOGRAPHY_ALGORITHM);
+			pointer += config.SYM_KEY_LENGTH;
+			IvParameterSpec initVector = new IvParameterSpec(asymPlaintext, pointer, config.IV_LENGTH);
+			pointer += config.IV_LENGTH;
+			
+			// output = (plaintext of replyblock)[pointer, end) | encrypted payload
+			int headerRemainder = asymPlaintext.length - pointer;
+			int newReplyblockLength = headerRemainder + replyblockLength - blockSize;
+			byte[] output = new byte[newReplyblockLength + payloadLength];
+			System.arraycopy(asymPlaintext, pointer, output, 0, headerRemainder);
 			
-			byte[] ivAsByteArray = Arrays.copyOfRange(asymPlaintext, pointer, pointer += config.IV_LENGTH);
-			initVector = new IvParameterSpec(ivAsByteArray);
 			// decrypt symmetrically encrypted part
-			Cipher decryptCipher = Cipher.getInstance(config.SYM_CRYPTOGRAPHY_ALGORITHM, config.CRYPTO_PROVIDER);
-					
-			decryptCipher.init(Cipher.DECRYPT_MODE, symKey, initVector);
-			byte[] symPlaintext = decryptCipher.doFinal(replyblock, asymmetricCipherReply.getBlockSize(), replyblock.length - asymmetricCipherReply.getBlockSize());
-			byte[] plaintext = Util.concatArrays(asymPlaintext, symPlaintext);
-			// validate mac
-			Mac macGenerator = Mac.getInstance(config.MAC_ALGORITHM);
-			macGenerator.init(macKey);
-			byte[] signedData = Arrays.copyOfRange(plaintext, config.MAC_LENGTH, plaintext.length);
+			symCipherReply.init(Cipher.DECRYPT_MODE, symKey, initVector);
+			symCipherReply.doFinal(replyblock, blockSize, replyblockLength - blockSize, output, headerRemainder);
+			
+			// validate mac (signed data: plaintext[MAC_LENGTH, end))
+			macGeneratorReply.init(macKey);
+			macGeneratorReply.update(asymPlaintext, config.MAC_LENGTH, pointer - config.MAC_LENGTH);
+			macGeneratorReply.update(output, 0, newReplyblockLength);
 			if (config.DEBUG_ON)
-				System.out.println(owner +" plaintext: " +Util.md5(signedData) +" (of " +Util.md5(message.getByteMessage()) +")");
-			byte[] locallyGeneratedMac = macGenerator.doFinal(signedData);
+				System.out.println(owner +" plaintext: " +Util.md5(Util.concatArrays(Arrays.copyOfRange(asymPlaintext, config.MAC_LENGTH, pointer), Arrays.copyOf(output, newReplyblockLength))) +" (of " +Util.md5(message.getByteMessage()) +")");
+			macGeneratorReply.doFinal(macBufferReply, 0);
 			
-			if (!Arrays.equals(locallyGeneratedMac, mac)) {
+			if (!isEqual(macBufferReply, asymPlaintext, 0, config.MAC_LENGTH)) {
 				System.out.println("wrong MAC!"); // TODO
 				return null;
 			} 
 			
 			if (config.PERFORM_REPLY_DETECTION)
-				if (config.replayDetection.isReplay(macKeyAsByteArray))
+				if (config.replayDetection.isReplay(asymPlaintext, macKeyOffset))
 					return null;
-			replyblock = Arrays.copyOfRange(plaintext, pointer, plaintext.length);
-			// encrypt payload with seeded keys
-			Cipher symCipher = Cipher.getInstance(
-					config.SYM_CRYPTOGRAPHY_ALGORITHM, 
-					config.CRYPTO_PROVIDER
-					);
-			symCipher.init(Cipher.ENCRYPT_MODE, symKey, initVector);
-			byte[] payloadCipherText = symCipher.doFinal(payload, 0, payload.length);
 			
-			byte[] cipherText = Util.concatArrays(replyblock, payloadCipherText);
-			if (owner.IS_FIRST_MIX) {
-				// remove Padding
-				byte[] pseudonym = Arrays.copyOfRange(replyblock, 0, config.PSEUDONYM_LENGTH);
-				
-				cipherText = Util.concatArrays(pseudonym, payloadCipherText);
-			}
+			// encrypt payload with seeded keys
+			symCipherReply.init(Cipher.ENCRYPT_MODE, symKey, initVector);
+			if (owner.IS_FIRST_MIX) { // pseudonym | encrypted payload
+				byte[] cipherText = new byte[config.PSEUDONYM_LENGTH + payloadLength];
+				System.arraycopy(output, 0, cipherText, 0, config.PSEUDONYM_LENGTH);
+				symCipherReply.doFinal(payload, payloadOffset, payloadLength, cipherText, config.PSEUDONYM_LENGTH);
 				message.setByteMessage(cipherText);
-				return message;
+			} else { // replyblock | encrypted payload
+				symCipherReply.doFinal(payload, payloadOffset, payloadLength, output, newReplyblockLength);
+				message.setByteMessage(output);
+			}
+			return message;
 			
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
 		}
-		}
-		
-		
-		
+	}
+	
+	
+	// constant time comparison of "mac" and "data[offset, offset+length)"
+	private static boolean isEqual(byte[] mac, byte[] data, int offset, int length) {
+		if (mac.length != length)
+			return false;
+		int result = 0;
+		for (int i=0; i<length; i++)
+			result |= mac[i] ^ data[offset + i];
+		return result == 0;
+	}
+	
+	
+	private static int readInt(byte[] source, int offset) {
+		return ((source[offset] & 0xFF) << 24) 
+				| ((source[offset+1] & 0xFF) << 16) 
+				| ((source[offset+2] & 0xFF) << 8) 
+				| (source[offset+3] & 0xFF);
+	}
+	
+	
+	private static void writeInt(byte[] destination, int offset, int value) {
+		destination[offset] = (byte)(value >>> 24);
+		destination[offset+1] = (byte)(value >>> 16);
+		destination[offset+2] = (byte)(value >>> 8);
+		destination[offset+3] = (byte)value;
 	}
 
-}
\ No newline at end of file
+}
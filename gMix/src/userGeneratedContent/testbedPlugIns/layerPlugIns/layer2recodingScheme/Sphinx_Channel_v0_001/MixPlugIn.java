@@ -46,10 +46,12 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 	
 	private long waitCounter = 0;
 	private long noWaitCounter = 0;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		if (anonNode.ROUTING_MODE == RoutingMode.DYNAMIC_ROUTING) 
 			throw new RuntimeException("RoutingMode DYNAMIC_ROUTING not supported, only GLOBAL_ROUTING and SOURCE_ROUTING"); 
 		this.config = new Sphinx_Channel_Config(anonNode, false);
@@ -150,7 +152,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		
 		
 		public ChannelData(User owner) {
-			super(owner, getThis());
+			super(owner, attachmentSlot);
 		}
 		
 	}
@@ -168,7 +170,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 							request.getOwner().layer2Id = 1;
 							channelData = new ChannelData(request.getOwner());
 						} else {
-							channelData = request.getOwner().getAttachment(getThis(), ChannelData.class);
+							channelData = request.getOwner().getAttachment(attachmentSlot);
 							assert channelData != null;
 						}
 						channelData.requestQueue.put(request);
@@ -189,7 +191,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		public void run() {	
 			while (true) { // process messages
 				for (Reply reply: anonNode.getFromReplyInputQueue()) {
-					ChannelData channelData = reply.getOwner().getAttachment(getThis(), ChannelData.class);
+					ChannelData channelData = reply.getOwner().getAttachment(attachmentSlot);
 					if (channelData == null) {
 						System.err.println("no channel data stored for " +reply.getOwner());
 						userDatabase.removeUser(reply.getOwner());
@@ -300,9 +302,5 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		}
 	}
 	
-	
-	private MixPlugIn getThis() {
-		return this;
-	}
 
 }
@@ -21,7 +21,7 @@ import java.util.Arrays;
 
 /**
  * This class encapsulates an EncDNS key. It is used as a key for 
- * the @see LinkedHashMap used in @see SharedSecretCache .
+ * the @see ConcurrentHashMap used in @see SharedSecretCache .
  * 
  * @author Jens Lindemann
  */
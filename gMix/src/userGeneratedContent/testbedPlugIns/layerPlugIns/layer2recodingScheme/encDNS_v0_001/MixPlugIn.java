@@ -18,13 +18,19 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.encDNS_v0_001;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
+import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -36,6 +42,8 @@ import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
 import staticContent.framework.util.Util;
+import userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.encDNS_v0_001.SharedSecretCache.SecretCalculator;
+import userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001.UpstreamResolver.ReplyListener;
 
 import com.github.encdns.LibSodiumWrapper;
 
@@ -53,14 +61,17 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 
 	/** size of cache for intermediate shared secrets */
     public int CACHESIZE;
-	/** maximum number of threads */
-    private int _maxThreads;
+	/** maximum number of received queries waiting for a crypto thread */
+    private static final int MAX_QUEUED_QUERIES = 16384;
+    /** maximum number of queries read from the channel per selector round */
+    private static final int MAX_QUERIES_PER_ROUND = 64;
 	
     
 	private byte[] _magicString;
 	private LibSodiumWrapper _libSodium;
     private byte[] _zoneName;
-    private Map<EncDNSKey, byte[]> _cache;
+    private SharedSecretCache _cache;
+    private SecretCalculator _secretCalculator;
     private boolean _encryption;
     private byte[] _sk;
     
@@ -68,15 +79,20 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
     private static boolean displayPacketThroughput;
     private static boolean displayThreadStatus;
     private static int displayThreadInterval;
+    private static AtomicInteger queuedQueries = new AtomicInteger(0);
     private static AtomicInteger decryptingThreads = new AtomicInteger(0);
-    private static AtomicInteger resolvingThreads = new AtomicInteger(0);
+    private static AtomicInteger resolvingQueries = new AtomicInteger(0);
     private static AtomicInteger encryptingThreads = new AtomicInteger(0);
-    private static AtomicInteger sendingThreads = new AtomicInteger(0);
-    private static AtomicInteger idleThreads = new AtomicInteger(0);
     private static int threads;
     
+    private ThreadPoolExecutor cryptoThreads;
+    private Selector selector;
+    private int selectorThreadId;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(EncDnsServer.MAX_MSG_SIZE);
+    private final ConcurrentLinkedQueue<OutgoingReply> outgoingReplies = new ConcurrentLinkedQueue<OutgoingReply>();
+    
     private userGeneratedContent.testbedPlugIns.layerPlugIns.layer1network.encDNS_v0_001.MixPlugIn layer1;
-    private DatagramSocket layer1socket;
+    private DatagramChannel layer1channel;
 	private userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001.MixPlugIn layer5;
     
 	
@@ -91,9 +107,17 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
         _zoneName = EncDNSHelper.parseZoneNameString(EncDnsServer.zoneurl);
 
         _magicString = new byte[]{0x20, 0x45, 0x5e};
-        _cache = Collections.synchronizedMap(new SharedSecretCache(CACHESIZE));
-        _maxThreads = EncDnsServer.maxThreads;
-        threads = _maxThreads;
+        _cache = new SharedSecretCache(CACHESIZE);
+        _secretCalculator = new SecretCalculator() {
+        	@Override
+        	public byte[] calculateSecret(EncDNSKey key) {
+        		if(EncDnsServer.verbosity >= 1) {
+        			System.out.println("Key not found in cache. Calculating intermediate shared secret...");
+        		}
+        		return _libSodium.cryptoBoxBeforenm(key.getKey(), _sk);
+        	}
+        };
+        threads = Math.max(1, EncDnsServer.cryptoThreads);
         
         if (_encryption) {
         	//_pk = EncDNSHelper.readByteArrayFromFile(pkPath);
@@ -118,11 +142,15 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 									e.printStackTrace();
 									continue;
 								}
-        						String threadStatus = "\nThreadStatus (of "+threads +" threads):\n";
-        						threadStatus += "  idle threads: " +idleThreads.get() +"\n";
+        						String threadStatus = "\nThreadStatus (of "+threads +" crypto threads):\n";
+        						threadStatus += "  queued queries: " +queuedQueries.get() +"\n";
         						threadStatus += "  decrypting threads: " +decryptingThreads.get() +"\n";
-        						threadStatus += "  resolvingThreads threads: " +resolvingThreads.get() +"\n";
-        						threadStatus += "  encryptingThreads threads: " +encryptingThreads.get() +"\n";
+        						threadStatus += "  queries being resolved: " +resolvingQueries.get() +"\n";
+        						threadStatus += "  encrypting threads: " +encryptingThreads.get() +"\n";
+        						if (_encryption)
+        							threadStatus += "  shared secret cache: " +_cache.getStatistics() +"\n";
+        						if (layer5 != null && layer5.getQueriesInFlight() != -1)
+        							threadStatus += "  upstream resolver: " +layer5.getResolverStatistics() +"\n";
         						System.out.println(threadStatus); 
         					} 
         				}
@@ -131,7 +159,7 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
         	}
         
         if (EncDnsServer.displayThroughputBool) {
-        	StatisticsRecorder.init(EncDnsServer.displayThroughputBool, EncDnsServer.displayThroughputBool, displayThreadInterval, threads);
+        	StatisticsRecorder.init(EncDnsServer.displayThroughputBool, EncDnsServer.displayThroughputBool, displayThreadInterval, threads + 1); // +1 for the selector thread
         }
 	}
 
@@ -144,11 +172,33 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 	@Override
 	public void begin() {
 		this.layer1 = ((userGeneratedContent.testbedPlugIns.layerPlugIns.layer1network.encDNS_v0_001.MixPlugIn)networkLayerMix.getImplementation());
-		this.layer1socket = layer1.getSocket();
+		this.layer1channel = layer1.getChannel();
 		this.layer5 = ((userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001.MixPlugIn)applicationLayerMix.getImplementations()[0]);
-		for (int i=0; i<_maxThreads; i++) {
-        	new Thread(new ServerMessageHandlerThread()).start();
-        }
+		this.cryptoThreads = new ThreadPoolExecutor(
+				threads,
+				threads,
+				0L,
+				TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						return new CryptoThread(r);
+					}
+				});
+		try {
+			this.selector = Selector.open();
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new RuntimeException("ERROR: could not open selector"); 
+		}
+		this.selectorThreadId = StatisticsRecorder.getThreadId();
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				selectorLoop();
+			}
+		}, "EncDnsServerSelector").start();
 	}
 
 	
@@ -165,139 +215,219 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 	
 	
     /**
-     * This thread will send a query to the remote recursive nameserver, wait 
-     * for a response and pass the decrypted response on to the local recursive
-     * nameserver.
-     * 
-     * This is encapsulated in a thread to allow parallelized processing of
-     * queries.
+     * Receives EncDNS queries from layer 1 and sends the replies. The channel 
+     * is non-blocking, i.e. this single thread can serve any number of 
+     * clients; decryption/encryption is done by the cryptoThreads and the 
+     * queries are resolved asynchronously (see layer 5).
      */
-    private class ServerMessageHandlerThread implements Runnable {
-        //private DatagramPacket _rcvPkt;
-        private byte[] _k;
-        private int threadId;
-
-        
+    private void selectorLoop() {
+    	try {
+    		layer1channel.register(selector, SelectionKey.OP_READ);
+    	} catch (IOException e) {
+    		e.printStackTrace();
+    		throw new RuntimeException("ERROR: could not register layer 1 channel"); 
+    	}
+    	while (true) {
+    		try {
+    			selector.select();
+    			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+    			while (it.hasNext()) {
+    				SelectionKey key = it.next();
+    				it.remove();
+    				if (key.isValid() && key.isReadable())
+    					receiveQueries();
+    			}
+    			sendQueuedReplies();
+    		} catch (IOException e) {
+    			if(EncDnsServer.verbosity >= 1) {
+    				System.err.println("Failed to receive message:");
+    				e.printStackTrace();
+    			}
+    		}
+    	}
+    }
+    
+    
+    private void receiveQueries() throws IOException {
+    	// read at most MAX_QUERIES_PER_ROUND queries to make sure queued 
+    	// replies are sent even under high load
+    	for (int i=0; i<MAX_QUERIES_PER_ROUND; i++) {
+    		receiveBuffer.clear();
+    		SocketAddress client = layer1channel.receive(receiveBuffer);
+    		if (client == null)
+    			return; // no more queries available
+    		receiveBuffer.flip();
+    		if (displayPacketThroughput || displayByteThroughput)
+    			StatisticsRecorder.addRequestThroughputRecord(receiveBuffer.remaining(), selectorThreadId);
+    		if(EncDnsServer.verbosity >= 1) {
+    			System.out.println("Received message");
+    		}
+    		if (cryptoThreads.getQueue().size() >= MAX_QUEUED_QUERIES) {
+    			// overload -> drop query (the client will retransmit it)
+    			if(EncDnsServer.verbosity >= 1) {
+    				System.err.println("Too many queued queries, dropping query"); 
+    			}
+    			continue;
+    		}
+    		byte[] rcvDNS = new byte[receiveBuffer.remaining()];
+    		receiveBuffer.get(rcvDNS);
+    		if (displayThreadStatus)
+    			queuedQueries.incrementAndGet();
+    		cryptoThreads.execute(new QueryHandler(rcvDNS, client));
+    	}
+    }
+    
+    
+    /**
+     * Sends the reply right away if possible. Otherwise (socket buffer full) 
+     * the reply is queued and will be sent by the selector thread as soon as 
+     * the channel is writable again.
+     */
+    private void sendReply(byte[] encReply, SocketAddress client) {
+    	if (outgoingReplies.isEmpty()) {
+    		try {
+    			if (layer1channel.send(ByteBuffer.wrap(encReply), client) != 0)
+    				return;
+    		} catch (IOException e) {
+    			if(EncDnsServer.verbosity >= 1) {
+    				System.err.println("Failed to send message:");
+    				System.err.println(e);
+    			}
+    			return;
+    		}
+    	}
+    	outgoingReplies.add(new OutgoingReply(encReply, client));
+    	selector.wakeup();
+    }
+    
+    
+    private void sendQueuedReplies() throws IOException {
+    	OutgoingReply reply;
+    	while ((reply = outgoingReplies.peek()) != null) {
+    		try {
+    			if (layer1channel.send(ByteBuffer.wrap(reply.encReply), reply.client) == 0) {
+    				// still no space in the socket buffer -> wait till writable
+    				layer1channel.keyFor(selector).interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    				return;
+    			}
+    		} catch (IOException e) {
+    			if(EncDnsServer.verbosity >= 1) {
+    				System.err.println("Failed to send message:");
+    				System.err.println(e);
+    			}
+    		}
+    		outgoingReplies.poll();
+    	}
+    	layer1channel.keyFor(selector).interestOps(SelectionKey.OP_READ);
+    }
+    
+    
+    /**
+     * Handles a single EncDNS query: decrypts the query (executed by one of 
+     * the cryptoThreads), passes it to layer 5 for resolution and encrypts 
+     * the response as soon as layer 5 has received it (executed by one of the 
+     * cryptoThreads again). No thread is blocked while waiting for the 
+     * remote recursive nameserver.
+     */
+    private class QueryHandler implements Runnable, ReplyListener {
+    	
+    	private byte[] rcvDNS;
+    	private SocketAddress client;
+    	private int qNameEnd;
+    	private byte[] _k;
+    	
+    	
         /**
-         * Constructor for ServerMessageHandlerThread
-         * @param rcvPkt (hopefully) an EncDNS query received from a loccal
+         * Constructor for QueryHandler
+         * @param rcvDNS (hopefully) an EncDNS query received from a local
          * recursive nameserver
+         * @param client the local recursive nameserver
          */
-        ServerMessageHandlerThread(/*DatagramPacket rcvPkt*/) {
-        	this.threadId = StatisticsRecorder.getThreadId();
+        QueryHandler(byte[] rcvDNS, SocketAddress client) {
+        	this.rcvDNS = rcvDNS;
+        	this.client = client;
         }
         
-
+        
+        @Override
         public void run() {
-        	/*if(EncDnsServer.verbosity >= 1) {
-                System.out.println("ServerMessageHandler started");
-            }*/
-        	while (true) {
-        		byte[] rcvPkt = new byte[EncDnsServer.MAX_MSG_SIZE];
-        		DatagramPacket _rcvPkt = new DatagramPacket(rcvPkt, rcvPkt.length);
-        		if (displayThreadStatus) {
-        			sendingThreads.decrementAndGet();
-        			idleThreads.incrementAndGet();
-            	}
-        		// reiceive:
-                synchronized (layer1) {
-                	try {
-                		layer1socket.receive(_rcvPkt);
-						if (displayPacketThroughput || displayByteThroughput)
-							StatisticsRecorder.addRequestThroughputRecord(_rcvPkt.getLength(), threadId);
-					} catch (IOException e) {
-						if(EncDnsServer.verbosity >= 1) {
-							System.err.println("Failed to receive message:");
-                            e.printStackTrace();
-			            }
-						continue;
-					}
-                }
-                if(EncDnsServer.verbosity >= 1) {
-                    System.out.println("Received message");
-                }
-                if (displayThreadStatus) {
-                	idleThreads.decrementAndGet();
-                	decryptingThreads.incrementAndGet();
-            	}
-             // Copy received query into a byte[]
-                byte[] rcvDNS = new byte[_rcvPkt.getLength()];
-                System.arraycopy(_rcvPkt.getData(), _rcvPkt.getOffset(), rcvDNS, 0,
-                        _rcvPkt.getLength());
-                
-                int qNameEnd = EncDNSHelper.findQuestionNameEnd(rcvDNS);
-                
-                byte[] decMsg;
-                if(_encryption) {
-                    // If encryption is enabled, decrypt the message
-                    decMsg = decryptQuery(rcvDNS, qNameEnd);
-                } else {
-                    // else just pass the unencrypted message on
-                    decMsg = Arrays.copyOf(rcvDNS, rcvDNS.length);
-                }
-                if (decMsg == null) {
-                    // If the decrypted message is null, decryption failed (probably due to a manipulated message)
-                    if(EncDnsServer.verbosity >= 1) {
-                        System.out.println("Decryption of EncDNS message failed.");
-                    }
-                    continue;
-                }
-
-                if (displayThreadStatus) {
-                	decryptingThreads.decrementAndGet();
-                	resolvingThreads.incrementAndGet();
-            	}
-                
-                byte[] ansReply = layer5.sendQueryAndListenForReply(decMsg);
-
-                if (displayThreadStatus) {
-                	resolvingThreads.decrementAndGet();
-                	encryptingThreads.incrementAndGet();
-            	}
-                byte[] qID = Arrays.copyOfRange(decMsg, 0, 2);
-                byte[] rID = (ansReply == null) ? null : Arrays.copyOfRange(ansReply, 0, 2);
-                byte[] encReply;
-                // Check for empty responses and compare query and response IDs
-                if (ansReply != null && Arrays.equals(qID, rID)) {
-                    if(_encryption) {
-                        // If encryption is enabled, encrypt the response
-                        encReply = encryptResponse(rcvDNS, qNameEnd, ansReply, _k);
-                    } else {
-                        // Else just pass the unencrypted response on
-                        encReply = Arrays.copyOf(ansReply, ansReply.length);
-                    }
-                } else {
-                    // If we received an empty response or the response ID does not
-                    // match the query ID, something went wrong -> generate a
-                    // SERVFAIL message
-                    if(_encryption) {
-                        encReply = encryptResponse(rcvDNS, qNameEnd, EncDNSHelper.generateServfail(rcvDNS), _k);
-                    } else {
-                        encReply = EncDNSHelper.generateServfail(rcvDNS);
-                    }
-                }
-                
-                if (displayThreadStatus) {
-                	encryptingThreads.decrementAndGet();
-                	sendingThreads.incrementAndGet();
+        	if (displayThreadStatus) {
+        		queuedQueries.decrementAndGet();
+        		decryptingThreads.incrementAndGet();
+        	}
+        	byte[] decMsg;
+        	try {
+        		qNameEnd = EncDNSHelper.findQuestionNameEnd(rcvDNS);
+        		if(_encryption) {
+        			// If encryption is enabled, decrypt the message
+        			decMsg = decryptQuery(rcvDNS, qNameEnd);
+        		} else {
+        			// else just pass the unencrypted message on
+        			decMsg = rcvDNS;
+        		}
+        	} catch (ArrayIndexOutOfBoundsException e) {
+        		decMsg = null; // malformed message
+        	} finally {
+        		if (displayThreadStatus)
+        			decryptingThreads.decrementAndGet();
+        	}
+        	if (decMsg == null) {
+        		// If the decrypted message is null, decryption failed (probably due to a manipulated message)
+        		if(EncDnsServer.verbosity >= 1) {
+        			System.out.println("Decryption of EncDNS message failed.");
+        		}
+        		return;
+        	}
+        	if (displayThreadStatus)
+        		resolvingQueries.incrementAndGet();
+        	layer5.sendQuery(decMsg, this);
+        }
+        
+        
+        @Override
+        public void replyReceived(final byte[] decMsg, final byte[] ansReply) {
+        	if (displayThreadStatus)
+        		resolvingQueries.decrementAndGet();
+        	cryptoThreads.execute(new Runnable() {
+        		@Override
+        		public void run() {
+        			encryptAndSendReply(decMsg, ansReply);
+        		}
+        	});
+        }
+        
+        
+        private void encryptAndSendReply(byte[] decMsg, byte[] ansReply) {
+        	if (displayThreadStatus)
+        		encryptingThreads.incrementAndGet();
+        	byte[] qID = Arrays.copyOfRange(decMsg, 0, 2);
+        	byte[] rID = (ansReply == null || ansReply.length < 2) ? null : Arrays.copyOfRange(ansReply, 0, 2);
+        	byte[] encReply;
+        	// Check for empty responses and compare query and response IDs
+        	if (ansReply != null && Arrays.equals(qID, rID)) {
+        		if(_encryption) {
+        			// If encryption is enabled, encrypt the response
+        			encReply = encryptResponse(rcvDNS, qNameEnd, ansReply, _k);
+        		} else {
+        			// Else just pass the unencrypted response on
+        			encReply = ansReply;
+        		}
+        	} else {
+        		// If we received an empty response or the response ID does not
+        		// match the query ID, something went wrong -> generate a
+        		// SERVFAIL message
+        		if(_encryption) {
+        			encReply = encryptResponse(rcvDNS, qNameEnd, EncDNSHelper.generateServfail(rcvDNS), _k);
+        		} else {
+        			encReply = EncDNSHelper.generateServfail(rcvDNS);
         		}
-                
-             // Send response to local recursive nameserver
-                DatagramPacket sendPacket = new DatagramPacket(encReply, encReply.length, _rcvPkt.getAddress(), _rcvPkt.getPort());
-                
-                //synchronized (_udpSock53) {
-                	try {
-                		if (displayPacketThroughput || displayByteThroughput)
-							StatisticsRecorder.addReplyThroughputRecord(encReply.length, threadId);
-                		layer1socket.send(sendPacket);
-                    } catch (IOException e) {
-                        if(EncDnsServer.verbosity >= 1) {
-                            System.err.println("Failed to send message:");
-                            System.err.println(e);
-                        }
-                    }
-                //}
-        	} 
+        	}
+        	if (displayThreadStatus)
+        		encryptingThreads.decrementAndGet();
+        	if (displayPacketThroughput || displayByteThroughput)
+        		StatisticsRecorder.addReplyThroughputRecord(encReply.length, ((CryptoThread)Thread.currentThread()).threadId);
+        	// Send response to local recursive nameserver
+        	sendReply(encReply, client);
         }
         
         
@@ -348,21 +478,9 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
             System.arraycopy(cryptoStuff, _magicString.length + _libSodium.PKBYTES, n, 0, _libSodium.NONCEBYTES / 2);
             byte[] cbox = Arrays.copyOfRange(cryptoStuff, pkAndNonceEnd, cryptoStuff.length);
 
-            // check whether we've got the corresponding intermediate shared
-            // secret in the cache
-            EncDNSKey rpkobj = new EncDNSKey(rpk);
-            _k = _cache.get(rpkobj);
-            if (_k == null) {
-                if(EncDnsServer.verbosity >= 1) {
-                    System.out.println("Key not found in cache. Calculating intermediate shared secret...");
-                }
-                _k = _libSodium.cryptoBoxBeforenm(rpk, _sk);
-                _cache.put(rpkobj, _k);
-            } else {
-                if(EncDnsServer.verbosity >= 1) {
-                    System.out.println("Key found in cache.");
-                }
-            }
+            // get the corresponding intermediate shared secret from the 
+            // cache (calculated by _secretCalculator if not cached)
+            _k = _cache.get(new EncDNSKey(rpk), _secretCalculator);
 
             // decrypt and return the query
             byte[] decCbox = _libSodium.openCryptoBoxAfternm(cbox, _k, n);
@@ -370,6 +488,32 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
         }
     
     }
+    
+    
+    private static class OutgoingReply {
+    	
+    	private final byte[] encReply;
+    	private final SocketAddress client;
+    	
+    	
+    	private OutgoingReply(byte[] encReply, SocketAddress client) {
+    		this.encReply = encReply;
+    		this.client = client;
+    	}
+    	
+    }
+    
+    
+    private static class CryptoThread extends Thread {
+    	
+    	private final int threadId = StatisticsRecorder.getThreadId();
+    	
+    	
+    	private CryptoThread(Runnable r) {
+    		super(r, "EncDnsCryptoThread");
+    	}
+    	
+    }
 
     
     /**
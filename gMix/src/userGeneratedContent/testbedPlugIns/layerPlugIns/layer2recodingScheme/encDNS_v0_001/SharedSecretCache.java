@@ -17,8 +17,11 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.encDNS_v0_001;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class represents a cache for the intermediate shared secrets
@@ -27,48 +30,120 @@ import java.util.Map;
  * calculations to generate the shared secret can be avoided by storing an
  * intermediate value.
  * 
- * The implementation is based on @see LinkedHashMap and will automatically
- * remove the eldest entry if the maximum size is exceeded.
+ * The cache is safe for concurrent use without external synchronization: 
+ * lookups are lock-free (a ConcurrentHashMap plus a volatile "referenced" 
+ * bit per entry) and insertions only lock one of several segments. Each 
+ * segment evicts entries with the CLOCK algorithm (an approximation of LRU 
+ * that does not have to reorder a list on every hit). New entries start 
+ * unreferenced, i.e. keys that are used only once are evicted before keys 
+ * that are used repeatedly.
+ * 
+ * If several threads request the shared secret for the same (uncached) key 
+ * at the same time, it is calculated only once (see get()).
  * 
  * @author Jens Lindemann
  */
-@SuppressWarnings("serial")
-public class SharedSecretCache extends LinkedHashMap<EncDNSKey, byte[]> {
-    /** maximum size */ 
+public class SharedSecretCache {
+	
+	/** maximum size */ 
     private final int SIZE;
+    private final ConcurrentHashMap<EncDNSKey, Entry> _entries;
+    private final Segment[] _segments;
+    
+    
+    /**
+     * Calculates the shared secret for a key that is not cached.
+     */
+    public interface SecretCalculator {
+    	
+    	public byte[] calculateSecret(EncDNSKey key);
+    	
+    }
+    
     
     /**
      * Constructor for the SharedSecretCache.
-     * @param size maximum cache size
+     * @param size maximum cache size (0 disables the cache)
      */
     public SharedSecretCache(int size) {
-        // The super call will create a LinkedHashMap which can store exactly
-        // size+1 elements to avoid costly resizing operations. As the eldest
-        // entry is only removed after adding a new element, we need to be able
-        // to store one more element than we want to cache.
-        super(size+1, 1, true);
-        SIZE = size;
+        SIZE = Math.max(0, size);
+        // use enough segments to make lock contention unlikely (but not more 
+        // segments than entries)
+        int numberOfSegments = 1;
+        int maxSegments = Math.min(SIZE, 4 * Runtime.getRuntime().availableProcessors());
+        while (numberOfSegments * 2 <= maxSegments)
+        	numberOfSegments *= 2;
+        _segments = new Segment[numberOfSegments];
+        for (int i=0; i<numberOfSegments; i++) // distribute SIZE over the segments
+        	_segments[i] = new Segment(SIZE / numberOfSegments + (i < SIZE % numberOfSegments ? 1 : 0));
+        _entries = new ConcurrentHashMap<EncDNSKey, Entry>(Math.max(16, (int)(SIZE / 0.75f) + 1), 0.75f, numberOfSegments);
     }
     
-    @SuppressWarnings("rawtypes")
-	@Override
-    protected boolean removeEldestEntry(Map.Entry eldest) {
-        // If this method returns true, the eldest entry in the list will be
-        // removed. Thus, it should return true if the current size exceeds
-        // the maximum size.
-        return this.size() > SIZE;
-    }
     
     /**
-     * This is an alternative implementation of the put method for convenience.
-     * It will take a byte[] as the key instead of an EncDNSKey object.
+     * Returns the shared secret for the specified key. If the secret is not 
+     * cached, it is calculated with the specified SecretCalculator and added 
+     * to the cache. If another thread is already calculating the secret for 
+     * this key, the calling thread will wait for its result instead of 
+     * calculating it again.
      * @param key public key of remote party
-     * @param value intermediate shared secret
+     * @param calculator calculates the secret if it is not cached
+     * @return the intermediate shared secret
+     */
+    public byte[] get(final EncDNSKey key, final SecretCalculator calculator) {
+    	if (SIZE == 0) {
+    		_segments[0].misses.incrementAndGet();
+    		return calculator.calculateSecret(key);
+    	}
+    	Segment segment = segmentFor(key);
+    	Entry entry = _entries.get(key);
+    	if (entry != null) {
+    		entry.referenced = true;
+    		segment.hits.incrementAndGet();
+    		return entry.getSecret();
+    	}
+    	Entry newEntry = new Entry(key, new FutureTask<byte[]>(new Callable<byte[]>() {
+    		@Override
+    		public byte[] call() throws Exception {
+    			return calculator.calculateSecret(key);
+    		}
+    	}));
+    	entry = _entries.putIfAbsent(key, newEntry);
+    	if (entry != null) { // another thread was faster
+    		entry.referenced = true;
+    		segment.hits.incrementAndGet();
+    		return entry.getSecret();
+    	}
+    	segment.misses.incrementAndGet();
+    	newEntry.secret.run(); // calculate secret (waiting threads are notified by FutureTask)
+    	try {
+    		newEntry.getSecret();
+    	} catch (RuntimeException e) {
+    		_entries.remove(key, newEntry); // don't cache failures
+    		throw e;
+    	}
+    	segment.add(newEntry);
+    	return newEntry.getSecret();
+    }
+    
+    
+    /**
+     * Returns the cached secret for the specified key (or null if the key is 
+     * not cached).
      */
-    public byte[] put(byte[] key, byte[] value) {
-        return this.put(new EncDNSKey(key), value);
+    public byte[] get(EncDNSKey key) {
+    	Entry entry = _entries.get(key);
+    	Segment segment = segmentFor(key);
+    	if (entry == null) {
+    		segment.misses.incrementAndGet();
+    		return null;
+    	}
+    	entry.referenced = true;
+    	segment.hits.incrementAndGet();
+    	return entry.getSecret();
     }
     
+    
     /**
      * This is an alternative implementation of the get method for convenience.
      * It will take a byte[] as the key instead of an EncDNSKey object.
@@ -77,4 +152,161 @@ public class SharedSecretCache extends LinkedHashMap<EncDNSKey, byte[]> {
     public byte[] get(byte[] key) {
         return this.get(new EncDNSKey(key));
     }
-}
\ No newline at end of file
+    
+    
+    /**
+     * Adds the secret to the cache (if the key is not cached yet).
+     * @param key public key of remote party
+     * @param value intermediate shared secret
+     */
+    public void put(EncDNSKey key, final byte[] value) {
+    	get(key, new SecretCalculator() {
+			@Override
+			public byte[] calculateSecret(EncDNSKey key) {
+				return value;
+			}
+		});
+    }
+    
+    
+    /**
+     * This is an alternative implementation of the put method for convenience.
+     * It will take a byte[] as the key instead of an EncDNSKey object.
+     * @param key public key of remote party
+     * @param value intermediate shared secret
+     */
+    public void put(byte[] key, byte[] value) {
+        this.put(new EncDNSKey(key), value);
+    }
+    
+    
+    public int size() {
+    	return _entries.size();
+    }
+    
+    
+    public long getHits() {
+    	long hits = 0;
+    	for (Segment segment:_segments)
+    		hits += segment.hits.get();
+    	return hits;
+    }
+    
+    
+    public long getMisses() {
+    	long misses = 0;
+    	for (Segment segment:_segments)
+    		misses += segment.misses.get();
+    	return misses;
+    }
+    
+    
+    public long getEvictions() {
+    	long evictions = 0;
+    	for (Segment segment:_segments)
+    		evictions += segment.evictions.get();
+    	return evictions;
+    }
+    
+    
+    /**
+     * Returns the ratio of lookups that did not require a calculation of the 
+     * shared secret.
+     */
+    public double getHitRatio() {
+    	long hits = getHits();
+    	long lookups = hits + getMisses();
+    	return lookups == 0 ? 0d : (double)hits / (double)lookups;
+    }
+    
+    
+    public String getStatistics() {
+    	return "size: " +size() +"/" +SIZE
+    			+", hit ratio: " +String.format("%.2f", getHitRatio() * 100d) +"%"
+    			+", hits: " +getHits()
+    			+", misses: " +getMisses()
+    			+", evictions: " +getEvictions();
+    }
+    
+    
+    private Segment segmentFor(EncDNSKey key) {
+    	int hash = key.hashCode();
+    	hash ^= (hash >>> 16); // the low bits are used by the ConcurrentHashMap as well
+    	return _segments[(hash >>> 8) & (_segments.length - 1)];
+    }
+    
+    
+    private static class Entry {
+    	
+    	private final EncDNSKey key;
+    	private final FutureTask<byte[]> secret;
+    	private volatile boolean referenced = false;
+    	
+    	
+    	private Entry(EncDNSKey key, FutureTask<byte[]> secret) {
+    		this.key = key;
+    		this.secret = secret;
+    	}
+    	
+    	
+    	private byte[] getSecret() {
+    		boolean interrupted = false;
+    		try {
+    			while (true) {
+    				try {
+    					return secret.get();
+    				} catch (InterruptedException e) {
+    					interrupted = true; // wait till calculation is finished
+    				}
+    			}
+    		} catch (ExecutionException e) {
+    			if (e.getCause() instanceof RuntimeException)
+    				throw (RuntimeException)e.getCause();
+    			throw new RuntimeException("ERROR: could not calculate shared secret", e.getCause());
+    		} finally {
+    			if (interrupted)
+    				Thread.currentThread().interrupt();
+    		}
+    	}
+    	
+    }
+    
+    
+    /**
+     * One part of the cache with its own CLOCK. Only insertions (and the 
+     * resulting evictions) are synchronized.
+     */
+    private class Segment {
+    	
+    	private final Entry[] clock;
+    	private int hand = 0;
+    	private final AtomicLong hits = new AtomicLong(0);
+    	private final AtomicLong misses = new AtomicLong(0);
+    	private final AtomicLong evictions = new AtomicLong(0);
+    	
+    	
+    	private Segment(int capacity) {
+    		this.clock = new Entry[capacity];
+    	}
+    	
+    	
+    	private synchronized void add(Entry entry) {
+    		while (true) {
+    			Entry candidate = clock[hand];
+    			if (candidate == null || !candidate.referenced) {
+    				if (candidate != null) {
+    					_entries.remove(candidate.key, candidate);
+    					evictions.incrementAndGet();
+    				}
+    				clock[hand] = entry;
+    				hand = (hand + 1) % clock.length;
+    				return;
+    			}
+    			candidate.referenced = false; // second chance
+    			hand = (hand + 1) % clock.length;
+    		}
+    	}
+    	
+    }
+    
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.sphinx_v0_001;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps a bounded supply of precomputed Sphinx headers (alpha, beta, gamma 
+ * and the shared secrets) per route, so that sending a message only requires 
+ * the encryption of the payload (see Sphinx.applyLayeredEncryption()). The 
+ * headers are computed by background threads (group exponentiations and 
+ * blinding factors).
+ * 
+ * The headers do not contain any client specific data (the address for the 
+ * last mix is random), so all clients of a VM (e.g. of the load generator) 
+ * share the same pool (see getInstance()).
+ * 
+ * The number of headers kept per route adapts to the demand: each miss 
+ * doubles the target fill level (max. HEADER_POOL_SIZE), each 
+ * 2*HEADER_POOL_SIZE hits in a row decrease it by 25%. Routes not used for 
+ * ROUTE_IDLE_TIMEOUT ms are removed (relevant for source routing).
+ */
+public class HeaderPrecomputationPool {
+	
+	private final static long ROUTE_IDLE_TIMEOUT = 60000;
+	private final static long REFILL_WAIT_TIMEOUT = 100;
+	
+	private static HeaderPrecomputationPool instance;
+	
+	private final Sphinx headerCreator;
+	private final int capacity;
+	private final ConcurrentHashMap<RouteKey, RouteEntry> routes = new ConcurrentHashMap<RouteKey, RouteEntry>();
+	private final Object refillSynchronizer = new Object();
+	private final PrecomputationThread[] precomputationThreads;
+	
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong precomputedHeaders = new AtomicLong(0);
+	private final AtomicLong discardedHeaders = new AtomicLong(0); // of removed routes
+	
+	
+	static class PrecomputedHeader {
+		
+		final byte[][] alpBetaGam;
+		final byte[][] secrets;
+		
+		
+		PrecomputedHeader(byte[][] alpBetaGam, byte[][] secrets) {
+			this.alpBetaGam = alpBetaGam;
+			this.secrets = secrets;
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the pool shared by all Sphinx clients of this VM (the first 
+	 * client creates and starts it).
+	 */
+	public static synchronized HeaderPrecomputationPool getInstance(Sphinx headerCreator, Sphinx_Config config) {
+		if (instance == null) {
+			instance = new HeaderPrecomputationPool(headerCreator, config.HEADER_POOL_SIZE, config.HEADER_PRECOMPUTATION_THREADS);
+			instance.start();
+		}
+		return instance;
+	}
+	
+	
+	private HeaderPrecomputationPool(Sphinx headerCreator, int capacity, int numberOfThreads) {
+		if (capacity < 1)
+			throw new RuntimeException("ERROR: HEADER_POOL_SIZE must be > 0"); 
+		this.headerCreator = headerCreator;
+		this.capacity = capacity;
+		if (numberOfThreads < 1)
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		this.precomputationThreads = new PrecomputationThread[numberOfThreads];
+		for (int i=0; i<numberOfThreads; i++)
+			precomputationThreads[i] = new PrecomputationThread();
+	}
+	
+	
+	private void start() {
+		for (int i=0; i<precomputationThreads.length; i++) {
+			precomputationThreads[i].setName("Sphinx header precomputation " +i);
+			precomputationThreads[i].setDaemon(true);
+			precomputationThreads[i].setPriority(Thread.MIN_PRIORITY);
+			precomputationThreads[i].start();
+		}
+	}
+	
+	
+	/**
+	 * Starts precomputing headers for the given route (before the first 
+	 * message is sent).
+	 */
+	public void register(int[] route) {
+		getRouteEntry(route, false);
+		wakeUpPrecomputationThreads();
+	}
+	
+	
+	/**
+	 * Returns a precomputed header for the given route (or computes a new 
+	 * one on the calling thread if none is available).
+	 */
+	public PrecomputedHeader take(int[] route) throws Exception {
+		RouteEntry routeEntry = getRouteEntry(route, true);
+		routeEntry.lastAccess = System.currentTimeMillis();
+		PrecomputedHeader header = routeEntry.headers.poll();
+		if (header != null) {
+			hits.incrementAndGet();
+			if (routeEntry.hitsInARow.incrementAndGet() >= 2*capacity) {
+				routeEntry.hitsInARow.set(0);
+				routeEntry.targetLevel = Math.max(1, routeEntry.targetLevel - (routeEntry.targetLevel/4));
+			}
+			if (routeEntry.headers.size() <= routeEntry.targetLevel/2)
+				wakeUpPrecomputationThreads();
+			return header;
+		} else {
+			misses.incrementAndGet();
+			routeEntry.hitsInARow.set(0);
+			routeEntry.targetLevel = Math.min(capacity, routeEntry.targetLevel*2);
+			wakeUpPrecomputationThreads();
+			return headerCreator.computeHeader(route);
+		}
+	}
+	
+	
+	private RouteEntry getRouteEntry(int[] route, boolean isInitiallyEmpty) {
+		RouteKey key = new RouteKey(route);
+		RouteEntry routeEntry = routes.get(key);
+		if (routeEntry == null) {
+			RouteEntry newEntry = new RouteEntry(key, isInitiallyEmpty ? 1 : Math.max(1, capacity/4));
+			routeEntry = routes.putIfAbsent(key, newEntry);
+			if (routeEntry == null)
+				routeEntry = newEntry;
+		}
+		return routeEntry;
+	}
+	
+	
+	private void wakeUpPrecomputationThreads() {
+		synchronized (refillSynchronizer) {
+			refillSynchronizer.notifyAll();
+		}
+	}
+	
+	
+	public long getHits() {
+		return hits.get();
+	}
+	
+	
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	
+	public long getNumberOfPrecomputedHeaders() {
+		return precomputedHeaders.get();
+	}
+	
+	
+	@Override
+	public String toString() {
+		long h = hits.get();
+		long m = misses.get();
+		return "HeaderPrecomputationPool: hits: " +h 
+				+", misses: " +m 
+				+" (hit rate: " +(h+m == 0 ? 0 : (h*100)/(h+m)) +" %)"
+				+", precomputed: " +precomputedHeaders.get()
+				+", discarded: " +discardedHeaders.get()
+				+", routes: " +routes.size();
+	}
+	
+	
+	private static class RouteKey {
+		
+		private final int[] route;
+		private final int hashCode;
+		
+		
+		private RouteKey(int[] route) {
+			this.route = route;
+			this.hashCode = Arrays.hashCode(route);
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof RouteKey && Arrays.equals(route, ((RouteKey)o).route);
+		}
+		
+	}
+	
+	
+	private class RouteEntry {
+		
+		private final RouteKey key;
+		private final ArrayBlockingQueue<PrecomputedHeader> headers = new ArrayBlockingQueue<PrecomputedHeader>(capacity);
+		private final AtomicInteger headersInProgress = new AtomicInteger(0);
+		private final AtomicInteger hitsInARow = new AtomicInteger(0);
+		private volatile int targetLevel;
+		private volatile long lastAccess = System.currentTimeMillis();
+		
+		
+		private RouteEntry(RouteKey key, int targetLevel) {
+			this.key = key;
+			this.targetLevel = targetLevel;
+		}
+		
+		
+		// fill level relative to the target level (1 = full)
+		private double getFillLevel() {
+			return (double)(headers.size() + headersInProgress.get()) / (double)targetLevel;
+		}
+		
+	}
+	
+	
+	private class PrecomputationThread extends Thread {
+		
+		@Override
+		public void run() {
+			while (true) {
+				RouteEntry routeEntry = chooseRoute();
+				if (routeEntry == null) {
+					synchronized (refillSynchronizer) {
+						try {
+							refillSynchronizer.wait(REFILL_WAIT_TIMEOUT);
+						} catch (InterruptedException e) {
+							e.printStackTrace();
+						}
+					}
+					continue;
+				}
+				try {
+					PrecomputedHeader header = headerCreator.computeHeader(routeEntry.key.route);
+					precomputedHeaders.incrementAndGet();
+					if (!routeEntry.headers.offer(header))
+						discardedHeaders.incrementAndGet(); // target level decreased in the meantime
+				} catch (Exception e) {
+					e.printStackTrace();
+				} finally {
+					routeEntry.headersInProgress.decrementAndGet();
+				}
+			}
+		}
+		
+		
+		/**
+		 * Returns the route with the lowest fill level (or null if all routes 
+		 * have reached their target level) and reserves a header for it.
+		 */
+		private RouteEntry chooseRoute() {
+			long now = System.currentTimeMillis();
+			RouteEntry emptiest = null;
+			double lowestFillLevel = 1d;
+			for (RouteEntry routeEntry: routes.values()) {
+				if (now - routeEntry.lastAccess > ROUTE_IDLE_TIMEOUT) {
+					if (routes.remove(routeEntry.key, routeEntry))
+						discardedHeaders.addAndGet(routeEntry.headers.size());
+					continue;
+				}
+				double fillLevel = routeEntry.getFillLevel();
+				if (fillLevel < lowestFillLevel) {
+					lowestFillLevel = fillLevel;
+					emptiest = routeEntry;
+				}
+			}
+			if (emptiest != null)
+				emptiest.headersInProgress.incrementAndGet();
+			return emptiest;
+		}
+		
+	}
+	
+}
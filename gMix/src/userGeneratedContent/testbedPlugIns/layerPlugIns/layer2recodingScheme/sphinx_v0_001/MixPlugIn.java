@@ -17,12 +17,18 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer2recodingScheme.sphinx_v0_001;
 
+import java.util.concurrent.ForkJoinPool;
+
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer2RecodingSchemeMix;
 import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.message.ExternalMessage.DummyStatus;
+import staticContent.framework.recodingEngine.RecodedMessageHandler;
+import staticContent.framework.recodingEngine.Recoder;
+import staticContent.framework.recodingEngine.RecoderFactory;
+import staticContent.framework.recodingEngine.RecodingEngine;
 import staticContent.framework.routing.RoutingMode;
 import staticContent.framework.userDatabase.User;
 
@@ -30,7 +36,7 @@ import staticContent.framework.userDatabase.User;
 public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix {
 
 	private Sphinx_Config config;
-	private RequestThread[] requestThreads;
+	private RecodingEngine<Request> requestEngine;
 	private Sphinx messageCreator;
 	
 	
@@ -40,15 +46,31 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 			throw new RuntimeException("not supported");
 		this.config = new Sphinx_Config(anonNode, false);
 		this.messageCreator = new Sphinx(anonNode, config);
-		this.requestThreads = new RequestThread[config.NUMBER_OF_THREADS];
-		//if (anonNode.IS_DUPLEX)
-		//	replyThreads = new ReplyThread[config.NUMBER_OF_THREADS];
-		for (int i=0; i<config.NUMBER_OF_THREADS; i++) {
-			Sphinx recodingScheme = new Sphinx(anonNode, config);
-			requestThreads[i] = new RequestThread(recodingScheme);
-			//if (anonNode.IS_DUPLEX)
-			//	replyThreads[i] = new ReplyThread(recodingScheme);
-		}
+		ForkJoinPool pool = RecodingEngine.createPool(config.NUMBER_OF_THREADS);
+		this.requestEngine = new RecodingEngine<Request>(
+				"Sphinx request recoding", 
+				anonNode.getRequestInputQueue(), 
+				new RecoderFactory<Request>() {
+					@Override
+					public Recoder<Request> createRecoder() {
+						final Sphinx recodingScheme = new Sphinx(anonNode, config);
+						recodingScheme.initAsRecoder();
+						return new Recoder<Request>() {
+							@Override
+							public Request recode(Request request) {
+								return recodingScheme.recodeMessage(request);
+							}
+						};
+					}
+				}, 
+				new RecodedMessageHandler<Request>() {
+					@Override
+					public void handle(Request request) {
+						outputStrategyLayerMix.addRequest(request);
+					}
+				}, 
+				pool, 
+				false);
 	}
 
 	
@@ -60,19 +82,13 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 			config.mixIdsSphinx = Arrays.copyOfRange(config.mixIdsSphinx, (anonNode.PUBLIC_PSEUDONYM +1), config.mixIdsSphinx.length); // TODO
 		}
 		config.NUMBER_OF_MIXES = config.publicKeysOfMixes.length;*/
-		for (int i=0; i<requestThreads.length; i++) {
-			requestThreads[i].recodingScheme.initAsRecoder();
-		}
+		// note: the recoders are created (and initialized) by the worker threads of the requestEngine
 	}
 	
 
 	@Override
 	public void begin() {
-		for (int i=0; i<requestThreads.length; i++) {
-			requestThreads[i].start();
-			//if (anonNode.IS_DUPLEX)
-			//	replyThreads[i].start();
-		}
+		requestEngine.start();
 	}
 
 	
@@ -128,28 +144,4 @@ public class MixPlugIn extends Implementation implements Layer2RecodingSchemeMix
 		return reply;*/
 	}
 
-	
-	class RequestThread extends Thread {
-		
-		Sphinx recodingScheme;
-		
-		public RequestThread(Sphinx recodingScheme) {
-			this.recodingScheme = recodingScheme;
-		}
-
-		
-		@Override
-		public void run() {
-			while (true) { // process messages
-				Request[] requests = anonNode.getFromRequestInputQueue();
-				for (int i=0; i<requests.length; i++) {
-					requests[i] = recodingScheme.recodeMessage(requests[i]);
-					if (requests[i] != null)
-						outputStrategyLayerMix.addRequest(requests[i]);
-				}
-			}
-		}
-		
-	}
-
 }
@@ -43,6 +43,7 @@ public class Sphinx {
 
 	private AnonNode owner;
 	private Sphinx_Config config;
+	private HeaderPrecomputationPool headerPool; // null if disabled (or not a client)
 	
 	private static SecureRandom secureRandom;
 	
@@ -52,6 +53,40 @@ public class Sphinx {
 		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
 		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
 	
+	/**
+	 * Cipher, MAC and digest instances of the calling thread. 
+	 * Cipher/Mac/MessageDigest.getInstance() is expensive and the instances 
+	 * are not thread-safe, so each (recoding) thread reuses its own instances 
+	 * instead of creating new ones for each message (or synchronizing).
+	 */
+	private static final ThreadLocal<CryptoPrimitives> cryptoPrimitives = new ThreadLocal<CryptoPrimitives>() {
+		@Override
+		protected CryptoPrimitives initialValue() {
+			return new CryptoPrimitives();
+		}
+	};
+	
+	
+	private static class CryptoPrimitives {
+		
+		private final Cipher aesCtr;
+		private final Mac hmacSha256;
+		private final MessageDigest sha256;
+		
+		
+		private CryptoPrimitives() {
+			try {
+				this.aesCtr = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+				this.hmacSha256 = Mac.getInstance("Hmac-SHA256", "BC");
+				this.sha256 = MessageDigest.getInstance("SHA-256", "BC");
+			} catch (Exception e) {
+				e.printStackTrace();
+				throw new RuntimeException("ERROR: could not init crypto primitives"); 
+			}
+		}
+		
+	}
+	
 	
 	public Sphinx(AnonNode owner, Sphinx_Config config) {
 		this.owner = owner;
@@ -68,7 +103,11 @@ public class Sphinx {
 	
 
 	public void initAsClient() {
-
+		if (config.HEADER_POOL_SIZE > 0) {
+			this.headerPool = HeaderPrecomputationPool.getInstance(this, config);
+			if (owner.ROUTING_MODE == RoutingMode.GLOBAL_ROUTING)
+				headerPool.register(owner.mixList.mixIDs);
+		}
 	}
 	
 	
@@ -77,7 +116,7 @@ public class Sphinx {
 	}
 	
 	
-	public synchronized Request applyLayeredEncryption(Request request) {
+	public Request applyLayeredEncryption(Request request) {
 		byte[] payload = request.getByteMessage();
 		if (payload == null) {
 			payload = new byte[0];
@@ -94,11 +133,12 @@ public class Sphinx {
 				route = owner.mixList.mixIDs;
 			else
 				route = request.route;
-			MixHeader header = new MixHeader(config, secureRandom, new Route(route, config));
-			byte[] addressForLastMix = new byte[config.SECURITY_PARAMETER_SIZE];
-			secureRandom.nextBytes(addressForLastMix);
-			addressForLastMix[0] = MixHeader.SPECIAL_DEST_PREFIX;
-			em.alpBetaGam = header.createHeader(addressForLastMix);
+			HeaderPrecomputationPool.PrecomputedHeader header;
+			if (headerPool != null)
+				header = headerPool.take(route);
+			else
+				header = computeHeader(route);
+			em.alpBetaGam = header.alpBetaGam;
 
 			byte[] body = Util.concatArrays(Sphinx.ZERO16, payload);
 			body = Sphinx.padBody(body, config);
@@ -107,12 +147,12 @@ public class Sphinx {
 			byte[][] deltas = new byte[config.ROUTE_LENGTH][];
 			
 			// delta v-1
-			byte[] delta = Sphinx.pi(Sphinx.hashPi(header.getSecret(config.ROUTE_LENGTH-1), config.SECURITY_PARAMETER_SIZE), body, config.SECURITY_PARAMETER_SIZE);
+			byte[] delta = Sphinx.pi(Sphinx.hashPi(header.secrets[config.ROUTE_LENGTH-1], config.SECURITY_PARAMETER_SIZE), body, config.SECURITY_PARAMETER_SIZE);
 			deltas[config.ROUTE_LENGTH-1] = delta;
 			
 			// deltas for 0<=i<v-1
 			for (int i=config.ROUTE_LENGTH-2; i>=0; i--) {
-				delta = Sphinx.pi(Sphinx.hashPi(header.getSecret(i), config.SECURITY_PARAMETER_SIZE), delta, config.SECURITY_PARAMETER_SIZE);
+				delta = Sphinx.pi(Sphinx.hashPi(header.secrets[i], config.SECURITY_PARAMETER_SIZE), delta, config.SECURITY_PARAMETER_SIZE);
 				deltas[i] = delta;
 			}
 			
@@ -127,6 +167,23 @@ public class Sphinx {
 	}
 
 	
+	/**
+	 * Computes the header (alpha, beta, gamma) and the shared secrets for the 
+	 * given route (independent of the payload; see HeaderPrecomputationPool).
+	 */
+	HeaderPrecomputationPool.PrecomputedHeader computeHeader(int[] route) throws Exception {
+		MixHeader header = new MixHeader(config, secureRandom, new Route(route, config));
+		byte[] addressForLastMix = new byte[config.SECURITY_PARAMETER_SIZE];
+		secureRandom.nextBytes(addressForLastMix);
+		addressForLastMix[0] = MixHeader.SPECIAL_DEST_PREFIX;
+		byte[][] alpBetaGam = header.createHeader(addressForLastMix);
+		byte[][] secrets = new byte[config.ROUTE_LENGTH][];
+		for (int i=0; i<config.ROUTE_LENGTH; i++)
+			secrets[i] = header.getSecret(i);
+		return new HeaderPrecomputationPool.PrecomputedHeader(alpBetaGam, secrets);
+	}
+	
+	
 	public int getMaxPayloadForNextMessage() {
 		return config.MAX_PAYLOAD;
 	}
@@ -205,7 +262,7 @@ public class Sphinx {
 	}
 
 
-	public synchronized Request recodeMessage(Request message) {
+	public Request recodeMessage(Request message) {
 		try {
 			EncryptedMessage msg = new EncryptedMessage(message, config);
 			// System.out.println("processing at " + new String(Hex.encode(_name)));
@@ -331,7 +388,7 @@ public class Sphinx {
 		byte[] prg = null;
 		SecretKey secret = new SecretKeySpec(key, "AES");
 
-		Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+		Cipher cipher = cryptoPrimitives.get().aesCtr;
 		cipher.init(Cipher.ENCRYPT_MODE, secret, new IvParameterSpec(ZERO16));
 
 		prg = cipher.doFinal(zeros);
@@ -356,7 +413,7 @@ public class Sphinx {
 	public static byte[] mu(byte[] key, byte[] data, int _k) throws Exception {
 		byte[] out = null;
 		SecretKey secret = new SecretKeySpec(key, "Hmac-SHA256");
-		Mac mac = Mac.getInstance("Hmac-SHA256", "BC");
+		Mac mac = cryptoPrimitives.get().hmacSha256;
 		mac.init(secret);
 		out = mac.doFinal(data);
 		return Arrays.copyOf(out, _k);
@@ -403,7 +460,7 @@ public class Sphinx {
 	 */
 	public static byte[] hash(byte[] data) throws Exception {
 		byte[] hash = null;
-		MessageDigest md = MessageDigest.getInstance("SHA-256", "BC");
+		MessageDigest md = cryptoPrimitives.get().sha256;
 		hash = md.digest(data);
 		return hash;
 	}
@@ -425,7 +482,7 @@ public class Sphinx {
 		byte[] k2 = xor(Arrays.copyOf(r1, _k), key);
 		byte[] r2 = null;
 		{
-			Cipher c = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+			Cipher c = cryptoPrimitives.get().aesCtr;
 			c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k2, "AES"),
 					new IvParameterSpec(ZERO16));
 			r2 = Util.concatArrays(Arrays.copyOf(r1, _k),
@@ -442,7 +499,7 @@ public class Sphinx {
 		byte[] k4 = xor(Arrays.copyOf(r3, _k), key);
 		byte[] r4 = null;
 		{
-			Cipher c = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+			Cipher c = cryptoPrimitives.get().aesCtr;
 			c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k4, "AES"),
 					new IvParameterSpec(ZERO16));
 			r4 = Util.concatArrays(Arrays.copyOf(r3, _k),
@@ -458,7 +515,7 @@ public class Sphinx {
 		byte[] k4 = xor(Arrays.copyOf(r4, _k), key);
 		byte[] r3 = null;
 		{
-			Cipher c = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+			Cipher c = cryptoPrimitives.get().aesCtr;
 			c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k4, "AES"),
 					new IvParameterSpec(ZERO16));
 			r3 = Util.concatArrays(Arrays.copyOf(r4, _k),
@@ -476,7 +533,7 @@ public class Sphinx {
 		byte[] k2 = xor(Arrays.copyOf(r2, _k), key);
 		byte[] r1 = null;
 		{
-			Cipher c = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+			Cipher c = cryptoPrimitives.get().aesCtr;
 			c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k2, "AES"),
 					new IvParameterSpec(ZERO16));
 			r1 = Util.concatArrays(Arrays.copyOf(r2, _k),
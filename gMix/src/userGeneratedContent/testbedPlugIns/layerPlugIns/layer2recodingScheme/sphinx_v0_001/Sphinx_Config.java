@@ -47,6 +47,8 @@ public class Sphinx_Config {
 	
 	public String PRNG_ALGORITHM;
 	public int NUMBER_OF_THREADS;
+	public int HEADER_POOL_SIZE; // max. number of precomputed headers per route (0 = no precomputation)
+	public int HEADER_PRECOMPUTATION_THREADS;
 	
 	public ReplayDetectionBasic replayDetection;
 	public HashMap<String, ReplyData> replyDataTable;
@@ -94,6 +96,8 @@ public class Sphinx_Config {
 				e.printStackTrace();
 				throw new RuntimeException("could not post id"); 
 			}
+			this.HEADER_POOL_SIZE = !settings.isPropertyPresent("HEADER_POOL_SIZE") ? 0 : settings.getPropertyAsInt("HEADER_POOL_SIZE");
+			this.HEADER_PRECOMPUTATION_THREADS = !settings.isPropertyPresent("HEADER_PRECOMPUTATION_THREADS") ? 1 : settings.getPropertyAsInt("HEADER_PRECOMPUTATION_THREADS");
 			loadPlubicKeysOfMixes(owner);
 		} else { // mix
 			byte[][] keyPair = Sphinx.generateKeyPair(this);
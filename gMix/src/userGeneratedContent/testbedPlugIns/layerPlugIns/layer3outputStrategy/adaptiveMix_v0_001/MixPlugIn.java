@@ -40,10 +40,12 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	private int CHECK_INTERVAL;
 	private Object synchronizer = new Object();
 	private Layer2RecodingSchemeMix recodingScheme;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		if (anonNode.ROUTING_MODE != RoutingMode.GLOBAL_ROUTING)
 			throw new RuntimeException("this plugin requires cascade (GLOBAL_ROUTING) routing mode"); 
 		if (!anonNode.IS_DUPLEX)
@@ -72,9 +74,9 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	@Override
 	public void addRequest(Request request) {
 		if (anonNode.IS_LAST_MIX) {
-			if (request.getOwner().getAttachment(this, UserData.class) == null) {
+			if (request.getOwner().getAttachment(attachmentSlot) == null) {
 				synchronized (synchronizer) {
-					UserData userData = new UserData(request.getOwner(), this);
+					UserData userData = new UserData(request.getOwner());
 					connectedUsers.add(userData);
 				}
 			}
@@ -88,7 +90,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		synchronized (synchronizer) {
 			// just store all replies and send the maximum number of reply-bytes available (for a single user) every x ms to all users...
 			// note: we will create mix messages etc in the "DecisionThread"
-			UserData userData = user.getAttachment(this, UserData.class);
+			UserData userData = user.getAttachment(attachmentSlot);
 			userData.addReplyBlock(data);
 		}
 	}
@@ -175,8 +177,8 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		private int totalSize = 0;
 		
 		
-		public UserData(User owner, Object callingInstance) {
-			super(owner, callingInstance);
+		public UserData(User owner) {
+			super(owner, attachmentSlot);
 			this.replyQueue = new Vector<byte[]>(100);
 		}
 		
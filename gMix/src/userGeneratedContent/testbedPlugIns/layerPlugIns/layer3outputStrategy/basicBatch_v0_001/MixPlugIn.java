@@ -17,28 +17,27 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.basicBatch_v0_001;
 
-import java.util.Arrays;
-
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
 import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.ConcurrentBatch;
 
 
 public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix {
 
-	private SimplexBatch requestBatch;
-	private SimplexBatch replyBatch;
+	private ConcurrentBatch<Request> requestBatch;
+	private ConcurrentBatch<Reply> replyBatch;
 	private int BATCH_SIZE;
 	
 	
 	@Override
 	public void constructor() {
 		this.BATCH_SIZE = settings.getPropertyAsInt("BASIC_BATCH_BATCH_SIZE");
-		this.requestBatch = new SimplexBatch(true);
-		this.replyBatch = new SimplexBatch(false);
+		this.requestBatch = new ConcurrentBatch<Request>(Request.class, BATCH_SIZE);
+		this.replyBatch = new ConcurrentBatch<Reply>(Reply.class, BATCH_SIZE);
 	}
 
 	
@@ -56,45 +55,17 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	
 	@Override
 	public void addRequest(Request request) {
-		requestBatch.addMessage(request);
+		Request[] batch = requestBatch.add(request); // note: no locking
+		if (batch != null) // batch complete (and shuffled)
+			anonNode.putOutRequests(batch);
 	}
 
 
 	@Override
 	public void addReply(Reply reply) {
-		replyBatch.addMessage(reply);
-	}
-	
-	
-	public class SimplexBatch {
-		
-		private boolean isRequestBatch;
-		private MixMessage[] collectedMessages;
-		private int nextFreeSlot = -1;
-		
-		
-		public SimplexBatch(boolean isRequestBatch) {
-			this.isRequestBatch = isRequestBatch;
-			this.collectedMessages = isRequestBatch ? new Request[BATCH_SIZE]: new Reply[BATCH_SIZE];	
-		}
-		
-		
-		public synchronized void addMessage(MixMessage mixMessage) {
-			nextFreeSlot++;
-			if (nextFreeSlot == BATCH_SIZE) {
-				Arrays.sort(collectedMessages);
-				if (isRequestBatch) {
-					for (MixMessage request: collectedMessages)
-						anonNode.putOutRequest((Request) request);
-				} else {
-					for (MixMessage reply: collectedMessages)
-						anonNode.putOutReply((Reply) reply);
-				}
-				this.collectedMessages = isRequestBatch ? new Request[BATCH_SIZE]: new Reply[BATCH_SIZE];
-				nextFreeSlot = 0;
-			}
-			collectedMessages[nextFreeSlot] = mixMessage;
-		}
+		Reply[] batch = replyBatch.add(reply);
+		if (batch != null)
+			anonNode.putOutReplies(batch);
 	}
 	
 	
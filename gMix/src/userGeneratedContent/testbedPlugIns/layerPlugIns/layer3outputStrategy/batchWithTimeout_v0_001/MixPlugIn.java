@@ -17,7 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.batchWithTimeout_v0_001;
 
-import java.util.Collections;
+import java.security.SecureRandom;
 import java.util.Vector;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledFuture;
@@ -30,6 +30,7 @@ import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.ConcurrentBatch;
 
 
 //Dingledine 2002: Timed Mix
@@ -85,6 +86,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		private volatile long lastOutput;
 		private ScheduledThreadPoolExecutor scheduler;
 		private ScheduledFuture<?> currentTimer;
+		private SecureRandom random = new SecureRandom(); // output order
 		
 		
 		public SimplexBatchWithTimeout(boolean isRequestBatch) {
@@ -108,13 +110,16 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		
 		public void putOutMessages() {
 			synchronized (this) {
-				Collections.sort(collectedMessages);
-				if (isRequestBatch) {
-					for (MixMessage m: collectedMessages)
-						anonNode.putOutRequest((Request)m);
+				if (collectedMessages.size() == 0) {
+					// nothing to do
+				} else if (isRequestBatch) {
+					Request[] batch = collectedMessages.toArray(new Request[collectedMessages.size()]);
+					ConcurrentBatch.shuffle(batch, batch.length, random);
+					anonNode.putOutRequests(batch);
 				} else {
-					for (MixMessage m: collectedMessages)
-						anonNode.putOutReply((Reply)m);
+					Reply[] batch = collectedMessages.toArray(new Reply[collectedMessages.size()]);
+					ConcurrentBatch.shuffle(batch, batch.length, random);
+					anonNode.putOutReplies(batch);
 				}
 				this.collectedMessages = new Vector<MixMessage>(BATCH_SIZE);
 				if (currentTimer != null)
@@ -18,7 +18,6 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.binomialPool_v0_001;
 
 import java.security.SecureRandom;
-import java.util.Vector;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -31,6 +30,7 @@ import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.RandomRemovalPool;
 
 
 //Diaz 2003 ("Generalising Mixes")
@@ -88,15 +88,15 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	public class SimplexBinomialPool implements Runnable {
 
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
 		private NormalDistributionImpl normalDist;
 		private ScheduledThreadPoolExecutor scheduler;
 		
 		
 		public SimplexBinomialPool(	boolean isRequestPool) {
-			this.collectedMessages = new Vector<MixMessage>(DEFAULT_POOL_SIZE);
 			this.isRequestPool = isRequestPool;
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(isRequestPool ? Request.class : Reply.class, DEFAULT_POOL_SIZE, secureRandom);
 			this.scheduler = new ScheduledThreadPoolExecutor(1);
 			this.normalDist = new NormalDistributionImpl(MEAN, STDDEV);
 			this.normalDist.reseedRandomGenerator(secureRandom.nextLong());
@@ -118,15 +118,12 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 			synchronized (this) {
 				try {
 					double coinBias = MAX_OUTPUT_FRACTION * normalDist.cumulativeProbability(collectedMessages.size());
-					for (int i=0; i<collectedMessages.size(); i++) {
-						MixMessage m = collectedMessages.get(i);
-						if (secureRandom.nextDouble() <= coinBias) {
-							if (isRequestPool)
-								anonNode.putOutRequest((Request)m);
-							else
-								anonNode.putOutReply((Reply)m);
-							collectedMessages.remove(i--);
-						}
+					MixMessage[] chosen = collectedMessages.removeEachWithProbability(coinBias);
+					if (chosen.length > 0) {
+						if (isRequestPool)
+							anonNode.putOutRequests((Request[])chosen);
+						else
+							anonNode.putOutReplies((Reply[])chosen);
 					}
 				} catch (MathException e) {
 					throw new RuntimeException("ERROR: problem with generating the biased coin! " +e.getStackTrace()); 
@@ -19,14 +19,15 @@ package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.co
 
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
 import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
+import staticContent.framework.timingWheel.ExpirationHandler;
+import staticContent.framework.timingWheel.TimingWheel;
 import staticContent.framework.userDatabase.User;
 
 
@@ -35,8 +36,8 @@ import staticContent.framework.userDatabase.User;
 public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix {
 
 	private static SecureRandom secureRandom;
-	private Timer requestTimer = new Timer();
-	private Timer replyTimer = new Timer();
+	private TimingWheel<Request> requestTimer;
+	private TimingWheel<Reply> replyTimer;
 	private int maxDelay;
 	
 	
@@ -49,6 +50,19 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 			throw new RuntimeException("could not init secureRandom"); 
 		}
 		this.maxDelay = settings.getPropertyAsInt("COTTRELL_RANDOM_DELAY_MAX_DELAY");
+		// all messages expiring in the same tick are put out together
+		this.requestTimer = new TimingWheel<Request>("CottrellRandomDelay request timer", new ExpirationHandler<Request>() {
+			@Override
+			public void expired(List<Request> requests) {
+				anonNode.putOutRequests(requests.toArray(new Request[requests.size()]));
+			}
+		});
+		this.replyTimer = new TimingWheel<Reply>("CottrellRandomDelay reply timer", new ExpirationHandler<Reply>() {
+			@Override
+			public void expired(List<Reply> replies) {
+				anonNode.putOutReplies(replies.toArray(new Reply[replies.size()]));
+			}
+		});
 	}
 	
 	
@@ -66,17 +80,13 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	
 	@Override
 	public void addRequest(Request request) {
-		synchronized (requestTimer) {
-			requestTimer.schedule(new SendMessageTask(request), getRandomDelay());
-		}
+		requestTimer.schedule(request, getRandomDelay());
 	}
 
 	
 	@Override
 	public void addReply(Reply reply) {
-		synchronized (replyTimer) {
-			replyTimer.schedule(new SendMessageTask(reply), getRandomDelay());
-		}
+		replyTimer.schedule(reply, getRandomDelay());
 	}
 
 	
@@ -85,42 +95,6 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	}
 	
 	
-	private final class SendMessageTask extends TimerTask {
-
-		private Request request;
-		private Reply reply;
-		private boolean isRequest;
-		
-		
-		protected SendMessageTask(Request request) {
-			this.request = request;
-			this.isRequest = true;
-		}
-		
-		
-		protected SendMessageTask(Reply reply) {
-			this.reply = reply;
-			this.isRequest = false;
-		}
-		
-		
-		@Override 
-		public void run() {
-			if (isRequest) {
-				synchronized (requestTimer) {
-					anonNode.putOutRequest(request);
-				}
-			} else {
-				synchronized (replyTimer) {
-					anonNode.putOutReply(reply);
-				}
-			}
-			
-		}
-			
-	}
-
-	
 	@Override
 	public int getMaxSizeOfNextWrite() {
 		return super.recodingLayerMix.getMaxSizeOfNextReply();
@@ -21,7 +21,6 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.Vector;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
@@ -29,6 +28,7 @@ import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.RandomRemovalPool;
 
 
 //Cottrell 1995 ("Mixmaster & Remailer Attacks")
@@ -85,14 +85,14 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	public class SimplexCottrellTimedPool {
 
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
 		private Timer timer = new Timer();
 		
 		
 		public SimplexCottrellTimedPool(boolean isRequestPool) {
-			this.collectedMessages = new Vector<MixMessage>(settings.getPropertyAsInt("COTTRELL_TIMED_POOL_DEFAULT_POOL_SIZE"));
 			this.isRequestPool = isRequestPool;
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(isRequestPool ? Request.class : Reply.class, settings.getPropertyAsInt("COTTRELL_TIMED_POOL_DEFAULT_POOL_SIZE"), secureRandom);
 		}
 		
 		
@@ -111,13 +111,11 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 			synchronized (this) {
 				int numberOfMessagesToPutOut = collectedMessages.size() - MIN_POOL_SIZE;
 				if (numberOfMessagesToPutOut > 0) {
-					for (int i=0; i<numberOfMessagesToPutOut; i++) {
-						int chosen = secureRandom.nextInt(collectedMessages.size());
-						if (isRequestPool)
-							anonNode.putOutRequest((Request)collectedMessages.remove(chosen));
-						else
-							anonNode.putOutReply((Reply)collectedMessages.remove(chosen));
-					}
+					MixMessage[] chosen = collectedMessages.removeRandom(numberOfMessagesToPutOut);
+					if (isRequestPool)
+						anonNode.putOutRequests((Request[])chosen);
+					else
+						anonNode.putOutReplies((Reply[])chosen);
 				}
 			}		
 		}
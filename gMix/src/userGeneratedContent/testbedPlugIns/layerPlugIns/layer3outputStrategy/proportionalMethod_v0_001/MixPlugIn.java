@@ -37,11 +37,12 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	private SimplexPmPool replyPool;
 	private int POOL_SIZE;
 	private int DEFAULT_QUEUE_SIZE;
-	private Object attachmentKey = new Object();
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		this.POOL_SIZE = settings.getPropertyAsInt("PROPORTIONAL_METHOD_POOL_SIZE");
 		this.DEFAULT_QUEUE_SIZE = settings.getPropertyAsInt("PROPORTIONAL_METHOD_DEFAULT_QUEUE_SIZE");
 		this.requestPool = new SimplexPmPool(true);
@@ -69,7 +70,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		
 		
 		private UserData(User owner) {
-			super(owner, attachmentKey);
+			super(owner, attachmentSlot);
 			this.requestQueue = new Vector<Request>(DEFAULT_QUEUE_SIZE);
 			if (anonNode.IS_DUPLEX)
 				this.replyQueue = new Vector<Reply>(DEFAULT_QUEUE_SIZE);
@@ -80,7 +81,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	
 	@Override
 	public void addRequest(Request request) {
-		UserData userData = request.getOwner().getAttachment(attachmentKey, UserData.class);
+		UserData userData = request.getOwner().getAttachment(attachmentSlot);
 		if (userData == null) // first message of this user
 			userData = new UserData(request.getOwner());
 		userData.requestQueue.add(request);
@@ -90,7 +91,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	
 	@Override
 	public void addReply(Reply reply) {
-		UserData userData = reply.getOwner().getAttachment(attachmentKey, UserData.class);
+		UserData userData = reply.getOwner().getAttachment(attachmentSlot);
 		assert userData != null;
 		userData.replyQueue.add(reply);
 		replyPool.addMessage(userData);
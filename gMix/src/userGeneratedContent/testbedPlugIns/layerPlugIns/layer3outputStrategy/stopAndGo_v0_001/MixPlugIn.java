@@ -17,14 +17,15 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.stopAndGo_v0_001;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
 import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
+import staticContent.framework.timingWheel.ExpirationHandler;
+import staticContent.framework.timingWheel.TimingWheel;
 import staticContent.framework.userDatabase.User;
 
 
@@ -32,7 +33,8 @@ import staticContent.framework.userDatabase.User;
 public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix {
 
 	private boolean useTimeStamps;
-	private Timer timer = new Timer();
+	private TimingWheel<Request> requestTimer;
+	private TimingWheel<Reply> replyTimer;
 	private Helper helper;
 	
 	
@@ -40,6 +42,19 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	public void constructor() {
 		this.useTimeStamps = settings.getPropertyAsBoolean("STOP_AND_GO_USE_TIMESTAMPS");
 		this.helper = new Helper(settings, clock);
+		// all messages expiring in the same tick are put out together
+		this.requestTimer = new TimingWheel<Request>("StopAndGo request timer", new ExpirationHandler<Request>() {
+			@Override
+			public void expired(List<Request> requests) {
+				anonNode.putOutRequests(requests.toArray(new Request[requests.size()]));
+			}
+		});
+		this.replyTimer = new TimingWheel<Reply>("StopAndGo reply timer", new ExpirationHandler<Reply>() {
+			@Override
+			public void expired(List<Reply> replies) {
+				anonNode.putOutReplies(replies.toArray(new Reply[replies.size()]));
+			}
+		});
 	}
 
 	
@@ -58,26 +73,24 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	@Override
 	public void addRequest(Request request) {
 		TimestampHeader header = new TimestampHeader(request.headers[0]);
-		synchronized (timer) {
+		if (useTimeStamps) {
 			long now = clock.getTime();
-			if (useTimeStamps)
-				if (now < header.tsMin || now > header.tsMax)
-					return;
-			timer.schedule(new SendMessageTask((MixMessage)request), header.delay);
+			if (now < header.tsMin || now > header.tsMax)
+				return;
 		}
+		requestTimer.schedule(request, header.delay);
 	}
 
 
 	@Override
 	public void addReply(Reply reply) {
 		TimestampHeader header = new TimestampHeader(reply.headers[0]);
-		synchronized (timer) {
+		if (useTimeStamps) {
 			long now = clock.getTime();
-			if (useTimeStamps)
-				if (now < header.tsMin || now > header.tsMax)
-					return;
-			timer.schedule(new SendMessageTask((MixMessage)reply), header.delay);
+			if (now < header.tsMin || now > header.tsMax)
+				return;
 		}
+		replyTimer.schedule(reply, header.delay);
 	}
 	
 	
@@ -93,28 +106,6 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	}
 	
 	
-	private final class SendMessageTask extends TimerTask {
-
-		private MixMessage relatedMessage;
-		
-		protected SendMessageTask(MixMessage mixMessage) {
-			assert mixMessage != null;
-			this.relatedMessage = mixMessage;
-		}
-		
-		@Override 
-		public void run() {
-			synchronized (timer) {
-				if (relatedMessage instanceof Request)
-					anonNode.putOutRequest((Request)relatedMessage);
-				else
-					anonNode.putOutReply((Reply)relatedMessage);
-			}
-		}
-			
-	}
-
-
 	@Override
 	public void write(User user, byte[] data) {
 		Reply reply = MixMessage.getInstanceReply(data, user); 
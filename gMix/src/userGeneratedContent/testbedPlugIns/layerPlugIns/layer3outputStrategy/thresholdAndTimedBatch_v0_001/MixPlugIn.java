@@ -17,7 +17,7 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.thresholdAndTimedBatch_v0_001;
 
-import java.util.Collections;
+import java.security.SecureRandom;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.Vector;
@@ -28,6 +28,7 @@ import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.ConcurrentBatch;
 
 
 //Dingledine 2002: Timed Mix
@@ -79,6 +80,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		private boolean isRequestBatch;
 		private Vector<MixMessage> collectedMessages;
 		private Timer timer = new Timer();
+		private SecureRandom random = new SecureRandom(); // output order
 		
 		
 		public SimplexThresholdAndTimedBatch(boolean isRequestBatch) {
@@ -101,13 +103,14 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 					return;
 				if (isRequestBatch)
 					System.out.println("putting out " +collectedMessages.size() +" messages"); // TODO: remove
-				Collections.sort(collectedMessages);
 				if (isRequestBatch) {
-					for (MixMessage request: collectedMessages)
-						anonNode.putOutRequest((Request) request);
+					Request[] batch = collectedMessages.toArray(new Request[collectedMessages.size()]);
+					ConcurrentBatch.shuffle(batch, batch.length, random);
+					anonNode.putOutRequests(batch);
 				} else {
-					for (MixMessage reply: collectedMessages)
-						anonNode.putOutReply((Reply) reply);
+					Reply[] batch = collectedMessages.toArray(new Reply[collectedMessages.size()]);
+					ConcurrentBatch.shuffle(batch, batch.length, random);
+					anonNode.putOutReplies(batch);
 				}
 				this.collectedMessages = new Vector<MixMessage>(BATCH_SIZE);
 			}
@@ -17,10 +17,8 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.thresholdOrTimedBatch_v0_001;
 
-import java.util.Collections;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.Vector;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
@@ -28,6 +26,7 @@ import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.ConcurrentBatch;
 
 
 //Dingledine 2002: Timed Mix
@@ -78,41 +77,37 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	public class SimplexThresholdOrTimedBatch {
 
 		private boolean isRequestBatch;
-		private Vector<MixMessage> collectedMessages;
+		private ConcurrentBatch<MixMessage> collectedMessages;
 		private Timer timer = new Timer();
 		
 		
 		public SimplexThresholdOrTimedBatch(boolean isRequestBatch) {
-			this.collectedMessages = new Vector<MixMessage>(BATCH_SIZE);
+			this.collectedMessages = new ConcurrentBatch<MixMessage>(isRequestBatch ? Request.class : Reply.class, BATCH_SIZE);
 			this.isRequestBatch = isRequestBatch;
 			this.timer.scheduleAtFixedRate(new TimeoutTask(this), SENDING_RATE, SENDING_RATE);
 		}
 		
 		
 		public void addMessage(MixMessage mixMessage) {
-			synchronized (this) {
-				collectedMessages.add(mixMessage);
-				if (collectedMessages.size() == BATCH_SIZE)
-					putOutMessages();
-				
-			}
+			MixMessage[] batch = collectedMessages.add(mixMessage); // note: no locking
+			if (batch != null) // threshold reached
+				putOutMessages(batch);
 		}
 
 		
 		public void putOutMessages() {
-			synchronized (this) {
-				if (collectedMessages.size() > 0) {
-					Collections.sort(collectedMessages);
-					if (isRequestBatch) {
-						for (MixMessage request: collectedMessages)
-							anonNode.putOutRequest((Request) request);
-					} else {
-						for (MixMessage reply: collectedMessages)
-							anonNode.putOutReply((Reply) reply);
-					}
-					this.collectedMessages = new Vector<MixMessage>(BATCH_SIZE);
-				}
-			}	
+			MixMessage[] batch = collectedMessages.flush();
+			if (batch != null)
+				putOutMessages(batch);
+		}
+		
+		
+		// "batch" is already shuffled (see ConcurrentBatch)
+		private void putOutMessages(MixMessage[] batch) {
+			if (isRequestBatch)
+				anonNode.putOutRequests((Request[])batch);
+			else
+				anonNode.putOutReplies((Reply[])batch);
 		}
 	
 		
@@ -18,7 +18,6 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.thresholdPool_v0_001;
 
 import java.security.SecureRandom;
-import java.util.Vector;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
@@ -26,6 +25,7 @@ import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.RandomRemovalPool;
 
 
 //Dingledine 2002:
@@ -80,13 +80,13 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	public class SimplexTresholdPool {
 		
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private int numberOfMessagesToPutOut;
 		
 		
 		public SimplexTresholdPool(boolean isRequestPool) {
-			this.collectedMessages = new Vector<MixMessage>(MIN_POOL_SIZE*2);
 			this.isRequestPool = isRequestPool;
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(isRequestPool ? Request.class : Reply.class, THRESHOLD, secureRandom);
 			this.numberOfMessagesToPutOut = THRESHOLD - MIN_POOL_SIZE;
 		}
 		
@@ -99,14 +99,11 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		
 		
 		public void putOutMessages() {
-			for (int i=0; i<numberOfMessagesToPutOut; i++) {
-				int chosen = secureRandom.nextInt(collectedMessages.size());
-				if (isRequestPool)
-					anonNode.putOutRequest((Request)collectedMessages.remove(chosen));
-				else
-					anonNode.putOutReply((Reply)collectedMessages.remove(chosen));
-			}
-			collectedMessages.clear();
+			MixMessage[] chosen = collectedMessages.removeRandom(numberOfMessagesToPutOut); // the other MIN_POOL_SIZE messages are retained
+			if (isRequestPool)
+				anonNode.putOutRequests((Request[])chosen);
+			else
+				anonNode.putOutReplies((Reply[])chosen);
 		}
 	}
 
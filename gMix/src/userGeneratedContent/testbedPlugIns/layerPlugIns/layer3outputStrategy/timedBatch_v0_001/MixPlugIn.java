@@ -18,8 +18,7 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.timedBatch_v0_001;
 
 import java.util.Collections;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
 import java.util.Vector;
 
 import staticContent.framework.controller.Implementation;
@@ -27,6 +26,8 @@ import staticContent.framework.interfaces.Layer3OutputStrategyMix;
 import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
+import staticContent.framework.timingWheel.ExpirationHandler;
+import staticContent.framework.timingWheel.TimingWheel;
 import staticContent.framework.userDatabase.User;
 
 
@@ -38,11 +39,19 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	private SimplexTimedBatch replyBatch;
 	private int SENDING_RATE;
 	private int DEFAULT_BATCH_SIZE;
+	private TimingWheel<SimplexTimedBatch> timer;
 	
 	@Override
 	public void constructor() {
 		this.SENDING_RATE = settings.getPropertyAsInt("TIMED_BATCH_SENDING_RATE");
 		this.DEFAULT_BATCH_SIZE = settings.getPropertyAsInt("TIMED_BATCH_DEFAULT_BATCH_SIZE");
+		this.timer = new TimingWheel<SimplexTimedBatch>("TimedBatch timer", new ExpirationHandler<SimplexTimedBatch>() {
+			@Override
+			public void expired(List<SimplexTimedBatch> batches) {
+				for (SimplexTimedBatch batch: batches)
+					batch.putOutMessages();
+			}
+		});
 		this.requestBatch = new SimplexTimedBatch(true);
 		this.replyBatch = new SimplexTimedBatch(false);
 	}
@@ -77,7 +86,6 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		private boolean isRequestPool;
 		private Vector<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
-		private Timer timer = new Timer();
 		
 		
 		public SimplexTimedBatch(boolean isRequestPool) {
@@ -87,10 +95,10 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		
 		
 		public void addMessage(MixMessage mixMessage) {
-			synchronized (timer) {
+			synchronized (this) {
 				if (isFirstMessage) {
 					isFirstMessage = false;
-					timer.scheduleAtFixedRate(new TimeoutTask(this), SENDING_RATE, SENDING_RATE);
+					timer.scheduleAtFixedRate(this, SENDING_RATE, SENDING_RATE);
 				}
 				collectedMessages.add(mixMessage);
 			}
@@ -98,39 +106,17 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 
 		
 		public void putOutMessages() {
-			synchronized (timer) {
+			synchronized (this) {
 				if (collectedMessages.size() > 0) {
 					Collections.sort(collectedMessages);
-					if (isRequestPool) {
-						for (MixMessage m: collectedMessages)
-							anonNode.putOutRequest((Request)m);
-					} else {
-						for (MixMessage m: collectedMessages)
-							anonNode.putOutReply((Reply)m);
-					}/*if (isRequestPool)
-						anonNode.putOutRequests(collectedMessages.toArray(new Request[0]));
+					if (isRequestPool)
+						anonNode.putOutRequests(collectedMessages.toArray(new Request[collectedMessages.size()]));
 					else
-						anonNode.putOutReplies(collectedMessages.toArray(new Reply[0]));*/
+						anonNode.putOutReplies(collectedMessages.toArray(new Reply[collectedMessages.size()]));
 					this.collectedMessages = new Vector<MixMessage>(DEFAULT_BATCH_SIZE);
 				}
 			}	
 		}
-	
-		
-		private final class TimeoutTask extends TimerTask {
-
-			private SimplexTimedBatch linkedBatch;
-			
-			protected TimeoutTask(SimplexTimedBatch linkedBatch) {
-				this.linkedBatch = linkedBatch;
-			}
-			
-			@Override 
-			public void run() {
-				linkedBatch.putOutMessages();
-			}
-			
-		}
 			
 	}
 	
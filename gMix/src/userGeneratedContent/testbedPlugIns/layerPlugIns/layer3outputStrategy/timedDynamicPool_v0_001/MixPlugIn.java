@@ -19,16 +19,17 @@ package userGeneratedContent.testbedPlugIns.layerPlugIns.layer3outputStrategy.ti
 
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.Vector;
+import java.util.List;
 
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer3OutputStrategyMix;
 import staticContent.framework.message.MixMessage;
 import staticContent.framework.message.Reply;
 import staticContent.framework.message.Request;
+import staticContent.framework.timingWheel.ExpirationHandler;
+import staticContent.framework.timingWheel.TimingWheel;
 import staticContent.framework.userDatabase.User;
+import staticContent.framework.util.RandomRemovalPool;
 
 
 /**
@@ -82,6 +83,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	private int MIX_INTERVAL;
 	private int POOL_SIZE;
 	private double MAX_REPLACEMENT_RATE;
+	private TimingWheel<SimplexTimedDynamicPool> timer;
 
 	
 	@Override
@@ -90,14 +92,21 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 		this.MIX_INTERVAL = settings.getPropertyAsInt("TIMED_DYNAMIC_POOL_MIX_INTERVAL");
 		this.POOL_SIZE = settings.getPropertyAsInt("TIMED_DYNAMIC_POOL_POOL_SIZE");
 		this.MAX_REPLACEMENT_RATE = settings.getPropertyAsDouble("TIMED_DYNAMIC_POOL_MAX_REPLACEMENT_RATE");
-		this.requestPool = new SimplexTimedDynamicPool(true);
-		this.replyPool = new SimplexTimedDynamicPool(false);
+		this.timer = new TimingWheel<SimplexTimedDynamicPool>("TimedDynamicPool timer", new ExpirationHandler<SimplexTimedDynamicPool>() {
+			@Override
+			public void expired(List<SimplexTimedDynamicPool> pools) {
+				for (SimplexTimedDynamicPool pool: pools)
+					pool.putOutMessages();
+			}
+		});
 		try {
 			this.secureRandom = SecureRandom.getInstance(settings.getProperty("TIMED_DYNAMIC_POOL_PRNG_ALGORITHM"));
 		} catch (NoSuchAlgorithmException e) {
 			e.printStackTrace();
 			throw new RuntimeException("could not init secureRandom"); 
 		}
+		this.requestPool = new SimplexTimedDynamicPool(true);
+		this.replyPool = new SimplexTimedDynamicPool(false);
 	}
 	
 	
@@ -128,14 +137,13 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 	public class SimplexTimedDynamicPool {
 
 		private boolean isRequestPool;
-		private Vector<MixMessage> collectedMessages;
+		private RandomRemovalPool<MixMessage> collectedMessages;
 		private boolean isFirstMessage = true;
-		private Timer timer = new Timer();
 		
 		
 		public SimplexTimedDynamicPool(boolean isRequestPool) {
-			this.collectedMessages = new Vector<MixMessage>(DEFAULT_POOL_SIZE);
 			this.isRequestPool = isRequestPool;
+			this.collectedMessages = new RandomRemovalPool<MixMessage>(isRequestPool ? Request.class : Reply.class, DEFAULT_POOL_SIZE, secureRandom);
 		}
 		
 		
@@ -144,7 +152,7 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 				if (isFirstMessage) { // "1. Wait for MIX_INTERVAL seconds."
 					isFirstMessage = false; 
 					timer.scheduleAtFixedRate(
-							new TimeoutTask(this), 
+							this, 
 							MIX_INTERVAL, 
 							MIX_INTERVAL
 							); // "3. Repeat indefinitely."
@@ -189,36 +197,15 @@ public class MixPlugIn extends Implementation implements Layer3OutputStrategyMix
 					numberOfMessagesToSend = Math.min(N - POOL_SIZE, numberOfMessagesToSend);
 					// choose and transmit messages:
 					if (numberOfMessagesToSend > 0) {
-						if (isRequestPool) {
-							for (int i=0; i<numberOfMessagesToSend; i++) {
-								int chosen = secureRandom.nextInt(collectedMessages.size());
-								anonNode.putOutRequest((Request)collectedMessages.remove(chosen));
-							}
-						} else {
-							for (int i=0; i<numberOfMessagesToSend; i++) {
-								int chosen = secureRandom.nextInt(collectedMessages.size());
-								anonNode.putOutReply((Reply)collectedMessages.remove(chosen));
-							}
-						}
+						MixMessage[] chosen = collectedMessages.removeRandom(numberOfMessagesToSend);
+						if (isRequestPool)
+							anonNode.putOutRequests((Request[])chosen);
+						else
+							anonNode.putOutReplies((Reply[])chosen);
 					}
 				}
 			}
 		}
-	
-		
-		private final class TimeoutTask extends TimerTask {
-
-			private SimplexTimedDynamicPool linkedPool;
-			
-			protected TimeoutTask(SimplexTimedDynamicPool linkedPool) {
-				this.linkedPool = linkedPool;
-			}
-			
-			@Override 
-			public void run() {
-				linkedPool.putOutMessages();
-			}
-		}	
 	}
 
 	
@@ -32,10 +32,12 @@ import staticContent.framework.util.Util;
 public class MixPlugIn extends Implementation implements Layer4TransportMix {
 
 	private Layer3OutputStrategyMixController layer3controller;
+	private int attachmentSlot; // see UserDatabase.allocateAttachmentSlot()
 	
 	
 	@Override
 	public void constructor() {
+		this.attachmentSlot = userDatabase.allocateAttachmentSlot();
 		System.out.println("loaded " +this +" on " +anonNode.PUBLIC_PSEUDONYM); 
 		this.layer3controller = anonNode.getOutputStrategyLayerControllerMix();
 	}
@@ -55,7 +57,7 @@ public class MixPlugIn extends Implementation implements Layer4TransportMix {
 	
 	@Override
 	public void forwardRequest(Request request) {
-		UserData userData = request.getOwner().getAttachment(this, UserData.class);
+		UserData userData = request.getOwner().getAttachment(attachmentSlot);
 		if (userData == null)
 			userData = new UserData(request.getOwner());
 		if (userData.nextSequenceNumberReceive == Integer.MAX_VALUE)
@@ -98,10 +100,6 @@ public class MixPlugIn extends Implementation implements Layer4TransportMix {
 			); 
 	}
 	
-	private MixPlugIn getThis() {
-		return this;
-	}
-	
 	
 	private class UserData extends UserAttachment {
 
@@ -110,7 +108,7 @@ public class MixPlugIn extends Implementation implements Layer4TransportMix {
 		public int nextSequenceNumberReceive = 0;
 		
 		public UserData(User owner) {
-			super(owner, getThis());
+			super(owner, attachmentSlot);
 			queuedRequests = new PriorityQueue<QueueElement<Request>>();
 		}
 		
@@ -126,7 +124,7 @@ public class MixPlugIn extends Implementation implements Layer4TransportMix {
 	@Override
 	public Reply addLayer4Header(Reply reply) {
 		// TODO: get port-header from layer 4
-		UserData userData = reply.getOwner().getAttachment(this, UserData.class);
+		UserData userData = reply.getOwner().getAttachment(attachmentSlot);
 		assert userData != null;
 		if (userData.nextSequenceNumberSend == Integer.MAX_VALUE)
 			displayErrorMessage();
@@ -18,25 +18,43 @@
 package userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import staticContent.framework.EncDnsServer;
 import staticContent.framework.controller.Implementation;
 import staticContent.framework.interfaces.Layer5ApplicationMix;
+import userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001.UpstreamResolver.ReplyListener;
 
 
 public class MixPlugIn extends Implementation implements Layer5ApplicationMix {
 
 	private LocalResolver localResolver;
+	private ExecutorService localResolverThreads; // LocalResolver is blocking
+	private UpstreamResolver upstreamResolver;
 	
 	
 	@Override
 	public void constructor() {
-		if (EncDnsServer.resolveToLocalhost || EncDnsServer.useInternalResolver)
+		if (EncDnsServer.resolveToLocalhost || EncDnsServer.useInternalResolver) {
 			this.localResolver = new LocalResolver(EncDnsServer.resolveToLocalhost, settings);
+			this.localResolverThreads = Executors.newFixedThreadPool(EncDnsServer.maxThreads);
+		} else {
+			try {
+				this.upstreamResolver = new UpstreamResolver(
+						new InetSocketAddress(EncDnsServer.nsaddr, EncDnsServer.port),
+						EncDnsServer.upstreamSockets,
+						EncDnsServer.timeout,
+						EncDnsServer.retries
+						);
+			} catch (IOException e) {
+				e.printStackTrace();
+				throw new RuntimeException("ERROR: could not open sockets for the remote recursive nameserver"); 
+			}
+		}
 	}
 
 	
@@ -52,56 +70,73 @@ public class MixPlugIn extends Implementation implements Layer5ApplicationMix {
 	}
 
 	
+	/**
+	 * Sends a query to the remote recursive nameserver (or the internal 
+	 * resolver) without waiting for the response. The response (or null, if 
+	 * the query failed) will be passed to the listener.
+	 * @param query query to be sent
+	 * @param listener receives the response
+	 */
+	public void sendQuery(final byte[] query, final ReplyListener listener) {
+		if (upstreamResolver != null) {
+			upstreamResolver.sendQuery(query, listener);
+		} else {
+			localResolverThreads.execute(new Runnable() {
+				@Override
+				public void run() {
+					byte[] reply;
+					try {
+						reply = localResolver.resolve(query);
+					} catch (IOException e) {
+						System.err.println("IO error when querying nameserver");
+						if(EncDnsServer.verbosity >= 1) {
+							System.err.println(e);
+						}
+						reply = null;
+					}
+					listener.replyReceived(query, reply);
+				}
+			});
+		}
+	}
+	
+	
 	/**
      * Sends a query to the remote recursive nameserver and waits for a
      * response.
      * @param query query to be sent
-     * @return response received
+     * @return response received (null if the query timed out)
      */
     public byte[] sendQueryAndListenForReply(byte[] query) {
+    	final ArrayBlockingQueue<byte[]> result = new ArrayBlockingQueue<byte[]>(1);
+    	final byte[] noReply = new byte[0];
+    	sendQuery(query, new ReplyListener() {
+			@Override
+			public void replyReceived(byte[] query, byte[] reply) {
+				result.offer(reply == null ? noReply : reply);
+			}
+		});
     	try {
-        	if (EncDnsServer.resolveToLocalhost || EncDnsServer.useInternalResolver) { 
-        		return localResolver.resolve(query);
-        	} else {
-        		// Open a socket on a new port
-                DatagramSocket udpSock = null;
-                while (udpSock == null) {
-                    try {
-                        int port = 1024 + EncDnsServer.rnd.nextInt(64512);
-                        udpSock = new DatagramSocket(port);
-                    } catch (SocketException e) {
-                        // do nothing as this is being handled by the while loop
-                    }
-                }
-                // Send the decrypted query to the remote recursive nameserver
-                DatagramPacket sendPacket = new DatagramPacket(query, query.length, EncDnsServer.nsaddr, EncDnsServer.port);
-                udpSock.send(sendPacket);
-                
-                // Wait for a response
-                byte[] rcvbytes = new byte[EncDnsServer.MAX_MSG_SIZE];
-                DatagramPacket rcvPkt = new DatagramPacket(rcvbytes, rcvbytes.length);
-                udpSock.setSoTimeout(EncDnsServer.timeout); // Make sure we do not wait for ages...
-                udpSock.receive(rcvPkt);
-                udpSock.close();
-                byte[] rcvDNS = new byte[rcvPkt.getLength()];
-                System.arraycopy(rcvPkt.getData(), rcvPkt.getOffset(), rcvDNS, 0, rcvPkt.getLength());
-                if(EncDnsServer.verbosity >= 1) {
-                    System.out.println("Received reply from aNS");
-                }
-                return rcvDNS;
-        	}
-        } catch (SocketTimeoutException e) {
-            if(EncDnsServer.verbosity >= 1) {
-                System.err.println("Query timed out!");
-            }
-            return null;
-        } catch (IOException e) {
-            System.err.println("IO error when querying nameserver");
-            if(EncDnsServer.verbosity >= 1) {
-                System.err.println(e);
-            }
-            return null;
-        }
+			byte[] reply = result.poll((long)EncDnsServer.timeout * (EncDnsServer.retries + 2), TimeUnit.MILLISECONDS);
+			return (reply == null || reply == noReply) ? null : reply;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+    }
+    
+    
+    /**
+     * Returns the number of queries sent to the nameserver that are not yet 
+     * answered (-1 if the internal resolver is used).
+     */
+    public int getQueriesInFlight() {
+    	return upstreamResolver == null ? -1 : upstreamResolver.getQueriesInFlight();
+    }
+    
+    
+    public String getResolverStatistics() {
+    	return upstreamResolver == null ? "" : upstreamResolver.getStatistics();
     }
 
 }
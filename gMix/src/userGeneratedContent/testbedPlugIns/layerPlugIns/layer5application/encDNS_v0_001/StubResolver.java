@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.dnsProxy_v0_001.DNSUtils;
+
+
+/**
+ * Minimal nameserver for testing the EncDNS server without a real recursive 
+ * nameserver: answers every query with 127.0.0.1 (see 
+ * DNSUtils.resolveDNSQueryToLocalhost()). Replies can be delayed and 
+ * queries can be dropped randomly to test timeouts and retransmissions of 
+ * the UpstreamResolver.
+ * 
+ * Usage: StubResolver [port] [delay in ms] [drop probability]
+ * e.g. start "StubResolver 5353 50 0.1" and the EncDNS server with 
+ * "-a 127.0.0.1 -p 5353".
+ */
+public class StubResolver {
+	
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 5353;
+		final int delay = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		double dropProbability = args.length > 2 ? Double.parseDouble(args[2]) : 0d;
+		final DatagramSocket socket = new DatagramSocket(port, InetAddress.getByName("127.0.0.1"));
+		socket.setReceiveBufferSize(4*1024*1024);
+		ScheduledExecutorService delayer = Executors.newSingleThreadScheduledExecutor();
+		Random random = new Random();
+		System.out.println("stub resolver listening on " +socket.getLocalAddress() +":" +socket.getLocalPort() +" (delay: " +delay +" ms, drop probability: " +dropProbability +")"); 
+		byte[] buffer = new byte[65535];
+		long received = 0;
+		long dropped = 0;
+		while (true) {
+			DatagramPacket query = new DatagramPacket(buffer, buffer.length);
+			socket.receive(query);
+			received++;
+			if (random.nextDouble() < dropProbability) {
+				dropped++;
+				continue;
+			}
+			byte[] reply = DNSUtils.resolveDNSQueryToLocalhost(Arrays.copyOf(query.getData(), query.getLength()));
+			final DatagramPacket replyPacket = new DatagramPacket(reply, reply.length, query.getSocketAddress());
+			if (delay == 0) {
+				socket.send(replyPacket);
+			} else {
+				delayer.schedule(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							socket.send(replyPacket);
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			}
+			if (received % 10000 == 0)
+				System.out.println("received " +received +" queries (dropped: " +dropped +")"); 
+		}
+	}
+	
+}
@@ -0,0 +1,462 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package userGeneratedContent.testbedPlugIns.layerPlugIns.layer5application.encDNS_v0_001;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import staticContent.framework.EncDnsServer;
+
+
+/**
+ * Non-blocking client for the remote recursive nameserver. Instead of opening 
+ * a socket (and blocking a thread) per query, all queries are multiplexed 
+ * over a small number of UDP sockets that are served by a single selector 
+ * thread. Replies are matched to their queries by DNS ID: each query gets a 
+ * random ID that is unique for its socket (the client's ID is restored 
+ * before the reply is handed to the ReplyListener). Queries that are not 
+ * answered within "timeout" ms are retransmitted up to "retries" times; if 
+ * there is still no reply, the ReplyListener is called with null.
+ * 
+ * To keep spoofed replies as hard to guess as with a socket per query, the 
+ * IDs are drawn from a SecureRandom, each socket is bound to a random port 
+ * and sockets are replaced by a new one (on a new random port) after 
+ * MAX_QUERIES_PER_SOCKET queries or MAX_SOCKET_AGE ms. Replaced sockets are 
+ * closed as soon as their last pending query is answered (or timed out).
+ * 
+ * Note: ReplyListeners are called by the selector thread (i.e. they must 
+ * not block).
+ */
+public class UpstreamResolver {
+	
+	private static final int IDS_PER_SOCKET = 65536;
+	private static final int RECEIVE_BUFFER_SIZE = 1024 * 1024;
+	private static final int MAX_QUERIES_PER_SOCKET = 100;
+	private static final long MAX_SOCKET_AGE = 1000; // ms
+	private static final int MIN_PORT = 1024; // no privileged ports
+	
+	private final InetSocketAddress nameserver;
+	private final int timeout;
+	private final int retries;
+	private final Selector selector;
+	private final Upstream[] upstreams;
+	private final ConcurrentLinkedQueue<PendingQuery> newQueries = new ConcurrentLinkedQueue<PendingQuery>();
+	private final ArrayDeque<PendingQuery> timeoutQueue = new ArrayDeque<PendingQuery>(); // ordered by deadline (all queries have the same timeout)
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(EncDnsServer.MAX_MSG_SIZE);
+	private final SecureRandom random = new SecureRandom();
+	private final ArrayList<Upstream> retiredUpstreams = new ArrayList<Upstream>(); // replaced, but still with pending queries
+	private final AtomicInteger queriesInFlight = new AtomicInteger(0);
+	private int nextUpstream = 0;
+	private volatile boolean running = true;
+	
+	private long queriesSent = 0;
+	private long retransmissions = 0;
+	private long timeouts = 0;
+	
+	
+	/**
+	 * Receives the reply for a query passed to sendQuery().
+	 */
+	public interface ReplyListener {
+		
+		/**
+		 * @param query the query (as passed to sendQuery())
+		 * @param reply the nameserver's reply or null if the query timed out 
+		 * (or could not be sent)
+		 */
+		public void replyReceived(byte[] query, byte[] reply);
+		
+	}
+	
+	
+	/**
+	 * @param nameserver address of the remote recursive nameserver
+	 * @param numberOfSockets number of sockets to multiplex queries over 
+	 * (each socket can handle up to 65536 queries at a time)
+	 * @param timeout timeout for a single try in ms
+	 * @param retries number of retransmissions before a query is considered 
+	 * failed
+	 */
+	public UpstreamResolver(InetSocketAddress nameserver, int numberOfSockets, int timeout, int retries) throws IOException {
+		if (numberOfSockets < 1)
+			throw new RuntimeException("ERROR: at least one upstream socket is required"); 
+		if (timeout < 1)
+			throw new RuntimeException("ERROR: timeout must be > 0"); 
+		this.nameserver = nameserver;
+		this.timeout = timeout;
+		this.retries = Math.max(0, retries);
+		this.selector = Selector.open();
+		this.upstreams = new Upstream[numberOfSockets];
+		for (int i=0; i<numberOfSockets; i++)
+			upstreams[i] = openUpstream();
+		Thread selectorThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				selectorLoop();
+			}
+		}, "UpstreamResolver");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+	
+	
+	/**
+	 * Sends the query to the remote recursive nameserver. Returns 
+	 * immediately; the reply is passed to the listener.
+	 */
+	public void sendQuery(byte[] query, ReplyListener listener) {
+		if (query.length < 12 || !running) {
+			listener.replyReceived(query, null);
+			return;
+		}
+		queriesInFlight.incrementAndGet();
+		newQueries.add(new PendingQuery(query, listener));
+		selector.wakeup();
+	}
+	
+	
+	/**
+	 * Returns the number of queries that were passed to sendQuery(), but not 
+	 * yet answered (or timed out).
+	 */
+	public int getQueriesInFlight() {
+		return queriesInFlight.get();
+	}
+	
+	
+	public void close() {
+		running = false;
+		selector.wakeup();
+	}
+	
+	
+	private Upstream openUpstream() throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE); // replies arrive in bursts
+			while (true) { // bind to a random port
+				try {
+					channel.bind(new InetSocketAddress(MIN_PORT + random.nextInt(65536 - MIN_PORT)));
+					break;
+				} catch (BindException e) {
+					// port in use -> try another one
+				}
+			}
+			channel.connect(nameserver); // only accept replies from the nameserver
+			Upstream upstream = new Upstream(channel);
+			channel.register(selector, SelectionKey.OP_READ, upstream);
+			return upstream;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Returns the upstream with the given index; replaces it by a new one 
+	 * first if it has been used long enough.
+	 */
+	private Upstream getUpstream(int index) {
+		Upstream upstream = upstreams[index];
+		if (upstream.queriesSent >= MAX_QUERIES_PER_SOCKET || System.currentTimeMillis() - upstream.creationTime >= MAX_SOCKET_AGE) {
+			try {
+				upstreams[index] = openUpstream();
+			} catch (IOException e) { // keep using the old socket for now
+				if(EncDnsServer.verbosity >= 1)
+					System.err.println("Failed to open new socket for the nameserver: " +e.getMessage()); 
+				return upstream;
+			}
+			upstream.retire();
+			upstream = upstreams[index];
+		}
+		return upstream;
+	}
+	
+	
+	private void selectorLoop() {
+		while (running) {
+			try {
+				long waitTime = 0; // = infinite
+				if (!timeoutQueue.isEmpty())
+					waitTime = Math.max(1, timeoutQueue.peekFirst().deadline - System.currentTimeMillis());
+				selector.select(waitTime);
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (key.isValid() && key.isReadable())
+						receiveReplies((Upstream)key.attachment());
+				}
+				PendingQuery query;
+				while ((query = newQueries.poll()) != null)
+					dispatch(query);
+				handleTimeouts();
+			} catch (IOException e) {
+				if(EncDnsServer.verbosity >= 1) {
+					System.err.println("IO error when querying nameserver");
+					e.printStackTrace();
+				}
+			}
+		}
+		for (Upstream upstream:upstreams)
+			upstream.close();
+		for (Upstream upstream:new ArrayList<Upstream>(retiredUpstreams))
+			upstream.close();
+		PendingQuery query;
+		while ((query = newQueries.poll()) != null)
+			finish(query, null);
+		while ((query = timeoutQueue.poll()) != null)
+			if (!query.done)
+				finish(query, null);
+	}
+	
+	
+	/**
+	 * Assigns a socket and a DNS ID to a new query and sends it.
+	 */
+	private void dispatch(PendingQuery query) throws IOException {
+		for (int i=0; i<upstreams.length; i++) {
+			Upstream upstream = getUpstream(nextUpstream);
+			nextUpstream = (nextUpstream + 1) % upstreams.length;
+			int id = upstream.allocateId(query);
+			if (id != -1) {
+				query.upstream = upstream;
+				query.id = id;
+				query.wireFormat = query.query.clone();
+				query.wireFormat[0] = (byte)(id >>> 8);
+				query.wireFormat[1] = (byte)id;
+				transmit(query);
+				queriesSent++;
+				return;
+			}
+		}
+		// all IDs of all sockets in use
+		if(EncDnsServer.verbosity >= 1)
+			System.err.println("Too many queries in flight, dropping query"); 
+		finish(query, null);
+	}
+	
+	
+	private void transmit(PendingQuery query) throws IOException {
+		query.deadline = System.currentTimeMillis() + timeout;
+		timeoutQueue.addLast(query);
+		// a failed send (e.g. socket buffer full) is handled like a lost packet
+		try {
+			query.upstream.channel.write(ByteBuffer.wrap(query.wireFormat));
+		} catch (IOException e) {
+			if(EncDnsServer.verbosity >= 1)
+				System.err.println("Failed to send query to nameserver: " +e.getMessage()); 
+		}
+	}
+	
+	
+	private void receiveReplies(Upstream upstream) {
+		while (true) {
+			receiveBuffer.clear();
+			SocketAddress sender;
+			try {
+				sender = upstream.channel.receive(receiveBuffer);
+			} catch (IOException e) { // e.g. ICMP port unreachable
+				if(EncDnsServer.verbosity >= 1)
+					System.err.println("Failed to receive reply from nameserver: " +e.getMessage()); 
+				return;
+			}
+			if (sender == null)
+				return; // no more datagrams available
+			receiveBuffer.flip();
+			if (receiveBuffer.remaining() < 12)
+				continue;
+			int id = receiveBuffer.getShort(0) & 0xFFFF;
+			PendingQuery query = upstream.pendingQueries.get(id);
+			if (query == null)
+				continue; // late reply (already timed out) or bogus message
+			if (!hasSameQuestion(query.wireFormat, receiveBuffer))
+				continue; // late reply for a previous query with the same ID
+			byte[] reply = new byte[receiveBuffer.remaining()];
+			receiveBuffer.get(reply);
+			reply[0] = query.query[0];
+			reply[1] = query.query[1];
+			upstream.releaseId(id);
+			query.done = true; // will be removed from timeoutQueue lazily
+			finish(query, reply);
+		}
+	}
+	
+	
+	/**
+	 * Compares the question section of the query with the one of the reply.
+	 */
+	private static boolean hasSameQuestion(byte[] query, ByteBuffer reply) {
+		int questionEnd = 12;
+		while (questionEnd < query.length && query[questionEnd] > 0)
+			questionEnd += query[questionEnd] + 1;
+		questionEnd += 5; // terminating 0-length label, QTYPE and QCLASS
+		if (questionEnd > query.length || questionEnd > reply.limit())
+			return questionEnd > query.length; // no (valid) question to compare
+		for (int i=12; i<questionEnd; i++)
+			if (query[i] != reply.get(i))
+				return false;
+		return true;
+	}
+	
+	
+	private void handleTimeouts() throws IOException {
+		long now = System.currentTimeMillis();
+		while (!timeoutQueue.isEmpty()) {
+			PendingQuery query = timeoutQueue.peekFirst();
+			if (query.done) {
+				timeoutQueue.pollFirst();
+				continue;
+			}
+			if (query.deadline > now)
+				return;
+			timeoutQueue.pollFirst();
+			if (query.attempt < retries) {
+				query.attempt++;
+				retransmissions++;
+				transmit(query);
+			} else {
+				timeouts++;
+				if(EncDnsServer.verbosity >= 1)
+					System.err.println("Query timed out!"); 
+				query.upstream.releaseId(query.id);
+				query.done = true;
+				finish(query, null);
+			}
+		}
+	}
+	
+	
+	private void finish(PendingQuery query, byte[] reply) {
+		queriesInFlight.decrementAndGet();
+		try {
+			query.listener.replyReceived(query.query, reply);
+		} catch (Exception e) {
+			e.printStackTrace(); // don't let a listener kill the selector thread
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of queries sent, retransmissions and timeouts so far 
+	 * (approximate, as the counters are maintained by the selector thread).
+	 */
+	public String getStatistics() {
+		return "queries sent: " +queriesSent +", retransmissions: " +retransmissions +", timeouts: " +timeouts +", in flight: " +queriesInFlight.get();
+	}
+	
+	
+	private class Upstream {
+		
+		private final DatagramChannel channel;
+		private final HashMap<Integer, PendingQuery> pendingQueries = new HashMap<Integer, PendingQuery>(); // by DNS ID (no array: sockets are replaced frequently)
+		private final long creationTime = System.currentTimeMillis();
+		private int queriesSent = 0;
+		private boolean retired = false;
+		
+		
+		private Upstream(DatagramChannel channel) {
+			this.channel = channel;
+		}
+		
+		
+		/**
+		 * Returns a random free DNS ID or -1 if all IDs are in use. On a 
+		 * collision, a new random ID is drawn (the next free ID would be 
+		 * predictable).
+		 */
+		private int allocateId(PendingQuery query) {
+			if (pendingQueries.size() == IDS_PER_SOCKET)
+				return -1;
+			int id = random.nextInt(IDS_PER_SOCKET);
+			while (pendingQueries.containsKey(id)) // unlikely: at most MAX_QUERIES_PER_SOCKET queries per socket
+				id = random.nextInt(IDS_PER_SOCKET);
+			pendingQueries.put(id, query);
+			queriesSent++;
+			return id;
+		}
+		
+		
+		private void releaseId(int id) {
+			pendingQueries.remove(id);
+			if (retired && pendingQueries.isEmpty())
+				close();
+		}
+		
+		
+		/**
+		 * No more new queries will be sent over this socket. It will be 
+		 * closed after its last pending query.
+		 */
+		private void retire() {
+			retired = true;
+			if (pendingQueries.isEmpty())
+				close();
+			else
+				retiredUpstreams.add(this);
+		}
+		
+		
+		private void close() {
+			retiredUpstreams.remove(this);
+			try {
+				channel.close(); // also cancels the SelectionKey
+			} catch (IOException e) {
+				// ignore (nothing to receive anymore)
+			}
+		}
+		
+	}
+	
+	
+	private static class PendingQuery {
+		
+		private final byte[] query;
+		private final ReplyListener listener;
+		private byte[] wireFormat; // = query with upstream DNS ID
+		private Upstream upstream;
+		private int id;
+		private int attempt = 0;
+		private long deadline;
+		private boolean done = false;
+		
+		
+		private PendingQuery(byte[] query, ReplyListener listener) {
+			this.query = query;
+			this.listener = listener;
+		}
+		
+	}
+	
+}
@@ -17,12 +17,10 @@
  *******************************************************************************/
 package userGeneratedContent.testbedPlugIns.staticFunctionPlugIns.layer2recodingScheme.basicReplayDetection_v0_001;
 
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Hashtable;
 
 import staticContent.framework.AnonNode;
-import staticContent.framework.util.Util;
+import staticContent.framework.config.Settings;
 
 
 public class ReplayDetectionBasic {
@@ -30,11 +28,11 @@ public class ReplayDetectionBasic {
 
 	private final int DB_CAPACITY;
 	private final float DB_LOAD_FACTOR;
-	private Hashtable<Integer, byte[]> replayDatabase;
+	private ReplayTagStore replayDatabase;
 	private static HashMap<AnonNode, ReplayDetectionBasic> replayDetections = new HashMap<AnonNode, ReplayDetectionBasic>();
 
 	
-	public static ReplayDetectionBasic getInstance(AnonNode owner) {
+	public static synchronized ReplayDetectionBasic getInstance(AnonNode owner) {
 		ReplayDetectionBasic rd = replayDetections.get(owner);
 		if (rd == null) {
 			rd = new ReplayDetectionBasic(owner);
@@ -45,40 +43,48 @@ public class ReplayDetectionBasic {
 	
 	
 	private ReplayDetectionBasic(AnonNode owner) {
-		this.DB_CAPACITY = owner.getSettings().getPropertyAsInt("REPLAY_DB_CAPACITY");
-		this.DB_LOAD_FACTOR = owner.getSettings().getPropertyAsFloat("DB_LOAD_FACTOR");
-		this.replayDatabase = 
-			new Hashtable<Integer, byte[]>(DB_CAPACITY, DB_LOAD_FACTOR);	
+		Settings settings = owner.getSettings();
+		this.DB_CAPACITY = settings.getPropertyAsInt("REPLAY_DB_CAPACITY");
+		this.DB_LOAD_FACTOR = settings.getPropertyAsFloat("DB_LOAD_FACTOR");
+		int shards = !settings.isPropertyPresent("REPLAY_DB_SHARDS") || settings.getPropertyAsInt("REPLAY_DB_SHARDS") < 1 
+				? 4 * Runtime.getRuntime().availableProcessors() 
+				: settings.getPropertyAsInt("REPLAY_DB_SHARDS");
+		String file = !settings.isPropertyPresent("REPLAY_DB_FILE") || settings.getProperty("REPLAY_DB_FILE").trim().equals("") 
+				? null 
+				: settings.getProperty("REPLAY_DB_FILE").trim();
+		if (file != null)
+			file += "." +owner.PUBLIC_PSEUDONYM; // several mixes may run in the same folder
+		this.replayDatabase = new ReplayTagStore(DB_CAPACITY, DB_LOAD_FACTOR, shards, file);
 	}
 	
 
-	public synchronized boolean isReplay(byte[] identifier) {
-		assert identifier.length >= 8;
-		
-		// switch key, if database is almost full
-		if ((double)replayDatabase.size() > ((double)DB_LOAD_FACTOR*0.9d) * DB_CAPACITY) {
-			System.out.println("key switch");
-			// TODO
-			this.replayDatabase = 
-				new Hashtable<Integer, byte[]>(DB_CAPACITY, DB_LOAD_FACTOR);
-		}
-		
-		/* 
-		 * Use first 4 bytes as key for Hashtabel (appropreate, since 
-		 * java.util.Hashtable uses integers as keys (see class implementation 
-		 * comment for further information)).
-		 */
-		Integer key = Util.byteArrayToInt(Arrays.copyOf(identifier, 4));
+	/**
+	 * Thread-safe; concurrent callers only block each other if their 
+	 * identifiers fall into the same shard.
+	 */
+	public boolean isReplay(byte[] identifier) {
+		return isReplay(identifier, 0);
+	}
+	
+	
+	/**
+	 * Same as isReplay(byte[]), but uses the 8 bytes of "source" starting at 
+	 * "offset" as identifier (no need to copy the identifier first).
+	 */
+	public boolean isReplay(byte[] source, int offset) {
+		assert source.length >= offset + 8;
 		
 		/*
 		 * 8 bytes -> with 2^64 = 18,446,744,073,709,551,616 
 		 * possibilities, collisions are already almost impossible and the 
 		 * space for the remaining 24 bytes can be saved for each entry.
 		 */
-		byte[] value = Arrays.copyOf(identifier, 8);
+		long tag = 0;
+		for (int i=0; i<8; i++)
+			tag = (tag << 8) | (source[offset + i] & 0xFF);
 		
 		// perform replay detection
-		boolean isReplay = (replayDatabase.put(key, value) == null) ? false : true;
+		boolean isReplay = !replayDatabase.add(tag);
 		
 		if (isReplay)
 			System.out.println("replay");
@@ -86,4 +92,17 @@ public class ReplayDetectionBasic {
 		return isReplay;
 	}
 	
-}
\ No newline at end of file
+	
+	/**
+	 * Starts a new epoch, i.e. the identifiers seen before the previous call 
+	 * of this method are forgotten. Should be called when the mix switches 
+	 * its keys (replays of messages encrypted with an old key can't be 
+	 * decrypted anyway). Independent of this method, a shard starts a new 
+	 * epoch as soon as it contains REPLAY_DB_CAPACITY*DB_LOAD_FACTOR/shards 
+	 * identifiers.
+	 */
+	public void switchEpoch() {
+		replayDatabase.nextEpoch();
+	}
+	
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * gMix open source project - https://svs.informatik.uni-hamburg.de/gmix/
+ * Copyright (C) 2014  SVS
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License 
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package userGeneratedContent.testbedPlugIns.staticFunctionPlugIns.layer2recodingScheme.basicReplayDetection_v0_001;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Set of (64 bit) replay tags, split up into independently locked shards 
+ * (open addressing with linear probing in a LongBuffer; no boxing, no 
+ * allocation per tag).
+ * 
+ * Each shard stores two generations ("epochs") of tags: new tags are added 
+ * to the current generation, lookups check both generations. When the 
+ * current generation of a shard is full (or nextEpoch() is called, e.g. 
+ * when the mix switches its keys), the previous generation is cleared and 
+ * becomes the new current generation. Old tags are aged out this way 
+ * instead of dropping the whole history at once.
+ * 
+ * If a file is specified, the tables are memory-mapped from this file, so 
+ * the replay state survives a restart of the mix (written back by the OS; 
+ * no explicit force() per tag) without being loaded into the heap.
+ */
+class ReplayTagStore {
+
+	private final static long MAGIC = 0x674D6978524D4442L; // "gMixRMDB"
+	private final static long VERSION = 2; // 2: shard chosen by the top bits of the hash
+	private final static int FILE_HEADER_LENGTH = 4 * 8; // [magic][version][numberOfShards][slotsPerGeneration]
+	private final static int SHARD_HEADER_LONGS = 4; // [current generation][entries generation 0][entries generation 1][unused]
+	private final static long EMPTY = 0L;
+	
+	private final Shard[] shards;
+	private final int shardShift; // the shard is chosen by the top bits of the hash (the slot by the bottom bits)
+	private final int slotsPerGeneration; // power of 2
+	private final int slotMask;
+	private final int maxEntriesPerGeneration;
+	private RandomAccessFile file; // null if not memory-mapped
+	
+	
+	/**
+	 * @param capacity		number of tags per epoch (all shards)
+	 * @param loadFactor	max load of a generation before it is rotated
+	 * @param numberOfShards	rounded up to a power of 2
+	 * @param fileName		null for an in-heap store
+	 */
+	ReplayTagStore(int capacity, float loadFactor, int numberOfShards, String fileName) {
+		if (capacity < 1 || loadFactor <= 0f || loadFactor >= 1f || numberOfShards < 1)
+			throw new RuntimeException("ERROR: invalid replay db config (capacity: " +capacity +", load factor: " +loadFactor +", shards: " +numberOfShards +")"); 
+		numberOfShards = nextPowerOfTwo(numberOfShards);
+		int entriesPerShard = (capacity + numberOfShards - 1) / numberOfShards;
+		this.slotsPerGeneration = nextPowerOfTwo(Math.max(2, (int)Math.ceil((double)entriesPerShard / (double)loadFactor)));
+		this.slotMask = slotsPerGeneration - 1;
+		this.maxEntriesPerGeneration = Math.max(1, Math.min(slotsPerGeneration - 1, (int)(slotsPerGeneration * loadFactor)));
+		this.shardShift = 32 - Integer.numberOfTrailingZeros(numberOfShards);
+		this.shards = new Shard[numberOfShards];
+		int longsPerShard = SHARD_HEADER_LONGS + 2 * slotsPerGeneration;
+		if (fileName == null) {
+			for (int i=0; i<numberOfShards; i++)
+				shards[i] = new Shard(LongBuffer.allocate(longsPerShard));
+		} else {
+			mapFile(fileName, longsPerShard);
+		}
+	}
+	
+	
+	private void mapFile(String fileName, int longsPerShard) {
+		try {
+			File f = new File(fileName);
+			long shardLength = (long)longsPerShard * 8L;
+			long fileLength = FILE_HEADER_LENGTH + shards.length * shardLength;
+			boolean existed = f.exists();
+			this.file = new RandomAccessFile(f, "rw");
+			FileChannel channel = file.getChannel();
+			boolean compatible = existed 
+					&& file.length() == fileLength 
+					&& file.readLong() == MAGIC 
+					&& file.readLong() == VERSION 
+					&& file.readLong() == shards.length 
+					&& file.readLong() == slotsPerGeneration;
+			if (!compatible) {
+				if (existed)
+					System.out.println("replay db " +fileName +" has a different layout; creating a new one"); 
+				file.setLength(0);
+				file.setLength(fileLength); // new regions are zero (= EMPTY)
+				LongBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_LENGTH).asLongBuffer();
+				header.put(0, MAGIC);
+				header.put(1, VERSION);
+				header.put(2, shards.length);
+				header.put(3, slotsPerGeneration);
+			} else {
+				System.out.println("loaded replay db " +fileName); 
+			}
+			for (int i=0; i<shards.length; i++) {
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, FILE_HEADER_LENGTH + i * shardLength, shardLength);
+				shards[i] = new Shard(region.asLongBuffer());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new RuntimeException("ERROR: could not map replay db " +fileName); 
+		}
+	}
+	
+	
+	/**
+	 * Returns false, if the tag was already contained (= replay).
+	 */
+	boolean add(long tag) {
+		if (tag == EMPTY)
+			tag = 1L; // EMPTY marks free slots
+		long hash = tag * 0x9E3779B97F4A7C15L;
+		hash ^= (hash >>> 32);
+		return shards[(int)((hash >>> 32) >>> shardShift)].add(tag, (int)hash & slotMask);
+	}
+	
+	
+	/**
+	 * Starts a new epoch in all shards (the tags of the previous epoch are 
+	 * forgotten).
+	 */
+	void nextEpoch() {
+		for (Shard shard: shards)
+			shard.nextEpoch();
+	}
+	
+	
+	private static int nextPowerOfTwo(int value) {
+		int result = Integer.highestOneBit(value);
+		return result == value ? value : result << 1;
+	}
+	
+	
+	private class Shard {
+		
+		private final LongBuffer table; // [shard header][generation 0][generation 1]
+		private int current; // index of current generation (0 or 1)
+		private long entries; // entries of current generation
+		
+		
+		private Shard(LongBuffer table) {
+			this.table = table;
+			this.current = (int)table.get(0) & 1;
+			this.entries = table.get(1 + current);
+		}
+		
+		
+		private synchronized boolean add(long tag, int slot) {
+			if (contains(offset(1 - current), tag, slot))
+				return false;
+			int base = offset(current);
+			for (int i=slot;; i=(i+1) & slotMask) { // current generation is never full (see maxEntriesPerGeneration)
+				long value = table.get(base + i);
+				if (value == tag)
+					return false;
+				if (value == EMPTY) {
+					table.put(base + i, tag);
+					table.put(1 + current, ++entries);
+					if (entries >= maxEntriesPerGeneration)
+						nextEpoch();
+					return true;
+				}
+			}
+		}
+		
+		
+		private boolean contains(int base, long tag, int slot) {
+			for (int i=slot;; i=(i+1) & slotMask) {
+				long value = table.get(base + i);
+				if (value == tag)
+					return true;
+				if (value == EMPTY)
+					return false;
+			}
+		}
+		
+		
+		private synchronized void nextEpoch() {
+			int next = 1 - current;
+			int base = offset(next);
+			for (int i=0; i<slotsPerGeneration; i++)
+				table.put(base + i, EMPTY);
+			table.put(1 + next, 0);
+			table.put(0, next);
+			this.current = next;
+			this.entries = 0;
+		}
+		
+		
+		private int offset(int generation) {
+			return SHARD_HEADER_LONGS + generation * slotsPerGeneration;
+		}
+		
+	}
+	
+}